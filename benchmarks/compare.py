@@ -0,0 +1,86 @@
+#!/usr/bin/env python3
+"""
+Compare two JMH JSON result files (see run.sh) and report the change of the
+score and of the allocation per operation of each benchmark.
+
+Usage: compare.py baseline.json candidate.json [--threshold 10]
+
+The exit code is 1 when a benchmark regresses by more than the threshold
+(percent), so the script can be used as a gate.
+"""
+
+import argparse
+import json
+import sys
+
+ALLOC_METRIC = 'gc.alloc.rate.norm'
+
+# The score of these modes is a duration: lower is better
+TIME_MODES = ('avgt', 'sample', 'ss')
+
+
+def load(path):
+    with open(path) as f:
+        results = {}
+        for entry in json.load(f):
+            params = entry.get('params') or {}
+            key = entry['benchmark']
+            if params:
+                key += ' [' + ', '.join('%s=%s' % p for p in sorted(params.items())) + ']'
+            primary = entry['primaryMetric']
+            alloc = entry.get('secondaryMetrics', {}).get(ALLOC_METRIC)
+            results[key] = {
+                'mode': entry['mode'],
+                'score': primary['score'],
+                'error': primary.get('scoreError'),
+                'unit': primary['scoreUnit'],
+                'alloc': alloc['score'] if alloc else None,
+            }
+        return results
+
+
+def change(old, new):
+    if old is None or new is None or old == 0:
+        return None
+    return (new - old) * 100.0 / old
+
+
+def main():
+    parser = argparse.ArgumentParser(description='Compare two JMH JSON result files')
+    parser.add_argument('baseline')
+    parser.add_argument('candidate')
+    parser.add_argument('--threshold', type=float, default=10.0,
+                        help='regression threshold in percent (default: 10)')
+    args = parser.parse_args()
+
+    baseline = load(args.baseline)
+    candidate = load(args.candidate)
+    regressions = 0
+
+    print('%-70s %14s %14s %9s %9s' % ('Benchmark', 'Baseline', 'Candidate', 'Score', 'Alloc'))
+    for key in sorted(set(baseline) | set(candidate)):
+        old = baseline.get(key)
+        new = candidate.get(key)
+        if old is None or new is None:
+            print('%-70s %s' % (key, 'only in baseline' if new is None else 'only in candidate'))
+            continue
+        score_change = change(old['score'], new['score']) or 0.0
+        alloc_change = change(old['alloc'], new['alloc'])
+        # Normalize: a positive value is always a regression
+        regression = score_change if old['mode'] in TIME_MODES else -score_change
+        flag = ''
+        if regression > args.threshold or (alloc_change is not None and alloc_change > args.threshold):
+            flag = ' REGRESSION'
+            regressions += 1
+        print('%-70s %14.3f %14.3f %+8.1f%% %9s%s' % (
+            key, old['score'], new['score'], score_change,
+            '-' if alloc_change is None else '%+.1f%%' % alloc_change, flag))
+
+    if regressions:
+        print('%d regression(s) above %.1f%%' % (regressions, args.threshold))
+        return 1
+    return 0
+
+
+if __name__ == '__main__':
+    sys.exit(main())
@@ -0,0 +1,27 @@
+#!/bin/sh
+#
+# Run the JMH benchmarks with the GC profiler (allocation rate per operation)
+# and write the results as JSON.
+#
+# Usage: ./run.sh [result.json] [JMH options...]
+# Example: ./run.sh baseline.json SearchBenchmark -p docCount=100000
+
+# Move to the directory containing this script
+cd "$(dirname "$0")"
+
+RESULT_FILE=${1:-target/jmh-result.json}
+[ $# -gt 0 ] && shift
+
+# The directory containing the synthetic indexes (reused between runs)
+BENCHMARK_DIR=${BENCHMARK_DIR:-target/benchmark-data}
+
+# The JAVA options of the forked benchmark JVMs. The 1M documents index needs some memory.
+JAVA_OPTS=${JAVA_OPTS:-"-Xms2G -Xmx2G"}
+
+if [ ! -f target/benchmarks.jar ]; then
+	mvn -o -B package || exit 1
+fi
+
+java -jar target/benchmarks.jar \
+	-jvmArgsAppend "${JAVA_OPTS} -Dfile.encoding=UTF-8 -Doss.benchmark.dir=${BENCHMARK_DIR}" \
+	-prof gc -rf json -rff "${RESULT_FILE}" "$@"
@@ -0,0 +1,95 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.benchmark;
+
+import com.jaeksoft.searchlib.analysis.CompiledAnalyzer;
+import com.jaeksoft.searchlib.analysis.LanguageEnum;
+import com.jaeksoft.searchlib.analysis.TokenTerm;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tokenization of synthetic texts by the compiled index analyzers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AnalysisBenchmark {
+
+	private final static int TEXTS = 256;
+
+	@Param({ "TextAnalyzer", "StandardAnalyzer" })
+	public String analyzer;
+
+	private CompiledAnalyzer compiledAnalyzer;
+
+	private String[] texts;
+
+	private int pos;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		compiledAnalyzer = BenchmarkIndex.createIndex("benchmark_analysis")
+				.getSchema()
+				.getAnalyzerList()
+				.get(analyzer, LanguageEnum.UNDEFINED)
+				.getIndexAnalyzer();
+		final SyntheticData data = new SyntheticData();
+		texts = new String[TEXTS];
+		for (int i = 0; i < TEXTS; i++)
+			texts[i] = data.nextText(50, 300);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		BenchmarkIndex.close();
+	}
+
+	@Benchmark
+	public List<TokenTerm> populate() throws IOException {
+		final List<TokenTerm> tokenTerms = new ArrayList<>();
+		compiledAnalyzer.populate(texts[pos++ & (TEXTS - 1)], tokenTerms);
+		return tokenTerms;
+	}
+}
@@ -0,0 +1,188 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.benchmark;
+
+import com.jaeksoft.searchlib.Client;
+import com.jaeksoft.searchlib.ClientCatalog;
+import com.jaeksoft.searchlib.analysis.LanguageEnum;
+import com.jaeksoft.searchlib.index.IndexDocument;
+import com.jaeksoft.searchlib.request.SearchFieldRequest;
+import com.jaeksoft.searchlib.schema.Indexed;
+import com.jaeksoft.searchlib.schema.Schema;
+import com.jaeksoft.searchlib.schema.Stored;
+import com.jaeksoft.searchlib.schema.TermVector;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds (once) the synthetic indexes used by the benchmarks. The data
+ * directory is given by the "oss.benchmark.dir" system property. An index is
+ * only rebuilt when its number of documents does not match the requested one,
+ * so successive runs share the same data.
+ */
+public class BenchmarkIndex {
+
+	public final static String FIELD_ID = "id";
+	public final static String FIELD_TITLE = "title";
+	public final static String FIELD_CONTENT = "content";
+	public final static String FIELD_FULL = "full";
+	public final static String FIELD_CATEGORY = "category";
+	public final static String FIELD_HOST = "host";
+	public final static String FIELD_PRICE = "price";
+	public final static String FIELD_JOIN_KEY = "joinKey";
+	public final static String FIELD_NAME = "name";
+
+	public final static String MAIN_INDEX = "benchmark";
+	public final static String JOIN_INDEX = "benchmark_join";
+	public final static String JOIN_TEMPLATE = "join";
+
+	private final static int BATCH_SIZE = 1000;
+
+	private static File dataDirectory = null;
+
+	/**
+	 * Start the embedded engine on the benchmark data directory
+	 */
+	public synchronized static void init() {
+		if (dataDirectory != null)
+			return;
+		dataDirectory = new File(System.getProperty("oss.benchmark.dir", "target/benchmark-data"));
+		if (!dataDirectory.exists())
+			dataDirectory.mkdirs();
+		ClientCatalog.init(dataDirectory);
+	}
+
+	public synchronized static void close() {
+		if (dataDirectory == null)
+			return;
+		ClientCatalog.close();
+		dataDirectory = null;
+	}
+
+	public static int getKeyCount(final int docCount) {
+		return Math.max(1, docCount / 10);
+	}
+
+	/**
+	 * Create an empty index with the benchmark schema. An existing index is
+	 * erased.
+	 */
+	public static Client createIndex(final String indexName) throws Exception {
+		init();
+		if (ClientCatalog.exists(indexName))
+			ClientCatalog.eraseIndex(indexName);
+		ClientCatalog.createIndex(indexName, "EMPTY_INDEX", null);
+		final Client client = ClientCatalog.getClient(indexName);
+		final Schema schema = client.getSchema();
+		schema.setField(FIELD_ID, Stored.YES, Indexed.YES, TermVector.NO, null);
+		schema.setField(FIELD_TITLE, Stored.YES, Indexed.YES, TermVector.POSITIONS_OFFSETS, "TextAnalyzer");
+		schema.setField(FIELD_CONTENT, Stored.YES, Indexed.YES, TermVector.POSITIONS_OFFSETS, "TextAnalyzer");
+		schema.setField(FIELD_FULL, Stored.NO, Indexed.YES, TermVector.NO, "StandardAnalyzer", FIELD_TITLE,
+				FIELD_CONTENT);
+		schema.setField(FIELD_CATEGORY, Stored.NO, Indexed.YES, TermVector.NO, null);
+		schema.setField(FIELD_HOST, Stored.NO, Indexed.YES, TermVector.NO, null);
+		schema.setField(FIELD_PRICE, Stored.NO, Indexed.YES, TermVector.NO, null);
+		schema.setField(FIELD_JOIN_KEY, Stored.NO, Indexed.YES, TermVector.NO, null);
+		schema.setField(FIELD_NAME, Stored.YES, Indexed.YES, TermVector.NO, "TextAnalyzer");
+		schema.setDefaultUniqueField(FIELD_FULL, FIELD_ID);
+		return client;
+	}
+
+	private static boolean isReady(final String indexName, final int docCount) throws Exception {
+		if (!ClientCatalog.exists(indexName))
+			return false;
+		return ClientCatalog.getClient(indexName).getStatistics().getNumDocs() == docCount;
+	}
+
+	/**
+	 * @param docCount the number of documents
+	 * @return the main index, built if required
+	 */
+	public synchronized static Client getMainIndex(final int docCount) throws Exception {
+		init();
+		if (isReady(MAIN_INDEX, docCount))
+			return ClientCatalog.getClient(MAIN_INDEX);
+		final Client client = createIndex(MAIN_INDEX);
+		final SyntheticData data = new SyntheticData();
+		final int keyCount = getKeyCount(docCount);
+		final List<IndexDocument> batch = new ArrayList<>(BATCH_SIZE);
+		for (int i = 0; i < docCount; i++) {
+			batch.add(data.nextDocument(i, keyCount));
+			if (batch.size() == BATCH_SIZE) {
+				client.updateDocuments(batch);
+				batch.clear();
+			}
+		}
+		if (!batch.isEmpty())
+			client.updateDocuments(batch);
+		return client;
+	}
+
+	/**
+	 * @param docCount the number of documents of the main index
+	 * @return the foreign index of the join benchmarks, one document per join
+	 * key, built if required
+	 */
+	public synchronized static Client getJoinIndex(final int docCount) throws Exception {
+		init();
+		final int keyCount = getKeyCount(docCount);
+		if (isReady(JOIN_INDEX, keyCount))
+			return ClientCatalog.getClient(JOIN_INDEX);
+		final Client client = createIndex(JOIN_INDEX);
+		final SyntheticData data = new SyntheticData(SyntheticData.DEFAULT_SEED + 1);
+		final List<IndexDocument> batch = new ArrayList<>(BATCH_SIZE);
+		for (int i = 0; i < keyCount; i++) {
+			final IndexDocument document = new IndexDocument(LanguageEnum.ENGLISH);
+			document.addString(FIELD_ID, SyntheticData.formatId(i));
+			document.addString(FIELD_NAME, data.nextText(1, 5));
+			batch.add(document);
+			if (batch.size() == BATCH_SIZE) {
+				client.updateDocuments(batch);
+				batch.clear();
+			}
+		}
+		if (!batch.isEmpty())
+			client.updateDocuments(batch);
+		final SearchFieldRequest request = new SearchFieldRequest(client);
+		request.setRequestName(JOIN_TEMPLATE);
+		request.addSearchField(FIELD_NAME, 1.0);
+		client.getRequestMap().put(request);
+		client.saveRequests();
+		return client;
+	}
+
+	/**
+	 * @return a batch of new documents for the indexing benchmarks
+	 */
+	public static List<IndexDocument> nextBatch(final SyntheticData data, final int firstId, final int size,
+			final int keyCount) {
+		final List<IndexDocument> batch = new ArrayList<>(size);
+		for (int i = 0; i < size; i++)
+			batch.add(data.nextDocument(firstId + i, keyCount));
+		return batch;
+	}
+}
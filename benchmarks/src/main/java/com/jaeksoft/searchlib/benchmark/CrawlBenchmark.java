@@ -0,0 +1,146 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.benchmark;
+
+import com.jaeksoft.searchlib.Client;
+import com.jaeksoft.searchlib.ClientCatalog;
+import com.jaeksoft.searchlib.crawler.common.database.FetchStatus;
+import com.jaeksoft.searchlib.crawler.web.database.HostUrlList.ListType;
+import com.jaeksoft.searchlib.crawler.web.database.NamedItem;
+import com.jaeksoft.searchlib.crawler.web.database.UrlItem;
+import com.jaeksoft.searchlib.crawler.web.database.UrlManager;
+import com.jaeksoft.searchlib.crawler.web.database.pattern.PatternListMatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Crawl hot paths: matching of URLs against the inclusion patterns, and the
+ * selection of the hosts and URLs to fetch from the URL database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CrawlBenchmark {
+
+	private final static String CRAWL_INDEX = "benchmark_crawl";
+	private final static int URLS = 4096;
+
+	@Param({ "100000" })
+	public int urlCount;
+
+	@Param({ "1000" })
+	public int patternCount;
+
+	private PatternListMatcher matcher;
+
+	private URL[] urls;
+
+	private int pos;
+
+	private UrlManager urlManager;
+
+	private List<NamedItem> hostList;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		final SyntheticData data = new SyntheticData();
+		final List<String> patterns = new ArrayList<>(patternCount);
+		for (int i = 0; i < patternCount; i++)
+			patterns.add("http://" + data.nextHost() + "/" + data.nextWord() + "/*");
+		matcher = new PatternListMatcher(patterns);
+		urls = new URL[URLS];
+		for (int i = 0; i < URLS; i++)
+			urls[i] = new URL(data.nextUrl());
+
+		BenchmarkIndex.init();
+		if (ClientCatalog.exists(CRAWL_INDEX))
+			ClientCatalog.eraseIndex(CRAWL_INDEX);
+		ClientCatalog.createIndex(CRAWL_INDEX, "WEB_CRAWLER", null);
+		final Client client = ClientCatalog.getClient(CRAWL_INDEX);
+		urlManager = client.getUrlManager();
+		final List<UrlItem> urlItems = new ArrayList<>(1000);
+		for (int i = 0; i < urlCount; i++) {
+			urlItems.add(urlManager.getNewUrlItem(data.nextUrl()));
+			if (urlItems.size() == 1000) {
+				urlManager.updateUrlItems(urlItems);
+				urlItems.clear();
+			}
+		}
+		urlManager.updateUrlItems(urlItems);
+		hostList = new ArrayList<>();
+		urlManager.getHostToFetch(newSelection(), 1000, 10, null, hostList, new HashSet<>());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		BenchmarkIndex.close();
+	}
+
+	private static NamedItem.Selection newSelection() {
+		return new NamedItem.Selection(ListType.NEW_URL, FetchStatus.UN_FETCHED, null, null);
+	}
+
+	@Benchmark
+	public boolean matchPattern() {
+		final URL url = urls[pos++ & (URLS - 1)];
+		return matcher.matchPattern(url, url.toExternalForm());
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public List<NamedItem> getHostToFetch() throws Exception {
+		final List<NamedItem> list = new ArrayList<>();
+		urlManager.getHostToFetch(newSelection(), 1000, 10, null, list, new HashSet<>());
+		return list;
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public List<UrlItem> getUrlToFetch() throws Exception {
+		final List<UrlItem> list = new ArrayList<>();
+		urlManager.getUrlToFetch(hostList.get(pos++ % hostList.size()), 10, null, list);
+		return list;
+	}
+}
@@ -0,0 +1,91 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.benchmark;
+
+import com.jaeksoft.searchlib.Client;
+import com.jaeksoft.searchlib.index.IndexDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Indexing of batches of synthetic documents (analysis, copy fields, Lucene
+ * update and commit). The documents are built outside of the measured method.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IndexingBenchmark {
+
+	@Param({ "100", "1000" })
+	public int batchSize;
+
+	private Client client;
+
+	private SyntheticData data;
+
+	private int nextId;
+
+	private List<IndexDocument> batch;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		client = BenchmarkIndex.createIndex("benchmark_indexing");
+		data = new SyntheticData();
+		nextId = 0;
+	}
+
+	@Setup(Level.Invocation)
+	public void nextBatch() {
+		batch = BenchmarkIndex.nextBatch(data, nextId, batchSize, 100000);
+		nextId += batchSize;
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		BenchmarkIndex.close();
+	}
+
+	@Benchmark
+	public int updateDocuments() throws Exception {
+		return client.updateDocuments(batch);
+	}
+}
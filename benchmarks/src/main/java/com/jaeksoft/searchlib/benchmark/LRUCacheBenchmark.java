@@ -0,0 +1,125 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.benchmark;
+
+import com.jaeksoft.searchlib.cache.LRUCache;
+import com.jaeksoft.searchlib.cache.LRUItemAbstract;
+import com.jaeksoft.searchlib.util.Timer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups in an LRUCache with a skewed key distribution, from one and from
+ * several threads (the cache is guarded by a single lock).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LRUCacheBenchmark {
+
+	private final static int KEYS = 1 << 16;
+
+	public static class IntItem extends LRUItemAbstract<IntItem> {
+
+		private final int key;
+
+		private long value;
+
+		private IntItem(final int key) {
+			this.key = key;
+		}
+
+		@Override
+		protected void populate(final Timer timer) {
+			value = (long) key * key;
+		}
+
+		@Override
+		public int compareTo(final IntItem o) {
+			return Integer.compare(key, o.key);
+		}
+	}
+
+	public static class IntCache extends LRUCache<IntItem> {
+
+		private IntCache(final int maxSize) {
+			super("Benchmark", maxSize);
+		}
+	}
+
+	@Param({ "1000", "10000" })
+	public int cacheSize;
+
+	private IntCache cache;
+
+	private int[] keys;
+
+	@State(Scope.Thread)
+	public static class Cursor {
+		private int pos = new Random().nextInt(KEYS);
+	}
+
+	@Setup
+	public void setup() {
+		cache = new IntCache(cacheSize);
+		final Random random = new Random(SyntheticData.DEFAULT_SEED);
+		keys = new int[KEYS];
+		for (int i = 0; i < KEYS; i++)
+			keys[i] = (int) (Math.pow(random.nextDouble(), 4) * KEYS);
+	}
+
+	private long lookup(final Cursor cursor) throws Exception {
+		final int key = keys[cursor.pos++ & (KEYS - 1)];
+		return cache.getAndJoin(new IntItem(key), null).value;
+	}
+
+	@Benchmark
+	@Threads(1)
+	public long singleThread(final Cursor cursor) throws Exception {
+		return lookup(cursor);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public long fourThreads(final Cursor cursor) throws Exception {
+		return lookup(cursor);
+	}
+}
@@ -0,0 +1,154 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.benchmark;
+
+import com.jaeksoft.searchlib.Client;
+import com.jaeksoft.searchlib.SearchLibException;
+import com.jaeksoft.searchlib.collapse.CollapseParameters;
+import com.jaeksoft.searchlib.join.JoinItem;
+import com.jaeksoft.searchlib.request.SearchFieldRequest;
+import com.jaeksoft.searchlib.result.AbstractResult;
+import com.jaeksoft.searchlib.webservice.query.search.SearchQueryAbstract.Facet.OrderByEnum;
+import com.jaeksoft.searchlib.webservice.query.search.SearchQueryAbstract.FragmenterEnum;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End to end search requests on the synthetic index: plain search, sort,
+ * facet, collapse, join and snippets. The query word rotates over a large set
+ * of words so that the result cache does not answer the requests.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SearchBenchmark {
+
+	private final static int QUERY_WORDS = 1024;
+
+	@Param({ "1000000" })
+	public int docCount;
+
+	private Client client;
+	private String[] queryWords;
+	private int queryPos;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		client = BenchmarkIndex.getMainIndex(docCount);
+		BenchmarkIndex.getJoinIndex(docCount);
+		// Skip the most frequent words (stop-word like), keep selective ones
+		final SyntheticData data = new SyntheticData();
+		queryWords = new String[QUERY_WORDS];
+		for (int i = 0; i < QUERY_WORDS; i++)
+			queryWords[i] = data.getWord(100 + i * 7);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		BenchmarkIndex.close();
+	}
+
+	private SearchFieldRequest newRequest() throws SearchLibException {
+		final SearchFieldRequest request = new SearchFieldRequest(client);
+		request.addSearchField(BenchmarkIndex.FIELD_TITLE, 10.0);
+		request.addSearchField(BenchmarkIndex.FIELD_CONTENT, 1.0);
+		request.setQueryString(queryWords[queryPos++ & (QUERY_WORDS - 1)]);
+		request.addReturnField(BenchmarkIndex.FIELD_ID);
+		request.setRows(10);
+		return request;
+	}
+
+	@Benchmark
+	public AbstractResult<?> search() throws Exception {
+		return client.request(newRequest());
+	}
+
+	@Benchmark
+	public AbstractResult<?> sort() throws Exception {
+		final SearchFieldRequest request = newRequest();
+		request.addSort(0, BenchmarkIndex.FIELD_PRICE, true, false);
+		return client.request(request);
+	}
+
+	@Benchmark
+	public AbstractResult<?> facet() throws Exception {
+		final SearchFieldRequest request = newRequest();
+		request.addFacet(BenchmarkIndex.FIELD_CATEGORY, 1, false, false, 20, OrderByEnum.count_desc, null);
+		request.addFacet(BenchmarkIndex.FIELD_HOST, 1, false, false, 20, OrderByEnum.count_desc, null);
+		return client.request(request);
+	}
+
+	@Benchmark
+	public AbstractResult<?> filter() throws Exception {
+		final SearchFieldRequest request = newRequest();
+		request.addFilter(BenchmarkIndex.FIELD_CATEGORY + ":category1", false);
+		return client.request(request);
+	}
+
+	@Benchmark
+	public AbstractResult<?> collapse() throws Exception {
+		final SearchFieldRequest request = newRequest();
+		request.setCollapseField(BenchmarkIndex.FIELD_HOST);
+		request.setCollapseMax(2);
+		request.setCollapseMode(CollapseParameters.Mode.ADJACENT);
+		return client.request(request);
+	}
+
+	@Benchmark
+	public AbstractResult<?> join() throws Exception {
+		final SearchFieldRequest request = newRequest();
+		final JoinItem joinItem = new JoinItem();
+		joinItem.setIndexName(BenchmarkIndex.JOIN_INDEX);
+		joinItem.setQueryTemplate(BenchmarkIndex.JOIN_TEMPLATE);
+		joinItem.setQueryString(queryWords[queryPos & (QUERY_WORDS - 1)]);
+		joinItem.setLocalField(BenchmarkIndex.FIELD_JOIN_KEY);
+		joinItem.setForeignField(BenchmarkIndex.FIELD_ID);
+		request.getJoinList().add(joinItem);
+		return client.request(request);
+	}
+
+	@Benchmark
+	public AbstractResult<?> snippet() throws Exception {
+		final SearchFieldRequest request = newRequest();
+		request.addSnippetField(BenchmarkIndex.FIELD_CONTENT, FragmenterEnum.SENTENCE, 200, "...", 3);
+		return client.request(request);
+	}
+}
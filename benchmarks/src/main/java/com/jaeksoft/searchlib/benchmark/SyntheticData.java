@@ -0,0 +1,170 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.benchmark;
+
+import com.jaeksoft.searchlib.analysis.LanguageEnum;
+import com.jaeksoft.searchlib.index.IndexDocument;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Reproducible synthetic data. The same seed always gives the same words,
+ * documents and URLs. Words, categories, hosts and join keys follow skewed
+ * (Zipf like) distributions, as in real collections.
+ */
+public class SyntheticData {
+
+	public final static long DEFAULT_SEED = 20170601L;
+
+	public final static int VOCABULARY_SIZE = 50000;
+	public final static int CATEGORY_COUNT = 50;
+	public final static int HOST_COUNT = 10000;
+
+	private final static String[] SYLLABLES =
+			{ "ka", "lo", "mi", "ne", "so", "tu", "ra", "vi", "de", "pa", "gu", "zo", "be", "fi", "ha", "ju", "qui",
+					"wo", "xe", "yl", "ar", "en", "is", "or", "um" };
+
+	private final Random random;
+	private final String[] vocabulary;
+	private final double[] wordDistribution;
+	private final double[] categoryDistribution;
+	private final double[] hostDistribution;
+
+	public SyntheticData(final long seed) {
+		random = new Random(seed);
+		vocabulary = new String[VOCABULARY_SIZE];
+		final Random wordRandom = new Random(seed ^ 0x5DEECE66DL);
+		for (int i = 0; i < VOCABULARY_SIZE; i++) {
+			final StringBuilder sb = new StringBuilder();
+			final int syllables = 2 + wordRandom.nextInt(3);
+			for (int j = 0; j < syllables; j++)
+				sb.append(SYLLABLES[wordRandom.nextInt(SYLLABLES.length)]);
+			// The rank keeps the words unique
+			sb.append(Integer.toString(i, 36));
+			vocabulary[i] = sb.toString();
+		}
+		wordDistribution = zipf(VOCABULARY_SIZE, 1.0);
+		categoryDistribution = zipf(CATEGORY_COUNT, 1.2);
+		hostDistribution = zipf(HOST_COUNT, 0.8);
+	}
+
+	public SyntheticData() {
+		this(DEFAULT_SEED);
+	}
+
+	/**
+	 * @return the cumulative distribution of a Zipf law
+	 */
+	private static double[] zipf(final int size, final double exponent) {
+		final double[] cumulative = new double[size];
+		double sum = 0;
+		for (int i = 0; i < size; i++) {
+			sum += 1 / Math.pow(i + 1, exponent);
+			cumulative[i] = sum;
+		}
+		for (int i = 0; i < size; i++)
+			cumulative[i] /= sum;
+		return cumulative;
+	}
+
+	private int nextRank(final double[] cumulative) {
+		final int pos = Arrays.binarySearch(cumulative, random.nextDouble());
+		final int rank = pos >= 0 ? pos : -pos - 1;
+		return rank < cumulative.length ? rank : cumulative.length - 1;
+	}
+
+	public String getWord(final int rank) {
+		return vocabulary[rank];
+	}
+
+	public String nextWord() {
+		return vocabulary[nextRank(wordDistribution)];
+	}
+
+	public String nextText(final int minWords, final int maxWords) {
+		final int count = minWords + random.nextInt(maxWords - minWords + 1);
+		final StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			if (i > 0)
+				sb.append(i % 15 == 0 ? ". " : " ");
+			sb.append(nextWord());
+		}
+		return sb.toString();
+	}
+
+	public String nextCategory() {
+		return "category" + nextRank(categoryDistribution);
+	}
+
+	public String nextHost() {
+		return "www.host" + nextRank(hostDistribution) + ".example.com";
+	}
+
+	/**
+	 * @param keyCount the number of distinct keys
+	 * @return a join key, a few keys being very frequent
+	 */
+	public String nextJoinKey(final int keyCount) {
+		return formatId((int) (Math.pow(random.nextDouble(), 4) * keyCount));
+	}
+
+	public String nextUrl() {
+		final StringBuilder sb = new StringBuilder("http://");
+		sb.append(nextHost());
+		final int depth = 1 + random.nextInt(4);
+		for (int i = 0; i < depth; i++) {
+			sb.append('/');
+			sb.append(nextWord());
+		}
+		if (random.nextInt(4) == 0) {
+			sb.append("?page=");
+			sb.append(random.nextInt(100));
+		} else
+			sb.append(".html");
+		return sb.toString();
+	}
+
+	public static String formatId(final int id) {
+		return String.format("%010d", id);
+	}
+
+	/**
+	 * @param id       the identifier of the document
+	 * @param keyCount the number of distinct join keys
+	 * @return a new document
+	 */
+	public IndexDocument nextDocument(final int id, final int keyCount) {
+		final IndexDocument document = new IndexDocument(LanguageEnum.ENGLISH);
+		document.addString(BenchmarkIndex.FIELD_ID, formatId(id));
+		document.addString(BenchmarkIndex.FIELD_TITLE, nextText(3, 10));
+		document.addString(BenchmarkIndex.FIELD_CONTENT, nextText(50, 300));
+		document.addString(BenchmarkIndex.FIELD_CATEGORY, nextCategory());
+		document.addString(BenchmarkIndex.FIELD_HOST, nextHost());
+		document.addString(BenchmarkIndex.FIELD_PRICE, formatId(random.nextInt(100000)));
+		document.addString(BenchmarkIndex.FIELD_JOIN_KEY, nextJoinKey(keyCount));
+		return document;
+	}
+}
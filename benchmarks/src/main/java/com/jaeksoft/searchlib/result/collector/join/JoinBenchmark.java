@@ -0,0 +1,130 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.result.collector.join;
+
+import com.jaeksoft.searchlib.index.FieldCacheIndex;
+import com.jaeksoft.searchlib.join.JoinItem.JoinType;
+import com.jaeksoft.searchlib.result.collector.DocIdInterface;
+import com.jaeksoft.searchlib.result.collector.docsethit.DocIdBufferCollector;
+import com.jaeksoft.searchlib.result.collector.docsethit.DocSetHitBaseCollector;
+import com.jaeksoft.searchlib.sort.SorterAbstract.NoCollectorException;
+import com.jaeksoft.searchlib.util.Timer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hash join versus sort-merge join on skewed keys. This benchmark lives in the
+ * package of JoinUtils to reach the join variant which forces the strategy.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class JoinBenchmark {
+
+	@Param({ "1000000" })
+	public int localDocs;
+
+	@Param({ "10000", "1000000" })
+	public int foreignDocs;
+
+	@Param({ "hash", "sortMerge", "auto" })
+	public String strategy;
+
+	private FieldCacheIndex index1;
+	private FieldCacheIndex index2;
+	private DocIdInterface docs1;
+	private DocIdInterface docs2;
+
+	private static FieldCacheIndex newSkewedIndex(final Random random, final int maxDoc, final int keyCount) {
+		final TreeSet<String> terms = new TreeSet<>();
+		final String[] docTerms = new String[maxDoc];
+		for (int doc = 0; doc < maxDoc; doc++) {
+			if (random.nextInt(20) == 0)
+				continue;
+			final int key = (int) (Math.pow(random.nextDouble(), 4) * keyCount);
+			docTerms[doc] = "key" + key;
+			terms.add(docTerms[doc]);
+		}
+		final String[] lookup = new String[terms.size() + 1];
+		int ord = 1;
+		for (String term : terms)
+			lookup[ord++] = term;
+		final int[] order = new int[maxDoc];
+		for (int doc = 0; doc < maxDoc; doc++)
+			order[doc] = docTerms[doc] == null ? 0 : Arrays.binarySearch(lookup, 1, lookup.length, docTerms[doc]);
+		return new FieldCacheIndex(lookup, order);
+	}
+
+	private static DocIdInterface newDocs(final Random random, final int maxDoc, final int percent)
+			throws IOException {
+		final DocSetHitBaseCollector base = new DocSetHitBaseCollector(maxDoc, false);
+		final DocIdBufferCollector collector = new DocIdBufferCollector(base);
+		for (int doc = 0; doc < maxDoc; doc++)
+			if (random.nextInt(100) < percent)
+				collector.collectDoc(doc);
+		collector.endCollection();
+		return base.getCollector(DocIdInterface.class);
+	}
+
+	@Setup
+	public void setup() throws IOException {
+		final Random random = new Random(localDocs * 31L + foreignDocs);
+		index1 = newSkewedIndex(random, localDocs, localDocs / 10);
+		index2 = newSkewedIndex(random, foreignDocs, foreignDocs / 2);
+		docs1 = newDocs(random, localDocs, 60);
+		docs2 = newDocs(random, foreignDocs, 80);
+	}
+
+	@Benchmark
+	public DocIdInterface join() throws NoCollectorException {
+		final Timer timer = new Timer("join");
+		switch (strategy) {
+		case "hash":
+			return JoinUtils.join(docs1, index1, docs2, index2, 1, 0, timer, JoinType.INNER, null, null, true);
+		case "sortMerge":
+			return JoinUtils.join(docs1, index1, docs2, index2, 1, 0, timer, JoinType.INNER, null, null, false);
+		default:
+			return JoinUtils.join(docs1, index1, docs2, index2, 1, 0, timer, JoinType.INNER, null, null);
+		}
+	}
+}
@@ -30,6 +30,7 @@ import com.jaeksoft.searchlib.crawler.web.database.CredentialItem;
 import com.jaeksoft.searchlib.crawler.web.spider.HttpDownloader;
 import com.jaeksoft.searchlib.index.IndexDocument;
 import com.jaeksoft.searchlib.index.IndexStatistics;
+import com.jaeksoft.searchlib.index.XmlStreamLoader;
 import com.jaeksoft.searchlib.request.AbstractRequest;
 import com.jaeksoft.searchlib.request.DocumentsRequest;
 import com.jaeksoft.searchlib.result.AbstractResult;
@@ -165,6 +166,34 @@ public class Client extends Config {
 		return docCount;
 	}
 
+	/**
+	 * Stream the XML feed (updates and deletes) without building a DOM
+	 *
+	 * @param streamSource         the XML feed
+	 * @param resumeOffset         the checkpoint of an interrupted load, or 0
+	 * @param bufferSize           the number of documents per batch
+	 * @param urlDefaultCredential the credential used to download the binaries
+	 * @param httpDownloader       the downloader used for the binaries
+	 * @param infoCallBack         receives the progress
+	 * @return the loader giving the counts and the last checkpoint
+	 * @throws SearchLibException inherited error
+	 * @throws IOException        inherited error
+	 */
+	public XmlStreamLoader loadXmlDocuments(StreamSource streamSource, long resumeOffset, int bufferSize,
+			CredentialItem urlDefaultCredential, HttpDownloader httpDownloader, InfoCallback infoCallBack)
+			throws SearchLibException, IOException {
+		final XmlStreamLoader loader =
+				new XmlStreamLoader(this, bufferSize, urlDefaultCredential, httpDownloader, infoCallBack);
+		final Reader reader = streamSource.getReader();
+		if (reader != null)
+			loader.load(reader, resumeOffset);
+		else if (streamSource.getInputStream() != null)
+			loader.load(streamSource.getInputStream(), resumeOffset);
+		else
+			throw new SearchLibException("No XML stream");
+		return loader;
+	}
+
 	public int updateTextDocuments(StreamSource streamSource, String charset, Integer bufferSize, String capturePattern,
 			Integer langPosition, List<String> fieldList, InfoCallback infoCallBack)
 			throws SearchLibException, IOException, NoSuchAlgorithmException, URISyntaxException,
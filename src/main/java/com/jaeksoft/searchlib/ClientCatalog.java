@@ -52,6 +52,13 @@ import javax.xml.xpath.XPathExpressionException;
 import java.io.*;
 import java.net.URI;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 /**
  * This class handles a list of indexes stored in a given directory.
@@ -62,6 +69,10 @@ public class ClientCatalog {
 
 	private static transient volatile TreeSet<File> OLD_CLIENTS = new TreeSet<File>();
 
+	private static final ConcurrentHashMap<File, FutureTask<Client>> LOADING_CLIENTS = new ConcurrentHashMap<>();
+
+	private static final ConcurrentHashMap<File, Exception> FAILED_CLIENTS = new ConcurrentHashMap<>();
+
 	private static final ReadWriteLock clientsLock = new ReadWriteLock();
 
 	private static final ReadWriteLock usersLock = new ReadWriteLock();
@@ -119,18 +130,136 @@ public class ClientCatalog {
 		}
 		if (i == 0)
 			throw new SearchLibException("Time out while getting " + indexDirectory);
-		clientsLock.w.lock();
+		return loadClient(indexDirectory);
+	}
+
+	/**
+	 * Open an index. Concurrent calls for the same index share the same
+	 * loading: only the first caller opens the index, the others wait for it.
+	 *
+	 * @param indexDirectory the directory of the index
+	 * @return the opened client
+	 * @throws SearchLibException if the index cannot be opened
+	 */
+	private static Client loadClient(final File indexDirectory) throws SearchLibException {
+		final FutureTask<Client> task = new FutureTask<>(() -> openClient(indexDirectory));
+		FutureTask<Client> loading = LOADING_CLIENTS.putIfAbsent(indexDirectory, task);
+		if (loading == null) {
+			loading = task;
+			try {
+				task.run();
+			} finally {
+				LOADING_CLIENTS.remove(indexDirectory, task);
+			}
+		}
+		try {
+			return loading.get();
+		} catch (CancellationException e) {
+			throw new SearchLibException("The index has been closed while loading: " + indexDirectory.getName());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SearchLibException(e);
+		} catch (ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof SearchLibException)
+				throw (SearchLibException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new SearchLibException((Exception) cause);
+		}
+	}
+
+	private static Client openClient(final File indexDirectory) throws SearchLibException {
+		clientsLock.r.lock();
 		try {
 			Client client = CLIENTS.get(indexDirectory);
 			if (client != null)
 				return client;
+		} finally {
+			clientsLock.r.unlock();
+		}
+		final Client client;
+		try {
 			client = ClientFactory.INSTANCE.newClient(indexDirectory, true, false,
 					ClientFactory.INSTANCE.properties.getSilentBackupUrl());
-			CLIENTS.put(indexDirectory, client);
-			return client;
+		} catch (SearchLibException | RuntimeException e) {
+			FAILED_CLIENTS.put(indexDirectory, e);
+			throw e;
+		}
+		FAILED_CLIENTS.remove(indexDirectory);
+		// The index may have been closed, erased or switched while loading
+		final Client current;
+		final boolean cancelled;
+		clientsLock.w.lock();
+		try {
+			current = CLIENTS.get(indexDirectory);
+			final FutureTask<Client> loading = LOADING_CLIENTS.get(indexDirectory);
+			cancelled = (loading != null && loading.isCancelled()) || OLD_CLIENTS.contains(indexDirectory);
+			if (current == null && !cancelled) {
+				CLIENTS.put(indexDirectory, client);
+				return client;
+			}
 		} finally {
 			clientsLock.w.unlock();
 		}
+		client.close();
+		if (cancelled)
+			throw new SearchLibException("The index has been closed while loading: " + indexDirectory.getName());
+		return current;
+	}
+
+	/**
+	 * Prevent a pending loading from publishing its client: the waiting
+	 * callers get an error. The write lock must be held.
+	 */
+	private static void cancelLoadingNoLock(File indexDirectory) {
+		final FutureTask<Client> loading = LOADING_CLIENTS.get(indexDirectory);
+		if (loading != null)
+			loading.cancel(false);
+	}
+
+	public enum IndexStatus {
+		CLOSED, LOADING, READY, FAILED
+	}
+
+	/**
+	 * Returns the loading status of an index without opening it.
+	 *
+	 * @param indexName the name of the index
+	 * @return the status of the index
+	 * @throws SearchLibException if the name is not valid
+	 */
+	public static IndexStatus getIndexStatus(String indexName) throws SearchLibException {
+		final File indexDirectory = getIndexDirectory(indexName);
+		clientsLock.r.lock();
+		try {
+			if (CLIENTS.containsKey(indexDirectory))
+				return IndexStatus.READY;
+		} finally {
+			clientsLock.r.unlock();
+		}
+		if (LOADING_CLIENTS.containsKey(indexDirectory) || isOldClient(indexDirectory))
+			return IndexStatus.LOADING;
+		if (FAILED_CLIENTS.containsKey(indexDirectory))
+			return IndexStatus.FAILED;
+		return IndexStatus.CLOSED;
+	}
+
+	/**
+	 * Returns an index only if it is already opened.
+	 *
+	 * @param indexName the name of the index
+	 * @return the client, or null if the index is not opened
+	 * @throws SearchLibException if the name is not valid
+	 */
+	public static Client getLoadedClient(String indexName) throws SearchLibException {
+		final File indexDirectory = getIndexDirectory(indexName);
+		clientsLock.r.lock();
+		try {
+			return CLIENTS.get(indexDirectory);
+		} finally {
+			clientsLock.r.unlock();
+		}
 	}
 
 	private static List<Client> findDepends(String indexName) {
@@ -150,15 +279,50 @@ public class ClientCatalog {
 		}
 	}
 
+	/**
+	 * Open the indexes at startup using a bounded pool of threads. The hot
+	 * indexes are opened first. With lazy loading, the other indexes are only
+	 * opened on first access.
+	 */
 	public static final void openAll() {
 		try {
 			synchronized (ClientCatalog.class) {
-				for (ClientCatalogItem catalogItem : getClientCatalog(null)) {
-					Logging.info("OSS loads index " + catalogItem.getIndexName());
-					getClient(catalogItem.getIndexName());
+				final InstanceProperties properties = ClientFactory.INSTANCE.properties;
+				final Set<String> hotIndexes = properties.getHotIndexes();
+				final List<String> indexNames = new ArrayList<>();
+				for (ClientCatalogItem catalogItem : getClientCatalog(null))
+					if (hotIndexes.contains(catalogItem.getIndexName()))
+						indexNames.add(catalogItem.getIndexName());
+				if (!properties.isLazyLoading())
+					for (ClientCatalogItem catalogItem : getClientCatalog(null))
+						if (!hotIndexes.contains(catalogItem.getIndexName()))
+							indexNames.add(catalogItem.getIndexName());
+				int threads = properties.getStartupThreads();
+				if (threads <= 0)
+					threads = Runtime.getRuntime().availableProcessors();
+				final ExecutorService executor =
+						Executors.newFixedThreadPool(threads, new ThreadUtils.ThreadGroupFactory(threadGroup));
+				try {
+					final List<Future<?>> futures = new ArrayList<>(indexNames.size());
+					for (String indexName : indexNames)
+						futures.add(executor.submit(() -> {
+							Logging.info("OSS loads index " + indexName);
+							try {
+								getClient(indexName);
+							} catch (SearchLibException e) {
+								Logging.error("OSS failed to load index " + indexName, e);
+							}
+						}));
+					for (Future<?> future : futures)
+						future.get();
+				} finally {
+					executor.shutdown();
 				}
 			}
-		} catch (SearchLibException e) {
+		} catch (SearchLibException | ExecutionException e) {
+			Logging.error(e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
 			Logging.error(e);
 		}
 	}
@@ -177,6 +341,7 @@ public class ClientCatalog {
 				clientsLock.r.unlock();
 			}
 			rendererResults.release();
+			ClusterManager.closeInstance();
 		}
 	}
 
@@ -226,6 +391,7 @@ public class ClientCatalog {
 		clientsLock.w.lock();
 		try {
 			File indexDirectory = getIndexDirectory(indexName);
+			cancelLoadingNoLock(indexDirectory);
 			client = CLIENTS.get(indexDirectory);
 			if (client == null)
 				return;
@@ -349,11 +515,12 @@ public class ClientCatalog {
 		File indexDir = getIndexDirectory(indexName);
 		Client client = null;
 		synchronized (ClientCatalog.class) {
-			clientsLock.r.lock();
+			clientsLock.w.lock();
 			try {
+				cancelLoadingNoLock(indexDir);
 				client = CLIENTS.get(indexDir);
 			} finally {
-				clientsLock.r.unlock();
+				clientsLock.w.unlock();
 			}
 			if (client != null) {
 				client.close();
@@ -482,6 +649,7 @@ public class ClientCatalog {
 	private static void lockClientDir(File clientDir) {
 		clientsLock.w.lock();
 		try {
+			cancelLoadingNoLock(clientDir);
 			CLIENTS.remove(clientDir);
 			OLD_CLIENTS.add(clientDir);
 		} finally {
@@ -57,6 +57,27 @@ public class ClientCatalogItem implements Comparable<ClientCatalogItem> {
 		}
 	}
 
+	/**
+	 * @return the client if the index is already opened, null otherwise
+	 */
+	public Client getLoadedClient() {
+		try {
+			return ClientCatalog.getLoadedClient(indexName);
+		} catch (SearchLibException e) {
+			Logging.error(e);
+			return null;
+		}
+	}
+
+	public ClientCatalog.IndexStatus getStatus() {
+		try {
+			return ClientCatalog.getIndexStatus(indexName);
+		} catch (SearchLibException e) {
+			Logging.error(e);
+			return ClientCatalog.IndexStatus.FAILED;
+		}
+	}
+
 	public Long getSize() {
 		if (lastModifiedAndSize == null)
 			return null;
@@ -69,8 +90,11 @@ public class ClientCatalogItem implements Comparable<ClientCatalogItem> {
 		return FileUtils.byteCountToDisplaySize(lastModifiedAndSize.getSize());
 	}
 
+	/**
+	 * @return the number of documents, or null if the index is not opened yet
+	 */
 	public Integer getNumDocs() throws IOException, SearchLibException {
-		Client client = getClient();
+		Client client = getLoadedClient();
 		if (client == null)
 			return null;
 		if (!client.isOnline())
@@ -25,6 +25,7 @@
 package com.jaeksoft.searchlib;
 
 import com.jaeksoft.searchlib.crawler.web.browser.BrowserDriverEnum;
+import com.jaeksoft.searchlib.index.MergeThrottle;
 import com.jaeksoft.searchlib.util.FileUtils;
 import com.jaeksoft.searchlib.util.properties.PropertyItem;
 import com.jaeksoft.searchlib.util.properties.PropertyItemListener;
@@ -73,6 +74,10 @@ public class ClientFactory implements PropertyItemListener {
 
 	private PropertyItem<Integer> clusterInstanceId;
 
+	private PropertyItem<Integer> mergeMaxWriteMBPerSec;
+
+	private PropertyItem<Integer> mergeSearchWriteMBPerSec;
+
 	private PropertyManager advancedProperties;
 
 	public ClientFactory() throws SearchLibException {
@@ -116,6 +121,11 @@ public class ClientFactory implements PropertyItemListener {
 			clusterInstanceId.addListener(this);
 			if (clusterInstanceId.getValue() == null)
 				clusterInstanceId.setValue((int) System.currentTimeMillis() % 131072);
+			mergeMaxWriteMBPerSec = advancedProperties.newIntegerProperty("mergeMaxWriteMBPerSec", 0, 0, null);
+			mergeSearchWriteMBPerSec = advancedProperties.newIntegerProperty("mergeSearchWriteMBPerSec", 0, 0, null);
+			hasBeenSet(mergeMaxWriteMBPerSec);
+			mergeMaxWriteMBPerSec.addListener(this);
+			mergeSearchWriteMBPerSec.addListener(this);
 		} catch (XPathExpressionException e) {
 			throw new SearchLibException(e);
 		} catch (ParserConfigurationException e) {
@@ -207,12 +217,29 @@ public class ClientFactory implements PropertyItemListener {
 		return clusterInstanceId;
 	}
 
+	/**
+	 * @return the node-wide write rate of the index merges (0: unlimited)
+	 */
+	public PropertyItem<Integer> getMergeMaxWriteMBPerSec() {
+		return mergeMaxWriteMBPerSec;
+	}
+
+	/**
+	 * @return the write rate of the index merges while searches are running
+	 * (0: same as the node-wide rate)
+	 */
+	public PropertyItem<Integer> getMergeSearchWriteMBPerSec() {
+		return mergeSearchWriteMBPerSec;
+	}
+
 	@Override
 	public void hasBeenSet(PropertyItem<?> prop) throws IOException {
 		if (prop == booleanQueryMaxClauseCount)
 			BooleanQuery.setMaxClauseCount(booleanQueryMaxClauseCount.getValue());
 		else if (prop == logFullTrace)
 			Logging.setShowStackTrace(logFullTrace.isValue());
+		else if (prop == mergeMaxWriteMBPerSec || prop == mergeSearchWriteMBPerSec)
+			MergeThrottle.INSTANCE.setRates(mergeMaxWriteMBPerSec.getValue(), mergeSearchWriteMBPerSec.getValue());
 		advancedProperties.save();
 	}
 
@@ -40,7 +40,10 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.text.SimpleDateFormat;
+import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 public class InstanceProperties {
 
@@ -86,6 +89,12 @@ public class InstanceProperties {
 
 	private final String silentBackupUrl;
 
+	private final int startupThreads;
+
+	private final boolean lazyLoading;
+
+	private final Set<String> hotIndexes;
+
 	private final static String REPLICATION_NODEPATH = "/instanceProperties/replication";
 
 	private final static String LIMIT_NODEPATH = "/instanceProperties/limit";
@@ -112,6 +121,14 @@ public class InstanceProperties {
 
 	private final static String SILENT_BACKUP_URL = "silentBackupUrl";
 
+	private final static String STARTUP_NODEPATH = "/instanceProperties/startup";
+
+	private final static String STARTUP_THREADS_ATTR = "threads";
+
+	private final static String STARTUP_LAZY_LOADING_ATTR = "lazyLoading";
+
+	private final static String STARTUP_HOT_INDEXES_ATTR = "hotIndexes";
+
 	private final static String REDIS_API_NODE = "/instanceProperties/redisApi";
 
 	private final static String REDIS_API_HOSTNAME_ATTR = "hostname";
@@ -166,6 +183,17 @@ public class InstanceProperties {
 				silentBackupUrl = null;
 			}
 
+			node = xpp.getNode(STARTUP_NODEPATH);
+			if (node != null) {
+				startupThreads = XPathParser.getAttributeValue(node, STARTUP_THREADS_ATTR);
+				lazyLoading = "yes".equalsIgnoreCase(XPathParser.getAttributeString(node, STARTUP_LAZY_LOADING_ATTR));
+				hotIndexes = splitIndexNames(XPathParser.getAttributeString(node, STARTUP_HOT_INDEXES_ATTR));
+			} else {
+				startupThreads = 0;
+				lazyLoading = false;
+				hotIndexes = Collections.emptySet();
+			}
+
 			node = xpp.getNode(REDIS_API_NODE);
 			if (node != null) {
 				redisApiServerHostname = XPathParser.getAttributeString(node, REDIS_API_HOSTNAME_ATTR);
@@ -194,9 +222,21 @@ public class InstanceProperties {
 			disableWebCrawler = false;
 			disableFileCrawler = false;
 			silentBackupUrl = null;
+			startupThreads = 0;
+			lazyLoading = false;
+			hotIndexes = Collections.emptySet();
 		}
 	}
 
+	private static Set<String> splitIndexNames(String indexNames) {
+		if (indexNames == null || indexNames.isEmpty())
+			return Collections.emptySet();
+		Set<String> set = new LinkedHashSet<>();
+		for (String indexName : StringUtils.split(indexNames, ", "))
+			set.add(indexName);
+		return Collections.unmodifiableSet(set);
+	}
+
 	/**
 	 * @return the maxDocumentLimit
 	 */
@@ -478,4 +518,27 @@ public class InstanceProperties {
 	public String getSilentBackupUrl() {
 		return silentBackupUrl;
 	}
+
+	/**
+	 * @return the number of threads used to open the indexes at startup (0
+	 * means one per available processor)
+	 */
+	public int getStartupThreads() {
+		return startupThreads;
+	}
+
+	/**
+	 * @return true if only the hot indexes are opened at startup, the others
+	 * being opened on first access
+	 */
+	public boolean isLazyLoading() {
+		return lazyLoading;
+	}
+
+	/**
+	 * @return the names of the indexes opened first at startup
+	 */
+	public Set<String> getHotIndexes() {
+		return hotIndexes;
+	}
 }
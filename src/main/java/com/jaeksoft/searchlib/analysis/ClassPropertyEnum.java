@@ -238,6 +238,11 @@ public class ClassPropertyEnum extends ExtensibleEnumItem<ClassPropertyEnum> {
 	public static String[] DEGREES_RADIANS_CONVERSION_LIST = { "Degrees to Radians", "Radians to Degrees",
 			"Check degrees", "Check radians" };
 
+	public static final ClassPropertyEnum COORD_UNIT = new ClassPropertyEnum(true, "coord_unit", "Coordinates unit",
+			"The unit of the latitude and the longitude");
+
+	public static String[] COORD_UNIT_LIST = { "Degrees", "Radians" };
+
 	public static ClassPropertyEnum IGNORE_META_NOINDEX = new ClassPropertyEnum(true, "ignoreMetaNoIndex",
 			"Ignore meta noindex", "Ignore the meta noindex tag in HTML header");
 
@@ -61,6 +61,9 @@ public enum FilterEnum {
 
 	FrenchStemFilter("A filter that stems French words"),
 
+	GeoHashFilter(
+			"This filter encodes a \"latitude,longitude\" token as geohash prefixes. Required by the geohash geospatial filtering."),
+
 	GroupAllTokensFilter("This filter group all tokens to one"),
 
 	HunspellStemFilter(
@@ -0,0 +1,132 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.analysis.filter;
+
+import java.io.IOException;
+import java.util.regex.Pattern;
+
+import org.apache.lucene.analysis.TokenStream;
+
+import com.jaeksoft.searchlib.SearchLibException;
+import com.jaeksoft.searchlib.analysis.ClassPropertyEnum;
+import com.jaeksoft.searchlib.analysis.FilterFactory;
+import com.jaeksoft.searchlib.util.GeoHash;
+
+/**
+ * Encodes a "latitude,longitude" token as the geohash prefixes of the location,
+ * from one character up to {@link GeoHash#DEFAULT_PRECISION}. The prefixes
+ * share the same position.
+ */
+public class GeoHashFilter extends FilterFactory {
+
+	private final static Pattern SEPARATOR = Pattern.compile("[,; ]+");
+
+	public class GeoHashTokenFilter extends AbstractTermFilter {
+
+		private String hash;
+		private int length;
+
+		private GeoHashTokenFilter(TokenStream input) {
+			super(input);
+			hash = null;
+			length = 0;
+		}
+
+		private String getHash() {
+			String[] coords = SEPARATOR.split(termAtt.toString().trim());
+			try {
+				if (coords.length != 2)
+					throw new NumberFormatException("Wrong coordinates: "
+							+ termAtt.toString());
+				double latitude = Double.parseDouble(coords[0]);
+				double longitude = Double.parseDouble(coords[1]);
+				if (!radians) {
+					latitude = Math.toRadians(latitude);
+					longitude = Math.toRadians(longitude);
+				}
+				if (Math.abs(latitude) > Math.PI / 2
+						|| Math.abs(longitude) > Math.PI)
+					throw new NumberFormatException("Out of range: "
+							+ termAtt.toString());
+				return GeoHash.encode(latitude, longitude,
+						GeoHash.DEFAULT_PRECISION);
+			} catch (NumberFormatException e) {
+				if (faultTolerant)
+					return null;
+				throw e;
+			}
+		}
+
+		@Override
+		public final boolean incrementToken() throws IOException {
+			for (;;) {
+				if (hash != null && length < hash.length()) {
+					length++;
+					createToken(hash.substring(0, length), 0,
+							offsetAtt.startOffset(), offsetAtt.endOffset(),
+							typeAtt.type(), flagsAtt.getFlags());
+					return true;
+				}
+				if (!input.incrementToken())
+					return false;
+				hash = getHash();
+				if (hash == null)
+					continue;
+				length = 1;
+				createToken(hash.substring(0, length));
+				return true;
+			}
+		}
+	}
+
+	private boolean faultTolerant = true;
+	private boolean radians = false;
+
+	@Override
+	protected void initProperties() throws SearchLibException {
+		super.initProperties();
+		addProperty(ClassPropertyEnum.COORD_UNIT,
+				ClassPropertyEnum.COORD_UNIT_LIST[0],
+				ClassPropertyEnum.COORD_UNIT_LIST, 0, 0);
+		addProperty(ClassPropertyEnum.FAULT_TOLERANT,
+				ClassPropertyEnum.BOOLEAN_LIST[0],
+				ClassPropertyEnum.BOOLEAN_LIST, 0, 0);
+	}
+
+	@Override
+	protected void checkValue(ClassPropertyEnum prop, String value)
+			throws SearchLibException {
+		if (prop == ClassPropertyEnum.COORD_UNIT)
+			radians = ClassPropertyEnum.COORD_UNIT_LIST[1].equals(value);
+		else if (prop == ClassPropertyEnum.FAULT_TOLERANT)
+			faultTolerant = Boolean.parseBoolean(value);
+	}
+
+	@Override
+	public TokenStream create(TokenStream tokenStream) {
+		return new GeoHashTokenFilter(tokenStream);
+	}
+
+}
@@ -47,7 +47,9 @@ import javax.xml.transform.stream.StreamSource;
 import javax.xml.xpath.XPathExpressionException;
 import java.io.File;
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.TreeSet;
 
 public class Classifier implements Comparable<Classifier>, XmlWriter.Interface {
@@ -79,7 +81,10 @@ public class Classifier implements Comparable<Classifier>, XmlWriter.Interface {
 
 	private ClassificationMethodEnum method;
 
+	private final Map<LanguageEnum, ClassifierRuleIndex> ruleIndexMap;
+
 	public Classifier() {
+		ruleIndexMap = new HashMap<LanguageEnum, ClassifierRuleIndex>();
 		valueSetArray = null;
 		valueSet = new TreeSet<ClassifierItem>();
 		name = null;
@@ -182,6 +187,26 @@ public class Classifier implements Comparable<Classifier>, XmlWriter.Interface {
 	private final void buildValueSetArray() {
 		valueSetArray = new ClassifierItem[valueSet.size()];
 		valueSet.toArray(valueSetArray);
+		synchronized (ruleIndexMap) {
+			ruleIndexMap.clear();
+		}
+	}
+
+	/**
+	 * The rule index is compiled on first use for each language, and dropped
+	 * when the rules change.
+	 */
+	private ClassifierRuleIndex getRuleIndex(Client client, LanguageEnum lang)
+			throws SearchLibException, ParseException, SyntaxError, IOException {
+		synchronized (ruleIndexMap) {
+			ClassifierRuleIndex ruleIndex = ruleIndexMap.get(lang);
+			if (ruleIndex == null) {
+				ruleIndex = new ClassifierRuleIndex(client, lang,
+						valueSetArray == null ? new ClassifierItem[0] : valueSetArray);
+				ruleIndexMap.put(lang, ruleIndex);
+			}
+			return ruleIndex;
+		}
 	}
 
 	private final void addNoLock(ClassifierItem item) {
@@ -315,12 +340,13 @@ public class Classifier implements Comparable<Classifier>, XmlWriter.Interface {
 		}
 	}
 
-	private void multivaluedClassification(Client client, IndexDocument document, LanguageEnum lang, MemoryIndex index)
-			throws ParseException, SearchLibException, SyntaxError, IOException {
+	private void multivaluedClassification(IndexDocument document, ClassifierRuleIndex ruleIndex, MemoryIndex index)
+			throws IOException {
 		boolean setDefaultValue = defaultValue != null && defaultValue.length() > 0;
-		for (ClassifierItem item : valueSet) {
-			float score = item.score(client, lang, index);
+		for (int rule : ruleIndex.getCandidates(index)) {
+			float score = ruleIndex.score(rule, index);
 			if (score > 0.0f) {
+				ClassifierItem item = valueSetArray[rule];
 				document.add(fieldName, item.getValue(), item.getBoost());
 				if (scoreFieldName != null && scoreFieldName.length() > 0)
 					document.addString(scoreFieldName, Float.toString(score));
@@ -333,14 +359,14 @@ public class Classifier implements Comparable<Classifier>, XmlWriter.Interface {
 
 	private final static ThreadSafeDecimalFormat scoreFormat = new ThreadSafeDecimalFormat("0.###########");
 
-	private void bestScoreClassification(Client client, IndexDocument document, LanguageEnum lang, MemoryIndex index)
-			throws ParseException, SearchLibException, SyntaxError, IOException {
+	private void bestScoreClassification(IndexDocument document, ClassifierRuleIndex ruleIndex, MemoryIndex index)
+			throws IOException {
 		ClassifierItem selectedItem = null;
 		float maxScore = 0;
-		for (ClassifierItem item : valueSet) {
-			float score = item.score(client, lang, index);
+		for (int rule : ruleIndex.getCandidates(index)) {
+			float score = ruleIndex.score(rule, index);
 			if (score > maxScore) {
-				selectedItem = item;
+				selectedItem = valueSetArray[rule];
 				maxScore = score;
 			}
 		}
@@ -368,10 +394,11 @@ public class Classifier implements Comparable<Classifier>, XmlWriter.Interface {
 				String concatValues = fieldContent.getMergedValues(" ");
 				index.addField(fieldName, concatValues, analyzer);
 			}
+			ClassifierRuleIndex ruleIndex = getRuleIndex(client, lang);
 			if (method == ClassificationMethodEnum.MULTIVALUED)
-				multivaluedClassification(client, document, lang, index);
+				multivaluedClassification(document, ruleIndex, index);
 			else if (method == ClassificationMethodEnum.BESTSCORE)
-				bestScoreClassification(client, document, lang, index);
+				bestScoreClassification(document, ruleIndex, index);
 
 		} finally {
 			rwl.r.unlock();
@@ -0,0 +1,207 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.classifier;
+
+import com.jaeksoft.searchlib.Client;
+import com.jaeksoft.searchlib.SearchLibException;
+import com.jaeksoft.searchlib.analysis.LanguageEnum;
+import com.jaeksoft.searchlib.function.expression.SyntaxError;
+import com.jaeksoft.searchlib.query.ParseException;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TermEnum;
+import org.apache.lucene.index.memory.MemoryIndex;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.DisjunctionMaxQuery;
+import org.apache.lucene.search.MultiPhraseQuery;
+import org.apache.lucene.search.PhraseQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.spans.SpanTermQuery;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The rules of a classifier compiled as an inverted index (percolator style).
+ * Each rule is keyed by a set of terms: a document containing none of these
+ * terms cannot match the rule, and its query is not executed. The rules whose
+ * query does not give such a set of terms are always executed.
+ */
+class ClassifierRuleIndex {
+
+	private final Query[] queries;
+
+	private final Map<Term, int[]> ruleMap;
+
+	private final RoaringBitmap alwaysChecked;
+
+	ClassifierRuleIndex(final Client client, final LanguageEnum lang, final ClassifierItem[] items)
+			throws SearchLibException, ParseException, SyntaxError, IOException {
+		this(getQueries(client, lang, items));
+	}
+
+	/**
+	 * @param queries the queries of the rules, in the order of the rules
+	 */
+	ClassifierRuleIndex(final Query[] queries) {
+		this.queries = queries;
+		alwaysChecked = new RoaringBitmap();
+		final Map<Term, IntArrayList> rules = new HashMap<>();
+		for (int i = 0; i < queries.length; i++) {
+			final Set<Term> terms = getRequiredTerms(queries[i]);
+			if (terms == null) {
+				alwaysChecked.add(i);
+				continue;
+			}
+			for (Term term : terms)
+				rules.computeIfAbsent(term, t -> new IntArrayList(1)).add(i);
+		}
+		ruleMap = new HashMap<>(rules.size());
+		rules.forEach((term, list) -> ruleMap.put(term, list.toIntArray()));
+	}
+
+	private static Query[] getQueries(final Client client, final LanguageEnum lang, final ClassifierItem[] items)
+			throws SearchLibException, ParseException, SyntaxError, IOException {
+		final Query[] queries = new Query[items.length];
+		for (int i = 0; i < items.length; i++)
+			queries[i] = items[i].getQuery(client, lang);
+		return queries;
+	}
+
+	/**
+	 * Returns a set of terms such as at least one of them is present in any
+	 * document matching the query.
+	 *
+	 * @param query the query
+	 * @return the set of terms, or null if it cannot be computed
+	 */
+	static Set<Term> getRequiredTerms(final Query query) {
+		if (query instanceof TermQuery)
+			return Collections.singleton(((TermQuery) query).getTerm());
+		if (query instanceof SpanTermQuery)
+			return Collections.singleton(((SpanTermQuery) query).getTerm());
+		if (query instanceof PhraseQuery)
+			return getLongestTerm(((PhraseQuery) query).getTerms());
+		if (query instanceof MultiPhraseQuery) {
+			Set<Term> terms = null;
+			for (Term[] termArray : ((MultiPhraseQuery) query).getTermArrays()) {
+				if (terms == null || termArray.length < terms.size()) {
+					terms = new HashSet<>();
+					Collections.addAll(terms, termArray);
+				}
+			}
+			return terms == null || terms.isEmpty() ? null : terms;
+		}
+		if (query instanceof DisjunctionMaxQuery) {
+			final Set<Term> terms = new HashSet<>();
+			for (Query disjunct : (DisjunctionMaxQuery) query) {
+				final Set<Term> disjunctTerms = getRequiredTerms(disjunct);
+				if (disjunctTerms == null)
+					return null;
+				terms.addAll(disjunctTerms);
+			}
+			return terms.isEmpty() ? null : terms;
+		}
+		if (query instanceof BooleanQuery)
+			return getRequiredTerms((BooleanQuery) query);
+		return null;
+	}
+
+	private static Set<Term> getLongestTerm(final Term[] terms) {
+		Term longest = null;
+		for (Term term : terms)
+			if (longest == null || term.text().length() > longest.text().length())
+				longest = term;
+		return longest == null ? null : Collections.singleton(longest);
+	}
+
+	private static Set<Term> getRequiredTerms(final BooleanQuery query) {
+		boolean hasRequired = false;
+		Set<Term> requiredTerms = null;
+		final Set<Term> optionalTerms = new HashSet<>();
+		boolean optionalComplete = true;
+		for (BooleanClause clause : query.getClauses()) {
+			switch (clause.getOccur()) {
+			case MUST:
+				hasRequired = true;
+				final Set<Term> terms = getRequiredTerms(clause.getQuery());
+				// The smallest set gives the less candidates
+				if (terms != null && (requiredTerms == null || terms.size() < requiredTerms.size()))
+					requiredTerms = terms;
+				break;
+			case SHOULD:
+				final Set<Term> shouldTerms = getRequiredTerms(clause.getQuery());
+				if (shouldTerms == null)
+					optionalComplete = false;
+				else
+					optionalTerms.addAll(shouldTerms);
+				break;
+			default:
+				break;
+			}
+		}
+		if (hasRequired)
+			return requiredTerms;
+		// Without required clause, at least one optional clause must match
+		return optionalComplete && !optionalTerms.isEmpty() ? optionalTerms : null;
+	}
+
+	/**
+	 * @param index the document
+	 * @return the positions of the rules which may match the document, in the order of the rules
+	 * @throws IOException if the terms of the document cannot be read
+	 */
+	RoaringBitmap getCandidates(final MemoryIndex index) throws IOException {
+		final RoaringBitmap candidates = alwaysChecked.clone();
+		final IndexReader reader = index.createSearcher().getIndexReader();
+		final TermEnum termEnum = reader.terms(new Term("", ""));
+		try {
+			do {
+				final Term term = termEnum.term();
+				if (term == null)
+					break;
+				final int[] rules = ruleMap.get(term);
+				if (rules != null)
+					for (int rule : rules)
+						candidates.add(rule);
+			} while (termEnum.next());
+		} finally {
+			termEnum.close();
+		}
+		return candidates;
+	}
+
+	float score(final int rule, final MemoryIndex index) {
+		return index.search(queries[rule]);
+	}
+}
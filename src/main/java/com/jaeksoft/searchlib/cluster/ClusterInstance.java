@@ -29,13 +29,31 @@ import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.core.JsonGenerationException;
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonMappingException;
+import com.jaeksoft.searchlib.Logging;
+import com.jaeksoft.searchlib.SearchLibException;
+import com.jaeksoft.searchlib.crawler.web.spider.DownloadItem;
+import com.jaeksoft.searchlib.crawler.web.spider.HttpDownloader;
 import com.jaeksoft.searchlib.util.JsonUtils;
+import com.jaeksoft.searchlib.util.StringUtils;
 
 public class ClusterInstance {
 
@@ -43,10 +61,35 @@ public class ClusterInstance {
 	private Integer id = null;
 	private String login = null;
 	private String apiKey = null;
-	private ClusterStatus status = ClusterStatus.UNKNOWN;
-	private Long statusTime = null;
+	private volatile ClusterStatus status = ClusterStatus.UNKNOWN;
+	private volatile Long statusTime = null;
 	private int allowedConnectionTimeOut = 1000;
 
+	public final static String SERVICES_PATH = "/services/rest";
+
+	private final static String USER_AGENT = "OpenSearchServer cluster";
+
+	// The time out of the routed requests
+	private final static int REQUEST_TIMEOUT = 60000;
+
+	// Weight of the last measure in the latency moving average
+	private final static double LATENCY_WEIGHT = 0.3;
+
+	// Number of consecutive failed requests before the instance is excluded
+	private final static int MAX_CONSECUTIVE_FAILURES = 3;
+
+	// Runtime state updated by the probes and the routed requests
+
+	private volatile double latency = 0;
+	private volatile double requestLatency = 0;
+	private final AtomicInteger consecutiveFailures = new AtomicInteger();
+	private volatile double loadPerProcessor = 0;
+	private volatile int runningSearches = 0;
+	private volatile Map<String, Long> indexVersions = Collections.emptyMap();
+	private volatile boolean outlier = false;
+	private HttpDownloader probeDownloader = null;
+	private final ConcurrentLinkedQueue<HttpDownloader> downloaders = new ConcurrentLinkedQueue<HttpDownloader>();
+
 	/**
 	 * @return the instanceUrl
 	 */
@@ -130,9 +173,249 @@ public class ClusterInstance {
 		return id;
 	}
 
-	// TODO
-	public void checkStatus() {
+	/**
+	 * @return the average latency of the status probes in milliseconds (0 if
+	 *         unknown)
+	 */
+	@JsonIgnore
+	public double getLatency() {
+		return latency;
+	}
+
+	/**
+	 * @return the average duration of the routed requests in milliseconds (0
+	 *         if unknown)
+	 */
+	@JsonIgnore
+	public double getRequestLatency() {
+		return requestLatency;
+	}
+
+	/**
+	 * @return the system load average divided by the number of processors
+	 */
+	@JsonIgnore
+	public double getLoadPerProcessor() {
+		return loadPerProcessor;
+	}
+
+	/**
+	 * @return the number of searches running on the instance
+	 */
+	@JsonIgnore
+	public int getRunningSearches() {
+		return runningSearches;
+	}
+
+	/**
+	 * @param indexName
+	 *            the name of an index
+	 * @return the version of the index served by the instance, or null
+	 */
+	public Long getIndexVersion(String indexName) {
+		return indexVersions.get(indexName);
+	}
+
+	/**
+	 * @return the index versions returned by the last probe
+	 */
+	@JsonIgnore
+	public Map<String, Long> getIndexVersions() {
+		return indexVersions;
+	}
+
+	/**
+	 * @return true if the latency is far above the latency of the other
+	 *         instances
+	 */
+	@JsonIgnore
+	public boolean isOutlier() {
+		return outlier;
+	}
 
+	void setOutlier(boolean outlier) {
+		this.outlier = outlier;
+	}
+
+	private void updateStatus(ClusterStatus status) {
+		this.status = status;
+		this.statusTime = System.currentTimeMillis();
+	}
+
+	private static double average(double average, long ms) {
+		return average == 0 ? ms : average * (1 - LATENCY_WEIGHT) + ms
+				* LATENCY_WEIGHT;
+	}
+
+	private synchronized void addLatency(long ms) {
+		latency = average(latency, ms);
+	}
+
+	private synchronized void addRequestLatency(long ms) {
+		requestLatency = average(requestLatency, ms);
+	}
+
+	/**
+	 * Called when a routed request succeeded
+	 * 
+	 * @param ms
+	 *            the duration of the request
+	 */
+	void success(long ms) {
+		consecutiveFailures.set(0);
+		addRequestLatency(ms);
+	}
+
+	/**
+	 * Called when a routed request failed. After a few consecutive failures
+	 * the instance is excluded until the next successful probe.
+	 */
+	void failure() {
+		if (consecutiveFailures.incrementAndGet() >= MAX_CONSECUTIVE_FAILURES)
+			updateStatus(ClusterStatus.CONNECTION_ERROR);
+	}
+
+	/**
+	 * @param path
+	 *            a path relative to the REST services
+	 * @return the URI of the service, including the credentials
+	 * @throws URISyntaxException
+	 */
+	URI getServiceUri(String path) throws URISyntaxException {
+		final URIBuilder builder = new URIBuilder(uri);
+		builder.setPath(StringUtils.removeEnd(uri.getPath(), "/")
+				+ SERVICES_PATH + path);
+		if (login != null)
+			builder.addParameter("login", login);
+		if (apiKey != null)
+			builder.addParameter("key", apiKey);
+		return builder.build();
+	}
+
+	/**
+	 * Call the cluster service of the instance to check its status, its load
+	 * and the version of the given indexes.
+	 * 
+	 * @param localId
+	 *            the ID of the local instance
+	 * @param indexNames
+	 *            the indexes
+	 */
+	public synchronized void checkStatus(Integer localId,
+			Collection<String> indexNames) {
+		final long start = System.currentTimeMillis();
+		try {
+			if (probeDownloader == null)
+				probeDownloader = new HttpDownloader(USER_AGENT, false, null,
+						allowedConnectionTimeOut);
+			final URIBuilder builder = new URIBuilder(
+					getServiceUri("/cluster/json"));
+			if (indexNames != null)
+				for (String indexName : indexNames)
+					builder.addParameter("index", indexName);
+			final DownloadItem downloadItem = probeDownloader.get(
+					builder.build(), null);
+			final Integer statusCode = downloadItem.getStatusCode();
+			if (statusCode != null && (statusCode == 401 || statusCode == 403)) {
+				updateStatus(ClusterStatus.AUTHENTICATION_ERROR);
+				return;
+			}
+			downloadItem.checkNoErrorList(200);
+			JSONObject json = new JSONObject(
+					downloadItem.getContentAsString());
+			if (json.has("result"))
+				json = json.getJSONObject("result");
+			addLatency(System.currentTimeMillis() - start);
+			consecutiveFailures.set(0);
+			id = json.has("id") ? json.getInt("id") : null;
+			final int processors = json.optInt("processors", 1);
+			loadPerProcessor = Math.max(0, json.optDouble("loadAverage", 0))
+					/ Math.max(1, processors);
+			runningSearches = json.optInt("runningSearches", 0);
+			indexVersions = readIndexVersions(json.opt("indexes"));
+			updateStatus(localId != null && localId.equals(id) ? ClusterStatus.INSTANCE_ID_CONFLICT
+					: ClusterStatus.OK);
+		} catch (IOException | URISyntaxException | SearchLibException
+				| JSONException e) {
+			Logging.warn("Cluster instance " + uri + " is not available: "
+					+ e.getMessage());
+			updateStatus(ClusterStatus.CONNECTION_ERROR);
+			releaseProbeDownloader();
+		}
+	}
+
+	private static Map<String, Long> readIndexVersions(Object indexes)
+			throws JSONException {
+		if (indexes == null)
+			return Collections.emptyMap();
+		final Map<String, Long> map = new HashMap<String, Long>();
+		if (indexes instanceof JSONArray) {
+			final JSONArray array = (JSONArray) indexes;
+			for (int i = 0; i < array.length(); i++)
+				readIndexVersion(array.getJSONObject(i), map);
+		} else if (indexes instanceof JSONObject)
+			readIndexVersion((JSONObject) indexes, map);
+		return map;
+	}
+
+	private static void readIndexVersion(JSONObject json, Map<String, Long> map)
+			throws JSONException {
+		if (json.has("name") && json.has("version"))
+			map.put(json.getString("name"), json.getLong("version"));
+	}
+
+	/**
+	 * Execute a request on the REST services of the instance
+	 * 
+	 * @param path
+	 *            a path relative to the REST services
+	 * @param jsonBody
+	 *            the JSON body of a POST request, or null for a GET request
+	 * @return the content of the response
+	 * @throws IOException
+	 * @throws URISyntaxException
+	 * @throws SearchLibException
+	 */
+	String request(String path, String jsonBody) throws IOException,
+			URISyntaxException, SearchLibException {
+		HttpDownloader downloader = downloaders.poll();
+		if (downloader == null)
+			downloader = new HttpDownloader(USER_AGENT, false, null,
+					REQUEST_TIMEOUT);
+		boolean reusable = false;
+		try {
+			final URI serviceUri = getServiceUri(path);
+			final DownloadItem downloadItem = jsonBody == null ? downloader
+					.get(serviceUri, null) : downloader.post(serviceUri, null,
+					null, null, new StringEntity(jsonBody,
+							ContentType.APPLICATION_JSON));
+			downloadItem.checkNoErrorList(200);
+			final String content = downloadItem.getContentAsString();
+			reusable = true;
+			return content;
+		} finally {
+			if (reusable)
+				downloaders.offer(downloader);
+			else
+				downloader.release();
+		}
+	}
+
+	private synchronized void releaseProbeDownloader() {
+		if (probeDownloader == null)
+			return;
+		probeDownloader.release();
+		probeDownloader = null;
+	}
+
+	/**
+	 * Release the HTTP connections
+	 */
+	void release() {
+		releaseProbeDownloader();
+		HttpDownloader downloader;
+		while ((downloader = downloaders.poll()) != null)
+			downloader.release();
 	}
 
 	private final static TypeReference<List<ClusterInstance>> ClusterInstanceListTypeRef = new TypeReference<List<ClusterInstance>>() {
@@ -26,31 +26,91 @@ package com.jaeksoft.searchlib.cluster;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.databind.JsonMappingException;
+import com.jaeksoft.searchlib.ClientCatalog;
+import com.jaeksoft.searchlib.ClientFactory;
+import com.jaeksoft.searchlib.Logging;
 import com.jaeksoft.searchlib.SearchLibException;
 import com.jaeksoft.searchlib.util.ReadWriteLock;
 import com.jaeksoft.searchlib.web.StartStopListener;
 
 public class ClusterManager {
 
+	// The period of the status probes
+	private final static long CHECK_PERIOD = 5000;
+
+	// Below this latency (ms) an instance is never considered as an outlier
+	private final static double MIN_OUTLIER_LATENCY = 50;
+
+	// An instance slower than this factor times the median is an outlier
+	private final static double OUTLIER_FACTOR = 3;
+
 	private final ReadWriteLock rwl = new ReadWriteLock();
 
 	private final File clusterFile;
 
 	private final LinkedHashSet<ClusterInstance> clusterInstances;
 
-	private ClusterManager(File instanceDataDir) throws JsonParseException,
+	private final Supplier<Integer> localId;
+
+	private final Predicate<String> localIndex;
+
+	// The indexes whose version is requested by the probes
+	private final Set<String> routedIndexes;
+
+	private final ExecutorService executor;
+
+	private final ClusterRouter router;
+
+	private ScheduledExecutorService scheduler = null;
+
+	/**
+	 * @param instanceDataDir
+	 *            the directory of the cluster configuration
+	 * @param localId
+	 *            provides the ID of the local instance
+	 * @param localIndex
+	 *            tells if an index exists on the local instance
+	 */
+	ClusterManager(File instanceDataDir, Supplier<Integer> localId,
+			Predicate<String> localIndex) throws JsonParseException,
 			JsonMappingException, IOException {
 		clusterFile = new File(instanceDataDir, "cluster.xml");
 		List<ClusterInstance> clusterInstanceList = ClusterInstance
 				.readList(clusterFile);
 		clusterInstances = clusterInstanceList == null ? new LinkedHashSet<ClusterInstance>(
 				0) : new LinkedHashSet<ClusterInstance>(clusterInstanceList);
+		this.localId = localId;
+		this.localIndex = localIndex;
+		routedIndexes = ConcurrentHashMap.newKeySet();
+		executor = Executors.newCachedThreadPool(newThreadFactory());
+		router = new ClusterRouter(this, executor);
+	}
+
+	private static ThreadFactory newThreadFactory() {
+		return target -> {
+			Thread thread = new Thread(target, "Cluster");
+			thread.setDaemon(true);
+			return thread;
+		};
 	}
 
 	private static ClusterManager INSTANCE = null;
@@ -68,8 +128,12 @@ public class ClusterManager {
 		try {
 			if (INSTANCE != null)
 				return INSTANCE;
-			return INSTANCE = new ClusterManager(
-					StartStopListener.OPENSEARCHSERVER_DATA_FILE);
+			INSTANCE = new ClusterManager(
+					StartStopListener.OPENSEARCHSERVER_DATA_FILE,
+					() -> ClientFactory.INSTANCE.getClusterInstanceId()
+							.getValue(), ClusterManager::isLocalIndex);
+			INSTANCE.start(CHECK_PERIOD);
+			return INSTANCE;
 		} catch (IOException e) {
 			throw new SearchLibException(e);
 		} finally {
@@ -77,14 +141,59 @@ public class ClusterManager {
 		}
 	}
 
+	private static boolean isLocalIndex(String indexName) {
+		try {
+			return ClientCatalog.exists(indexName);
+		} catch (SearchLibException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Stop the probes and release the connections of the running manager
+	 */
+	public static final void closeInstance() {
+		rwlInstance.w.lock();
+		try {
+			if (INSTANCE == null)
+				return;
+			INSTANCE.close();
+			INSTANCE = null;
+		} finally {
+			rwlInstance.w.unlock();
+		}
+	}
+
+	/**
+	 * Start the periodic status probes
+	 * 
+	 * @param period
+	 *            the period in milliseconds
+	 */
+	synchronized void start(long period) {
+		if (scheduler != null)
+			return;
+		scheduler = Executors
+				.newSingleThreadScheduledExecutor(newThreadFactory());
+		scheduler.scheduleWithFixedDelay(() -> {
+			try {
+				checkStatus();
+			} catch (Exception e) {
+				Logging.warn(e);
+			}
+		}, 0, period, TimeUnit.MILLISECONDS);
+	}
+
 	public void set(ClusterInstance oldInstance, ClusterInstance newInstance)
 			throws IOException {
 		if (oldInstance == null && newInstance == null)
 			return;
 		rwl.w.lock();
 		try {
-			if (oldInstance != null)
+			if (oldInstance != null) {
 				clusterInstances.remove(oldInstance);
+				oldInstance.release();
+			}
 			if (newInstance != null)
 				clusterInstances.add(newInstance);
 			ClusterInstance.writeList(clusterInstances, clusterFile);
@@ -101,4 +210,116 @@ public class ClusterManager {
 			rwl.r.unlock();
 		}
 	}
+
+	private List<ClusterInstance> getInstanceList() {
+		rwl.r.lock();
+		try {
+			return new ArrayList<ClusterInstance>(clusterInstances);
+		} finally {
+			rwl.r.unlock();
+		}
+	}
+
+	/**
+	 * @return the router which forwards the requests to the replicas
+	 */
+	public ClusterRouter getRouter() {
+		return router;
+	}
+
+	/**
+	 * Probe every instance in parallel, then flag the instances whose latency
+	 * is far above the median latency.
+	 */
+	public void checkStatus() {
+		final List<ClusterInstance> instances = getInstanceList();
+		if (instances.isEmpty())
+			return;
+		routedIndexes.removeIf(localIndex.negate());
+		final Integer id = localId == null ? null : localId.get();
+		final List<Future<?>> futures = new ArrayList<Future<?>>(
+				instances.size());
+		for (ClusterInstance instance : instances)
+			futures.add(executor.submit(() -> instance.checkStatus(id,
+					routedIndexes)));
+		try {
+			for (Future<?> future : futures)
+				future.get();
+		} catch (Exception e) {
+			Logging.warn(e);
+		}
+		updateOutliers(instances);
+	}
+
+	private static void updateOutliers(List<ClusterInstance> instances) {
+		final List<Double> latencies = new ArrayList<Double>(instances.size());
+		for (ClusterInstance instance : instances)
+			if (instance.getStatus() == ClusterStatus.OK
+					&& instance.getLatency() > 0)
+				latencies.add(instance.getLatency());
+		if (latencies.isEmpty())
+			return;
+		Collections.sort(latencies);
+		final double limit = Math.max(MIN_OUTLIER_LATENCY, OUTLIER_FACTOR
+				* latencies.get(latencies.size() / 2));
+		for (ClusterInstance instance : instances)
+			instance.setOutlier(instance.getLatency() > limit);
+	}
+
+	private static double getCost(ClusterInstance instance) {
+		return Math.max(1, instance.getLatency())
+				* (1 + instance.getRunningSearches())
+				* Math.max(1, instance.getLoadPerProcessor());
+	}
+
+	/**
+	 * Returns the instances able to serve the given index: the instances
+	 * which are available, not significantly slower than the others, and
+	 * which serve the most recent version of the index. The cheapest instance
+	 * comes first.
+	 * 
+	 * Only the local indexes are routed. The version of an index routed for
+	 * the first time is only known after the next probe, which is started in
+	 * background.
+	 * 
+	 * @param indexName
+	 *            the name of the index
+	 * @return the list of the replicas, the best one first
+	 */
+	public List<ClusterInstance> getReplicas(String indexName) {
+		if (!routedIndexes.contains(indexName) && localIndex.test(indexName)
+				&& routedIndexes.add(indexName) && !executor.isShutdown())
+			executor.execute(this::checkStatus);
+		final List<ClusterInstance> replicas = new ArrayList<ClusterInstance>();
+		long maxVersion = Long.MIN_VALUE;
+		for (ClusterInstance instance : getInstanceList()) {
+			if (instance.getStatus() != ClusterStatus.OK
+					|| instance.isOutlier())
+				continue;
+			final Long version = instance.getIndexVersion(indexName);
+			if (version == null)
+				continue;
+			if (version > maxVersion) {
+				maxVersion = version;
+				replicas.clear();
+			}
+			if (version == maxVersion)
+				replicas.add(instance);
+		}
+		replicas.sort(Comparator.comparingDouble(ClusterManager::getCost));
+		return replicas;
+	}
+
+	/**
+	 * Stop the probes and release the connections
+	 */
+	public synchronized void close() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+			scheduler = null;
+		}
+		executor.shutdownNow();
+		for (ClusterInstance instance : getInstanceList())
+			instance.release();
+	}
 }
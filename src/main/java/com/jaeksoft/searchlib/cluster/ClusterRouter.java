@@ -0,0 +1,184 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.cluster;
+
+import com.jaeksoft.searchlib.SearchLibException;
+import com.jaeksoft.searchlib.SearchLibException.WrongStatusCodeException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Forwards the requests to the best replica of an index. If the replica does
+ * not answer within its usual latency, the request is hedged on the next
+ * replica and the first response wins. A request which failed to reach its
+ * replica is immediately retried on the next replica. An error returned by a
+ * replica (e.g. a malformed query) is returned to the caller as is.
+ */
+public class ClusterRouter {
+
+	// The maximum number of replicas tried for one request
+	private final static int MAX_ATTEMPTS = 3;
+
+	// The minimum delay before hedging a request in milliseconds
+	private final static long MIN_HEDGE_DELAY = 100;
+
+	// The delay before hedging when the duration of the requests is unknown
+	private final static long DEFAULT_HEDGE_DELAY = 1000;
+
+	private final ClusterManager clusterManager;
+
+	private final ExecutorService executor;
+
+	ClusterRouter(ClusterManager clusterManager, ExecutorService executor) {
+		this.clusterManager = clusterManager;
+		this.executor = executor;
+	}
+
+	/**
+	 * The delay is based on the duration of the previous requests, not on the
+	 * latency of the status probes which is much lower.
+	 */
+	private static long getHedgeDelay(ClusterInstance instance) {
+		final double requestLatency = instance.getRequestLatency();
+		if (requestLatency == 0)
+			return DEFAULT_HEDGE_DELAY;
+		return Math.max(MIN_HEDGE_DELAY, (long) (requestLatency * 2));
+	}
+
+	private static String request(ClusterInstance instance, String path, String jsonBody) throws Exception {
+		final long start = System.currentTimeMillis();
+		try {
+			final String content = instance.request(path, jsonBody);
+			instance.success(System.currentTimeMillis() - start);
+			return content;
+		} catch (WrongStatusCodeException e) {
+			// The instance answered
+			throw e;
+		} catch (Exception e) {
+			// A cancelled hedged request is not a failure of the instance
+			if (!Thread.currentThread().isInterrupted())
+				instance.failure();
+			throw e;
+		}
+	}
+
+	private static void submit(CompletionService<String> completionService, List<Future<String>> futures,
+			List<ClusterInstance> replicas, String path, String jsonBody) {
+		final ClusterInstance instance = replicas.get(futures.size());
+		futures.add(completionService.submit(() -> request(instance, path, jsonBody)));
+	}
+
+	/**
+	 * Forward a request to the replicas of an index
+	 *
+	 * @param indexName the name of the index
+	 * @param path      the path of the REST service, e.g.:
+	 *                  /index/my_index/search/field/search
+	 * @param jsonBody  the JSON body of a POST request, or null for a GET
+	 *                  request
+	 * @return the content of the first successful response
+	 * @throws SearchLibException if no replica is available or if every
+	 *                            attempt failed
+	 */
+	public String forward(String indexName, String path, String jsonBody) throws SearchLibException {
+		final List<ClusterInstance> replicas = clusterManager.getReplicas(indexName);
+		if (replicas.isEmpty())
+			throw new SearchLibException("No replica available for the index: " + indexName);
+		final int maxAttempts = Math.min(MAX_ATTEMPTS, replicas.size());
+		final CompletionService<String> completionService = new ExecutorCompletionService<>(executor);
+		final List<Future<String>> futures = new ArrayList<>(maxAttempts);
+		Exception lastError = null;
+		try {
+			submit(completionService, futures, replicas, path, jsonBody);
+			int pending = 1;
+			while (pending > 0) {
+				final Future<String> future;
+				if (futures.size() < maxAttempts) {
+					future = completionService.poll(getHedgeDelay(replicas.get(futures.size() - 1)),
+							TimeUnit.MILLISECONDS);
+					if (future == null) {
+						// The last replica is slow: hedge on the next one
+						submit(completionService, futures, replicas, path, jsonBody);
+						pending++;
+						continue;
+					}
+				} else
+					future = completionService.take();
+				pending--;
+				try {
+					return future.get();
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof WrongStatusCodeException)
+						throw (WrongStatusCodeException) e.getCause();
+					lastError = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+				}
+				// Failover on the next replica
+				if (futures.size() < maxAttempts) {
+					submit(completionService, futures, replicas, path, jsonBody);
+					pending++;
+				}
+			}
+		} catch (InterruptedException e) {
+			throw new SearchLibException(e);
+		} finally {
+			for (Future<String> future : futures)
+				future.cancel(true);
+		}
+		throw new SearchLibException("Every replica failed for the index: " + indexName, lastError);
+	}
+
+	/**
+	 * Forward a field search to the replicas of an index
+	 *
+	 * @param indexName the name of the index
+	 * @param template  the name of the search template
+	 * @param jsonQuery the JSON search query
+	 * @return the JSON search result
+	 * @throws SearchLibException if every attempt failed
+	 */
+	public String searchField(String indexName, String template, String jsonQuery) throws SearchLibException {
+		return forward(indexName, "/index/" + indexName + "/search/field/" + template, jsonQuery);
+	}
+
+	/**
+	 * Forward a pattern search to the replicas of an index
+	 *
+	 * @param indexName the name of the index
+	 * @param template  the name of the search template
+	 * @param jsonQuery the JSON search query
+	 * @return the JSON search result
+	 * @throws SearchLibException if every attempt failed
+	 */
+	public String searchPattern(String indexName, String template, String jsonQuery) throws SearchLibException {
+		return forward(indexName, "/index/" + indexName + "/search/pattern/" + template, jsonQuery);
+	}
+}
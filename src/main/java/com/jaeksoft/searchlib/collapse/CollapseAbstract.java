@@ -64,12 +64,28 @@ public abstract class CollapseAbstract {
 		this.collapsedDocs = null;
 	}
 
+	/**
+	 * Collapse the first fetchLength documents of the collector in one pass.
+	 * 
+	 * @param collector
+	 *            the sorted documents
+	 * @param fetchLength
+	 *            the number of documents to read from the collector
+	 * @param maxGroups
+	 *            the number of collapsed rows to keep. Documents which would
+	 *            open a new row beyond this limit are skipped, documents
+	 *            belonging to a kept row are still counted.
+	 * @param collapseStringIndex
+	 *            the field cache of the collapse field
+	 * @param timer
+	 * @return the collapse collector
+	 */
 	protected abstract CollapseCollectorInterface collapse(
-			DocIdInterface collector, int fetchLength,
+			DocIdInterface collector, int fetchLength, int maxGroups,
 			FieldCacheIndex collapseStringIndex, Timer timer);
 
 	public CollapseDocInterface run(DocIdInterface collector, int fetchLength,
-			FieldCacheIndex collapseStringIndex, Timer timer)
+			int maxGroups, FieldCacheIndex collapseStringIndex, Timer timer)
 			throws IOException {
 
 		collapsedDocs = null;
@@ -80,9 +96,11 @@ public abstract class CollapseAbstract {
 		int numFound = collector.getSize();
 		if (fetchLength > numFound)
 			fetchLength = numFound;
+		if (maxGroups > fetchLength)
+			maxGroups = fetchLength;
 
 		CollapseCollectorInterface collapseCollectorInterface = collapse(
-				collector, fetchLength, collapseStringIndex, timer);
+				collector, fetchLength, maxGroups, collapseStringIndex, timer);
 
 		collapsedDocs = collapseCollectorInterface
 				.getCollector(CollapseDocInterface.class);
@@ -105,12 +123,6 @@ public abstract class CollapseAbstract {
 		return collapseType;
 	}
 
-	protected int getCollapsedDocsLength() {
-		if (collapsedDocs == null)
-			return 0;
-		return collapsedDocs.getSize();
-	}
-
 	/**
 	 * @return the collapseMax
 	 */
@@ -136,45 +148,9 @@ public abstract class CollapseAbstract {
 		return null;
 	}
 
-	final private static int getNewFetchRows(long rows, long searchRows,
-			long collapsedDocCount) {
-		long fact = rows / searchRows;
-		if (fact == 0)
-			fact = 1;
-		rows = rows + searchRows + collapsedDocCount * fact;
-		if (rows > Integer.MAX_VALUE)
-			rows = Integer.MAX_VALUE;
-		return (int) rows;
-	}
-
-	private CollapseDocInterface collapseFromCollector(
-			DocIdInterface collector, int searchRows, int end,
-			FieldCacheIndex collapseFieldStringIndex, Timer timer)
-			throws IOException {
-		int lastRows = 0;
-		int rows = end;
-		int numFound = collector.getSize();
-		int i = 0;
-		Timer iterationTimer = new Timer(timer,
-				"Optimized collapse iteration from all docs");
-		while (getCollapsedDocsLength() < end) {
-			i++;
-			if (rows > numFound)
-				rows = numFound;
-			if (lastRows == rows)
-				break;
-			collapsedDocs = run(collector, rows, collapseFieldStringIndex,
-					iterationTimer);
-			lastRows = rows;
-			rows = getNewFetchRows(rows, searchRows,
-					collapsedDocs.getCollapsedCount());
-		}
-		iterationTimer.end("Optimized collapse iteration from all docs: " + i);
-		return collapsedDocs;
-	}
-
 	/**
-	 * Fetch new documents until collapsed results is complete.
+	 * Single pass collapse: only the first start+rows collapsed rows are kept,
+	 * the remaining documents are only used to count the collapsed documents.
 	 * 
 	 * @throws IOException
 	 * @throws SyntaxError
@@ -183,13 +159,11 @@ public abstract class CollapseAbstract {
 	private CollapseDocInterface collapseOptimized(ReaderAbstract reader,
 			DocIdInterface collector, Timer timer) throws IOException,
 			ParseException, SyntaxError {
-
-		int searchRows = searchRequest.getRows();
-		int end = searchRequest.getEnd();
 		FieldCacheIndex collapseFieldStringIndex = reader
 				.getStringIndex(searchRequest.getCollapseField());
-		return collapseFromCollector(collector, searchRows, end,
-				collapseFieldStringIndex, timer);
+		collapsedDocs = run(collector, collector.getSize(),
+				searchRequest.getEnd(), collapseFieldStringIndex, timer);
+		return collapsedDocs;
 	}
 
 	private CollapseDocInterface collapseFull(ReaderAbstract reader,
@@ -198,7 +172,7 @@ public abstract class CollapseAbstract {
 		FieldCacheIndex collapseFieldStringIndex = reader
 				.getStringIndex(searchRequest.getCollapseField());
 		collapsedDocs = run(collector, collector.getSize(),
-				collapseFieldStringIndex, timer);
+				Integer.MAX_VALUE, collapseFieldStringIndex, timer);
 		return collapsedDocs;
 	}
 
@@ -24,8 +24,6 @@
 
 package com.jaeksoft.searchlib.collapse;
 
-import org.roaringbitmap.RoaringBitmap;
-
 import com.jaeksoft.searchlib.index.FieldCacheIndex;
 import com.jaeksoft.searchlib.request.AbstractSearchRequest;
 import com.jaeksoft.searchlib.result.collector.DocIdInterface;
@@ -38,38 +36,43 @@ public class CollapseAdjacent extends CollapseAbstract {
 		super(searchRequest);
 	}
 
+	/**
+	 * Adjacent documents only depend on the previous one: the collection stops
+	 * when a new row would exceed maxGroups.
+	 */
 	@Override
 	protected CollapseCollectorInterface collapse(DocIdInterface collector,
-			int fetchLength, FieldCacheIndex collapseStringIndex, Timer timer) {
+			int fetchLength, int maxGroups,
+			FieldCacheIndex collapseStringIndex, Timer timer) {
 
 		Timer t = new Timer(timer, "adjacent collapse");
 
-		RoaringBitmap collapsedSet = new RoaringBitmap();
+		final String[] lookup = collapseStringIndex.lookup;
+		final int[] order = collapseStringIndex.order;
+		final int[] ids = collector.getIds();
+		final int collapseMax = getCollapseMax();
 
-		int[] ids = collector.getIds();
-		String lastTerm = null;
+		CollapseCollectorInterface collapseCollector = getNewCollapseInterfaceInstance(
+				collector, maxGroups, getCollectDocArray());
+		int lastOrd = -1;
 		int adjacent = 0;
+		int collapsePos = -1;
+		int groups = 0;
 		for (int i = 0; i < fetchLength; i++) {
-			String term = collapseStringIndex.lookup[collapseStringIndex.order[ids[i]]];
-			if (term != null && term.equals(lastTerm)) {
-				if (++adjacent >= getCollapseMax())
-					collapsedSet.add(i);
+			final int ord = order[ids[i]];
+			if (ord == lastOrd && lookup[ord] != null) {
+				if (++adjacent >= collapseMax) {
+					collapseCollector.collectCollapsedDoc(i, collapsePos);
+					continue;
+				}
 			} else {
-				lastTerm = term;
+				lastOrd = ord;
 				adjacent = 0;
 			}
-		}
-
-		int collapsedDocCount = (int) collapsedSet.getCardinality();
-		CollapseCollectorInterface collapseCollector = getNewCollapseInterfaceInstance(
-				collector, fetchLength - collapsedDocCount,
-				getCollectDocArray());
-		int collapsePos = -1;
-		for (int i = 0; i < fetchLength; i++) {
-			if (!collapsedSet.contains(i))
-				collapsePos = collapseCollector.collectDoc(i);
-			else
-				collapseCollector.collectCollapsedDoc(i, collapsePos);
+			if (groups == maxGroups)
+				break;
+			collapsePos = collapseCollector.collectDoc(i);
+			groups++;
 		}
 		collapseCollector.endCollection();
 
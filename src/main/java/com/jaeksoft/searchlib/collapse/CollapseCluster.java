@@ -24,8 +24,7 @@
 
 package com.jaeksoft.searchlib.collapse;
 
-import java.util.HashMap;
-import java.util.Map;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
 
 import com.jaeksoft.searchlib.index.FieldCacheIndex;
 import com.jaeksoft.searchlib.request.AbstractSearchRequest;
@@ -39,28 +38,43 @@ public class CollapseCluster extends CollapseAbstract {
 		super(searchRequest);
 	}
 
+	/**
+	 * The group table is keyed by the ordinal of the term in the field cache,
+	 * and only holds the kept groups: its size is bounded by maxGroups.
+	 */
 	@Override
 	protected CollapseCollectorInterface collapse(DocIdInterface collector,
-			int fetchLength, FieldCacheIndex collapseStringIndex, Timer timer) {
+			int fetchLength, int maxGroups,
+			FieldCacheIndex collapseStringIndex, Timer timer) {
 
 		Timer t = new Timer(timer, "Build collapse map");
-		Map<String, Integer> collapsedDocMap = new HashMap<String, Integer>();
-		int[] ids = collector.getIds();
+		final String[] lookup = collapseStringIndex.lookup;
+		final int[] order = collapseStringIndex.order;
+		final int[] ids = collector.getIds();
+
+		Int2IntOpenHashMap collapsedDocMap = new Int2IntOpenHashMap();
+		collapsedDocMap.defaultReturnValue(-1);
 
 		CollapseCollectorInterface collapseCollector = getNewCollapseInterfaceInstance(
-				collector, fetchLength, getCollectDocArray());
-		Integer collapsePos;
+				collector, maxGroups, getCollectDocArray());
+		int groups = 0;
 
 		for (int i = 0; i < fetchLength; i++) {
-			String term = collapseStringIndex.lookup[collapseStringIndex.order[ids[i]]];
-			if (term != null
-					&& ((collapsePos = collapsedDocMap.get(term)) != null)) {
-				collapseCollector.collectCollapsedDoc(i, collapsePos);
-			} else {
-				collapsePos = collapseCollector.collectDoc(i);
-				if (term != null)
-					collapsedDocMap.put(term, collapsePos);
+			final int ord = order[ids[i]];
+			final boolean hasTerm = lookup[ord] != null;
+			if (hasTerm) {
+				int collapsePos = collapsedDocMap.get(ord);
+				if (collapsePos != -1) {
+					collapseCollector.collectCollapsedDoc(i, collapsePos);
+					continue;
+				}
 			}
+			if (groups == maxGroups)
+				continue;
+			int collapsePos = collapseCollector.collectDoc(i);
+			groups++;
+			if (hasTerm)
+				collapsedDocMap.put(ord, collapsePos);
 		}
 
 		collapseCollector.endCollection();
@@ -26,7 +26,6 @@ package com.jaeksoft.searchlib.crawler.cache;
 
 import com.jaeksoft.searchlib.crawler.web.spider.DownloadItem;
 import com.jaeksoft.searchlib.parser.ParserResultItem;
-import com.jaeksoft.searchlib.util.StringUtils;
 import org.json.JSONException;
 
 import java.io.IOException;
@@ -60,31 +59,6 @@ public abstract class CrawlCacheProvider {
 
 	public abstract long flush(long expirationTime) throws IOException;
 
-	final String uriToPath(URI uri, String rootPath, int hashDepth, String separatorChar, int splitSize)
-			throws UnsupportedEncodingException {
-		final String key = StringUtils.base64encode(uri.toASCIIString());
-		final StringBuilder sb = new StringBuilder(rootPath);
-		int l = key.length();
-		if (l > hashDepth)
-			l = hashDepth;
-		while (l > 0) {
-			sb.append(separatorChar);
-			sb.append(key.charAt(l--));
-		}
-		l = key.length();
-		int i = 0;
-		while (l > 0) {
-			sb.append(separatorChar);
-			if (l > splitSize)
-				sb.append(key.substring(i, i + splitSize));
-			else
-				sb.append(key.substring(i));
-			l -= splitSize;
-			i += splitSize;
-		}
-		return sb.toString();
-	}
-
 	public abstract static class Item {
 
 		public abstract InputStream store(DownloadItem downloadItem) throws IOException, JSONException;
@@ -27,29 +27,41 @@ package com.jaeksoft.searchlib.crawler.cache;
 import com.jaeksoft.searchlib.ClientFactory;
 import com.jaeksoft.searchlib.crawler.web.spider.DownloadItem;
 import com.jaeksoft.searchlib.parser.ParserResultItem;
-import com.jaeksoft.searchlib.util.FileUtils;
+import com.jaeksoft.searchlib.util.IOUtils;
 import com.jaeksoft.searchlib.util.ReadWriteLock;
 import com.jaeksoft.searchlib.webservice.document.DocumentUpdate;
 import com.qwazr.utils.ObjectMappers;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
+/**
+ * The crawl cache is stored in large segment files (see SegmentFileStore).
+ * The former layout (one set of files per URL under a hashed directory
+ * tree) is no longer read, and is entirely removed by the next flush.
+ */
 public class LocalFileCrawlCache extends CrawlCacheProvider {
 
 	private final ReadWriteLock rwl = new ReadWriteLock();
 
 	private String rootPath = null;
 
+	private SegmentFileStore store = null;
+
 	public LocalFileCrawlCache() {
 		super(CrawlCacheProviderEnum.LOCAL_FILE);
 	}
@@ -58,6 +70,10 @@ public class LocalFileCrawlCache extends CrawlCacheProvider {
 	public void close() {
 		rwl.w.lock();
 		try {
+			if (store != null) {
+				store.close();
+				store = null;
+			}
 			rootPath = null;
 		} finally {
 			rwl.w.unlock();
@@ -68,7 +84,10 @@ public class LocalFileCrawlCache extends CrawlCacheProvider {
 	public String getInfos() throws IOException {
 		rwl.r.lock();
 		try {
-			return rootPath;
+			if (store == null)
+				return rootPath;
+			return rootPath + " - " + store.getEntryCount() + " URL(s) in " + store.getSegmentCount() +
+					" segment(s), " + store.getSize() / (1024 * 1024) + " MB";
 		} finally {
 			rwl.r.unlock();
 		}
@@ -87,7 +106,11 @@ public class LocalFileCrawlCache extends CrawlCacheProvider {
 				throw new IOException("The folder " + f.getAbsolutePath() + " does not exists");
 			if (!f.isDirectory())
 				throw new IOException("The folder " + f.getAbsolutePath() + " does not exists");
+			if (store != null)
+				store.close();
+			store = null;
 			rootPath = f.getAbsolutePath();
+			store = new SegmentFileStore(new File(f, PATH_SEGMENTS), SegmentFileStore.DEFAULT_MAX_SEGMENT_SIZE);
 		} finally {
 			rwl.w.unlock();
 		}
@@ -95,28 +118,7 @@ public class LocalFileCrawlCache extends CrawlCacheProvider {
 
 	private final static String PATH_HTTP_DOWNLOAD_CACHE = File.separator + "http-download-cache";
 
-	private final static String META_EXTENSION = ".meta";
-
-	private final static String META_EXTENSION_COMPRESSED = ".meta.gz";
-
-	private final static String CONTENT_EXTENSION = ".content";
-
-	private final static String CONTENT_EXTENSION_COMPRESSED = ".content.gz";
-
-	private final static String INDEXED_EXTENSION_COMPRESSED = ".indexed.gz";
-
-	private final static String[] EXTENSIONS =
-			new String[] { META_EXTENSION, META_EXTENSION_COMPRESSED, CONTENT_EXTENSION, CONTENT_EXTENSION_COMPRESSED };
-
-	private File checkPath(String filePrefix, String fileExtension) throws IOException {
-		final File file = new File(filePrefix + fileExtension);
-		if (!file.exists()) {
-			File parent = file.getParentFile();
-			if (!parent.exists())
-				parent.mkdirs();
-		}
-		return file;
-	}
+	private final static String PATH_SEGMENTS = "http-download-segments";
 
 	private long purge(File[] files, long expiration) throws IOException {
 		if (files == null)
@@ -144,8 +146,16 @@ public class LocalFileCrawlCache extends CrawlCacheProvider {
 	public long flush(long expiration) throws IOException {
 		rwl.r.lock();
 		try {
+			long count = store.flush(expiration);
+			// The former directory tree is dead data, whatever its age
 			File file = new File(rootPath + File.separator + PATH_HTTP_DOWNLOAD_CACHE);
-			return purge(file.listFiles(), expiration);
+			if (file.exists()) {
+				count += purge(file.listFiles(), Long.MAX_VALUE);
+				File[] fs = file.listFiles();
+				if (fs != null && fs.length == 0)
+					file.delete();
+			}
+			return count;
 		} finally {
 			rwl.r.unlock();
 		}
@@ -161,16 +171,32 @@ public class LocalFileCrawlCache extends CrawlCacheProvider {
 		return new LocalFileItem(uri, expirationTime);
 	}
 
+	private static byte[] gzip(InputStream input) throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (final OutputStream output = new GZIPOutputStream(bytes, 65536)) {
+			if (input != null)
+				IOUtils.copy(input, output);
+		}
+		return bytes.toByteArray();
+	}
+
+	private static byte[] gzip(String data) throws IOException {
+		return gzip(new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private static InputStream gunzip(byte[] bytes) throws IOException {
+		return new GZIPInputStream(new ByteArrayInputStream(bytes), 65536);
+	}
+
 	public class LocalFileItem extends Item {
 
 		private final URI uri;
-		private final String filePrefix;
+		private final String key;
 		private final long expirationTime;
 
-		private LocalFileItem(final URI uri, long expirationTime) throws UnsupportedEncodingException {
+		private LocalFileItem(final URI uri, long expirationTime) {
 			this.uri = uri;
-			this.filePrefix =
-					uriToPath(uri, rootPath + File.separator + PATH_HTTP_DOWNLOAD_CACHE, 10, File.separator, 32);
+			this.key = uri.toASCIIString();
 			this.expirationTime = expirationTime;
 		}
 
@@ -181,13 +207,13 @@ public class LocalFileCrawlCache extends CrawlCacheProvider {
 				final URI uri = downloadItem.getUri();
 				if (!uri.equals(this.uri))
 					throw new IOException("The URI does not match: " + uri + " / " + this.uri);
-				final File metaFile = checkPath(filePrefix, META_EXTENSION_COMPRESSED);
-				FileUtils.writeStringToGzipFile(downloadItem.getMetaAsJson(), StandardCharsets.UTF_8, metaFile);
-				final File contentFile = checkPath(filePrefix, CONTENT_EXTENSION_COMPRESSED);
+				final byte[] meta = gzip(downloadItem.getMetaAsJson());
+				final byte[] content;
 				try (final InputStream is = downloadItem.getContentInputStream()) {
-					FileUtils.writeToGzipFile(is, contentFile);
+					content = gzip(is);
 				}
-				return FileUtils.readFromGzipFile(contentFile);
+				store.write(SegmentFileStore.TYPE_DOWNLOAD, key, meta, content);
+				return gunzip(content);
 			} finally {
 				rwl.r.unlock();
 			}
@@ -197,17 +223,19 @@ public class LocalFileCrawlCache extends CrawlCacheProvider {
 		public DownloadItem load() throws IOException, JSONException, URISyntaxException {
 			rwl.r.lock();
 			try {
-				final File metaFile = checkPath(filePrefix, META_EXTENSION_COMPRESSED);
-				if (!metaFile.exists())
+				final SegmentFileStore.Record record = store.read(SegmentFileStore.TYPE_DOWNLOAD, key);
+				if (record == null)
 					return null;
 				if (expirationTime != 0)
-					if (metaFile.lastModified() < expirationTime)
+					if (record.getTimestamp() < expirationTime)
 						return null;
-				final String content = FileUtils.readStringFromGzipFile(StandardCharsets.UTF_8, metaFile);
+				final String content;
+				try (final InputStream input = gunzip(record.getMeta())) {
+					content = IOUtils.toString(input, StandardCharsets.UTF_8);
+				}
 				final JSONObject json = new JSONObject(content);
 				final DownloadItem downloadItem = new DownloadItem(uri, json);
-				final File contentFile = checkPath(filePrefix, CONTENT_EXTENSION_COMPRESSED);
-				downloadItem.setContentInputStream(FileUtils.readFromGzipFile(contentFile));
+				downloadItem.setContentInputStream(gunzip(record.getContent()));
 				return downloadItem;
 			} finally {
 				rwl.r.unlock();
@@ -218,13 +246,7 @@ public class LocalFileCrawlCache extends CrawlCacheProvider {
 		public boolean flush() throws IOException {
 			rwl.r.lock();
 			try {
-				boolean deleted = false;
-				for (String fileExtension : EXTENSIONS) {
-					final File file = checkPath(filePrefix, fileExtension);
-					if (file.exists())
-						deleted = file.delete() || deleted;
-				}
-				return deleted;
+				return store.delete(key);
 			} finally {
 				rwl.r.unlock();
 			}
@@ -239,8 +261,11 @@ public class LocalFileCrawlCache extends CrawlCacheProvider {
 				final List<DocumentUpdate> documentUpdates = new ArrayList<>();
 				parserResults.forEach(parserResultItem -> documentUpdates.add(
 						new DocumentUpdate(parserResultItem.getParserDocument())));
-				final File file = checkPath(filePrefix, INDEXED_EXTENSION_COMPRESSED);
-				ObjectMappers.JSON.writeValue(FileUtils.writeToGzipFile(file), documentUpdates);
+				final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				try (final OutputStream output = new GZIPOutputStream(bytes, 65536)) {
+					ObjectMappers.JSON.writeValue(output, documentUpdates);
+				}
+				store.write(SegmentFileStore.TYPE_INDEXED, key, null, bytes.toByteArray());
 			} finally {
 				rwl.r.unlock();
 			}
@@ -0,0 +1,607 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.crawler.cache;
+
+import com.jaeksoft.searchlib.Logging;
+import com.jaeksoft.searchlib.util.IOUtils;
+import it.unimi.dsi.fastutil.longs.Long2LongMap;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * An append-only store made of large segment files. Each record is appended
+ * sequentially to the active segment, and an in-memory hash index maps the
+ * key to the position (segment, offset) of its last record. The number of
+ * files does not depend on the number of entries.
+ * <p>
+ * The index is rebuilt by scanning the segments when the store is opened.
+ * A record overwritten by a newer one, deleted or expired is dropped when
+ * its segment is compacted.
+ * <p>
+ * Record layout: magic (int), type (byte), timestamp (long), key length
+ * (int), meta length (int), content length (int), key (UTF-8), meta,
+ * content.
+ */
+public class SegmentFileStore implements Closeable {
+
+	public final static byte TYPE_DOWNLOAD = 1;
+
+	public final static byte TYPE_INDEXED = 2;
+
+	// Deletes the TYPE_DOWNLOAD record of the key
+	private final static byte TYPE_DELETE = 3;
+
+	private final static int MAGIC = 0x4F535343;
+
+	private final static int HEADER_SIZE = 4 + 1 + 8 + 4 + 4 + 4;
+
+	private final static String SEGMENT_EXTENSION = ".seg";
+
+	private final static int OFFSET_BITS = 40;
+
+	private final static long OFFSET_MASK = (1L << OFFSET_BITS) - 1;
+
+	public final static long DEFAULT_MAX_SEGMENT_SIZE = 256 * 1024 * 1024;
+
+	public static class Record {
+
+		private final long timestamp;
+		private final byte[] meta;
+		private final byte[] content;
+
+		private Record(long timestamp, byte[] meta, byte[] content) {
+			this.timestamp = timestamp;
+			this.meta = meta;
+			this.content = content;
+		}
+
+		public long getTimestamp() {
+			return timestamp;
+		}
+
+		public byte[] getMeta() {
+			return meta;
+		}
+
+		public byte[] getContent() {
+			return content;
+		}
+	}
+
+	private static class Header {
+
+		private final byte type;
+		private final long timestamp;
+		private final int keyLength;
+		private final int metaLength;
+		private final int contentLength;
+
+		private Header(byte type, long timestamp, int keyLength, int metaLength, int contentLength) {
+			this.type = type;
+			this.timestamp = timestamp;
+			this.keyLength = keyLength;
+			this.metaLength = metaLength;
+			this.contentLength = contentLength;
+		}
+
+		private static Header read(DataInputStream input) throws IOException {
+			if (input.readInt() != MAGIC)
+				throw new IOException("Wrong record magic number");
+			final Header header =
+					new Header(input.readByte(), input.readLong(), input.readInt(), input.readInt(), input.readInt());
+			if (header.keyLength < 0 || header.metaLength < 0 || header.contentLength < 0)
+				throw new IOException("Wrong record length");
+			return header;
+		}
+
+		private static Header read(ByteBuffer buffer) throws IOException {
+			if (buffer.getInt() != MAGIC)
+				throw new IOException("Wrong record magic number");
+			return new Header(buffer.get(), buffer.getLong(), buffer.getInt(), buffer.getInt(), buffer.getInt());
+		}
+
+		private long getRecordSize() {
+			return (long) HEADER_SIZE + keyLength + metaLength + contentLength;
+		}
+	}
+
+	private static class Segment {
+
+		private final int id;
+		private final File file;
+		private final FileChannel channel;
+		private long size;
+		private long records;
+		private long deadRecords;
+		private long firstTimestamp;
+		private long lastTimestamp;
+
+		private Segment(File directory, int id) throws IOException {
+			this.id = id;
+			this.file = new File(directory, String.format("%010d", id) + SEGMENT_EXTENSION);
+			this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+					StandardOpenOption.WRITE);
+			this.size = channel.size();
+			this.records = 0;
+			this.deadRecords = 0;
+			this.firstTimestamp = Long.MAX_VALUE;
+			this.lastTimestamp = 0;
+		}
+
+		private void added(long timestamp) {
+			records++;
+			if (timestamp < firstTimestamp)
+				firstTimestamp = timestamp;
+			if (timestamp > lastTimestamp)
+				lastTimestamp = timestamp;
+		}
+
+		private boolean isMostlyDead() {
+			return deadRecords * 2 >= records;
+		}
+
+		private void delete() {
+			IOUtils.close(channel);
+			if (!file.delete())
+				Logging.warn("Cannot delete the crawl cache segment " + file);
+		}
+	}
+
+	private final File directory;
+
+	private final long maxSegmentSize;
+
+	private final TreeMap<Integer, Segment> segments;
+
+	private final Long2LongOpenHashMap downloads;
+
+	private final Long2LongOpenHashMap indexed;
+
+	private Segment activeSegment;
+
+	// Only one flush at a time
+	private final Object flushLock = new Object();
+
+	public SegmentFileStore(File directory, long maxSegmentSize) throws IOException {
+		if (!directory.exists())
+			directory.mkdirs();
+		if (!directory.isDirectory())
+			throw new IOException("The folder " + directory.getAbsolutePath() + " does not exists");
+		this.directory = directory;
+		this.maxSegmentSize = maxSegmentSize;
+		segments = new TreeMap<>();
+		downloads = new Long2LongOpenHashMap();
+		downloads.defaultReturnValue(-1);
+		indexed = new Long2LongOpenHashMap();
+		indexed.defaultReturnValue(-1);
+		final File[] files = directory.listFiles((dir, name) -> name.endsWith(SEGMENT_EXTENSION));
+		if (files != null) {
+			for (File file : files) {
+				final String name = file.getName();
+				try {
+					final int id = Integer.parseInt(name.substring(0, name.length() - SEGMENT_EXTENSION.length()));
+					segments.put(id, new Segment(directory, id));
+				} catch (NumberFormatException e) {
+					Logging.warn("Unexpected file in the crawl cache: " + file);
+				}
+			}
+		}
+		try {
+			for (Segment segment : segments.values())
+				loadSegment(segment);
+		} catch (IOException e) {
+			close();
+			throw e;
+		}
+		activeSegment = segments.isEmpty() ? newSegment() : segments.lastEntry().getValue();
+	}
+
+	private static long hash(String key) {
+		try {
+			final byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+			long hash = 0;
+			for (int i = 0; i < 8; i++)
+				hash = (hash << 8) | (digest[i] & 0xFF);
+			return hash;
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static long position(Segment segment, long offset) {
+		return ((long) segment.id << OFFSET_BITS) | offset;
+	}
+
+	private Long2LongOpenHashMap getIndex(byte type) {
+		return type == TYPE_INDEXED ? indexed : downloads;
+	}
+
+	/**
+	 * Point the key to its new record, the previous record becomes dead
+	 */
+	private void index(byte type, long hash, long position) {
+		final long previous = position == -1 ? getIndex(type).remove(hash) : getIndex(type).put(hash, position);
+		if (previous == -1)
+			return;
+		final Segment segment = segments.get((int) (previous >>> OFFSET_BITS));
+		if (segment != null)
+			segment.deadRecords++;
+	}
+
+	/**
+	 * Rebuild the index from the records of a segment. A truncated record
+	 * (interrupted write) is removed.
+	 */
+	private void loadSegment(Segment segment) throws IOException {
+		long offset = 0;
+		try (final DataInputStream input = new DataInputStream(
+				new BufferedInputStream(new FileInputStream(segment.file), 65536))) {
+			for (; ; ) {
+				final Header header;
+				final byte[] key;
+				try {
+					header = Header.read(input);
+					if (offset + header.getRecordSize() > segment.size)
+						break;
+					key = new byte[header.keyLength];
+					input.readFully(key);
+					IOUtils.skipFully(input, header.metaLength + header.contentLength);
+				} catch (EOFException e) {
+					break;
+				}
+				final long hash = hash(new String(key, StandardCharsets.UTF_8));
+				segment.added(header.timestamp);
+				if (header.type == TYPE_DELETE) {
+					segment.deadRecords++;
+					index(TYPE_DOWNLOAD, hash, -1);
+				} else
+					index(header.type, hash, position(segment, offset));
+				offset += header.getRecordSize();
+			}
+		} catch (IOException e) {
+			Logging.warn("Corrupted crawl cache segment " + segment.file + " at " + offset, e);
+		}
+		if (offset < segment.size) {
+			segment.channel.truncate(offset);
+			segment.size = offset;
+		}
+	}
+
+	private Segment newSegment() throws IOException {
+		final int id = segments.isEmpty() ? 0 : segments.lastKey() + 1;
+		final Segment segment = new Segment(directory, id);
+		segments.put(id, segment);
+		return segment;
+	}
+
+	private long append(byte type, long timestamp, byte[] key, byte[] meta, byte[] content) throws IOException {
+		if (activeSegment.size >= maxSegmentSize)
+			activeSegment = newSegment();
+		final int metaLength = meta == null ? 0 : meta.length;
+		final int contentLength = content == null ? 0 : content.length;
+		final ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + key.length + metaLength + contentLength);
+		buffer.putInt(MAGIC);
+		buffer.put(type);
+		buffer.putLong(timestamp);
+		buffer.putInt(key.length);
+		buffer.putInt(metaLength);
+		buffer.putInt(contentLength);
+		buffer.put(key);
+		if (meta != null)
+			buffer.put(meta);
+		if (content != null)
+			buffer.put(content);
+		buffer.flip();
+		final long offset = activeSegment.size;
+		long pos = offset;
+		while (buffer.hasRemaining())
+			pos += activeSegment.channel.write(buffer, pos);
+		activeSegment.size = pos;
+		activeSegment.added(timestamp);
+		return position(activeSegment, offset);
+	}
+
+	public synchronized void write(byte type, String key, byte[] meta, byte[] content) throws IOException {
+		final long position =
+				append(type, System.currentTimeMillis(), key.getBytes(StandardCharsets.UTF_8), meta, content);
+		index(type, hash(key), position);
+	}
+
+	/**
+	 * @return true if a download record was deleted
+	 */
+	public synchronized boolean delete(String key) throws IOException {
+		final long hash = hash(key);
+		if (downloads.get(hash) == -1)
+			return false;
+		append(TYPE_DELETE, System.currentTimeMillis(), key.getBytes(StandardCharsets.UTF_8), null, null);
+		activeSegment.deadRecords++;
+		index(TYPE_DOWNLOAD, hash, -1);
+		return true;
+	}
+
+	private synchronized Segment getSegment(long position) {
+		return segments.get((int) (position >>> OFFSET_BITS));
+	}
+
+	private synchronized long getPosition(byte type, long hash) {
+		return getIndex(type).get(hash);
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			final int read = channel.read(buffer, position);
+			if (read < 0)
+				throw new EOFException();
+			position += read;
+		}
+		buffer.flip();
+	}
+
+	/**
+	 * Read the record with two range reads: the header, then the payload.
+	 */
+	private static Record read(Segment segment, long offset, byte type, String key) throws IOException {
+		final ByteBuffer headerBuffer = ByteBuffer.allocate(HEADER_SIZE);
+		readFully(segment.channel, headerBuffer, offset);
+		final Header header = Header.read(headerBuffer);
+		if (header.type != type)
+			return null;
+		final ByteBuffer buffer =
+				ByteBuffer.allocate(header.keyLength + header.metaLength + header.contentLength);
+		readFully(segment.channel, buffer, offset + HEADER_SIZE);
+		final byte[] keyBytes = new byte[header.keyLength];
+		buffer.get(keyBytes);
+		// Hash collision
+		if (!key.equals(new String(keyBytes, StandardCharsets.UTF_8)))
+			return null;
+		final byte[] meta = new byte[header.metaLength];
+		buffer.get(meta);
+		final byte[] content = new byte[header.contentLength];
+		buffer.get(content);
+		return new Record(header.timestamp, meta, content);
+	}
+
+	/**
+	 * @return the last record of the key, or null
+	 */
+	public Record read(byte type, String key) throws IOException {
+		final long hash = hash(key);
+		// A segment may be deleted by a concurrent compaction: try again
+		for (int retry = 0; ; retry++) {
+			final long position = getPosition(type, hash);
+			if (position == -1)
+				return null;
+			final Segment segment = getSegment(position);
+			if (segment == null)
+				return null;
+			try {
+				return read(segment, position & OFFSET_MASK, type, key);
+			} catch (ClosedChannelException e) {
+				if (retry > 0)
+					throw e;
+			}
+		}
+	}
+
+	/**
+	 * Remove the entries pointing to the given segments
+	 *
+	 * @return the number of removed entries
+	 */
+	private long removeEntries(Long2LongOpenHashMap index, Set<Integer> segmentIds) {
+		long count = 0;
+		final ObjectIterator<Long2LongMap.Entry> iterator = index.long2LongEntrySet().fastIterator();
+		while (iterator.hasNext()) {
+			if (segmentIds.contains((int) (iterator.next().getLongValue() >>> OFFSET_BITS))) {
+				iterator.remove();
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private synchronized boolean isLive(byte type, long hash, long position, boolean keepDeletes) {
+		if (type == TYPE_DELETE)
+			return keepDeletes && downloads.get(hash) == -1;
+		return getIndex(type).get(hash) == position;
+	}
+
+	/**
+	 * Append the copy of a record, unless a concurrent write or delete made
+	 * it dead while it was read.
+	 */
+	private synchronized void copy(Header header, long hash, long position, boolean keepDeletes, byte[] key,
+			byte[] meta, byte[] content) throws IOException {
+		if (!isLive(header.type, hash, position, keepDeletes))
+			return;
+		final long newPosition = append(header.type, header.timestamp, key, meta, content);
+		if (header.type == TYPE_DELETE)
+			activeSegment.deadRecords++;
+		else
+			getIndex(header.type).put(hash, newPosition);
+	}
+
+	/**
+	 * Copy the live records of a segment to the active segment. The segment is
+	 * no longer written, the records are read without holding the monitor of
+	 * the store: it is only taken to check a record and to append its copy.
+	 *
+	 * @return the number of expired records
+	 */
+	private long compact(Segment segment, long expiration, boolean keepDeletes) throws IOException {
+		long expired = 0;
+		long offset = 0;
+		try (final DataInputStream input = new DataInputStream(
+				new BufferedInputStream(new FileInputStream(segment.file), 65536))) {
+			while (offset < segment.size) {
+				final Header header = Header.read(input);
+				final byte[] key = new byte[header.keyLength];
+				input.readFully(key);
+				final long hash = hash(new String(key, StandardCharsets.UTF_8));
+				final long position = position(segment, offset);
+				offset += header.getRecordSize();
+				final boolean live = isLive(header.type, hash, position, keepDeletes);
+				if (!live || header.timestamp < expiration) {
+					if (live)
+						expired++;
+					IOUtils.skipFully(input, header.metaLength + header.contentLength);
+					continue;
+				}
+				final byte[] meta = new byte[header.metaLength];
+				input.readFully(meta);
+				final byte[] content = new byte[header.contentLength];
+				input.readFully(content);
+				copy(header, hash, position, keepDeletes, key, meta, content);
+			}
+		}
+		return expired;
+	}
+
+	/**
+	 * Select the segments to compact or to drop. The active segment is
+	 * replaced by a new one if it is selected.
+	 */
+	private synchronized List<Segment> getFlushCandidates(long expiration) throws IOException {
+		final List<Segment> candidates = new ArrayList<>();
+		for (Segment segment : new ArrayList<>(segments.values())) {
+			final boolean hasExpired = segment.records == 0 || segment.firstTimestamp < expiration;
+			if (!hasExpired && (segment == activeSegment || !segment.isMostlyDead()))
+				continue;
+			if (segment == activeSegment) {
+				if (segment.size == 0)
+					continue;
+				activeSegment = newSegment();
+			}
+			candidates.add(segment);
+		}
+		return candidates;
+	}
+
+	/**
+	 * Drop the compacted segments and the entries which still point to them
+	 * (the expired records).
+	 *
+	 * @return the number of removed entries
+	 */
+	private synchronized long removeSegments(List<Segment> compacted) {
+		if (compacted.isEmpty())
+			return 0;
+		final Set<Integer> removed = new HashSet<>();
+		for (Segment segment : compacted) {
+			segments.remove(segment.id);
+			removed.add(segment.id);
+		}
+		final long count = removeEntries(downloads, removed) + removeEntries(indexed, removed);
+		for (Segment segment : compacted)
+			segment.delete();
+		return count;
+	}
+
+	/**
+	 * Drop the segments whose records are all expired, and compact the
+	 * segments which contain expired or dead records. The crawl threads can
+	 * still read and write while the segments are copied.
+	 *
+	 * @param expiration the records older than this time are removed
+	 * @return the number of removed entries
+	 * @throws IOException if any I/O error occurs
+	 */
+	public long flush(long expiration) throws IOException {
+		synchronized (flushLock) {
+			final List<Segment> candidates = getFlushCandidates(expiration);
+			if (candidates.isEmpty())
+				return 0;
+			final List<Segment> compacted = new ArrayList<>(candidates.size());
+			long expired = 0;
+			final long count;
+			try {
+				for (Segment segment : candidates) {
+					if (segment.lastTimestamp >= expiration) {
+						// A delete record is kept as long as an older segment may contain the key
+						final boolean keepDeletes = getFirstSegmentId() != segment.id;
+						expired += compact(segment, expiration, keepDeletes);
+					}
+					compacted.add(segment);
+				}
+			} finally {
+				// The segments already copied are dropped even if a later one failed
+				count = removeSegments(compacted);
+			}
+			if (Logging.isDebug)
+				Logging.debug("Crawl cache flush: " + compacted.size() + " segment(s) removed, " + expired +
+						" expired record(s) in compacted segments");
+			return count;
+		}
+	}
+
+	private synchronized int getFirstSegmentId() {
+		return segments.firstKey();
+	}
+
+	public synchronized long getEntryCount() {
+		return downloads.size();
+	}
+
+	public synchronized int getSegmentCount() {
+		return segments.size();
+	}
+
+	public synchronized long getSize() {
+		long size = 0;
+		for (Segment segment : segments.values())
+			size += segment.size;
+		return size;
+	}
+
+	@Override
+	public synchronized void close() {
+		for (Segment segment : segments.values())
+			IOUtils.close(segment.channel);
+		segments.clear();
+		downloads.clear();
+		indexed.clear();
+	}
+}
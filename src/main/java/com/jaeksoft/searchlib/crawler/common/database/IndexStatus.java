@@ -45,6 +45,8 @@ public enum IndexStatus {
 
 	TO_INDEX(6, "To index", TargetStatus.TARGET_UPDATE),
 
+	NEAR_DUPLICATE(7, "Near duplicate", TargetStatus.TARGET_DELETE),
+
 	ALL(99, "All", null);
 
 	final public int value;
@@ -68,12 +68,15 @@ public class DatabaseCrawlCassandraThread extends DatabaseCrawlThread {
 					cluster.getSession() :
 					cluster.getSession(databaseCrawl.getKeySpace())) {
 				setStatus(CrawlStatus.CRAWL);
+				newPipeline();
 				try (final ResultSetConsumer resultSetConsumer = new ResultSetConsumer(session)) {
 					resultSetConsumer.execute(databaseCrawl.getCqlQuery());
 				}
 				if (updatedIndexDocumentCount > 0 || updatedDeleteDocumentCount > 0)
 					client.reload();
 			}
+		} finally {
+			abortPipeline();
 		}
 	}
 
@@ -130,6 +133,9 @@ public class DatabaseCrawlCassandraThread extends DatabaseCrawlThread {
 		public void close() throws IOException {
 			try {
 				DatabaseCrawlCassandraThread.this.index(indexDocumentList, 0);
+				finishPipeline();
+				while (pollCommitted() != null)
+					;
 			} catch (SearchLibException | InterruptedException e) {
 				throw new IOException(e);
 			}
@@ -0,0 +1,93 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.crawler.database;
+
+import com.jaeksoft.searchlib.Client;
+import com.jaeksoft.searchlib.util.PropertiesUtils;
+import com.jaeksoft.searchlib.util.Variables;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.util.Properties;
+
+/**
+ * Persists the last primary key committed in the index by a database crawl.
+ * An interrupted crawl can resume using the {lastCommittedPrimaryKey} variable
+ * in its SQL query, e.g.: WHERE id > '{lastCommittedPrimaryKey}' ORDER BY id
+ */
+public class DatabaseCrawlCheckpoint {
+
+	public final static String LAST_COMMITTED_PK_VARIABLE = "lastCommittedPrimaryKey";
+
+	private final static String CHECKPOINT_DIRECTORY = "databaseCrawlCheckpoints";
+
+	private final static String PROPERTY_LAST_PK = "lastPrimaryKey";
+
+	private final File checkpointFile;
+
+	private String lastPrimaryKey;
+
+	public DatabaseCrawlCheckpoint(Client client, String crawlName) throws IOException {
+		File dir = new File(client.getDirectory(), CHECKPOINT_DIRECTORY);
+		if (!dir.exists())
+			dir.mkdir();
+		checkpointFile = new File(dir, URLEncoder.encode(crawlName, "UTF-8") + ".xml");
+		Properties properties = PropertiesUtils.loadFromXml(checkpointFile);
+		lastPrimaryKey = properties.getProperty(PROPERTY_LAST_PK);
+	}
+
+	public String getLastPrimaryKey() {
+		return lastPrimaryKey;
+	}
+
+	/**
+	 * @return the variables to apply to the queries (an empty string if there is
+	 * no checkpoint)
+	 */
+	public Variables getVariables() {
+		Variables variables = new Variables();
+		variables.put(LAST_COMMITTED_PK_VARIABLE, lastPrimaryKey == null ? "" : lastPrimaryKey);
+		return variables;
+	}
+
+	public void store(String primaryKey) throws IOException {
+		if (primaryKey == null)
+			return;
+		Properties properties = new Properties();
+		properties.setProperty(PROPERTY_LAST_PK, primaryKey);
+		PropertiesUtils.storeToXml(properties, checkpointFile);
+		lastPrimaryKey = primaryKey;
+	}
+
+	/**
+	 * Called when the crawl completed successfully
+	 */
+	public void clear() {
+		if (checkpointFile.exists())
+			checkpointFile.delete();
+		lastPrimaryKey = null;
+	}
+}
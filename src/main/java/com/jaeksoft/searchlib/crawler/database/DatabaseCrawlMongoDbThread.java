@@ -100,6 +100,9 @@ public class DatabaseCrawlMongoDbThread extends DatabaseCrawlThread {
 
 		}
 		index(indexDocumentList, 0);
+		finishPipeline();
+		while (pollCommitted() != null)
+			;
 	}
 
 	@Override
@@ -110,10 +113,14 @@ public class DatabaseCrawlMongoDbThread extends DatabaseCrawlThread {
 			final MongoCollection<Document> collection = databaseCrawl.getCollection(mongoClient);
 			final FindIterable<Document> iterable = collection.find(databaseCrawl.getCriteriaObject());
 			setStatus(CrawlStatus.CRAWL);
-			if (iterable != null)
+			if (iterable != null) {
+				newPipeline();
 				runnerUpdate(iterable);
+			}
 			if (updatedIndexDocumentCount > 0 || updatedDeleteDocumentCount > 0)
 				client.reload();
+		} finally {
+			abortPipeline();
 		}
 
 	}
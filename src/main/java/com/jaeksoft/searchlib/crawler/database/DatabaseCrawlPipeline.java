@@ -0,0 +1,228 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.crawler.database;
+
+import com.jaeksoft.searchlib.Client;
+import com.jaeksoft.searchlib.SearchLibException;
+import com.jaeksoft.searchlib.index.IndexDocument;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Decouples the cursor stage (the crawl thread reading the database) from the
+ * index stage. Batches are handed over through a bounded queue: when the
+ * writer falls behind, the cursor blocks (back-pressure). Batches committed by
+ * the writer are returned to the cursor thread, which owns the database
+ * connection and is the only one allowed to run the SQL update statements.
+ */
+public class DatabaseCrawlPipeline {
+
+	public static class Batch {
+
+		private final List<IndexDocument> documents;
+
+		private final List<String> primaryKeys;
+
+		private Batch(List<IndexDocument> documents, List<String> primaryKeys) {
+			this.documents = documents;
+			this.primaryKeys = primaryKeys;
+		}
+
+		public List<IndexDocument> getDocuments() {
+			return documents;
+		}
+
+		public List<String> getPrimaryKeys() {
+			return primaryKeys;
+		}
+
+		/**
+		 * @return the last non null primary key of the batch
+		 */
+		public String getLastPrimaryKey() {
+			if (primaryKeys == null)
+				return null;
+			for (int i = primaryKeys.size() - 1; i >= 0; i--) {
+				String pk = primaryKeys.get(i);
+				if (pk != null)
+					return pk;
+			}
+			return null;
+		}
+	}
+
+	private final static Batch END_OF_STREAM = new Batch(null, null);
+
+	private final Client client;
+
+	private final BlockingQueue<Batch> pendingQueue;
+
+	private final ConcurrentLinkedQueue<Batch> committedQueue;
+
+	private final AtomicReference<Exception> exception;
+
+	private final Future<?> writerFuture;
+
+	private final AtomicLong cursorDocuments;
+	private final AtomicLong cursorNanos;
+	private final AtomicLong cursorWaitNanos;
+	private final AtomicLong indexDocuments;
+	private final AtomicLong indexBatches;
+	private final AtomicLong indexNanos;
+
+	private long lastCursorTime;
+
+	public DatabaseCrawlPipeline(Client client, int queueSize) {
+		this.client = client;
+		this.pendingQueue = new ArrayBlockingQueue<>(queueSize < 1 ? 1 : queueSize);
+		this.committedQueue = new ConcurrentLinkedQueue<>();
+		this.exception = new AtomicReference<>();
+		this.cursorDocuments = new AtomicLong();
+		this.cursorNanos = new AtomicLong();
+		this.cursorWaitNanos = new AtomicLong();
+		this.indexDocuments = new AtomicLong();
+		this.indexBatches = new AtomicLong();
+		this.indexNanos = new AtomicLong();
+		this.lastCursorTime = System.nanoTime();
+		this.writerFuture = client.getThreadPool().submit(this::writer);
+	}
+
+	private void writer() {
+		try {
+			for (; ; ) {
+				final Batch batch = pendingQueue.take();
+				if (batch == END_OF_STREAM)
+					return;
+				final long start = System.nanoTime();
+				client.updateDocuments(batch.documents);
+				indexNanos.addAndGet(System.nanoTime() - start);
+				indexDocuments.addAndGet(batch.documents.size());
+				indexBatches.incrementAndGet();
+				committedQueue.add(batch);
+			}
+		} catch (Exception e) {
+			exception.compareAndSet(null, e);
+			// Unblock the cursor stage if it waits on a full queue
+			pendingQueue.clear();
+		}
+	}
+
+	private void checkException() throws SearchLibException {
+		final Exception e = exception.get();
+		if (e != null)
+			throw SearchLibException.newInstance(e);
+	}
+
+	/**
+	 * Hand a batch over to the index stage. Blocks while the queue is full.
+	 *
+	 * @param documents   the documents to index
+	 * @param primaryKeys the primary keys of the documents (may be null)
+	 * @throws SearchLibException   if the index stage failed
+	 * @throws InterruptedException if the thread was interrupted while waiting
+	 */
+	public void submit(List<IndexDocument> documents, List<String> primaryKeys)
+			throws SearchLibException, InterruptedException {
+		checkException();
+		if (documents == null || documents.isEmpty())
+			return;
+		final long now = System.nanoTime();
+		cursorNanos.addAndGet(now - lastCursorTime);
+		cursorDocuments.addAndGet(documents.size());
+		final Batch batch = new Batch(new ArrayList<>(documents),
+				primaryKeys == null ? null : new ArrayList<>(primaryKeys));
+		while (!pendingQueue.offer(batch, 1, TimeUnit.SECONDS))
+			checkException();
+		lastCursorTime = System.nanoTime();
+		cursorWaitNanos.addAndGet(lastCursorTime - now);
+	}
+
+	/**
+	 * @return the next batch committed by the index stage, or null
+	 */
+	public Batch pollCommitted() {
+		return committedQueue.poll();
+	}
+
+	/**
+	 * Wait until every submitted batch has been committed
+	 *
+	 * @throws SearchLibException   if the index stage failed
+	 * @throws InterruptedException if the thread was interrupted while waiting
+	 */
+	public void finish() throws SearchLibException, InterruptedException {
+		checkException();
+		cursorNanos.addAndGet(System.nanoTime() - lastCursorTime);
+		while (!pendingQueue.offer(END_OF_STREAM, 1, TimeUnit.SECONDS))
+			checkException();
+		try {
+			writerFuture.get();
+		} catch (Exception e) {
+			throw SearchLibException.newInstance(e);
+		}
+		checkException();
+	}
+
+	/**
+	 * Stop the index stage without waiting for the pending batches
+	 */
+	public void abort() {
+		pendingQueue.clear();
+		writerFuture.cancel(true);
+	}
+
+	private static void appendRate(StringBuilder sb, String stage, long count, long nanos) {
+		sb.append(stage);
+		sb.append(": ");
+		sb.append(count);
+		if (nanos > 0) {
+			sb.append(" (");
+			sb.append(count * 1000000000L / nanos);
+			sb.append("/s)");
+		}
+	}
+
+	public String getStageInfo() {
+		final StringBuilder sb = new StringBuilder();
+		appendRate(sb, "cursor", cursorDocuments.get(), cursorNanos.get());
+		sb.append(" - waiting: ");
+		sb.append(TimeUnit.NANOSECONDS.toMillis(cursorWaitNanos.get()));
+		sb.append("ms - ");
+		appendRate(sb, "index", indexDocuments.get(), indexNanos.get());
+		sb.append(" in ");
+		sb.append(indexBatches.get());
+		sb.append(" batch(es) - queue: ");
+		sb.append(pendingQueue.size());
+		return sb.toString();
+	}
+}
@@ -39,6 +39,7 @@ import com.jaeksoft.searchlib.query.ParseException;
 import com.jaeksoft.searchlib.util.DatabaseUtils;
 import com.jaeksoft.searchlib.util.InfoCallback;
 import com.jaeksoft.searchlib.util.ReadWriteLock;
+import com.jaeksoft.searchlib.util.StringUtils;
 import com.jaeksoft.searchlib.util.Variables;
 
 import java.io.IOException;
@@ -60,6 +61,17 @@ public class DatabaseCrawlSqlThread extends DatabaseCrawlThread {
 
 	private final DatabaseCrawlSql databaseCrawl;
 
+	private DatabaseCrawlCheckpoint checkpoint;
+
+	private String pendingCheckpoint;
+
+	/**
+	 * Number of committed batches between two stored checkpoints
+	 */
+	private final static int CHECKPOINT_INTERVAL = 10;
+
+	private int batchesSinceCheckpoint;
+
 	public DatabaseCrawlSqlThread(Client client, DatabaseCrawlMaster crawlMaster, DatabaseCrawlSql databaseCrawl,
 			Variables variables, InfoCallback infoCallback) {
 		super(client, crawlMaster, databaseCrawl, infoCallback);
@@ -68,30 +80,49 @@ public class DatabaseCrawlSqlThread extends DatabaseCrawlThread {
 	}
 
 	private boolean index(Transaction transaction, List<IndexDocument> indexDocumentList, int limit,
-			List<String> pkList) throws NoSuchAlgorithmException, IOException, URISyntaxException, SearchLibException,
-			InstantiationException, IllegalAccessException, ClassNotFoundException, SQLException, InterruptedException {
+			List<String> pkList) throws IOException, SearchLibException, SQLException, InterruptedException {
 		int i = indexDocumentList.size();
 		if (i == 0 || i < limit)
 			return false;
 		setStatus(CrawlStatus.INDEXATION);
-		client.updateDocuments(indexDocumentList);
-		rwl.w.lock();
-		try {
-			pendingIndexDocumentCount -= i;
-			updatedIndexDocumentCount += i;
-		} finally {
-			rwl.w.unlock();
-		}
-
-		DatabaseUtils.update(transaction, pkList, null, databaseCrawl.getSqlUpdateMode(), databaseCrawl.getSqlUpdate());
+		pipeline.submit(indexDocumentList, pkList);
 		pkList.clear();
 		indexDocumentList.clear();
-		if (infoCallback != null)
-			infoCallback.setInfo(updatedIndexDocumentCount + " document(s) indexed");
+		committed(transaction);
 		sleepMs(databaseCrawl.getMsSleep());
 		return true;
 	}
 
+	/**
+	 * Run the SQL update statements of the batches committed by the index stage
+	 * and remember the last primary key. The cursor thread owns the JDBC
+	 * connection, the index stage never touches it.
+	 * <p>
+	 * Without SQL update statement, the index commits are the only state to
+	 * follow: the checkpoint is stored every CHECKPOINT_INTERVAL batches, so a
+	 * crash resumes near the last committed batch. With SQL update statements,
+	 * the checkpoint must not be ahead of the SQL transaction. Committing it
+	 * while the result set is read closes the cursor with many drivers, so the
+	 * checkpoint is only stored once the whole transaction is committed.
+	 */
+	private void committed(Transaction transaction) throws SQLException, IOException {
+		DatabaseCrawlPipeline.Batch batch;
+		while ((batch = pollCommitted()) != null) {
+			DatabaseUtils.update(transaction, batch.getPrimaryKeys(), null, databaseCrawl.getSqlUpdateMode(),
+					databaseCrawl.getSqlUpdate());
+			final String lastPrimaryKey = batch.getLastPrimaryKey();
+			if (lastPrimaryKey != null)
+				pendingCheckpoint = lastPrimaryKey;
+			batchesSinceCheckpoint++;
+		}
+		if (checkpoint == null || batchesSinceCheckpoint < CHECKPOINT_INTERVAL)
+			return;
+		if (!StringUtils.isEmpty(databaseCrawl.getSqlUpdate()))
+			return;
+		checkpoint.store(pendingCheckpoint);
+		batchesSinceCheckpoint = 0;
+	}
+
 	private boolean delete(Transaction transaction, List<String> deleteDocumentList, int limit)
 			throws NoSuchAlgorithmException, IOException, URISyntaxException, SearchLibException,
 			InstantiationException, IllegalAccessException, ClassNotFoundException, SQLException, InterruptedException {
@@ -185,6 +216,8 @@ public class DatabaseCrawlSqlThread extends DatabaseCrawlThread {
 			lastFieldContent = newFieldContents;
 		}
 		index(transaction, indexDocumentList, 0, pkList);
+		finishPipeline();
+		committed(transaction);
 	}
 
 	private void runnerDelete(Transaction transaction, ResultSet resultSet)
@@ -214,6 +247,12 @@ public class DatabaseCrawlSqlThread extends DatabaseCrawlThread {
 		if (sqlUpdate != null && sqlUpdate.length() == 0)
 			sqlUpdate = null;
 
+		String dbPrimaryKey = databaseCrawl.getPrimaryKey();
+		if (dbPrimaryKey != null && dbPrimaryKey.length() > 0) {
+			checkpoint = new DatabaseCrawlCheckpoint(client, databaseCrawl.getName());
+			databaseCrawl.applyVariables(checkpoint.getVariables());
+		}
+
 		Transaction transaction = null;
 		try {
 			transaction = databaseCrawl.getNewTransaction(connectionManager);
@@ -236,14 +275,21 @@ public class DatabaseCrawlSqlThread extends DatabaseCrawlThread {
 
 			if (ukDeleteField != null)
 				runnerDelete(transaction, resultSet);
-			else
+			else {
+				newPipeline();
 				runnerUpdate(transaction, resultSet, columns);
+			}
 
 			if (updatedIndexDocumentCount > 0 || updatedDeleteDocumentCount > 0) {
 				transaction.commit();
+				if (checkpoint != null)
+					checkpoint.store(pendingCheckpoint);
 				client.reload();
 			}
+			if (checkpoint != null && !isAborted())
+				checkpoint.clear();
 		} finally {
+			abortPipeline();
 			if (transaction != null)
 				transaction.close();
 		}
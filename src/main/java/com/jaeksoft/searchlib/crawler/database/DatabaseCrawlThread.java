@@ -51,6 +51,13 @@ public abstract class DatabaseCrawlThread extends CrawlThreadAbstract<DatabaseCr
 
 	protected long ignoredDocumentCount;
 
+	protected volatile DatabaseCrawlPipeline pipeline;
+
+	/**
+	 * Number of batches which can wait for the index stage
+	 */
+	private final static int PIPELINE_QUEUE_SIZE = 2;
+
 	public DatabaseCrawlThread(Client client, DatabaseCrawlMaster crawlMaster, DatabaseCrawlAbstract databaseCrawl,
 			InfoCallback infoCallback) {
 		super(client, "Database Crawl: " + databaseCrawl.getName(), crawlMaster, databaseCrawl, infoCallback);
@@ -78,12 +85,12 @@ public abstract class DatabaseCrawlThread extends CrawlThreadAbstract<DatabaseCr
 		return sb.toString();
 	}
 
-	protected boolean index(List<IndexDocument> indexDocumentList, int limit)
-			throws IOException, SearchLibException, InterruptedException {
-		int i = indexDocumentList.size();
-		if (i == 0 || i < limit)
-			return false;
-		client.updateDocuments(indexDocumentList);
+	protected DatabaseCrawlPipeline newPipeline() {
+		pipeline = new DatabaseCrawlPipeline(client, PIPELINE_QUEUE_SIZE);
+		return pipeline;
+	}
+
+	protected void countIndexed(int i) {
 		rwl.w.lock();
 		try {
 			pendingIndexDocumentCount -= i;
@@ -91,9 +98,57 @@ public abstract class DatabaseCrawlThread extends CrawlThreadAbstract<DatabaseCr
 		} finally {
 			rwl.w.unlock();
 		}
-		indexDocumentList.clear();
 		if (infoCallback != null)
 			infoCallback.setInfo(updatedIndexDocumentCount + " document(s) indexed");
+	}
+
+	/**
+	 * Returns the next batch committed by the index stage of the pipeline and
+	 * update the counters.
+	 *
+	 * @return a committed batch or null
+	 */
+	protected DatabaseCrawlPipeline.Batch pollCommitted() {
+		if (pipeline == null)
+			return null;
+		DatabaseCrawlPipeline.Batch batch = pipeline.pollCommitted();
+		if (batch != null)
+			countIndexed(batch.getDocuments().size());
+		return batch;
+	}
+
+	/**
+	 * Wait for the index stage. The remaining committed batches must then be
+	 * collected by the caller using {@link #pollCommitted()}.
+	 *
+	 * @throws SearchLibException   if the index stage failed
+	 * @throws InterruptedException if the thread was interrupted while waiting
+	 */
+	protected void finishPipeline() throws SearchLibException, InterruptedException {
+		if (pipeline == null)
+			return;
+		pipeline.finish();
+	}
+
+	protected void abortPipeline() {
+		if (pipeline != null)
+			pipeline.abort();
+	}
+
+	protected boolean index(List<IndexDocument> indexDocumentList, int limit)
+			throws IOException, SearchLibException, InterruptedException {
+		int i = indexDocumentList.size();
+		if (i == 0 || i < limit)
+			return false;
+		if (pipeline != null) {
+			pipeline.submit(indexDocumentList, null);
+			while (pollCommitted() != null)
+				;
+		} else {
+			client.updateDocuments(indexDocumentList);
+			countIndexed(i);
+		}
+		indexDocumentList.clear();
 		sleepMs(databaseCrawl.getMsSleep());
 		return true;
 	}
@@ -149,7 +204,8 @@ public abstract class DatabaseCrawlThread extends CrawlThreadAbstract<DatabaseCr
 
 	@Override
 	protected String getCurrentInfo() {
-		return "";
+		final DatabaseCrawlPipeline p = pipeline;
+		return p == null ? "" : p.getStageInfo();
 	}
 
 }
@@ -34,12 +34,17 @@ import com.jaeksoft.searchlib.util.LinkUtils;
 import com.jaeksoft.searchlib.util.RegExpUtils;
 import com.jaeksoft.searchlib.util.StringUtils;
 import com.jaeksoft.searchlib.util.array.BytesOutputStream;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.http.client.ClientProtocolException;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.FileEntity;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
@@ -210,6 +215,22 @@ public class SwiftProtocol {
 		return downloadItem;
 	}
 
+	final public static DownloadItem writeObject(HttpDownloader httpDownloader, SwiftToken swiftToken, String container,
+			String path, File file) throws URISyntaxException, ClientProtocolException, IllegalStateException,
+			IOException, SearchLibException {
+		final List<HeaderItem> headerList = swiftToken.getAuthTokenHeader(new ArrayList<HeaderItem>(2));
+		final String md5;
+		try (final InputStream inputStream = new FileInputStream(file)) {
+			md5 = DigestUtils.md5Hex(inputStream);
+		}
+		headerList.add(new HeaderItem("ETag", md5));
+		final URI uri = swiftToken.getPathURI(container, path);
+		final DownloadItem downloadItem = httpDownloader.put(uri, null, headerList, null,
+				new FileEntity(file, ContentType.APPLICATION_OCTET_STREAM));
+		downloadItem.checkNoErrorList(201);
+		return downloadItem;
+	}
+
 	final public static void deleteObject(HttpDownloader httpDownloader, SwiftToken swiftToken, String container,
 			String path) throws URISyntaxException, ClientProtocolException, IllegalStateException, IOException,
 					SearchLibException {
@@ -224,7 +245,7 @@ public class SwiftProtocol {
 					IllegalStateException, IOException, SearchLibException {
 		final List<HeaderItem> headerList = swiftToken.getAuthTokenHeader(new ArrayList<HeaderItem>(2));
 		headerList.add(new HeaderItem("Range",
-				StringUtils.fastConcat(Long.toString(rangeStart), '-', Long.toString(rangeEnd))));
+				StringUtils.fastConcat("bytes=", Long.toString(rangeStart), '-', Long.toString(rangeEnd))));
 		final URI uri = swiftToken.getPathURI(container, path);
 		final DownloadItem downloadItem = httpDownloader.get(uri, null, headerList, null);
 		downloadItem.checkNoErrorList(200, 206);
@@ -26,6 +26,7 @@ package com.jaeksoft.searchlib.crawler.mailbox;
 
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.util.Objects;
 
 import javax.mail.MessagingException;
 import javax.xml.xpath.XPathExpressionException;
@@ -95,6 +96,19 @@ public class MailboxCrawlItem
 		item.lang = this.lang;
 	}
 
+	/**
+	 * @param item
+	 *            another crawl item
+	 * @return true if both items crawl the same mailbox with the same name
+	 */
+	public boolean isSameMailbox(MailboxCrawlItem item) {
+		return Objects.equals(name, item.name)
+				&& Objects.equals(serverName, item.serverName)
+				&& serverPort == item.serverPort
+				&& Objects.equals(serverProtocol, item.serverProtocol)
+				&& Objects.equals(user, item.user);
+	}
+
 	public String getInfo() {
 		StringBuilder sb = new StringBuilder();
 		sb.append(user);
@@ -30,6 +30,7 @@ import com.jaeksoft.searchlib.crawler.FieldMapContext;
 import com.jaeksoft.searchlib.crawler.common.database.CommonFieldTarget;
 import com.jaeksoft.searchlib.crawler.common.process.CrawlStatus;
 import com.jaeksoft.searchlib.crawler.common.process.CrawlThreadAbstract;
+import com.jaeksoft.searchlib.crawler.mailbox.MailboxSyncState.FolderState;
 import com.jaeksoft.searchlib.crawler.mailbox.crawler.MailboxAbstractCrawler;
 import com.jaeksoft.searchlib.function.expression.SyntaxError;
 import com.jaeksoft.searchlib.index.IndexDocument;
@@ -45,7 +46,11 @@ import org.apache.commons.lang3.StringUtils;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 public class MailboxCrawlThread extends CrawlThreadAbstract<MailboxCrawlThread, MailboxCrawlMaster> {
 
@@ -77,6 +82,14 @@ public class MailboxCrawlThread extends CrawlThreadAbstract<MailboxCrawlThread,
 
 	private final SearchFieldRequest uniqueSearchRequest;
 
+	private final MailboxSyncState syncState;
+
+	private final List<FolderState> syncedFolders;
+
+	private final Set<String> expungedMessageIds;
+
+	private final Set<String> seenMessageIds;
+
 	public MailboxCrawlThread(Client client, MailboxCrawlMaster crawlMaster, MailboxCrawlItem crawlItem,
 			Variables variables, InfoCallback infoCallback) throws SearchLibException {
 		super(client, "MailboxCrawl " + crawlItem.getName(), crawlMaster, crawlItem, infoCallback);
@@ -100,12 +113,29 @@ public class MailboxCrawlThread extends CrawlThreadAbstract<MailboxCrawlThread,
 		ignoredDocumentCount = 0;
 		errorDocumentCount = 0;
 		this.documents = new ArrayList<>();
+
+		try {
+			syncState = new MailboxSyncState(client.getDirectory(), crawlItem.getName());
+		} catch (IOException e) {
+			throw new SearchLibException(e);
+		}
+		syncedFolders = new ArrayList<>();
+		expungedMessageIds = new HashSet<>();
+		seenMessageIds = new HashSet<>();
 	}
 
 	public FieldMapContext getFieldMapContext() {
 		return fieldMapContext;
 	}
 
+	public ExecutorService getThreadPool() {
+		return client.getThreadPool();
+	}
+
+	public MailboxSyncState getSyncState() {
+		return syncState;
+	}
+
 	@Override
 	public void runner() throws Exception {
 		setStatusInfo(CrawlStatus.STARTING);
@@ -115,6 +145,10 @@ public class MailboxCrawlThread extends CrawlThreadAbstract<MailboxCrawlThread,
 		if (isAborted())
 			return;
 		index(documents, 0);
+		deleteExpunged();
+		// The states are stored only once the whole crawl is committed
+		for (FolderState folderState : syncedFolders)
+			syncState.store(folderState);
 	}
 
 	@Override
@@ -257,6 +291,59 @@ public class MailboxCrawlThread extends CrawlThreadAbstract<MailboxCrawlThread,
 			infoCallback.setInfo(getStatusInfo());
 	}
 
+	/**
+	 * Register messages which disappeared from a folder. They are deleted
+	 * at the end of the crawl, unless they were found in another folder.
+	 */
+	public void addExpungedMessageIds(Collection<String> messageIds) {
+		expungedMessageIds.addAll(messageIds);
+	}
+
+	public void addSeenMessageId(String messageId) {
+		seenMessageIds.add(messageId);
+	}
+
+	public void addSyncedFolder(FolderState folderState) {
+		syncedFolders.add(folderState);
+	}
+
+	private void deleteExpunged() throws SearchLibException {
+		expungedMessageIds.removeAll(seenMessageIds);
+		if (uniqueFieldTarget == null || expungedMessageIds.isEmpty())
+			return;
+		final List<String> values = new ArrayList<>(expungedMessageIds.size());
+		for (String messageId : expungedMessageIds) {
+			String value = mailboxFieldMap.mapFieldTarget(uniqueFieldTarget, messageId);
+			if (!StringUtils.isEmpty(value))
+				values.add(value);
+		}
+		expungedMessageIds.clear();
+		if (values.isEmpty())
+			return;
+		rwl.w.lock();
+		try {
+			pendingDeleteDocumentCount += values.size();
+		} finally {
+			rwl.w.unlock();
+		}
+		setStatusInfo(CrawlStatus.INDEXATION);
+		client.deleteDocuments(uniqueFieldTarget.getName(), values);
+		rwl.w.lock();
+		try {
+			pendingDeleteDocumentCount -= values.size();
+			updatedDeleteDocumentCount += values.size();
+		} finally {
+			rwl.w.unlock();
+		}
+	}
+
+	/**
+	 * @return true if the messages can be looked up in the index
+	 */
+	public boolean hasUniqueField() {
+		return uniqueFieldTarget != null;
+	}
+
 	public boolean isAlreadyIndexed(String messageId) throws SearchLibException {
 		if (uniqueFieldTarget == null)
 			return false;
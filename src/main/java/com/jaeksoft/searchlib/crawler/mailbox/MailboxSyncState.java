@@ -0,0 +1,310 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.crawler.mailbox;
+
+import com.jaeksoft.searchlib.util.IOUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Persists the IMAP synchronization state of each folder of a mailbox crawl:
+ * the UIDVALIDITY, the HIGHESTMODSEQ (when the server supports CONDSTORE) and
+ * the message ID of every indexed UID. The next crawl only fetches the
+ * messages above the last known UID, the messages whose flags changed, and the
+ * messages which failed to be indexed.
+ */
+public class MailboxSyncState {
+
+	private final static String SYNC_DIRECTORY = "mailboxSyncStates";
+
+	private final static String SYNC_EXTENSION = ".sync";
+
+	private final static int VERSION = 1;
+
+	private final File directory;
+
+	public MailboxSyncState(File rootDirectory, String crawlName) throws IOException {
+		File dir = new File(rootDirectory, SYNC_DIRECTORY);
+		if (!dir.exists())
+			dir.mkdir();
+		directory = new File(dir, URLEncoder.encode(crawlName, "UTF-8"));
+		if (!directory.exists())
+			directory.mkdir();
+	}
+
+	private File getFile(String folderFullName) throws IOException {
+		return new File(directory, URLEncoder.encode(folderFullName, "UTF-8") + SYNC_EXTENSION);
+	}
+
+	/**
+	 * @param folderFullName the full name of the folder
+	 * @return the stored state, or an empty state if the folder was never
+	 * synchronized
+	 * @throws IOException if the state file cannot be read
+	 */
+	public FolderState load(String folderFullName) throws IOException {
+		final FolderState state = new FolderState(folderFullName);
+		final File file = getFile(folderFullName);
+		if (!file.exists())
+			return state;
+		DataInputStream input = null;
+		try {
+			input = new DataInputStream(
+					new BufferedInputStream(new GZIPInputStream(new FileInputStream(file), 65536)));
+			if (input.readInt() != VERSION)
+				return state;
+			state.uidValidity = input.readLong();
+			state.highestModSeq = input.readLong();
+			final int size = input.readInt();
+			state.ensureCapacity(size);
+			for (int i = 0; i < size; i++)
+				state.add(input.readLong(), input.readUTF());
+			return state;
+		} finally {
+			IOUtils.close(input);
+		}
+	}
+
+	/**
+	 * Write the state. The file is replaced atomically.
+	 *
+	 * @param state the state to persist
+	 * @throws IOException if the state file cannot be written
+	 */
+	public void store(FolderState state) throws IOException {
+		final File file = getFile(state.folderFullName);
+		final File tmpFile = new File(directory, file.getName() + ".tmp");
+		DataOutputStream output = null;
+		try {
+			output = new DataOutputStream(
+					new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(tmpFile), 65536)));
+			output.writeInt(VERSION);
+			output.writeLong(state.uidValidity);
+			output.writeLong(state.highestModSeq);
+			output.writeInt(state.size);
+			for (int i = 0; i < state.size; i++) {
+				output.writeLong(state.uids[i]);
+				output.writeUTF(state.messageIds[i]);
+			}
+			output.close();
+			output = null;
+			if (file.exists())
+				file.delete();
+			if (!tmpFile.renameTo(file))
+				throw new IOException("Cannot write the synchronization state: " + file);
+		} finally {
+			IOUtils.close(output);
+		}
+	}
+
+	/**
+	 * Forget every folder, the next crawl will be a full synchronization
+	 */
+	public void clear() {
+		final File[] files = directory.listFiles();
+		if (files == null)
+			return;
+		for (File file : files)
+			file.delete();
+	}
+
+	/**
+	 * Forget the state of a crawl (the crawl was deleted, or its server or its
+	 * account changed)
+	 *
+	 * @param rootDirectory the directory of the index
+	 * @param crawlName     the name of the crawl
+	 * @throws IOException if the state directory cannot be accessed
+	 */
+	public static void clear(File rootDirectory, String crawlName) throws IOException {
+		final MailboxSyncState syncState = new MailboxSyncState(rootDirectory, crawlName);
+		syncState.clear();
+		syncState.directory.delete();
+	}
+
+	public static class FolderState {
+
+		private final String folderFullName;
+
+		private long uidValidity;
+
+		private long highestModSeq;
+
+		// Sorted by UID: the UIDs of a folder are strictly ascending
+		private long[] uids;
+
+		private String[] messageIds;
+
+		private int size;
+
+		public FolderState(String folderFullName) {
+			this.folderFullName = folderFullName;
+			this.uidValidity = -1;
+			this.highestModSeq = -1;
+			this.uids = new long[16];
+			this.messageIds = new String[16];
+			this.size = 0;
+		}
+
+		public String getFolderFullName() {
+			return folderFullName;
+		}
+
+		public long getUidValidity() {
+			return uidValidity;
+		}
+
+		public long getHighestModSeq() {
+			return highestModSeq;
+		}
+
+		public void setHighestModSeq(long highestModSeq) {
+			this.highestModSeq = highestModSeq;
+		}
+
+		/**
+		 * @return the highest known UID, or 0
+		 */
+		public long getLastUid() {
+			return size == 0 ? 0 : uids[size - 1];
+		}
+
+		/**
+		 * @return the message ID of the most recent known message, or null
+		 */
+		public String getLastMessageId() {
+			for (int i = size - 1; i >= 0; i--)
+				if (!messageIds[i].isEmpty())
+					return messageIds[i];
+			return null;
+		}
+
+		public int size() {
+			return size;
+		}
+
+		public boolean isEmpty() {
+			return size == 0;
+		}
+
+		private void ensureCapacity(int capacity) {
+			if (capacity <= uids.length)
+				return;
+			final int newCapacity = Math.max(capacity, uids.length * 2);
+			uids = Arrays.copyOf(uids, newCapacity);
+			messageIds = Arrays.copyOf(messageIds, newCapacity);
+		}
+
+		/**
+		 * Record an indexed message. Known UIDs are ignored.
+		 *
+		 * @param uid       the UID of the message
+		 * @param messageId the message ID (may be null)
+		 */
+		public void add(long uid, String messageId) {
+			int pos = size;
+			if (uid <= getLastUid()) {
+				// A message indexed after a message with a higher UID
+				pos = Arrays.binarySearch(uids, 0, size, uid);
+				if (pos >= 0)
+					return;
+				pos = -pos - 1;
+			}
+			ensureCapacity(size + 1);
+			System.arraycopy(uids, pos, uids, pos + 1, size - pos);
+			System.arraycopy(messageIds, pos, messageIds, pos + 1, size - pos);
+			uids[pos] = uid;
+			messageIds[pos] = messageId == null ? "" : messageId;
+			size++;
+		}
+
+		/**
+		 * @param currentUids the UIDs present in the folder, sorted
+		 * @return the UIDs of the folder below the last known UID which are
+		 * not known (e.g. the messages which failed to be indexed)
+		 */
+		public long[] getMissingUids(long[] currentUids) {
+			final long lastUid = getLastUid();
+			final long[] missing = new long[currentUids.length];
+			int count = 0;
+			for (long uid : currentUids)
+				if (uid <= lastUid && Arrays.binarySearch(uids, 0, size, uid) < 0)
+					missing[count++] = uid;
+			return Arrays.copyOf(missing, count);
+		}
+
+		/**
+		 * Keep only the given UIDs
+		 *
+		 * @param currentUids the UIDs present in the folder, sorted
+		 * @return the message IDs of the removed UIDs
+		 */
+		public List<String> retainUids(long[] currentUids) {
+			final List<String> removed = new ArrayList<>();
+			int j = 0;
+			for (int i = 0; i < size; i++) {
+				if (Arrays.binarySearch(currentUids, uids[i]) >= 0) {
+					uids[j] = uids[i];
+					messageIds[j++] = messageIds[i];
+				} else if (!messageIds[i].isEmpty())
+					removed.add(messageIds[i]);
+			}
+			Arrays.fill(messageIds, j, size, null);
+			size = j;
+			return removed;
+		}
+
+		/**
+		 * Forget every known message (the UIDVALIDITY changed)
+		 *
+		 * @param uidValidity the new UIDVALIDITY
+		 * @return the message IDs which were known
+		 */
+		public List<String> reset(long uidValidity) {
+			final List<String> removed = new ArrayList<>(size);
+			for (int i = 0; i < size; i++)
+				if (!messageIds[i].isEmpty())
+					removed.add(messageIds[i]);
+			Arrays.fill(messageIds, 0, size, null);
+			size = 0;
+			this.uidValidity = uidValidity;
+			this.highestModSeq = -1;
+			return removed;
+		}
+	}
+}
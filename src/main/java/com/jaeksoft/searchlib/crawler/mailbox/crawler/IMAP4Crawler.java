@@ -24,17 +24,27 @@
 
 package com.jaeksoft.searchlib.crawler.mailbox.crawler;
 
+import java.util.Arrays;
 import java.util.Properties;
 
+import javax.mail.FetchProfile;
 import javax.mail.Folder;
 import javax.mail.Message;
 import javax.mail.MessagingException;
 import javax.mail.PasswordAuthentication;
 import javax.mail.Session;
 import javax.mail.Store;
+import javax.mail.UIDFolder;
 
+import com.jaeksoft.searchlib.crawler.common.process.CrawlStatus;
 import com.jaeksoft.searchlib.crawler.mailbox.MailboxProtocolEnum;
+import com.jaeksoft.searchlib.crawler.mailbox.MailboxSyncState;
+import com.jaeksoft.searchlib.crawler.mailbox.MailboxSyncState.FolderState;
+import com.jaeksoft.searchlib.util.StringUtils;
+import com.sun.mail.imap.IMAPFolder;
 import com.sun.mail.imap.IMAPMessage;
+import com.sun.mail.imap.IMAPStore;
+import com.sun.mail.imap.ResyncData;
 
 public class IMAP4Crawler extends MailboxAbstractCrawler {
 
@@ -70,4 +80,85 @@ public class IMAP4Crawler extends MailboxAbstractCrawler {
 			return null;
 		return ((IMAPMessage) message).getMessageID();
 	}
+
+	/**
+	 * Incremental synchronization based on the UIDs (and on the modification
+	 * sequences if the server supports CONDSTORE). See IMAPFolderSync.
+	 */
+	@Override
+	protected void readMessagesFolder(Folder folder) throws Exception {
+		final MailboxSyncState syncState = thread.getSyncState();
+		if (syncState == null || !(folder instanceof IMAPFolder)) {
+			super.readMessagesFolder(folder);
+			return;
+		}
+		final IMAPFolder imapFolder = (IMAPFolder) folder;
+		final boolean condStore = ((IMAPStore) folder.getStore())
+				.hasCapability("CONDSTORE");
+		if (condStore)
+			imapFolder.open(Folder.READ_ONLY, ResyncData.CONDSTORE);
+		else
+			imapFolder.open(Folder.READ_ONLY);
+		final String folderFullName = folder.getFullName();
+		try {
+			final FolderState state = syncState.load(folderFullName);
+			// The index was emptied or recreated: synchronize again
+			final String lastMessageId = state.getLastMessageId();
+			if (lastMessageId != null && thread.hasUniqueField()
+					&& !thread.isAlreadyIndexed(lastMessageId))
+				state.reset(state.getUidValidity());
+			final IMAPFolderSync sync = new IMAPFolderSync(imapFolder, state,
+					condStore);
+			thread.addExpungedMessageIds(sync.getExpungedMessageIds());
+			readMessages(imapFolder, folderFullName,
+					sync.getChangedMessages(), state, false);
+			// First synchronization: skip the messages already in the index
+			readMessages(imapFolder, folderFullName, sync.getNewMessages(),
+					state, sync.isFullSync());
+			pipeline.flush();
+			if (thread.isAborted())
+				return;
+			sync.commit();
+			thread.addSyncedFolder(state);
+		} finally {
+			folder.close(false);
+		}
+	}
+
+	private void readMessages(IMAPFolder folder, String folderFullName,
+			Message[] messages, FolderState state, boolean checkIndex)
+			throws Exception {
+		final int buffer = item.getBufferSize();
+		final FetchProfile fp = new FetchProfile();
+		fp.add(FetchProfile.Item.ENVELOPE);
+		fp.add(FetchProfile.Item.FLAGS);
+		fp.add(UIDFolder.FetchProfileItem.UID);
+		for (int i = 0; i < messages.length && !thread.isAborted(); i += buffer) {
+			thread.setStatusInfo(CrawlStatus.CRAWL);
+			final Message[] batch = Arrays.copyOfRange(messages, i,
+					Math.min(i + buffer, messages.length));
+			folder.fetch(batch, fp);
+			for (Message message : batch) {
+				if (thread.isAborted())
+					break;
+				if (message.isExpunged())
+					continue;
+				final String messageId = getMessageId(folder, message);
+				final long uid = folder.getUID(message);
+				if (StringUtils.isEmpty(messageId)) {
+					state.add(uid, messageId);
+					continue;
+				}
+				thread.addSeenMessageId(messageId);
+				if (checkIndex && thread.isAlreadyIndexed(messageId)) {
+					state.add(uid, messageId);
+					thread.incIgnored();
+					continue;
+				}
+				// The UID is recorded only once the message is indexed
+				submitMessage(folder, folderFullName, message, messageId,
+						() -> state.add(uid, messageId));
+			}
+		}
+	}
 }
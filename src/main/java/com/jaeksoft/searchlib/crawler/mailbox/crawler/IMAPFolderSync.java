@@ -0,0 +1,181 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.crawler.mailbox.crawler;
+
+import com.jaeksoft.searchlib.crawler.mailbox.MailboxSyncState.FolderState;
+import com.sun.mail.imap.IMAPFolder;
+
+import javax.mail.FetchProfile;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.UIDFolder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compares an opened IMAP folder with its last synchronization state:
+ * <ul>
+ * <li>If the UIDVALIDITY changed, the known UIDs are meaningless: the folder
+ * is fully synchronized again.</li>
+ * <li>The new messages are the ones above the last known UID.</li>
+ * <li>The expunged messages are detected by comparing the number of messages
+ * with the number of known UIDs. Only if they differ, the whole UID list is
+ * fetched (one UID FETCH command). The messages below the last known UID which
+ * are not known (their indexation failed) are fetched again.</li>
+ * <li>With CONDSTORE, the messages whose flags changed since the last
+ * HIGHESTMODSEQ are fetched again.</li>
+ * </ul>
+ */
+public class IMAPFolderSync {
+
+	private final static Message[] EMPTY = new Message[0];
+
+	private final IMAPFolder folder;
+
+	private final FolderState state;
+
+	private final boolean condStore;
+
+	private final long highestModSeq;
+
+	private final boolean fullSync;
+
+	private final List<String> expungedMessageIds;
+
+	private final Message[] newMessages;
+
+	/**
+	 * @param folder    the opened folder
+	 * @param state     the state of the last synchronization
+	 * @param condStore true if the folder was opened with CONDSTORE
+	 * @throws MessagingException if the server failed
+	 */
+	public IMAPFolderSync(IMAPFolder folder, FolderState state, boolean condStore) throws MessagingException {
+		this.folder = folder;
+		this.state = state;
+		this.condStore = condStore;
+		final long uidValidity = folder.getUIDValidity();
+		if (state.getUidValidity() != uidValidity)
+			expungedMessageIds = state.reset(uidValidity);
+		else
+			expungedMessageIds = new ArrayList<>();
+		fullSync = state.isEmpty();
+		highestModSeq = condStore ? folder.getHighestModSeq() : -1;
+		final Message[] messagesAfter = getMessagesAfter(state.getLastUid());
+		if (!state.isEmpty() && folder.getMessageCount() - messagesAfter.length != state.size()) {
+			final long[] allUids = getAllUids();
+			expungedMessageIds.addAll(state.retainUids(allUids));
+			newMessages = concat(getMessagesByUids(state.getMissingUids(allUids)), messagesAfter);
+		} else
+			newMessages = messagesAfter;
+	}
+
+	private Message[] getMessagesByUids(long[] uids) throws MessagingException {
+		if (uids.length == 0)
+			return EMPTY;
+		final List<Message> list = new ArrayList<>(uids.length);
+		for (Message message : folder.getMessagesByUID(uids))
+			if (message != null)
+				list.add(message);
+		return list.toArray(new Message[list.size()]);
+	}
+
+	private static Message[] concat(Message[] first, Message[] second) {
+		if (first.length == 0)
+			return second;
+		final Message[] messages = Arrays.copyOf(first, first.length + second.length);
+		System.arraycopy(second, 0, messages, first.length, second.length);
+		return messages;
+	}
+
+	private Message[] getMessagesAfter(long lastUid) throws MessagingException {
+		if (folder.getMessageCount() == 0)
+			return EMPTY;
+		final Message[] messages = folder.getMessagesByUID(lastUid + 1, UIDFolder.LASTUID);
+		// "n:*" always matches the last message, even if its UID is lower than n
+		final List<Message> list = new ArrayList<>(messages.length);
+		for (Message message : messages)
+			if (message != null && folder.getUID(message) > lastUid)
+				list.add(message);
+		return list.toArray(new Message[list.size()]);
+	}
+
+	private long[] getAllUids() throws MessagingException {
+		final Message[] messages = folder.getMessages();
+		final FetchProfile fp = new FetchProfile();
+		fp.add(UIDFolder.FetchProfileItem.UID);
+		folder.fetch(messages, fp);
+		final long[] uids = new long[messages.length];
+		for (int i = 0; i < messages.length; i++)
+			uids[i] = folder.getUID(messages[i]);
+		Arrays.sort(uids);
+		return uids;
+	}
+
+	/**
+	 * @return true if the folder was never synchronized, or if its
+	 * UIDVALIDITY changed
+	 */
+	public boolean isFullSync() {
+		return fullSync;
+	}
+
+	/**
+	 * @return the message IDs of the messages removed since the last
+	 * synchronization
+	 */
+	public List<String> getExpungedMessageIds() {
+		return expungedMessageIds;
+	}
+
+	/**
+	 * @return the messages above the last known UID, and the known messages
+	 * which were not indexed
+	 */
+	public Message[] getNewMessages() {
+		return newMessages;
+	}
+
+	/**
+	 * @return the known messages whose flags changed (CONDSTORE only)
+	 * @throws MessagingException if the server failed
+	 */
+	public Message[] getChangedMessages() throws MessagingException {
+		if (!condStore || fullSync)
+			return EMPTY;
+		final long lastModSeq = state.getHighestModSeq();
+		if (lastModSeq <= 0 || lastModSeq == highestModSeq)
+			return EMPTY;
+		return folder.getMessagesByUIDChangedSince(1, state.getLastUid(), lastModSeq);
+	}
+
+	/**
+	 * Record the HIGHESTMODSEQ, once the messages have been indexed
+	 */
+	public void commit() {
+		state.setHighestModSeq(highestModSeq);
+	}
+}
@@ -65,6 +65,7 @@ public abstract class MailboxAbstractCrawler {
 	protected MailboxCrawlThread thread;
 	protected MailboxProtocolEnum protocol;
 	protected MailboxCrawlItem item;
+	protected MailboxParsePipeline pipeline;
 
 	public void init(MailboxCrawlThread thread, MailboxProtocolEnum protocol,
 			MailboxCrawlItem item) {
@@ -81,14 +82,16 @@ public abstract class MailboxAbstractCrawler {
 
 	protected abstract void connect(Store store) throws MessagingException;
 
-	public void read() throws MessagingException, IOException,
-			SearchLibException {
+	public void read() throws Exception {
 		Store store = null;
+		pipeline = new MailboxParsePipeline(this, thread, thread.getThreadPool(),
+				item.getBufferSize());
 		try {
 			store = getStore();
 			connect(store);
 			readFolder(store.getDefaultFolder());
 		} finally {
+			pipeline.abort();
 			if (store != null)
 				store.close();
 		}
@@ -115,8 +118,7 @@ public abstract class MailboxAbstractCrawler {
 		}
 	}
 
-	private void readMessagesFolder(Folder folder) throws MessagingException,
-			IOException, SearchLibException {
+	protected void readMessagesFolder(Folder folder) throws Exception {
 		folder.open(Folder.READ_ONLY);
 		String folderFullName = folder.getFullName();
 		try {
@@ -143,33 +145,45 @@ public abstract class MailboxAbstractCrawler {
 						thread.incIgnored();
 						continue;
 					}
-					IndexDocument crawlIndexDocument = new IndexDocument(
-							item.getLang());
-					IndexDocument parserIndexDocument = new IndexDocument(
-							item.getLang());
-					crawlIndexDocument.addString(
-							MailboxFieldEnum.folder.name(), folderFullName);
-					try {
-						readMessage(crawlIndexDocument, parserIndexDocument,
-								folder, message, messageId);
-						thread.addDocument(crawlIndexDocument,
-								parserIndexDocument);
-					} catch (Exception e) {
-						Logging.warn(e);
-						thread.incError();
-					}
+					submitMessage(folder, folderFullName, message, messageId);
 				}
 			}
+			pipeline.flush();
 		} finally {
 			folder.close(false);
 		}
 	}
 
+	/**
+	 * Download the message and queue its parsing. The document is passed to
+	 * the crawl thread once parsed.
+	 */
+	protected void submitMessage(Folder folder, String folderFullName,
+			Message message, String messageId) throws InterruptedException {
+		submitMessage(folder, folderFullName, message, messageId, null);
+	}
+
+	/**
+	 * @param onIndexed
+	 *            called by the crawl thread once the document has been passed
+	 *            to the crawl thread (may be null)
+	 */
+	protected void submitMessage(Folder folder, String folderFullName,
+			Message message, String messageId, Runnable onIndexed)
+			throws InterruptedException {
+		try {
+			pipeline.submit(folder, folderFullName, message, messageId,
+					onIndexed);
+		} catch (MessagingException e) {
+			Logging.warn(e);
+			thread.incError();
+		}
+	}
+
 	protected abstract String getMessageId(Folder folder, Message message)
 			throws MessagingException;
 
-	protected void readFolder(Folder folder) throws MessagingException,
-			IOException, SearchLibException {
+	protected void readFolder(Folder folder) throws Exception {
 		if (folder == null)
 			return;
 		if ((folder.getType() & Folder.HOLDS_MESSAGES) != 0)
@@ -202,8 +216,7 @@ public abstract class MailboxAbstractCrawler {
 		}
 	}
 
-	private void readHoldsFolder(Folder folder) throws MessagingException,
-			IOException, SearchLibException {
+	private void readHoldsFolder(Folder folder) throws Exception {
 		Folder[] folders = folder.list();
 		if (folders == null)
 			return;
@@ -0,0 +1,159 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.crawler.mailbox.crawler;
+
+import com.jaeksoft.searchlib.Logging;
+import com.jaeksoft.searchlib.crawler.mailbox.MailboxCrawlThread;
+import com.jaeksoft.searchlib.crawler.mailbox.MailboxFieldEnum;
+import com.jaeksoft.searchlib.index.IndexDocument;
+
+import javax.mail.Folder;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeMessage;
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Overlaps the download of the messages with the parsing of their body and
+ * attachments. The crawl thread downloads each message into memory (the
+ * JavaMail folder is not thread safe), the parsing runs in the thread pool.
+ * The documents are handed over to the crawl thread in the order of the
+ * messages. At most "window" messages are parsed at the same time.
+ */
+class MailboxParsePipeline {
+
+	private final MailboxAbstractCrawler crawler;
+
+	private final MailboxCrawlThread thread;
+
+	private final ExecutorService executor;
+
+	private final int window;
+
+	private final ArrayDeque<Pending> pending;
+
+	private static class Pending {
+
+		private final Future<IndexDocument[]> future;
+
+		private final Runnable onIndexed;
+
+		private Pending(Future<IndexDocument[]> future, Runnable onIndexed) {
+			this.future = future;
+			this.onIndexed = onIndexed;
+		}
+	}
+
+	MailboxParsePipeline(MailboxAbstractCrawler crawler, MailboxCrawlThread thread, ExecutorService executor,
+			int window) {
+		this.crawler = crawler;
+		this.thread = thread;
+		this.executor = executor;
+		this.window = window < 1 ? 1 : window;
+		this.pending = new ArrayDeque<>(this.window);
+	}
+
+	/**
+	 * A copy of the message which does not need the folder anymore
+	 */
+	private static class DetachedMessage extends MimeMessage {
+
+		private final Date receivedDate;
+
+		private DetachedMessage(MimeMessage source) throws MessagingException {
+			super(source);
+			setMessageNumber(source.getMessageNumber());
+			receivedDate = source.getReceivedDate();
+		}
+
+		@Override
+		public Date getReceivedDate() {
+			return receivedDate;
+		}
+	}
+
+	/**
+	 * @param onIndexed called by the crawl thread once the document has been
+	 *                  handed over, not called if the parsing failed (may be
+	 *                  null)
+	 */
+	void submit(final Folder folder, final String folderFullName, final Message message, final String messageId,
+			final Runnable onIndexed) throws MessagingException, InterruptedException {
+		final Message detached =
+				message instanceof MimeMessage ? new DetachedMessage((MimeMessage) message) : message;
+		pending.add(new Pending(executor.submit(() -> {
+			IndexDocument crawlIndexDocument = new IndexDocument(crawler.item.getLang());
+			IndexDocument parserIndexDocument = new IndexDocument(crawler.item.getLang());
+			crawlIndexDocument.addString(MailboxFieldEnum.folder.name(), folderFullName);
+			crawler.readMessage(crawlIndexDocument, parserIndexDocument, folder, detached, messageId);
+			return new IndexDocument[] { crawlIndexDocument, parserIndexDocument };
+		}), onIndexed));
+		while (pending.size() >= window)
+			next();
+	}
+
+	private void next() throws InterruptedException {
+		final Pending next = pending.poll();
+		if (next == null)
+			return;
+		try {
+			final IndexDocument[] documents = next.future.get();
+			thread.addDocument(documents[0], documents[1]);
+			if (next.onIndexed != null)
+				next.onIndexed.run();
+		} catch (ExecutionException e) {
+			Logging.warn(e.getCause());
+			thread.incError();
+		} catch (InterruptedException e) {
+			throw e;
+		} catch (Exception e) {
+			Logging.warn(e);
+			thread.incError();
+		}
+	}
+
+	/**
+	 * Wait for the pending messages and hand them over to the crawl thread
+	 *
+	 * @throws InterruptedException if the crawl thread was interrupted
+	 */
+	void flush() throws InterruptedException {
+		while (!pending.isEmpty())
+			next();
+	}
+
+	/**
+	 * Cancel the pending messages
+	 */
+	void abort() {
+		for (Pending next : pending)
+			next.future.cancel(true);
+		pending.clear();
+	}
+}
@@ -0,0 +1,288 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.crawler.rest;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import net.minidev.json.JSONArray;
+import net.minidev.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Extracts values from a JSON stream without building the whole tree. The
+ * expressions are a subset of JsonPath: the root ($), children (.name,
+ * ['name']), wildcards (.* or [*]) and array indexes ([n]). Deep scans,
+ * filters, slices and unions are not supported (see isSupported).
+ * <p>
+ * Only the matching values are built, as json-smart objects, like JsonPath
+ * does. If an expression without wildcard matches an array, its items are
+ * emitted one by one while the array is parsed.
+ */
+public class JsonStreamExtractor {
+
+	private final static JsonFactory JSON_FACTORY = new JsonFactory();
+
+	public interface Handler {
+
+		void handle(Object value) throws Exception;
+	}
+
+	private static class Segment {
+
+		// null for an array index or a wildcard
+		private final String name;
+
+		// -1 for a name or a wildcard
+		private final int index;
+
+		private Segment(String name, int index) {
+			this.name = name;
+			this.index = index;
+		}
+
+		private boolean isWildcard() {
+			return name == null && index == -1;
+		}
+
+		private boolean matches(String fieldName, int arrayIndex) {
+			if (isWildcard())
+				return true;
+			return fieldName != null ? fieldName.equals(name) : index == arrayIndex;
+		}
+	}
+
+	private final static Segment WILDCARD = new Segment(null, -1);
+
+	private static class Path {
+
+		private final Segment[] segments;
+
+		private final Handler handler;
+
+		private final boolean spreadArray;
+
+		private Path(Segment[] segments, Handler handler) {
+			this.segments = segments;
+			this.handler = handler;
+			this.spreadArray = segments.length == 0 || !segments[segments.length - 1].isWildcard();
+		}
+	}
+
+	private final List<Path> paths = new ArrayList<>();
+
+	/**
+	 * @param expression the JsonPath expression
+	 * @return true if the expression can be evaluated on a stream
+	 */
+	public static boolean isSupported(String expression) {
+		return parse(expression) != null;
+	}
+
+	private static Segment[] parse(String expression) {
+		if (expression == null)
+			return null;
+		String path = expression.trim();
+		if (path.isEmpty())
+			return null;
+		if (!path.startsWith("$"))
+			path = path.startsWith("[") ? "$" + path : "$." + path;
+		final List<Segment> segments = new ArrayList<>();
+		int i = 1;
+		final int length = path.length();
+		while (i < length) {
+			final char c = path.charAt(i);
+			if (c == '.') {
+				i++;
+				int end = i;
+				while (end < length && path.charAt(end) != '.' && path.charAt(end) != '[')
+					end++;
+				final String name = path.substring(i, end);
+				// Deep scan (..) or functions are not supported
+				if (name.isEmpty() || name.indexOf('(') != -1)
+					return null;
+				segments.add("*".equals(name) ? WILDCARD : new Segment(name, -1));
+				i = end;
+			} else if (c == '[') {
+				final int end = path.indexOf(']', i);
+				if (end == -1)
+					return null;
+				final String content = path.substring(i + 1, end).trim();
+				final Segment segment = parseBracket(content);
+				if (segment == null)
+					return null;
+				segments.add(segment);
+				i = end + 1;
+			} else
+				return null;
+		}
+		return segments.toArray(new Segment[segments.size()]);
+	}
+
+	private static Segment parseBracket(String content) {
+		if ("*".equals(content))
+			return WILDCARD;
+		if (content.length() >= 2) {
+			final char quote = content.charAt(0);
+			if ((quote == '\'' || quote == '"') && content.charAt(content.length() - 1) == quote) {
+				final String name = content.substring(1, content.length() - 1);
+				if (name.indexOf(quote) != -1)
+					return null; // Union of names
+				return new Segment(name, -1);
+			}
+		}
+		if (content.isEmpty())
+			return null;
+		for (int i = 0; i < content.length(); i++)
+			if (!Character.isDigit(content.charAt(i)))
+				return null; // Filters, slices, unions, negative indexes
+		return new Segment(null, Integer.parseInt(content));
+	}
+
+	/**
+	 * Register an expression
+	 *
+	 * @param expression the JsonPath expression
+	 * @param handler    called for each matching value
+	 * @return false if the expression is not supported
+	 */
+	public boolean add(String expression, Handler handler) {
+		final Segment[] segments = parse(expression);
+		if (segments == null)
+			return false;
+		paths.add(new Path(segments, handler));
+		return true;
+	}
+
+	/**
+	 * Parse the stream and call the handlers
+	 *
+	 * @param input the JSON stream
+	 * @throws Exception if the JSON is malformed or if a handler failed
+	 */
+	public void extract(InputStream input) throws Exception {
+		try (final JsonParser parser = JSON_FACTORY.createParser(input)) {
+			if (parser.nextToken() == null)
+				return;
+			final int[] progress = new int[paths.size()];
+			walk(parser, progress);
+		}
+	}
+
+	/**
+	 * @param progress for each path, the number of segments matched by the
+	 *                 current value, or -1
+	 */
+	private void walk(JsonParser parser, int[] progress) throws Exception {
+		for (int k = 0; k < progress.length; k++) {
+			final Path path = paths.get(k);
+			if (progress[k] == path.segments.length) {
+				emit(parser, path);
+				return;
+			}
+		}
+		final JsonToken token = parser.getCurrentToken();
+		if (token == JsonToken.START_OBJECT) {
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				final String name = parser.getCurrentName();
+				parser.nextToken();
+				final int[] next = advance(progress, name, -1);
+				if (next == null)
+					parser.skipChildren();
+				else
+					walk(parser, next);
+			}
+		} else if (token == JsonToken.START_ARRAY) {
+			int index = 0;
+			while (parser.nextToken() != JsonToken.END_ARRAY) {
+				final int[] next = advance(progress, null, index++);
+				if (next == null)
+					parser.skipChildren();
+				else
+					walk(parser, next);
+			}
+		}
+	}
+
+	private int[] advance(int[] progress, String name, int index) {
+		int[] next = null;
+		for (int k = 0; k < progress.length; k++) {
+			final int matched = progress[k];
+			if (matched < 0)
+				continue;
+			if (!paths.get(k).segments[matched].matches(name, index))
+				continue;
+			if (next == null) {
+				next = new int[progress.length];
+				Arrays.fill(next, -1);
+			}
+			next[k] = matched + 1;
+		}
+		return next;
+	}
+
+	private void emit(JsonParser parser, Path path) throws Exception {
+		if (path.spreadArray && parser.getCurrentToken() == JsonToken.START_ARRAY) {
+			while (parser.nextToken() != JsonToken.END_ARRAY)
+				path.handler.handle(readValue(parser));
+		} else
+			path.handler.handle(readValue(parser));
+	}
+
+	private static Object readValue(JsonParser parser) throws IOException {
+		switch (parser.getCurrentToken()) {
+		case START_OBJECT:
+			final JSONObject object = new JSONObject();
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				final String name = parser.getCurrentName();
+				parser.nextToken();
+				object.put(name, readValue(parser));
+			}
+			return object;
+		case START_ARRAY:
+			final JSONArray array = new JSONArray();
+			while (parser.nextToken() != JsonToken.END_ARRAY)
+				array.add(readValue(parser));
+			return array;
+		case VALUE_STRING:
+			return parser.getText();
+		case VALUE_NUMBER_INT:
+			return parser.getNumberValue();
+		case VALUE_NUMBER_FLOAT:
+			return parser.getDoubleValue();
+		case VALUE_TRUE:
+			return Boolean.TRUE;
+		case VALUE_FALSE:
+			return Boolean.FALSE;
+		default:
+			return null;
+		}
+	}
+}
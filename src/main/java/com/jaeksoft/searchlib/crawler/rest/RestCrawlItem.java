@@ -54,6 +54,12 @@ public class RestCrawlItem extends FieldMapCrawlItem<RestCrawlItem, RestCrawlThr
 
 	private Integer sequenceIncrement;
 
+	private String cursorPath;
+
+	private String cursorParameter;
+
+	private Integer concurrentPages;
+
 	private HttpDownloader.Method method;
 
 	private CredentialItem credential;
@@ -95,6 +101,9 @@ public class RestCrawlItem extends FieldMapCrawlItem<RestCrawlItem, RestCrawlThr
 		sequenceFromInclusive = null;
 		sequenceToExclusive = null;
 		sequenceIncrement = null;
+		cursorPath = null;
+		cursorParameter = null;
+		concurrentPages = null;
 		pathDocument = null;
 		lang = LanguageEnum.UNDEFINED;
 		bufferSize = 100;
@@ -125,6 +134,8 @@ public class RestCrawlItem extends FieldMapCrawlItem<RestCrawlItem, RestCrawlThr
 		url = variables.replace(url);
 		sequenceParameter = variables.replace(sequenceParameter);
 		pathDocument = variables.replace(pathDocument);
+		cursorPath = variables.replace(cursorPath);
+		cursorParameter = variables.replace(cursorParameter);
 		credential.apply(variables);
 	}
 
@@ -147,6 +158,9 @@ public class RestCrawlItem extends FieldMapCrawlItem<RestCrawlItem, RestCrawlThr
 		crawl.sequenceFromInclusive = this.sequenceFromInclusive;
 		crawl.sequenceToExclusive = this.sequenceToExclusive;
 		crawl.sequenceIncrement = this.sequenceIncrement;
+		crawl.cursorPath = this.cursorPath;
+		crawl.cursorParameter = this.cursorParameter;
+		crawl.concurrentPages = this.concurrentPages;
 	}
 
 	/**
@@ -224,6 +238,52 @@ public class RestCrawlItem extends FieldMapCrawlItem<RestCrawlItem, RestCrawlThr
 		this.sequenceIncrement = sequenceIncrement;
 	}
 
+	/**
+	 * @return the JsonPath of the cursor of the next page
+	 */
+	public String getCursorPath() {
+		return cursorPath;
+	}
+
+	/**
+	 * @param cursorPath
+	 *            the JsonPath of the cursor of the next page
+	 */
+	public void setCursorPath(String cursorPath) {
+		this.cursorPath = cursorPath;
+	}
+
+	/**
+	 * @return the query parameter which passes the cursor. If empty, the
+	 *         cursor is the URL of the next page.
+	 */
+	public String getCursorParameter() {
+		return cursorParameter;
+	}
+
+	/**
+	 * @param cursorParameter
+	 *            the query parameter which passes the cursor
+	 */
+	public void setCursorParameter(String cursorParameter) {
+		this.cursorParameter = cursorParameter;
+	}
+
+	/**
+	 * @return the maximum number of pages downloaded at the same time
+	 */
+	public Integer getConcurrentPages() {
+		return concurrentPages;
+	}
+
+	/**
+	 * @param concurrentPages
+	 *            the maximum number of pages downloaded at the same time
+	 */
+	public void setConcurrentPages(Integer concurrentPages) {
+		this.concurrentPages = concurrentPages;
+	}
+
 	/**
 	 * @return the credential
 	 */
@@ -277,11 +337,14 @@ public class RestCrawlItem extends FieldMapCrawlItem<RestCrawlItem, RestCrawlThr
 	protected final static String REST_CRAWL_ATTR_SEQUENCE_FROM = "seqFrom";
 	protected final static String REST_CRAWL_ATTR_SEQUENCE_TO = "seqTo";
 	protected final static String REST_CRAWL_ATTR_SEQUENCE_INCREMENT = "seqIncrement";
+	protected final static String REST_CRAWL_ATTR_CURSOR_PARAMETER = "cursorParameter";
+	protected final static String REST_CRAWL_ATTR_CONCURRENT_PAGES = "concurrentPages";
 	protected final static String REST_CRAWL_ATTR_LANG = "lang";
 	protected final static String REST_CRAWL_ATTR_METHOD = "method";
 	protected final static String REST_CRAWL_ATTR_BUFFER_SIZE = "bufferSize";
 	protected final static String REST_CRAWL_NODE_NAME_MAP = "map";
 	protected final static String REST_CRAWL_NODE_DOC_PATH = "documentPath";
+	protected final static String REST_CRAWL_NODE_CURSOR_PATH = "cursorPath";
 	protected final static String REST_CRAWL_NODE_CALLBACK = "callback";
 	protected final static String REST_CRAWL_CALLBACK_ATTR_METHOD = "method";
 	protected final static String REST_CRAWL_CALLBACK_ATTR_URL = "url";
@@ -295,6 +358,9 @@ public class RestCrawlItem extends FieldMapCrawlItem<RestCrawlItem, RestCrawlThr
 		setSequenceParameter(XPathParser.getAttributeString(item, REST_CRAWL_ATTR_SEQUENCE_PARAMETER));
 		setSequenceFromInclusive(DomUtils.getAttributeInteger(item, REST_CRAWL_ATTR_SEQUENCE_FROM, null));
 		setSequenceToExclusive(DomUtils.getAttributeInteger(item, REST_CRAWL_ATTR_SEQUENCE_TO, null));
+		setSequenceIncrement(DomUtils.getAttributeInteger(item, REST_CRAWL_ATTR_SEQUENCE_INCREMENT, null));
+		setCursorParameter(XPathParser.getAttributeString(item, REST_CRAWL_ATTR_CURSOR_PARAMETER));
+		setConcurrentPages(DomUtils.getAttributeInteger(item, REST_CRAWL_ATTR_CONCURRENT_PAGES, null));
 		setMethod(HttpDownloader.Method.find(DomUtils.getAttributeText(item, REST_CRAWL_ATTR_METHOD),
 				HttpDownloader.Method.GET));
 		setLang(LanguageEnum.findByCode(XPathParser.getAttributeString(item, REST_CRAWL_ATTR_LANG)));
@@ -305,6 +371,9 @@ public class RestCrawlItem extends FieldMapCrawlItem<RestCrawlItem, RestCrawlThr
 		Node pathNode = xpp.getNode(item, REST_CRAWL_NODE_DOC_PATH);
 		if (pathNode != null)
 			setPathDocument(StringEscapeUtils.unescapeXml(pathNode.getTextContent()));
+		Node cursorPathNode = xpp.getNode(item, REST_CRAWL_NODE_CURSOR_PATH);
+		if (cursorPathNode != null)
+			setCursorPath(StringEscapeUtils.unescapeXml(cursorPathNode.getTextContent()));
 		Node credNode = xpp.getNode(item, REST_CRAWL_NODE_CREDENTIAL);
 		if (credNode != null)
 			credential = CredentialItem.fromXml(credNode);
@@ -325,7 +394,9 @@ public class RestCrawlItem extends FieldMapCrawlItem<RestCrawlItem, RestCrawlThr
 				REST_CRAWL_ATTR_SEQUENCE_PARAMETER, getSequenceParameter(), REST_CRAWL_ATTR_SEQUENCE_FROM,
 				sequenceFromInclusive == null ? null : sequenceFromInclusive.toString(), REST_CRAWL_ATTR_SEQUENCE_TO,
 				sequenceToExclusive == null ? null : sequenceToExclusive.toString(), REST_CRAWL_ATTR_SEQUENCE_INCREMENT,
-				sequenceIncrement == null ? null : sequenceIncrement.toString(), REST_CRAWL_ATTR_METHOD, method.name(),
+				sequenceIncrement == null ? null : sequenceIncrement.toString(), REST_CRAWL_ATTR_CURSOR_PARAMETER,
+				getCursorParameter(), REST_CRAWL_ATTR_CONCURRENT_PAGES,
+				concurrentPages == null ? null : concurrentPages.toString(), REST_CRAWL_ATTR_METHOD, method.name(),
 				REST_CRAWL_ATTR_LANG, getLang().getCode(), REST_CRAWL_ATTR_BUFFER_SIZE,
 				Integer.toString(getBufferSize()));
 		xmlWriter.startElement(REST_CRAWL_NODE_NAME_MAP);
@@ -338,6 +409,7 @@ public class RestCrawlItem extends FieldMapCrawlItem<RestCrawlItem, RestCrawlThr
 			xmlWriter.textNode(callbackPayload);
 		xmlWriter.endElement();
 		xmlWriter.writeSubTextNodeIfAny(REST_CRAWL_NODE_DOC_PATH, xmlWriter.escapeXml(getPathDocument()));
+		xmlWriter.writeSubTextNodeIfAny(REST_CRAWL_NODE_CURSOR_PATH, xmlWriter.escapeXml(getCursorPath()));
 		credential.writeXml(xmlWriter);
 		xmlWriter.endElement();
 	}
@@ -35,6 +35,7 @@ import com.jaeksoft.searchlib.crawler.web.spider.HttpDownloader;
 import com.jaeksoft.searchlib.crawler.web.spider.HttpDownloader.Method;
 import com.jaeksoft.searchlib.index.IndexDocument;
 import com.jaeksoft.searchlib.schema.SchemaField;
+import com.jaeksoft.searchlib.util.IOUtils;
 import com.jaeksoft.searchlib.util.InfoCallback;
 import com.jaeksoft.searchlib.util.Variables;
 import com.jaeksoft.searchlib.webservice.CommonListResult;
@@ -48,14 +49,23 @@ import org.apache.tools.ant.util.FileUtils;
 
 import java.io.File;
 import java.io.FileFilter;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 public class RestCrawlThread extends CrawlThreadAbstract<RestCrawlThread, RestCrawlMaster> {
@@ -72,20 +82,117 @@ public class RestCrawlThread extends CrawlThreadAbstract<RestCrawlThread, RestCr
 
 	private final FieldMapContext fieldMapContext;
 
+	private final static Object END_OF_PAGE = new Object();
+
+	/**
+	 * A bounded set of downloaders. An HttpDownloader handles one request at a
+	 * time, each concurrent task borrows its own.
+	 */
+	private class DownloaderPool {
+
+		private final int size;
+		private final List<HttpDownloader> downloaders;
+		private final BlockingQueue<HttpDownloader> idleQueue;
+
+		private DownloaderPool(int size) {
+			this.size = size;
+			downloaders = new ArrayList<>(size);
+			idleQueue = new LinkedBlockingQueue<>();
+		}
+
+		private HttpDownloader acquire() throws InterruptedException, SearchLibException, IOException {
+			synchronized (downloaders) {
+				HttpDownloader downloader = idleQueue.poll();
+				if (downloader != null)
+					return downloader;
+				if (downloaders.size() < size) {
+					downloader = getConfig().getWebCrawlMaster().getNewHttpDownloader(true);
+					downloaders.add(downloader);
+					return downloader;
+				}
+			}
+			return idleQueue.take();
+		}
+
+		private void release(HttpDownloader downloader) {
+			idleQueue.add(downloader);
+		}
+
+		private void close() {
+			synchronized (downloaders) {
+				for (HttpDownloader downloader : downloaders)
+					downloader.release();
+				downloaders.clear();
+				idleQueue.clear();
+			}
+		}
+	}
+
+	/**
+	 * A page downloaded by a task of the thread pool. The documents are queued
+	 * while the response is parsed: the crawl thread indexes the head page
+	 * while the next pages are still downloading. The queue is bounded, the
+	 * download of a page waits until the crawl thread catches up.
+	 */
+	private static class Page {
+
+		private final BlockingQueue<Object> documents;
+		private volatile String cursor = null;
+		private volatile boolean done = false;
+		private volatile Exception error = null;
+		private Future<?> future = null;
+
+		private Page(int capacity) {
+			documents = new LinkedBlockingQueue<>(Math.max(1, capacity));
+		}
+
+		private boolean isCursorKnown() {
+			return cursor != null || done;
+		}
+
+		/**
+		 * Wait for a free slot in the queue. The wait ends if the crawl no
+		 * longer reads the pages.
+		 */
+		private void put(RestCrawlContext context, Object document) throws InterruptedException {
+			while (!documents.offer(document, 100, TimeUnit.MILLISECONDS))
+				if (context.aborted)
+					throw new InterruptedException("REST crawl aborted");
+		}
+	}
+
 	private static class RestCrawlContext {
 
 		private final HttpDownloader downloader;
 		private final List<IndexDocument> indexDocumentList;
 		private final RestFieldMap restFieldMap;
 		private final int bufferSize;
+		private final String pathDocument;
+		private final String pathCursor;
+		private final boolean streaming;
 		private final JsonPath jsonPath;
-
-		private RestCrawlContext(HttpDownloader downloader, RestCrawlItem restCrawlItem) throws SearchLibException {
+		private final JsonPath cursorJsonPath;
+		private final DownloaderPool pagePool;
+		private final DownloaderPool callbackPool;
+		private final Deque<Page> pages;
+		private volatile boolean aborted;
+
+		private RestCrawlContext(HttpDownloader downloader, RestCrawlItem restCrawlItem, DownloaderPool pagePool,
+				DownloaderPool callbackPool) throws SearchLibException {
 			this.downloader = downloader;
-			jsonPath = JsonPath.compile(restCrawlItem.getPathDocument());
+			pathDocument = restCrawlItem.getPathDocument();
+			pathCursor = StringUtils.isEmpty(restCrawlItem.getCursorPath()) ? null : restCrawlItem.getCursorPath();
+			streaming = JsonStreamExtractor.isSupported(pathDocument) &&
+					(pathCursor == null || JsonStreamExtractor.isSupported(pathCursor));
+			jsonPath = streaming ? null : JsonPath.compile(pathDocument);
+			cursorJsonPath = streaming || pathCursor == null ? null : JsonPath.compile(pathCursor);
 			restFieldMap = restCrawlItem.getFieldMap();
 			bufferSize = restCrawlItem.getBufferSize();
 			indexDocumentList = new ArrayList<>(bufferSize);
+			this.pagePool = pagePool;
+			this.callbackPool = callbackPool;
+			pages = new ArrayDeque<>();
+			aborted = false;
 		}
 	}
 
@@ -157,6 +264,42 @@ public class RestCrawlThread extends CrawlThreadAbstract<RestCrawlThread, RestCr
 		callback(downloader, uri, queryString.toString());
 	}
 
+	/**
+	 * Call the callback of each document using the downloaders of the pool,
+	 * then wait until every call is done.
+	 */
+	private final void callbackPerDoc(DownloaderPool pool, URI uri, String queryPrefix, List<String> pkList)
+			throws IOException, SearchLibException {
+		final List<Future<?>> futures = new ArrayList<>(pkList.size());
+		for (String key : pkList) {
+			futures.add(client.getThreadPool().submit(() -> {
+				final HttpDownloader downloader = pool.acquire();
+				try {
+					callbackPerDoc(downloader, uri, queryPrefix, key);
+					return null;
+				} finally {
+					pool.release(downloader);
+				}
+			}));
+		}
+		Exception error = null;
+		for (Future<?> future : futures) {
+			try {
+				future.get();
+			} catch (ExecutionException e) {
+				if (error == null)
+					error = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+			} catch (InterruptedException e) {
+				if (error == null)
+					error = e;
+			}
+		}
+		if (error instanceof IOException)
+			throw (IOException) error;
+		if (error != null)
+			throw SearchLibException.newInstance(error);
+	}
+
 	private final void callbackAllDocs(HttpDownloader downloader, URI uri, String queryPrefix, List<String> pkList)
 			throws ClientProtocolException, IllegalStateException, IOException, URISyntaxException, SearchLibException {
 		StringBuilder queryString = new StringBuilder();
@@ -175,7 +318,7 @@ public class RestCrawlThread extends CrawlThreadAbstract<RestCrawlThread, RestCr
 		callback(downloader, uri, queryString.toString());
 	}
 
-	private final void doCallBack(HttpDownloader downloader, List<String> pkList)
+	private final void doCallBack(RestCrawlContext context, List<String> pkList)
 			throws ClientProtocolException, IllegalStateException, IOException, URISyntaxException, SearchLibException {
 		CallbackMode mode = restCrawlItem.getCallbackMode();
 		if (mode == CallbackMode.NO_CALL)
@@ -185,12 +328,16 @@ public class RestCrawlThread extends CrawlThreadAbstract<RestCrawlThread, RestCr
 		URI uri = new URI(url);
 		switch (mode) {
 		case ONE_CALL_PER_DOCUMENT:
-			if (pkList != null)
+			if (pkList == null)
+				break;
+			if (context.callbackPool != null)
+				callbackPerDoc(context.callbackPool, uri, qp, pkList);
+			else
 				for (String key : pkList)
-					callbackPerDoc(downloader, uri, qp, key);
+					callbackPerDoc(context.downloader, uri, qp, key);
 			break;
 		case ONE_CALL_FOR_ALL_DOCUMENTS:
-			callbackAllDocs(downloader, uri, qp, pkList);
+			callbackAllDocs(context.downloader, uri, qp, pkList);
 			break;
 		default:
 			break;
@@ -216,7 +363,7 @@ public class RestCrawlThread extends CrawlThreadAbstract<RestCrawlThread, RestCr
 			if (idsCallback != null)
 				idsCallback.addAll(pkList);
 		}
-		doCallBack(context.downloader, pkList);
+		doCallBack(context, pkList);
 		pendingIndexDocumentCount.addAndGet(-i);
 		updatedIndexDocumentCount.addAndGet(i);
 		context.indexDocumentList.clear();
@@ -235,94 +382,307 @@ public class RestCrawlThread extends CrawlThreadAbstract<RestCrawlThread, RestCr
 			setStatus(CrawlStatus.CRAWL);
 	}
 
-	private int runDocumentList(RestCrawlContext context, Object jsonDoc) throws Exception {
+	private void addDocumentList(RestCrawlContext context, Page page, Object jsonDoc) throws InterruptedException {
 		if (jsonDoc == null)
-			return 0;
-		if (jsonDoc instanceof Map<?, ?>) {
-			runDocument(context, jsonDoc);
-			return 1;
-		}
-		if (jsonDoc instanceof List<?>) {
-			List<?> documents = (List<?>) jsonDoc;
-			for (Object document : documents)
-				runDocument(context, document);
-			return documents.size();
-		}
-		return 0;
+			return;
+		if (jsonDoc instanceof Map<?, ?>)
+			page.put(context, jsonDoc);
+		else if (jsonDoc instanceof List<?>)
+			for (Object document : (List<?>) jsonDoc)
+				if (document != null)
+					page.put(context, document);
 	}
 
-	private int runDownload(RestCrawlContext context, URI uri) throws Exception {
-		DownloadItem dlItem =
-				context.downloader.request(uri, restCrawlItem.getMethod(), restCrawlItem.getCredential(), null, null,
-						null);
+	/**
+	 * Parse a JSON response. With a supported path, the documents are queued
+	 * one by one while the stream is read. Otherwise the whole tree is built
+	 * by JsonPath.
+	 */
+	private void extract(RestCrawlContext context, Page page, InputStream input) throws Exception {
+		if (context.streaming) {
+			final JsonStreamExtractor extractor = new JsonStreamExtractor();
+			extractor.add(context.pathDocument, value -> {
+				if (value instanceof Map<?, ?>)
+					page.put(context, value);
+			});
+			if (context.pathCursor != null)
+				extractor.add(context.pathCursor, value -> {
+					if (page.cursor == null)
+						page.cursor = value == null ? "" : value.toString();
+				});
+			extractor.extract(input);
+			return;
+		}
+		final String json = IOUtils.toString(input, "UTF-8");
+		if (context.cursorJsonPath != null) {
+			try {
+				final Object cursor = context.cursorJsonPath.read(json);
+				page.cursor = cursor == null ? "" : cursor.toString();
+			} catch (PathNotFoundException e) {
+				page.cursor = "";
+			}
+		}
 		try {
-			List<Object> documents = context.jsonPath.read(dlItem.getContentInputStream());
-			return runDocumentList(context, documents);
+			addDocumentList(context, page, context.jsonPath.read(json));
 		} catch (PathNotFoundException e) {
-			return 0;
+			return;
 		}
 	}
 
-	private int runFile(RestCrawlContext context, File file) throws Exception {
-		int res;
+	private void extractFile(RestCrawlContext context, Page page, File file) throws Exception {
+		final InputStream input = new FileInputStream(file);
 		try {
-			res = runDocumentList(context, context.jsonPath.read(file));
-		} catch (PathNotFoundException e) {
-			res = 0;
+			extract(context, page, input);
+		} finally {
+			IOUtils.close(input);
 		}
 		if (restCrawlItem.getMethod() == Method.DELETE)
 			FileUtils.delete(file);
-		return res;
 	}
 
-	private int runFiles(RestCrawlContext context, URI uri) throws Exception {
-		File rootFile = new File(uri);
-		if (rootFile.isFile())
-			return runFile(context, rootFile);
-		int res = 0;
-		for (File file : rootFile.listFiles((FileFilter) FileFileFilter.FILE))
-			res += runFile(context, file);
-		return res;
+	private void fetchPage(RestCrawlContext context, Page page, URI uri) {
+		try {
+			if ("file".equals(uri.getScheme())) {
+				File rootFile = new File(uri);
+				if (rootFile.isFile())
+					extractFile(context, page, rootFile);
+				else
+					for (File file : rootFile.listFiles((FileFilter) FileFileFilter.FILE))
+						extractFile(context, page, file);
+				return;
+			}
+			final HttpDownloader downloader = context.pagePool.acquire();
+			try {
+				DownloadItem dlItem =
+						downloader.request(uri, restCrawlItem.getMethod(), restCrawlItem.getCredential(), null,
+								null, null);
+				extract(context, page, dlItem.getContentInputStream());
+			} finally {
+				context.pagePool.release(downloader);
+			}
+		} catch (Exception e) {
+			page.error = e;
+		} finally {
+			page.done = true;
+			try {
+				page.put(context, END_OF_PAGE);
+			} catch (InterruptedException e) {
+				// Nobody reads this page anymore
+			}
+		}
 	}
 
-	private int runURL(RestCrawlContext context, URI uri) throws Exception {
-		setStatus(CrawlStatus.CRAWL);
-		if ("file".equals(uri.getScheme()))
-			return runFiles(context, uri);
-		else
-			return runDownload(context, uri);
+	private void submitPage(RestCrawlContext context, URI uri) {
+		final Page page = new Page(context.bufferSize);
+		context.pages.addLast(page);
+		page.future = client.getThreadPool().submit(() -> fetchPage(context, page, uri));
+	}
+
+	/**
+	 * The pagination strategy: which page is downloaded next.
+	 */
+	private interface PageScheduler {
+
+		/**
+		 * Submit the next pages as long as there is a free slot and the next
+		 * URL is known.
+		 */
+		void schedule(RestCrawlContext context) throws Exception;
+
+		/**
+		 * Called when the crawl thread has indexed the head page
+		 *
+		 * @return false if there is no more page to crawl
+		 */
+		boolean next(RestCrawlContext context, Page page, int count);
+	}
+
+	private class SinglePageScheduler implements PageScheduler {
+
+		private boolean submitted = false;
+
+		@Override
+		public void schedule(RestCrawlContext context) throws URISyntaxException {
+			if (submitted)
+				return;
+			submitPage(context, new URI(restCrawlItem.getUrl()));
+			submitted = true;
+		}
+
+		@Override
+		public boolean next(RestCrawlContext context, Page page, int count) {
+			return false;
+		}
+	}
+
+	private class SequenceScheduler implements PageScheduler {
+
+		private final int end;
+		private final int inc;
+		private final int concurrency;
+		private int next;
+
+		private SequenceScheduler(int concurrency) {
+			Integer start = restCrawlItem.getSequenceFromInclusive();
+			next = start == null ? 0 : start;
+			Integer end = restCrawlItem.getSequenceToExclusive();
+			this.end = end == null ? 100 : end;
+			Integer inc = restCrawlItem.getSequenceIncrement();
+			this.inc = inc == null ? 1 : inc;
+			this.concurrency = concurrency;
+		}
+
+		@Override
+		public void schedule(RestCrawlContext context) throws URISyntaxException {
+			while (context.pages.size() < concurrency && next < end) {
+				URIBuilder uriBuilder = new URIBuilder(restCrawlItem.getUrl());
+				uriBuilder.addParameter(restCrawlItem.getSequenceParameter(), Integer.toString(next));
+				submitPage(context, uriBuilder.build());
+				next += inc;
+			}
+		}
+
+		@Override
+		public boolean next(RestCrawlContext context, Page page, int count) {
+			return count > 0 && (next < end || !context.pages.isEmpty());
+		}
 	}
 
-	private void runSequence(RestCrawlContext context) throws Exception {
-		Integer start = restCrawlItem.getSequenceFromInclusive();
-		if (start == null)
-			start = 0;
-		Integer end = restCrawlItem.getSequenceToExclusive();
-		if (end == null)
-			end = 100;
-		Integer inc = restCrawlItem.getSequenceIncrement();
-		if (inc == null)
-			inc = 1;
-		for (int i = start; i < end; i += inc) {
-			URIBuilder uriBuilder = new URIBuilder(restCrawlItem.getUrl());
-			uriBuilder.addParameter(restCrawlItem.getSequenceParameter(), Integer.toString(i));
-			if (runURL(context, uriBuilder.build()) == 0)
+	private class CursorScheduler implements PageScheduler {
+
+		private final int concurrency;
+		private Page last;
+		private String lastCursor;
+
+		private CursorScheduler(int concurrency) {
+			this.concurrency = concurrency;
+			this.last = null;
+			this.lastCursor = null;
+		}
+
+		/**
+		 * @return the cursor of the last submitted page, or null if it is not
+		 * known yet or if it is the last page. A cursor which does not change
+		 * ends the crawl.
+		 */
+		private String getNextCursor() {
+			if (!last.isCursorKnown())
+				return null;
+			final String cursor = last.cursor;
+			if (StringUtils.isEmpty(cursor) || cursor.equals(lastCursor))
+				return null;
+			return cursor;
+		}
+
+		@Override
+		public void schedule(RestCrawlContext context) throws URISyntaxException {
+			if (last == null) {
+				submitPage(context, new URI(restCrawlItem.getUrl()));
+				last = context.pages.peekLast();
+				return;
+			}
+			if (context.pages.size() >= concurrency)
+				return;
+			final String cursor = getNextCursor();
+			if (cursor == null)
+				return;
+			final String cursorParameter = restCrawlItem.getCursorParameter();
+			if (StringUtils.isEmpty(cursorParameter))
+				submitPage(context, new URI(restCrawlItem.getUrl()).resolve(cursor));
+			else {
+				URIBuilder uriBuilder = new URIBuilder(restCrawlItem.getUrl());
+				uriBuilder.addParameter(cursorParameter, cursor);
+				submitPage(context, uriBuilder.build());
+			}
+			last = context.pages.peekLast();
+			lastCursor = cursor;
+		}
+
+		@Override
+		public boolean next(RestCrawlContext context, Page page, int count) {
+			return count > 0 && (!context.pages.isEmpty() || getNextCursor() != null);
+		}
+	}
+
+	/**
+	 * Index the documents of the head page as they are parsed, while the
+	 * scheduler keeps the next pages downloading.
+	 *
+	 * @return the number of documents of the page
+	 */
+	private int runPage(RestCrawlContext context, PageScheduler scheduler, Page page) throws Exception {
+		int count = 0;
+		for (; ; ) {
+			scheduler.schedule(context);
+			final Object document = page.documents.poll(100, TimeUnit.MILLISECONDS);
+			if (document == null) {
+				if (isAborted())
+					throw new InterruptedException("REST crawl aborted");
+				continue;
+			}
+			if (document == END_OF_PAGE)
 				break;
+			runDocument(context, document);
+			count++;
+		}
+		if (page.error != null)
+			throw page.error;
+		return count;
+	}
+
+	private void runPages(RestCrawlContext context, PageScheduler scheduler) throws Exception {
+		try {
+			scheduler.schedule(context);
+			Page page;
+			while ((page = context.pages.peekFirst()) != null) {
+				setStatus(CrawlStatus.CRAWL);
+				final int count = runPage(context, scheduler, page);
+				context.pages.removeFirst();
+				if (!scheduler.next(context, page, count))
+					break;
+				scheduler.schedule(context);
+			}
+		} finally {
+			// Pages downloaded ahead of the end of the crawl are discarded
+			context.aborted = true;
+			for (Page page : context.pages)
+				page.future.cancel(false);
+			for (Page page : context.pages) {
+				if (page.future.isCancelled())
+					continue;
+				try {
+					page.future.get();
+				} catch (InterruptedException | ExecutionException e) {
+					continue;
+				}
+			}
+			context.pages.clear();
 		}
 	}
 
 	@Override
 	public void runner() throws Exception {
+		Integer concurrentPages = restCrawlItem.getConcurrentPages();
+		int concurrency = concurrentPages == null || concurrentPages < 1 ? 1 : concurrentPages;
 		HttpDownloader downloader = getConfig().getWebCrawlMaster().getNewHttpDownloader(true);
+		DownloaderPool pagePool = new DownloaderPool(concurrency);
+		DownloaderPool callbackPool = concurrency > 1 ? new DownloaderPool(concurrency) : null;
 		setStatus(CrawlStatus.STARTING);
 		try {
-			RestCrawlContext context = new RestCrawlContext(downloader, restCrawlItem);
-			if (StringUtils.isEmpty(restCrawlItem.getSequenceParameter()))
-				runURL(context, new URI(restCrawlItem.getUrl()));
+			RestCrawlContext context = new RestCrawlContext(downloader, restCrawlItem, pagePool, callbackPool);
+			final PageScheduler scheduler;
+			if (context.pathCursor != null)
+				scheduler = new CursorScheduler(concurrency);
+			else if (!StringUtils.isEmpty(restCrawlItem.getSequenceParameter()))
+				scheduler = new SequenceScheduler(concurrency);
 			else
-				runSequence(context);
+				scheduler = new SinglePageScheduler();
+			runPages(context, scheduler);
 			index(context, 0);
 		} finally {
+			pagePool.close();
+			if (callbackPool != null)
+				callbackPool.close();
 			if (downloader != null)
 				downloader.release();
 		}
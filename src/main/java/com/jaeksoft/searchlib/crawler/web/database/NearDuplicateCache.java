@@ -0,0 +1,65 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.crawler.web.database;
+
+import com.jaeksoft.searchlib.SearchLibException;
+import com.jaeksoft.searchlib.cache.LRUCache;
+
+/**
+ * Keeps the near-duplicate index of the recently crawled hosts. The index of a
+ * host is loaded from the URL database the first time the host is crawled.
+ */
+public class NearDuplicateCache extends LRUCache<NearDuplicateHost> {
+
+	private final UrlManager urlManager;
+
+	public NearDuplicateCache(UrlManager urlManager, int maxSize) {
+		super("Near duplicate hosts", maxSize);
+		this.urlManager = urlManager;
+	}
+
+	/**
+	 * @param host        the host of the page
+	 * @param url         the URL of the page
+	 * @param fingerprint the SimHash of its content
+	 * @param maxDistance the maximum Hamming distance
+	 * @return the URL of the first seen near-duplicate of the page, or the URL
+	 * of the page itself
+	 * @throws SearchLibException if the URL database cannot be read
+	 */
+	public String findOrAdd(String host, String url, long fingerprint, int maxDistance) throws SearchLibException {
+		if (maxDistance > NearDuplicateHost.MAX_DISTANCE)
+			maxDistance = NearDuplicateHost.MAX_DISTANCE;
+		try {
+			return getAndJoin(new NearDuplicateHost(urlManager, host), null).findOrAdd(url, fingerprint,
+					maxDistance);
+		} catch (SearchLibException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new SearchLibException(e);
+		}
+	}
+
+}
@@ -0,0 +1,176 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.crawler.web.database;
+
+import com.jaeksoft.searchlib.cache.LRUItemAbstract;
+import com.jaeksoft.searchlib.util.SimHash;
+import com.jaeksoft.searchlib.util.StringUtils;
+import com.jaeksoft.searchlib.util.Timer;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Banded LSH index of the SimHash fingerprints of the canonical pages of one
+ * host. The 64 bits fingerprint is split in four bands of 16 bits: two
+ * fingerprints separated by at most three bits share at least one band, so
+ * only the pages sharing a band are compared.
+ */
+public class NearDuplicateHost extends LRUItemAbstract<NearDuplicateHost> {
+
+	public final static int BANDS = 4;
+
+	public final static int MAX_DISTANCE = BANDS - 1;
+
+	private final static int BAND_BITS = SimHash.BITS / BANDS;
+
+	private final static long BAND_MASK = (1L << BAND_BITS) - 1;
+
+	private final String host;
+
+	private UrlManager urlManager;
+
+	private final LongArrayList fingerprints;
+
+	private final List<String> urls;
+
+	private final Object2IntOpenHashMap<String> urlPositions;
+
+	private final Int2ObjectOpenHashMap<IntArrayList> bands;
+
+	NearDuplicateHost(final UrlManager urlManager, final String host) {
+		this.urlManager = urlManager;
+		this.host = host;
+		this.fingerprints = new LongArrayList();
+		this.urls = new ArrayList<>();
+		this.urlPositions = new Object2IntOpenHashMap<>();
+		this.urlPositions.defaultReturnValue(-1);
+		this.bands = new Int2ObjectOpenHashMap<>();
+	}
+
+	@Override
+	public int compareTo(NearDuplicateHost o) {
+		return StringUtils.compareNullString(host, o.host);
+	}
+
+	@Override
+	protected void populate(Timer timer) throws Exception {
+		urlManager.loadNearDuplicateHost(host, this);
+		urlManager = null;
+	}
+
+	private static int bandKey(final int band, final long fingerprint) {
+		return (band << BAND_BITS) | (int) ((fingerprint >>> (band * BAND_BITS)) & BAND_MASK);
+	}
+
+	/**
+	 * Register a canonical page. A previous fingerprint of the same URL is
+	 * replaced.
+	 *
+	 * @param url         the URL of the page
+	 * @param fingerprint the SimHash of its content
+	 */
+	synchronized void add(final String url, final long fingerprint) {
+		final int previous = urlPositions.getInt(url);
+		if (previous != -1) {
+			if (fingerprints.getLong(previous) == fingerprint)
+				return;
+			// The stale entry stays in the bands but does not match any more
+			urls.set(previous, null);
+		}
+		final int pos = fingerprints.size();
+		fingerprints.add(fingerprint);
+		urls.add(url);
+		urlPositions.put(url, pos);
+		for (int band = 0; band < BANDS; band++) {
+			final int key = bandKey(band, fingerprint);
+			IntArrayList postings = bands.get(key);
+			if (postings == null) {
+				postings = new IntArrayList(2);
+				bands.put(key, postings);
+			}
+			postings.add(pos);
+		}
+	}
+
+	/**
+	 * Look for the first seen page whose fingerprint is close to the given one.
+	 *
+	 * @param url         the URL of the page (never returned)
+	 * @param fingerprint the SimHash of its content
+	 * @param maxDistance the maximum Hamming distance (at most MAX_DISTANCE)
+	 * @return the URL of the first seen near-duplicate, or null
+	 */
+	synchronized String find(final String url, final long fingerprint, final int maxDistance) {
+		int found = Integer.MAX_VALUE;
+		for (int band = 0; band < BANDS; band++) {
+			final IntArrayList postings = bands.get(bandKey(band, fingerprint));
+			if (postings == null)
+				continue;
+			final int size = postings.size();
+			for (int i = 0; i < size; i++) {
+				final int pos = postings.getInt(i);
+				if (pos >= found)
+					break;
+				final String candidate = urls.get(pos);
+				if (candidate == null || candidate.equals(url))
+					continue;
+				if (SimHash.distance(fingerprint, fingerprints.getLong(pos)) <= maxDistance)
+					found = pos;
+			}
+		}
+		return found == Integer.MAX_VALUE ? null : urls.get(found);
+	}
+
+	/**
+	 * @param url         the URL of the page
+	 * @param fingerprint the SimHash of its content
+	 * @param maxDistance the maximum Hamming distance
+	 * @return the URL of the first seen near-duplicate, or the given URL if the
+	 * page is registered as a canonical one
+	 */
+	public String findOrAdd(final String url, final long fingerprint, final int maxDistance) {
+		synchronized (this) {
+			final String firstSeen = find(url, fingerprint, maxDistance);
+			if (firstSeen != null) {
+				// The page is no longer canonical
+				final int previous = urlPositions.removeInt(url);
+				if (previous != -1)
+					urls.set(previous, null);
+				return firstSeen;
+			}
+			add(url, fingerprint);
+			return url;
+		}
+	}
+
+	public int size() {
+		return urlPositions.size();
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.crawler.web.database;
+
+/**
+ * What the web crawler does with a page whose content is a near-duplicate of
+ * a page previously crawled on the same host.
+ */
+public enum NearDuplicatePolicy {
+
+	DISABLED("Disabled"),
+
+	/**
+	 * The page is not indexed
+	 */
+	SKIP("Skip"),
+
+	/**
+	 * The page is indexed. The first seen URL can be mapped to a field of the
+	 * index and used to collapse the results.
+	 */
+	COLLAPSE("Collapse in results");
+
+	final public String label;
+
+	NearDuplicatePolicy(String label) {
+		this.label = label;
+	}
+
+	@Override
+	public String toString() {
+		return label;
+	}
+
+	public static NearDuplicatePolicy find(String value) {
+		if (value == null)
+			return DISABLED;
+		// The former CANONICALIZE policy did not index the page either
+		if ("CANONICALIZE".equalsIgnoreCase(value))
+			return SKIP;
+		for (NearDuplicatePolicy policy : values())
+			if (value.equalsIgnoreCase(policy.name()) || value.equalsIgnoreCase(policy.label))
+				return policy;
+		return DISABLED;
+	}
+
+	private static String[] names = null;
+
+	public final static synchronized String[] getNames() {
+		if (names != null)
+			return names;
+		int i = 0;
+		names = new String[values().length];
+		for (NearDuplicatePolicy policy : values())
+			names[i++] = policy.name();
+		return names;
+	}
+}
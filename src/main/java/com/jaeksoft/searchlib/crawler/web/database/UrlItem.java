@@ -65,6 +65,9 @@ public class UrlItem {
 	private IndexStatus indexStatus;
 	private int count;
 	private String md5size;
+	private String simhash;
+	private String duplicateOf;
+	private Date firstCrawlDate;
 	private Date lastModifiedDate;
 	private Date contentUpdateDate;
 	private List<String> outLinks;
@@ -99,6 +102,9 @@ public class UrlItem {
 		indexStatus = IndexStatus.NOT_INDEXED;
 		count = 0;
 		md5size = null;
+		simhash = null;
+		duplicateOf = null;
+		firstCrawlDate = null;
 		lastModifiedDate = null;
 		contentUpdateDate = null;
 		parentUrl = null;
@@ -131,6 +137,9 @@ public class UrlItem {
 		setParserStatusInt(doc.getValueContent(UrlItemFieldEnum.INSTANCE.parserStatus.getName(), 0));
 		setIndexStatusInt(doc.getValueContent(UrlItemFieldEnum.INSTANCE.indexStatus.getName(), 0));
 		setMd5size(doc.getValueContent(UrlItemFieldEnum.INSTANCE.md5size.getName(), 0));
+		setSimhash(doc.getValueContent(UrlItemFieldEnum.INSTANCE.simhash.getName(), 0));
+		setDuplicateOf(doc.getValueContent(UrlItemFieldEnum.INSTANCE.duplicateOf.getName(), 0));
+		setFirstCrawlDate(doc.getValueContent(UrlItemFieldEnum.INSTANCE.firstCrawlDate.getName(), 0));
 		setLastModifiedDate(doc.getValueContent(UrlItemFieldEnum.INSTANCE.lastModifiedDate.getName(), 0));
 		setContentUpdateDate(doc.getValueContent(UrlItemFieldEnum.INSTANCE.contentUpdateDate.getName(), 0));
 		setParentUrl(doc.getValueContent(UrlItemFieldEnum.INSTANCE.parentUrl.getName(), 0));
@@ -473,6 +482,26 @@ public class UrlItem {
 		this.contentUpdateDate = d;
 	}
 
+	/**
+	 * @return the date the content was parsed for the first time. Unlike
+	 * "when", it does not change when the page is crawled again.
+	 */
+	public Date getFirstCrawlDate() {
+		return firstCrawlDate;
+	}
+
+	protected void setFirstCrawlDate(String d) {
+		try {
+			this.firstCrawlDate = d == null ? null : whenDateFormat.parse(d);
+		} catch (ParseException e) {
+			Logging.error(e.getMessage(), e);
+		}
+	}
+
+	public void setFirstCrawlDate(Date d) {
+		this.firstCrawlDate = d;
+	}
+
 	final static ThreadSafeSimpleDateFormat whenDateFormat = new ThreadSafeSimpleDateFormat("yyyyMMddHHmmss");
 
 	final static ThreadSafeDecimalFormat longFormat = new ThreadSafeDecimalFormat("00000000000000");
@@ -551,6 +580,13 @@ public class UrlItem {
 		indexDocument.setObject(UrlItemFieldEnum.INSTANCE.indexStatus.getName(), indexStatus.value);
 		if (md5size != null)
 			indexDocument.setString(UrlItemFieldEnum.INSTANCE.md5size.getName(), md5size);
+		if (simhash != null)
+			indexDocument.setString(UrlItemFieldEnum.INSTANCE.simhash.getName(), simhash);
+		if (duplicateOf != null)
+			indexDocument.setString(UrlItemFieldEnum.INSTANCE.duplicateOf.getName(), duplicateOf);
+		if (firstCrawlDate != null)
+			indexDocument.setString(UrlItemFieldEnum.INSTANCE.firstCrawlDate.getName(),
+					whenDateFormat.format(firstCrawlDate));
 		if (lastModifiedDate != null)
 			indexDocument.setString(UrlItemFieldEnum.INSTANCE.lastModifiedDate.getName(),
 					whenDateFormat.format(lastModifiedDate));
@@ -616,6 +652,29 @@ public class UrlItem {
 		this.md5size = md5size;
 	}
 
+	/**
+	 * @return the hexadecimal SimHash fingerprint of the content
+	 */
+	public String getSimhash() {
+		return simhash;
+	}
+
+	public void setSimhash(String simhash) {
+		this.simhash = simhash;
+	}
+
+	/**
+	 * @return the URL of the first seen near-duplicate page of the same host
+	 * (the URL itself for a canonical page)
+	 */
+	public String getDuplicateOf() {
+		return duplicateOf;
+	}
+
+	public void setDuplicateOf(String duplicateOf) {
+		this.duplicateOf = duplicateOf;
+	}
+
 	public List<String> getHeaders() {
 		return headers;
 	}
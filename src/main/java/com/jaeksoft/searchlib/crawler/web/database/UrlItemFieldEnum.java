@@ -75,6 +75,12 @@ public class UrlItemFieldEnum extends ExtensibleEnum<ItemField> {
 
 	final public ItemField md5size = new ItemField(this, "md5size");
 
+	final public ItemField simhash = new ItemField(this, "simhash");
+
+	final public ItemField duplicateOf = new ItemField(this, "duplicateOf");
+
+	final public ItemField firstCrawlDate = new ItemField(this, "firstCrawlDate");
+
 	final public ItemField lastModifiedDate = new ItemField(this, "lastModifiedDate");
 
 	final public ItemField contentUpdateDate = new ItemField(this, "contentUpdateDate");
@@ -60,6 +60,7 @@ import com.jaeksoft.searchlib.scheduler.TaskLog;
 import com.jaeksoft.searchlib.util.FormatUtils.ThreadSafeDateFormat;
 import com.jaeksoft.searchlib.util.FormatUtils.ThreadSafeSimpleDateFormat;
 import com.jaeksoft.searchlib.util.InfoCallback;
+import com.jaeksoft.searchlib.util.SimHash;
 import com.jaeksoft.searchlib.util.ThreadUtils;
 import com.jaeksoft.searchlib.util.XmlWriter;
 import com.qwazr.utils.StringUtils;
@@ -92,7 +93,10 @@ public class UrlManager extends AbstractManager {
 		urlSearch, urlExport, hostFacet;
 	}
 
+	private final NearDuplicateCache nearDuplicateCache;
+
 	public UrlManager() {
+		nearDuplicateCache = new NearDuplicateCache(this, 100);
 	}
 
 	public void init(Client client, File dataDir) throws SearchLibException, URISyntaxException, FileNotFoundException {
@@ -109,6 +113,7 @@ public class UrlManager extends AbstractManager {
 		if (targetField != null)
 			targetClient.deleteDocuments(targetField, workDeleteUrlList);
 		dbClient.deleteDocuments(UrlItemFieldEnum.INSTANCE.url.getName(), workDeleteUrlList);
+		nearDuplicateCache.clear();
 	}
 
 	public boolean exists(String sUrl) throws SearchLibException {
@@ -494,6 +499,59 @@ public class UrlManager extends AbstractManager {
 		}
 	}
 
+	public NearDuplicateCache getNearDuplicateCache() {
+		return nearDuplicateCache;
+	}
+
+	/**
+	 * Fill the near-duplicate index with the fingerprints of the canonical pages
+	 * of the host, in the order they were first crawled. The order does not
+	 * depend on the recrawls, so a page keeps the same canonical page after a
+	 * reload. Pages without a first crawl date (crawled by an older version)
+	 * come first, until they are crawled again.
+	 *
+	 * @param host              the host
+	 * @param nearDuplicateHost the index to fill
+	 * @throws SearchLibException if the URL database cannot be read
+	 */
+	void loadNearDuplicateHost(final String host, final NearDuplicateHost nearDuplicateHost)
+			throws SearchLibException {
+		try {
+			final AbstractSearchRequest request = getSearchRequest(SearchTemplate.urlExport);
+			request.getReturnFieldList().clear();
+			request.addReturnField(UrlItemFieldEnum.INSTANCE.url.getName());
+			request.addReturnField(UrlItemFieldEnum.INSTANCE.simhash.getName());
+			request.addReturnField(UrlItemFieldEnum.INSTANCE.duplicateOf.getName());
+			request.setEmptyReturnsAll(true);
+			UrlItemFieldEnum.INSTANCE.host.addFilterQuery(request, QueryUtils.escapeQuery(host), false, false);
+			// addSort inserts in first position: the first crawl date is the main sort
+			UrlItemFieldEnum.INSTANCE.url.addSort(request, false);
+			UrlItemFieldEnum.INSTANCE.firstCrawlDate.addSort(request, false);
+			final int rows = 1000;
+			int start = 0;
+			for (; ; ) {
+				request.setStart(start);
+				request.setRows(rows);
+				final AbstractResultSearch<?> result = (AbstractResultSearch<?>) dbClient.request(request);
+				for (ResultDocument doc : result) {
+					final String url = doc.getValueContent(UrlItemFieldEnum.INSTANCE.url.getName(), 0);
+					final Long fingerprint =
+							SimHash.parse(doc.getValueContent(UrlItemFieldEnum.INSTANCE.simhash.getName(), 0));
+					if (url == null || fingerprint == null)
+						continue;
+					final String duplicateOf = doc.getValueContent(UrlItemFieldEnum.INSTANCE.duplicateOf.getName(), 0);
+					if (duplicateOf == null || duplicateOf.equals(url))
+						nearDuplicateHost.add(url, fingerprint);
+				}
+				start += rows;
+				if (start >= result.getNumFound())
+					break;
+			}
+		} catch (ParseException | RuntimeException e) {
+			throw new SearchLibException(e);
+		}
+	}
+
 	public Facet getHostFacetList(int minCount) throws SearchLibException {
 		try {
 			AbstractSearchRequest searchRequest =
@@ -749,6 +807,7 @@ public class UrlManager extends AbstractManager {
 			}
 			return total;
 		} finally {
+			nearDuplicateCache.clear();
 			resetCurrentTaskLog();
 		}
 	}
@@ -47,6 +47,8 @@ public class WebPropertyManager extends AbstractPropertyManager implements Prope
 	final private PropertyItem<Boolean> inclusionEnabled;
 	final private PropertyItem<Boolean> robotsTxtEnabled;
 	final private PropertyItem<Boolean> linkDetectionEnabled;
+	final private PropertyItem<String> nearDuplicatePolicy;
+	final private PropertyItem<Integer> nearDuplicateDistance;
 	final private PropertyItem<String> screenshotBrowser;
 	final private PropertyItem<String> screenshotMethod;
 	final private PropertyItem<Integer> screenshotCaptureWidth;
@@ -77,6 +79,10 @@ public class WebPropertyManager extends AbstractPropertyManager implements Prope
 		inclusionEnabled = newBooleanProperty("inclusionEnabled", true);
 		robotsTxtEnabled = newBooleanProperty("robotsTxtEnabled", true);
 		linkDetectionEnabled = newBooleanProperty("linkDetectionEnabled", true);
+		nearDuplicatePolicy = newStringProperty("nearDuplicatePolicy", NearDuplicatePolicy.DISABLED.name());
+		nearDuplicateDistance =
+				newIntegerProperty("nearDuplicateDistance", NearDuplicateHost.MAX_DISTANCE, 0,
+						NearDuplicateHost.MAX_DISTANCE);
 		screenshotMethod = newStringProperty("screenshotMethod", "");
 		screenshotBrowser = newStringProperty("screenshotBrowser", "");
 		screenshotCaptureWidth = newIntegerProperty("screenshotCaptureWidth", 1024, 1, null);
@@ -169,6 +175,14 @@ public class WebPropertyManager extends AbstractPropertyManager implements Prope
 		return linkDetectionEnabled;
 	}
 
+	public PropertyItem<String> getNearDuplicatePolicy() {
+		return nearDuplicatePolicy;
+	}
+
+	public PropertyItem<Integer> getNearDuplicateDistance() {
+		return nearDuplicateDistance;
+	}
+
 	public PropertyItem<String> getScreenshotMethod() {
 		return screenshotMethod;
 	}
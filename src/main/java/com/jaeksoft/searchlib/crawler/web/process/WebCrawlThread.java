@@ -184,7 +184,8 @@ public class WebCrawlThread extends CrawlThreadAbstract<WebCrawlThread, WebCrawl
 
 			if (currentUrlItem.getFetchStatus() == FetchStatus.FETCHED &&
 					currentUrlItem.getParserStatus() == ParserStatus.PARSED &&
-					currentUrlItem.getIndexStatus() != IndexStatus.META_NOINDEX) {
+					currentUrlItem.getIndexStatus() != IndexStatus.META_NOINDEX &&
+					currentUrlItem.getIndexStatus() != IndexStatus.NEAR_DUPLICATE) {
 				currentUrlItem.setIndexStatus(IndexStatus.TO_INDEX);
 				currentStats.incParsedCount();
 				config.getScreenshotManager().capture(url, crawl.getCredentialItem(), true, 120);
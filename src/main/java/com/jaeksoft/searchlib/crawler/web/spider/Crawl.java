@@ -43,6 +43,7 @@ import com.jaeksoft.searchlib.crawler.web.database.HeaderManager;
 import com.jaeksoft.searchlib.crawler.web.database.HostUrlList;
 import com.jaeksoft.searchlib.crawler.web.database.LinkItem;
 import com.jaeksoft.searchlib.crawler.web.database.LinkItem.Origin;
+import com.jaeksoft.searchlib.crawler.web.database.NearDuplicatePolicy;
 import com.jaeksoft.searchlib.crawler.web.database.RobotsTxtStatus;
 import com.jaeksoft.searchlib.crawler.web.database.UrlFilterItem;
 import com.jaeksoft.searchlib.crawler.web.database.UrlItem;
@@ -64,6 +65,7 @@ import com.jaeksoft.searchlib.streamlimiter.LimitException;
 import com.jaeksoft.searchlib.streamlimiter.StreamLimiter;
 import com.jaeksoft.searchlib.util.IOUtils;
 import com.jaeksoft.searchlib.util.LinkUtils;
+import com.jaeksoft.searchlib.util.SimHash;
 import org.apache.commons.io.FilenameUtils;
 
 import java.io.FileNotFoundException;
@@ -103,6 +105,8 @@ public class Crawl {
 	private final PatternListMatcher inclusionMatcher;
 	private final PatternListMatcher exclusionMatcher;
 	private final boolean robotsTxtEnabled;
+	private final NearDuplicatePolicy nearDuplicatePolicy;
+	private final int nearDuplicateDistance;
 
 	public Crawl(HostUrlList hostUrlList, UrlItem urlItem, Config config, ParserSelector parserSelector)
 			throws IOException, SearchLibException {
@@ -134,6 +138,8 @@ public class Crawl {
 				config.getInclusionPatternManager().getPatternListMatcher() :
 				null;
 		this.robotsTxtEnabled = propertyManager.getRobotsTxtEnabled().getValue();
+		this.nearDuplicatePolicy = NearDuplicatePolicy.find(propertyManager.getNearDuplicatePolicy().getValue());
+		this.nearDuplicateDistance = propertyManager.getNearDuplicateDistance().getValue();
 	}
 
 	public Crawl(WebCrawlThread crawlThread) throws SearchLibException, IOException {
@@ -201,6 +207,9 @@ public class Crawl {
 		}
 		if (newContentUpdateDate != null)
 			urlItem.setContentUpdateDate(newContentUpdateDate);
+		if (urlItem.getFirstCrawlDate() == null)
+			urlItem.setFirstCrawlDate(parserStartDate);
+		checkNearDuplicate();
 
 		for (ParserResultItem result : parser.getParserResults()) {
 			FieldContent fieldContent = result.getFieldContent(ParserFieldEnum.meta_robots);
@@ -217,6 +226,32 @@ public class Crawl {
 		}
 	}
 
+	/**
+	 * Store the SimHash of the content and look for a near-duplicate page
+	 * previously crawled on the same host.
+	 *
+	 * @throws SearchLibException
+	 */
+	private void checkNearDuplicate() throws SearchLibException {
+		Long simHash = parser.getSimHash();
+		urlItem.setSimhash(simHash == null ? null : SimHash.toString(simHash));
+		urlItem.setDuplicateOf(null);
+		if (urlItem.getIndexStatus() == IndexStatus.NEAR_DUPLICATE)
+			urlItem.setIndexStatus(IndexStatus.NOT_INDEXED);
+		if (simHash == null || nearDuplicatePolicy == NearDuplicatePolicy.DISABLED)
+			return;
+		URL url = urlItem.getURL();
+		if (url == null)
+			return;
+		String firstSeen = urlManager.getNearDuplicateCache()
+				.findOrAdd(url.getHost(), urlItem.getUrl(), simHash, nearDuplicateDistance);
+		urlItem.setDuplicateOf(firstSeen);
+		if (firstSeen.equals(urlItem.getUrl()))
+			return;
+		if (nearDuplicatePolicy == NearDuplicatePolicy.SKIP)
+			urlItem.setIndexStatus(IndexStatus.NEAR_DUPLICATE);
+	}
+
 	public boolean checkRobotTxtAllow(HttpDownloader httpDownloader)
 			throws SearchLibException, URISyntaxException, ClassNotFoundException, IOException {
 		RobotsTxtStatus robotsTxtStatus;
@@ -30,22 +30,29 @@ import java.text.NumberFormat;
 import javax.xml.bind.annotation.XmlType;
 
 import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.index.Term;
 import org.apache.lucene.search.BooleanClause.Occur;
 import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TermRangeQuery;
 import org.w3c.dom.Node;
 import org.xml.sax.SAXException;
 
 import com.jaeksoft.searchlib.SearchLibException;
 import com.jaeksoft.searchlib.analysis.filter.DegreesRadiansFilter;
+import com.jaeksoft.searchlib.config.Config;
 import com.jaeksoft.searchlib.geo.GeoParameters;
+import com.jaeksoft.searchlib.index.ReaderAbstract;
+import com.jaeksoft.searchlib.index.docvalue.DocValueInterface;
+import com.jaeksoft.searchlib.index.docvalue.DocValueType;
 import com.jaeksoft.searchlib.query.ParseException;
 import com.jaeksoft.searchlib.request.AbstractLocalSearchRequest;
 import com.jaeksoft.searchlib.result.ResultSearchSingle;
 import com.jaeksoft.searchlib.result.collector.DistanceInterface;
 import com.jaeksoft.searchlib.result.collector.DocIdInterface;
 import com.jaeksoft.searchlib.schema.SchemaField;
+import com.jaeksoft.searchlib.util.GeoHash;
 import com.jaeksoft.searchlib.util.Geospatial;
 import com.jaeksoft.searchlib.util.StringUtils;
 import com.jaeksoft.searchlib.util.Timer;
@@ -118,8 +125,17 @@ public class GeoFilter extends FilterAbstract<GeoFilter> {
 		}
 	}
 
+	/**
+	 * The maximum number of geohash cells used to cover the area
+	 */
+	private final static int MAX_CELLS = 64;
+
 	private transient Query query;
 
+	private transient Query boundaryQuery;
+
+	private transient Area area;
+
 	private Unit unit;
 
 	private Type type;
@@ -233,6 +249,9 @@ public class GeoFilter extends FilterAbstract<GeoFilter> {
 		NumberFormat nf = DegreesRadiansFilter.getRadiansFormat();
 		Geospatial.Location[] bound = Geospatial.boundingCoordinates(loc, dist,
 				unit.radius);
+		if (geoParams.getGeohashField() != null)
+			return getGeohashQuery(geoParams.getGeohashField(), new Area(type,
+					loc, bound, dist, unit.radius));
 		BooleanQuery booleanQuery = new BooleanQuery(true);
 		booleanQuery.add(
 				getBooleanQuery(nf, geoParams.getLatitudeField(),
@@ -244,6 +263,108 @@ public class GeoFilter extends FilterAbstract<GeoFilter> {
 		return query;
 	}
 
+	/**
+	 * Build a query on the geohash cells covering the area. The cells fully
+	 * inside the area are accepted as is, the documents of the boundary cells
+	 * are checked later using their coordinates.
+	 */
+	private Query getGeohashQuery(String field, Area area) {
+		BooleanQuery cellQuery = new BooleanQuery(true);
+		BooleanQuery boundaryCellQuery = new BooleanQuery(true);
+		for (GeoHash.Cell cell : GeoHash.cover(area.bound[0].latitude,
+				area.bound[0].longitude, area.bound[1].latitude,
+				area.bound[1].longitude, GeoHash.DEFAULT_PRECISION, MAX_CELLS)) {
+			Boolean inside = area.isInside(cell);
+			if (inside == null)
+				continue;
+			TermQuery termQuery = new TermQuery(new Term(field, cell.hash));
+			cellQuery.add(termQuery, Occur.SHOULD);
+			if (!inside)
+				boundaryCellQuery.add(termQuery, Occur.SHOULD);
+		}
+		this.area = area;
+		this.boundaryQuery = boundaryCellQuery.clauses().isEmpty() ? null
+				: boundaryCellQuery;
+		query = cellQuery;
+		return query;
+	}
+
+	private static class Area {
+
+		private final Type type;
+		private final Geospatial.Location center;
+		private final Geospatial.Location[] bound;
+		private final double distance;
+		private final double radius;
+
+		private Area(Type type, Geospatial.Location center,
+				Geospatial.Location[] bound, double distance, double radius) {
+			this.type = type;
+			this.center = center;
+			this.bound = bound;
+			this.distance = distance;
+			this.radius = radius;
+		}
+
+		private boolean isInsideLongitude(double longitude) {
+			if (bound[0].longitude <= bound[1].longitude)
+				return longitude >= bound[0].longitude
+						&& longitude <= bound[1].longitude;
+			// The box crosses the antimeridian
+			return longitude >= bound[0].longitude
+					|| longitude <= bound[1].longitude;
+		}
+
+		private double distance(double latitude, double longitude) {
+			return Geospatial.greatCircleDistance(latitude, longitude,
+					center.latitude, center.longitude, radius);
+		}
+
+		private boolean isInside(double latitude, double longitude) {
+			if (type == Type.RADIUS)
+				return distance(latitude, longitude) <= distance;
+			return latitude >= bound[0].latitude
+					&& latitude <= bound[1].latitude
+					&& isInsideLongitude(longitude);
+		}
+
+		/**
+		 * For a radius, the farthest point of a cell from any point is one of
+		 * its corners, unless the cell contains the opposite meridian. A cell
+		 * is only rejected if even its nearest possible point (bounded by the
+		 * triangle inequality from the middle of the cell) is too far.
+		 * 
+		 * @return true if the cell is inside the area, false if the cell
+		 *         crosses or may cross the boundary, null if the cell is
+		 *         outside
+		 */
+		private Boolean isInside(GeoHash.Cell cell) {
+			if (isInside(cell.minLatitude, cell.minLongitude)
+					&& isInside(cell.minLatitude, cell.maxLongitude)
+					&& isInside(cell.maxLatitude, cell.minLongitude)
+					&& isInside(cell.maxLatitude, cell.maxLongitude)
+					&& (type != Type.RADIUS || !containsOppositeMeridian(cell)))
+				return true;
+			if (type != Type.RADIUS)
+				return false;
+			double midLat = (cell.minLatitude + cell.maxLatitude) / 2;
+			double midLon = (cell.minLongitude + cell.maxLongitude) / 2;
+			double halfDiagonal = Math.max(Geospatial.greatCircleDistance(
+					midLat, midLon, cell.minLatitude, cell.minLongitude,
+					radius), Geospatial.greatCircleDistance(midLat, midLon,
+					cell.maxLatitude, cell.minLongitude, radius));
+			return distance(midLat, midLon) - halfDiagonal <= distance ? false
+					: null;
+		}
+
+		private boolean containsOppositeMeridian(GeoHash.Cell cell) {
+			double opposite = center.longitude > 0 ? center.longitude
+					- Math.PI : center.longitude + Math.PI;
+			return opposite >= cell.minLongitude
+					&& opposite <= cell.maxLongitude;
+		}
+	}
+
 	private final static BooleanQuery getBooleanQuery(final NumberFormat nf,
 			final String field, final double min, final double max) {
 		String fMin = nf.format(min);
@@ -288,6 +409,9 @@ public class GeoFilter extends FilterAbstract<GeoFilter> {
 			Timer timer) throws ParseException, IOException, SearchLibException {
 		GeoParameters geoParams = searchRequest.getGeoParameters();
 		Query query = getQuery(geoParams);
+		if (geoParams.getGeohashField() != null)
+			return getGeohashFilterHits(searchRequest.getConfig(), query,
+					geoParams, timer);
 		ResultSearchSingle result = getResult(searchRequest.getConfig(), query,
 				geoParams, timer);
 		FilterHits filterHits = new FilterHits(result.getDocSetHits()
@@ -310,6 +434,34 @@ public class GeoFilter extends FilterAbstract<GeoFilter> {
 		return null;
 	}
 
+	private FilterHits getGeohashFilterHits(Config config, Query query,
+			GeoParameters geoParams, Timer timer) throws SearchLibException,
+			IOException {
+		FilterHits filterHits = new FilterHits(getResult(config, query, null,
+				timer), isNegative(), timer);
+		if (boundaryQuery == null)
+			return filterHits;
+		ResultSearchSingle result = getResult(config, boundaryQuery, null,
+				timer);
+		Timer t = new Timer(timer, "GeoFilter - boundary check");
+		ReaderAbstract reader = result.getReader();
+		DocValueInterface latitudes = reader.getDocValueInterface(
+				geoParams.getLatitudeField(), DocValueType.RADIANS);
+		DocValueInterface longitudes = reader.getDocValueInterface(
+				geoParams.getLongitudeField(), DocValueType.RADIANS);
+		DocIdInterface docIdInterface = result.getDocs();
+		int[] docIds = docIdInterface.getIds();
+		int size = docIdInterface.getSize();
+		for (int i = 0; i < size; i++) {
+			int docId = docIds[i];
+			if (!area.isInside(latitudes.getFloat(docId),
+					longitudes.getFloat(docId)))
+				filterHits.fastRemove(docId);
+		}
+		t.end(null);
+		return filterHits;
+	}
+
 	@Override
 	public GeoFilter duplicate() {
 		return new GeoFilter(getSource(), isNegative(), getParamPosition(),
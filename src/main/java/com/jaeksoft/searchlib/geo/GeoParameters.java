@@ -93,6 +93,8 @@ public class GeoParameters implements Comparable<GeoParameters> {
 
 	private String longitudeField;
 
+	private String geohashField;
+
 	private double latitude;
 
 	private double longitude;
@@ -104,6 +106,7 @@ public class GeoParameters implements Comparable<GeoParameters> {
 	public GeoParameters() {
 		latitudeField = null;
 		longitudeField = null;
+		geohashField = null;
 		latitude = 0;
 		longitude = 0;
 		coordUnit = CoordUnit.DEGREES;
@@ -113,6 +116,7 @@ public class GeoParameters implements Comparable<GeoParameters> {
 	public void copyFrom(GeoParameters src) {
 		latitudeField = src.latitudeField;
 		longitudeField = src.longitudeField;
+		geohashField = src.geohashField;
 		latitude = src.latitude;
 		longitude = src.longitude;
 		coordUnit = src.coordUnit;
@@ -149,6 +153,22 @@ public class GeoParameters implements Comparable<GeoParameters> {
 		this.longitudeField = longitudeField;
 	}
 
+	/**
+	 * @return the field containing the geohash prefixes, or null if the
+	 *         geospatial filters use the latitude and longitude fields
+	 */
+	public String getGeohashField() {
+		return geohashField;
+	}
+
+	/**
+	 * @param geohashField
+	 *            the geohashField to set
+	 */
+	public void setGeohashField(String geohashField) {
+		this.geohashField = geohashField;
+	}
+
 	/**
 	 * @return the latitude
 	 */
@@ -221,6 +241,10 @@ public class GeoParameters implements Comparable<GeoParameters> {
 				"geo.field.lat"));
 		if (q != null)
 			latitudeField = q;
+		q = transaction.getParameterString(StringUtils.fastConcat(prefix,
+				"geo.field.hash"));
+		if (q != null)
+			geohashField = q;
 		q = transaction.getParameterString(StringUtils.fastConcat(prefix,
 				"geo.unit"));
 		if (q != null)
@@ -237,6 +261,7 @@ public class GeoParameters implements Comparable<GeoParameters> {
 		this.latitudeField = geoParams.latitudeField;
 		this.longitude = geoParams.longitude;
 		this.longitudeField = geoParams.longitudeField;
+		this.geohashField = geoParams.geohashField;
 		this.distanceReturn = geoParams.distanceReturn;
 	}
 
@@ -249,6 +274,7 @@ public class GeoParameters implements Comparable<GeoParameters> {
 				.getAttributeText(geoNode, "latitudeField");
 		this.longitudeField = DomUtils.getAttributeText(geoNode,
 				"longitudeField");
+		this.geohashField = DomUtils.getAttributeText(geoNode, "geohashField");
 		this.distanceReturn = DomUtils.getAttributeEnum(geoNode,
 				"distanceReturn", DistanceReturn.values(),
 				DistanceReturn.NO_DISTANCE);
@@ -258,7 +284,8 @@ public class GeoParameters implements Comparable<GeoParameters> {
 			throws SAXException {
 		xmlWriter.startElement(nodeName, "coordUnit", coordUnit.name(),
 				"latitudeField", latitudeField, "longitudeField",
-				longitudeField, "latitude", Double.toString(latitude),
+				longitudeField, "geohashField", geohashField, "latitude",
+				Double.toString(latitude),
 				"longitude", Double.toString(longitude), "distanceReturn",
 				distanceReturn.name());
 		xmlWriter.endElement();
@@ -288,6 +315,9 @@ public class GeoParameters implements Comparable<GeoParameters> {
 		if ((c = StringUtils.compareNullString(this.longitudeField,
 				geo.longitudeField)) != 0)
 			return c;
+		if ((c = StringUtils.compareNullString(this.geohashField,
+				geo.geohashField)) != 0)
+			return c;
 		if ((c = Double.compare(this.latitude, geo.latitude)) != 0)
 			return c;
 		if ((c = Double.compare(this.longitude, geo.longitude)) != 0)
@@ -0,0 +1,138 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.index;
+
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.Lock;
+import org.apache.lucene.store.LockFactory;
+
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+ * A Directory which delegates every call to another Directory. Subclasses
+ * override the calls they have to intercept.
+ */
+public abstract class DelegatingDirectory extends Directory {
+
+	protected final Directory directory;
+
+	protected DelegatingDirectory(Directory directory) {
+		this.directory = directory;
+	}
+
+	public Directory getDelegate() {
+		return directory;
+	}
+
+	@Override
+	public String[] listAll() throws IOException {
+		return directory.listAll();
+	}
+
+	@Override
+	public boolean fileExists(String name) throws IOException {
+		return directory.fileExists(name);
+	}
+
+	@SuppressWarnings("deprecation")
+	@Override
+	public long fileModified(String name) throws IOException {
+		return directory.fileModified(name);
+	}
+
+	@SuppressWarnings("deprecation")
+	@Override
+	public void touchFile(String name) throws IOException {
+		directory.touchFile(name);
+	}
+
+	@Override
+	public void deleteFile(String name) throws IOException {
+		directory.deleteFile(name);
+	}
+
+	@Override
+	public long fileLength(String name) throws IOException {
+		return directory.fileLength(name);
+	}
+
+	@Override
+	public IndexOutput createOutput(String name) throws IOException {
+		return directory.createOutput(name);
+	}
+
+	@Override
+	public void sync(Collection<String> names) throws IOException {
+		directory.sync(names);
+	}
+
+	@Override
+	public IndexInput openInput(String name) throws IOException {
+		return directory.openInput(name);
+	}
+
+	@Override
+	public IndexInput openInput(String name, int bufferSize) throws IOException {
+		return directory.openInput(name, bufferSize);
+	}
+
+	@Override
+	public Lock makeLock(String name) {
+		return directory.makeLock(name);
+	}
+
+	@Override
+	public void clearLock(String name) throws IOException {
+		directory.clearLock(name);
+	}
+
+	@Override
+	public void setLockFactory(LockFactory lockFactory) throws IOException {
+		directory.setLockFactory(lockFactory);
+	}
+
+	@Override
+	public LockFactory getLockFactory() {
+		return directory.getLockFactory();
+	}
+
+	@Override
+	public String getLockID() {
+		return directory.getLockID();
+	}
+
+	@Override
+	public void close() throws IOException {
+		directory.close();
+	}
+
+	@Override
+	public String toString() {
+		return directory.toString();
+	}
+}
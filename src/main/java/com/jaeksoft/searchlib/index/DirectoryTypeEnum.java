@@ -0,0 +1,109 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.index;
+
+import org.apache.commons.lang3.SystemUtils;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FileSwitchDirectory;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.store.NIOFSDirectory;
+import org.apache.lucene.util.Constants;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * How the files of a local index are accessed.
+ */
+public enum DirectoryTypeEnum {
+
+	/**
+	 * Memory mapping on a 64 bits JVM able to unmap the files, NIO otherwise
+	 * (memory mapping on Windows)
+	 */
+	AUTO,
+
+	/**
+	 * Every file is memory mapped: the reads hit the page cache directly.
+	 */
+	MMAP,
+
+	/**
+	 * Every file is read with positional reads
+	 */
+	NIO,
+
+	/**
+	 * The term dictionaries, the postings, the norms and the compound files
+	 * are memory mapped. The stored fields and the term vectors, which are
+	 * large and read per document, are read with positional reads.
+	 */
+	HYBRID;
+
+	final static Set<String> HYBRID_MMAP_EXTENSIONS =
+			Collections.unmodifiableSet(new HashSet<>(Arrays.asList("tis", "tii", "frq", "prx", "nrm", "cfs", "cfe")));
+
+	public static DirectoryTypeEnum find(String value) {
+		if (value == null || value.isEmpty())
+			return AUTO;
+		for (DirectoryTypeEnum type : values())
+			if (type.name().equalsIgnoreCase(value))
+				return type;
+		return AUTO;
+	}
+
+	private static MMapDirectory newMMapDirectory(File indexDir) throws IOException {
+		final MMapDirectory directory = new MMapDirectory(indexDir);
+		directory.setUseUnmap(MMapDirectory.UNMAP_SUPPORTED);
+		return directory;
+	}
+
+	/**
+	 * @return the type actually used on this platform
+	 */
+	public DirectoryTypeEnum resolve() {
+		if (this != AUTO)
+			return this;
+		if (SystemUtils.IS_OS_WINDOWS)
+			return MMAP;
+		return Constants.JRE_IS_64BIT && MMapDirectory.UNMAP_SUPPORTED ? MMAP : NIO;
+	}
+
+	public Directory newDirectory(File indexDir) throws IOException {
+		switch (resolve()) {
+		case MMAP:
+			return newMMapDirectory(indexDir);
+		case HYBRID:
+			return new FileSwitchDirectory(HYBRID_MMAP_EXTENSIONS, newMMapDirectory(indexDir),
+					new NIOFSDirectory(indexDir), true);
+		default:
+			return new NIOFSDirectory(indexDir);
+		}
+	}
+}
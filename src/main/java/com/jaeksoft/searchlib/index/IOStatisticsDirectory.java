@@ -0,0 +1,234 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.index;
+
+import com.jaeksoft.searchlib.util.Timer;
+import org.apache.commons.io.FileUtils;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IndexInput;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the files opened, the read calls and the bytes read per file type
+ * (file extension). The reads are also counted per thread, which gives the
+ * I/O of a query. Counting every read has a cost, this directory is only
+ * used if the ioStatistics option of the index is enabled.
+ */
+public class IOStatisticsDirectory extends DelegatingDirectory {
+
+	public static class FileTypeStatistics {
+
+		private final String type;
+		private final LongAdder opens;
+		private final LongAdder reads;
+		private final LongAdder bytes;
+
+		private FileTypeStatistics(String type) {
+			this.type = type;
+			this.opens = new LongAdder();
+			this.reads = new LongAdder();
+			this.bytes = new LongAdder();
+		}
+
+		public String getType() {
+			return type;
+		}
+
+		public long getOpens() {
+			return opens.sum();
+		}
+
+		public long getReads() {
+			return reads.sum();
+		}
+
+		public long getBytes() {
+			return bytes.sum();
+		}
+	}
+
+	private static class ThreadStatistics {
+
+		private long reads;
+		private long bytes;
+	}
+
+	private final static ThreadLocal<ThreadStatistics> THREAD_STATISTICS =
+			ThreadLocal.withInitial(ThreadStatistics::new);
+
+	private final Map<String, FileTypeStatistics> fileTypes;
+
+	public IOStatisticsDirectory(Directory directory) {
+		super(directory);
+		fileTypes = new ConcurrentHashMap<>();
+	}
+
+	static String getFileType(String name) {
+		final int i = name.lastIndexOf('.');
+		if (i != -1)
+			return name.substring(i + 1);
+		final int j = name.indexOf('_');
+		return j == -1 ? name : name.substring(0, j);
+	}
+
+	private IndexInput newInput(String name, IndexInput input) {
+		final FileTypeStatistics statistics = fileTypes.computeIfAbsent(getFileType(name), FileTypeStatistics::new);
+		statistics.opens.increment();
+		return new CountingInput(input, statistics);
+	}
+
+	@Override
+	public IndexInput openInput(String name) throws IOException {
+		return newInput(name, directory.openInput(name));
+	}
+
+	@Override
+	public IndexInput openInput(String name, int bufferSize) throws IOException {
+		return newInput(name, directory.openInput(name, bufferSize));
+	}
+
+	/**
+	 * @return the statistics of each file type, the most read first
+	 */
+	public List<FileTypeStatistics> getFileTypeStatistics() {
+		final List<FileTypeStatistics> list = new ArrayList<>(fileTypes.values());
+		list.sort((s1, s2) -> Long.compare(s2.getBytes(), s1.getBytes()));
+		return list;
+	}
+
+	public String getInfo() {
+		final StringBuilder sb = new StringBuilder();
+		for (FileTypeStatistics statistics : getFileTypeStatistics()) {
+			if (sb.length() > 0)
+				sb.append(", ");
+			sb.append(statistics.type);
+			sb.append(": ");
+			sb.append(FileUtils.byteCountToDisplaySize(statistics.getBytes()));
+			sb.append(" in ");
+			sb.append(statistics.getReads());
+			sb.append(" read(s)");
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * @return the number of reads and the number of bytes read by the current
+	 * thread
+	 */
+	public static long[] getThreadCounters() {
+		final ThreadStatistics statistics = THREAD_STATISTICS.get();
+		return new long[] { statistics.reads, statistics.bytes };
+	}
+
+	/**
+	 * Add to the parent timer the I/O done by the current thread since the
+	 * counters were taken.
+	 *
+	 * @param parent   the timer of the query
+	 * @param counters the counters returned by getThreadCounters()
+	 */
+	public static void addTimer(Timer parent, long[] counters) {
+		if (parent == null || counters == null)
+			return;
+		final ThreadStatistics statistics = THREAD_STATISTICS.get();
+		final long reads = statistics.reads - counters[0];
+		if (reads == 0)
+			return;
+		final long bytes = statistics.bytes - counters[1];
+		new Timer(parent, "I/O: " + reads + " read(s) - " + FileUtils.byteCountToDisplaySize(bytes)).end(null);
+	}
+
+	private static class CountingInput extends IndexInput {
+
+		private IndexInput input;
+		private final FileTypeStatistics statistics;
+
+		private CountingInput(IndexInput input, FileTypeStatistics statistics) {
+			super(input.toString());
+			this.input = input;
+			this.statistics = statistics;
+		}
+
+		private void read(long bytes) {
+			statistics.reads.increment();
+			statistics.bytes.add(bytes);
+			final ThreadStatistics threadStatistics = THREAD_STATISTICS.get();
+			threadStatistics.reads++;
+			threadStatistics.bytes += bytes;
+		}
+
+		@Override
+		public byte readByte() throws IOException {
+			final byte b = input.readByte();
+			read(1);
+			return b;
+		}
+
+		@Override
+		public void readBytes(byte[] b, int offset, int len) throws IOException {
+			input.readBytes(b, offset, len);
+			read(len);
+		}
+
+		@Override
+		public void readBytes(byte[] b, int offset, int len, boolean useBuffer) throws IOException {
+			input.readBytes(b, offset, len, useBuffer);
+			read(len);
+		}
+
+		@Override
+		public void close() throws IOException {
+			input.close();
+		}
+
+		@Override
+		public long getFilePointer() {
+			return input.getFilePointer();
+		}
+
+		@Override
+		public void seek(long pos) throws IOException {
+			input.seek(pos);
+		}
+
+		@Override
+		public long length() {
+			return input.length();
+		}
+
+		@Override
+		public Object clone() {
+			final CountingInput clone = (CountingInput) super.clone();
+			clone.input = (IndexInput) input.clone();
+			return clone;
+		}
+	}
+}
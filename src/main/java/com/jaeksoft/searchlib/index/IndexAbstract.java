@@ -24,10 +24,16 @@
 
 package com.jaeksoft.searchlib.index;
 
+import java.io.IOException;
+import java.util.Set;
+
+import org.apache.lucene.document.Document;
 import org.xml.sax.SAXException;
 
 import com.jaeksoft.searchlib.SearchLibException;
+import com.jaeksoft.searchlib.request.AbstractLocalSearchRequest;
 import com.jaeksoft.searchlib.util.XmlWriter;
+import com.qwazr.utils.FunctionUtils;
 
 public abstract class IndexAbstract implements ReaderInterface, WriterInterface {
 
@@ -53,6 +59,16 @@ public abstract class IndexAbstract implements ReaderInterface, WriterInterface
 
 	public abstract void setOnline(boolean v) throws SearchLibException;
 
+	public abstract SearchCursor openCursor(AbstractLocalSearchRequest request, Integer ttlSeconds)
+			throws SearchLibException;
+
+	public abstract SearchCursor getCursor(String cursorId);
+
+	public abstract boolean closeCursor(String cursorId);
+
+	public abstract int export(AbstractLocalSearchRequest request, Set<String> fieldNameSet,
+			FunctionUtils.ConsumerEx<Document, IOException> consumer) throws IOException, SearchLibException;
+
 	protected abstract void writeXmlConfigIndex(XmlWriter xmlWriter) throws SAXException;
 
 	public void writeXmlConfig(XmlWriter xmlWriter) throws SAXException {
@@ -29,7 +29,9 @@ import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -50,12 +52,16 @@ public class IndexConfig {
 
 	private final AtomicInteger searchCache;
 
+	private final AtomicInteger resultCache;
+
 	private final AtomicInteger filterCache;
 
 	private final AtomicInteger fieldCache;
 
 	private final AtomicInteger termVectorCache;
 
+	private final AtomicInteger snippetOffsetCache;
+
 	private volatile URI remoteURI;
 
 	private volatile String keyField;
@@ -68,11 +74,34 @@ public class IndexConfig {
 
 	private final AtomicLong writeLockTimeout;
 
+	private final AtomicInteger mergeThreads;
+
+	private final AtomicInteger segmentsPerTier;
+
+	private final AtomicInteger maxMergedSegmentMB;
+
+	private volatile DirectoryTypeEnum directoryType;
+
+	private volatile boolean ioStatistics;
+
+	private volatile String warmExtensions;
+
 	private final ConcurrentSkipListSet<String> indexSet;
 
+	public final static int DEFAULT_MERGE_THREADS = Math.max(1,
+			Math.min(3, Runtime.getRuntime().availableProcessors() / 2));
+
+	public final static int DEFAULT_SEGMENTS_PER_TIER = 10;
+
+	public final static int DEFAULT_SNIPPET_OFFSET_CACHE = 1000;
+
+	public final static int DEFAULT_MAX_MERGED_SEGMENT_MB = 5120;
+
 	public IndexConfig(Node node) throws URISyntaxException {
 		searchCache = new AtomicInteger(XPathParser.getAttributeValue(node,
 				"searchCache"));
+		resultCache = new AtomicInteger(XPathParser.getAttributeValue(node,
+				"resultCache"));
 		filterCache = new AtomicInteger(XPathParser.getAttributeValue(node,
 				"filterCache"));
 		int fc = XPathParser.getAttributeValue(node, "fieldCache");
@@ -81,6 +110,10 @@ public class IndexConfig {
 		fieldCache = new AtomicInteger(fc);
 		termVectorCache = new AtomicInteger(XPathParser.getAttributeValue(node,
 				"termVectorCache"));
+		int soc = XPathParser.getAttributeValue(node, "snippetOffsetCache");
+		if (soc == 0)
+			soc = DEFAULT_SNIPPET_OFFSET_CACHE;
+		snippetOffsetCache = new AtomicInteger(soc);
 		String s = XPathParser.getAttributeString(node, "remoteURI");
 		remoteURI = StringUtils.isEmpty(s) ? null : new URI(s);
 		keyField = XPathParser.getAttributeString(node, "keyField");
@@ -95,6 +128,24 @@ public class IndexConfig {
 		if (wlt == 0)
 			wlt = IndexWriterConfig.getDefaultWriteLockTimeout();
 		writeLockTimeout = new AtomicLong(wlt);
+		int mt = XPathParser.getAttributeValue(node, "mergeThreads");
+		if (mt == 0)
+			mt = DEFAULT_MERGE_THREADS;
+		mergeThreads = new AtomicInteger(mt);
+		int spt = XPathParser.getAttributeValue(node, "segmentsPerTier");
+		if (spt == 0)
+			spt = DEFAULT_SEGMENTS_PER_TIER;
+		segmentsPerTier = new AtomicInteger(spt);
+		int mms = XPathParser.getAttributeValue(node, "maxMergedSegmentMB");
+		if (mms == 0)
+			mms = DEFAULT_MAX_MERGED_SEGMENT_MB;
+		maxMergedSegmentMB = new AtomicInteger(mms);
+		directoryType = DirectoryTypeEnum.find(XPathParser.getAttributeString(
+				node, "directoryType"));
+		ioStatistics = DomUtils.getAttributeBoolean(node, "ioStatistics",
+				false);
+		warmExtensions = XPathParser.getAttributeString(node,
+				"warmExtensions");
 		Node indicesNode = DomUtils.getFirstNode(node, "indices");
 		if (indicesNode != null) {
 			indexSet = new ConcurrentSkipListSet<String>();
@@ -108,15 +159,23 @@ public class IndexConfig {
 
 	public void writeXmlConfig(XmlWriter xmlWriter) throws SAXException {
 		xmlWriter.startElement("index", "searchCache",
-				Integer.toString(searchCache.get()), "filterCache",
+				Integer.toString(searchCache.get()), "resultCache",
+				Integer.toString(resultCache.get()), "filterCache",
 				Integer.toString(filterCache.get()), "fieldCache",
 				Integer.toString(fieldCache.get()), "termVectorCache",
-				Integer.toString(termVectorCache.get()), "remoteURI",
+				Integer.toString(termVectorCache.get()), "snippetOffsetCache",
+				Integer.toString(snippetOffsetCache.get()), "remoteURI",
 				remoteURI != null ? remoteURI.toString() : null, "keyField",
 				keyField, "keyMd5RegExp", keyMd5RegExp, "similarityClass",
 				similarityClass, "maxNumSegments",
 				Integer.toString(maxNumSegments.get()), "writeLockTimeout",
-				Long.toString(writeLockTimeout.get()));
+				Long.toString(writeLockTimeout.get()), "mergeThreads",
+				Integer.toString(mergeThreads.get()), "segmentsPerTier",
+				Integer.toString(segmentsPerTier.get()), "maxMergedSegmentMB",
+				Integer.toString(maxMergedSegmentMB.get()), "directoryType",
+				directoryType.name(), "ioStatistics",
+				Boolean.toString(ioStatistics), "warmExtensions",
+				warmExtensions);
 		if (indexSet != null) {
 			xmlWriter.startElement("indices");
 			for (String index : indexSet) {
@@ -186,6 +245,21 @@ public class IndexConfig {
 		this.searchCache.set(searchCache);
 	}
 
+	/**
+	 * @return the resultCache
+	 */
+	public int getResultCache() {
+		return resultCache.get();
+	}
+
+	/**
+	 * @param resultCache
+	 *            the resultCache to set
+	 */
+	public void setResultCache(int resultCache) {
+		this.resultCache.set(resultCache);
+	}
+
 	/**
 	 * @return the filterCache
 	 */
@@ -231,6 +305,22 @@ public class IndexConfig {
 		this.termVectorCache.set(termVectorCache);
 	}
 
+	/**
+	 * @return the maximum number of fields kept in the snippet offset cache
+	 *         of a reader
+	 */
+	public int getSnippetOffsetCache() {
+		return snippetOffsetCache.get();
+	}
+
+	/**
+	 * @param snippetOffsetCache
+	 *            the snippetOffsetCache to set
+	 */
+	public void setSnippetOffsetCache(int snippetOffsetCache) {
+		this.snippetOffsetCache.set(snippetOffsetCache);
+	}
+
 	/**
 	 * @return the remoteURI
 	 */
@@ -338,4 +428,113 @@ public class IndexConfig {
 		this.writeLockTimeout.set(writeLockTimeout);
 	}
 
+	/**
+	 * @return the maximum number of concurrent merges
+	 */
+	public int getMergeThreads() {
+		return mergeThreads.get();
+	}
+
+	/**
+	 * @param mergeThreads
+	 *            the maximum number of concurrent merges
+	 */
+	public void setMergeThreads(int mergeThreads) {
+		this.mergeThreads.set(mergeThreads);
+	}
+
+	/**
+	 * @return the number of segments allowed per tier by the merge policy
+	 */
+	public int getSegmentsPerTier() {
+		return segmentsPerTier.get();
+	}
+
+	/**
+	 * @param segmentsPerTier
+	 *            the number of segments allowed per tier by the merge policy
+	 */
+	public void setSegmentsPerTier(int segmentsPerTier) {
+		this.segmentsPerTier.set(segmentsPerTier);
+	}
+
+	/**
+	 * @return the maximum size of a segment produced by a merge (in MB)
+	 */
+	public int getMaxMergedSegmentMB() {
+		return maxMergedSegmentMB.get();
+	}
+
+	/**
+	 * @param maxMergedSegmentMB
+	 *            the maximum size of a segment produced by a merge (in MB)
+	 */
+	public void setMaxMergedSegmentMB(int maxMergedSegmentMB) {
+		this.maxMergedSegmentMB.set(maxMergedSegmentMB);
+	}
+
+	/**
+	 * @return how the files of the index are accessed
+	 */
+	public DirectoryTypeEnum getDirectoryType() {
+		return directoryType;
+	}
+
+	/**
+	 * @param directoryType
+	 *            how the files of the index are accessed (applied when the
+	 *            index is opened)
+	 */
+	public void setDirectoryType(DirectoryTypeEnum directoryType) {
+		this.directoryType = directoryType == null ? DirectoryTypeEnum.AUTO
+				: directoryType;
+	}
+
+	/**
+	 * @return true if the reads are counted per file type and per query
+	 */
+	public boolean isIoStatistics() {
+		return ioStatistics;
+	}
+
+	/**
+	 * @param ioStatistics
+	 *            true to count the reads per file type and per query
+	 *            (applied when the index is opened)
+	 */
+	public void setIoStatistics(boolean ioStatistics) {
+		this.ioStatistics = ioStatistics;
+	}
+
+	/**
+	 * @return the comma separated extensions of the files read after a
+	 *         reload (e.g.: tis,tii,nrm)
+	 */
+	public String getWarmExtensions() {
+		return warmExtensions;
+	}
+
+	/**
+	 * @param warmExtensions
+	 *            the comma separated extensions of the files read after a
+	 *            reload. Empty to disable the warming.
+	 */
+	public void setWarmExtensions(String warmExtensions) {
+		this.warmExtensions = warmExtensions;
+	}
+
+	/**
+	 * @return the extensions of the files to warm, or null
+	 */
+	public Set<String> getWarmExtensionSet() {
+		final String extensions = warmExtensions;
+		if (StringUtils.isBlank(extensions))
+			return null;
+		final Set<String> set = new HashSet<String>();
+		for (String extension : StringUtils.split(extensions, ", "))
+			set.add(extension.startsWith(".") ? extension.substring(1)
+					: extension);
+		return set;
+	}
+
 }
@@ -32,11 +32,9 @@ import com.jaeksoft.searchlib.crawler.web.spider.HttpDownloader;
 import com.jaeksoft.searchlib.util.LinkUtils;
 import com.jaeksoft.searchlib.util.ReadWriteLock;
 import org.apache.commons.lang3.ArrayUtils;
-import org.apache.commons.lang3.SystemUtils;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.store.Directory;
-import org.apache.lucene.store.MMapDirectory;
-import org.apache.lucene.store.NIOFSDirectory;
+import org.apache.lucene.store.IndexInput;
 import org.apache.lucene.store.NoSuchDirectoryException;
 import org.json.JSONException;
 
@@ -44,15 +42,38 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 public class IndexDirectory {
 
+	private final static int WARM_BUFFER_SIZE = 65536;
+
 	private Directory directory;
+	private IOStatisticsDirectory ioStatisticsDirectory;
+	private final Set<String> warmedFiles = new HashSet<>();
 	private final ReadWriteLock rwl = new ReadWriteLock();
 
 	protected IndexDirectory(File indexDir) throws IOException {
-		directory = SystemUtils.IS_OS_WINDOWS ? new MMapDirectory(indexDir) : new NIOFSDirectory(indexDir);
+		directory = DirectoryTypeEnum.AUTO.newDirectory(indexDir);
+		ioStatisticsDirectory = null;
+	}
+
+	/**
+	 * Create an index directory using the directory type of the index
+	 * configuration. If the ioStatistics option is set, the reads are counted.
+	 *
+	 * @param indexDir
+	 * @param indexConfig
+	 * @throws IOException
+	 */
+	protected IndexDirectory(File indexDir, IndexConfig indexConfig) throws IOException {
+		final Directory dir = indexConfig.getDirectoryType().newDirectory(indexDir);
+		ioStatisticsDirectory = indexConfig.isIoStatistics() ? new IOStatisticsDirectory(dir) : null;
+		directory = ioStatisticsDirectory != null ? ioStatisticsDirectory : dir;
 	}
 
 	/**
@@ -62,15 +83,19 @@ public class IndexDirectory {
 	 * The URI should be created like that:
 	 * SWIFT://localhost?tenant=&amp;container=&amp;user=&amp;password=&amp;url=
 	 * <p>
-	 * The parameters must be URL encoded as UTF-8
+	 * The parameters must be URL encoded as UTF-8. The block cache can be tuned
+	 * with the optional parameters blockSizeKB, memoryCacheMB, diskCacheMB and
+	 * readAheadBlocks.
 	 *
 	 * @param uri
+	 * @param cacheDirectory the local directory used by the block cache
 	 * @throws IOException
 	 * @throws URISyntaxException
 	 * @throws JSONException
 	 * @throws SearchLibException
 	 */
-	protected IndexDirectory(final URI uri) throws IOException, URISyntaxException, JSONException, SearchLibException {
+	protected IndexDirectory(final URI uri, final File cacheDirectory)
+			throws IOException, URISyntaxException, JSONException, SearchLibException {
 		if ("SWIFT".equals(uri.getScheme())) {
 			HttpDownloader httpDownloader = new HttpDownloader(null, true, null, 600);
 			Map<String, String> parameters = LinkUtils.getUniqueQueryParameters(uri, "UTF-8");
@@ -79,13 +104,28 @@ public class IndexDirectory {
 			String user = parameters.get("user");
 			String password = parameters.get("password");
 			String url = parameters.get("url");
+			int blockSize = getIntParameter(parameters, "blockSizeKB", ObjectStorageDirectory.DEFAULT_BLOCK_SIZE / 1024) *
+					1024;
+			long memoryBudget = getIntParameter(parameters, "memoryCacheMB",
+					(int) (ObjectStorageDirectory.DEFAULT_MEMORY_BUDGET / 1024 / 1024)) * 1024L * 1024L;
+			long diskBudget = getIntParameter(parameters, "diskCacheMB",
+					(int) (ObjectStorageDirectory.DEFAULT_DISK_BUDGET / 1024 / 1024)) * 1024L * 1024L;
+			int readAhead = getIntParameter(parameters, "readAheadBlocks", ObjectStorageDirectory.DEFAULT_READ_AHEAD);
 			SwiftToken token = new SwiftToken(httpDownloader, url, user, password, AuthType.KEYSTONE, tenant);
-			directory = new ObjectStorageDirectory(httpDownloader, token, container);
+			directory = new ObjectStorageDirectory(httpDownloader, token, container, cacheDirectory, blockSize,
+					memoryBudget, diskBudget, readAhead);
+			ioStatisticsDirectory = null;
 			return;
 		}
 		throw new IOException("Unsupported protocol: " + uri);
 	}
 
+	private static int getIntParameter(final Map<String, String> parameters, final String name,
+			final int defaultValue) {
+		final String value = parameters.get(name);
+		return value == null || value.isEmpty() ? defaultValue : Integer.parseInt(value);
+	}
+
 	public Directory getDirectory() {
 		rwl.r.lock();
 		try {
@@ -95,6 +135,57 @@ public class IndexDirectory {
 		}
 	}
 
+	/**
+	 * @return the I/O statistics, or null if they are not enabled
+	 */
+	public IOStatisticsDirectory getIOStatistics() {
+		return ioStatisticsDirectory;
+	}
+
+	/**
+	 * Read the files having one of the given extensions which have not been
+	 * warmed yet. The pages of memory mapped files are faulted in, the other
+	 * ones are loaded in the file system cache.
+	 *
+	 * @param extensions the file extensions (e.g.: tis, tii, nrm)
+	 */
+	public void warm(Collection<String> extensions) {
+		if (extensions == null || extensions.isEmpty())
+			return;
+		rwl.r.lock();
+		try {
+			if (directory == null)
+				return;
+			// The reads of the warming are not counted
+			final Directory dir = ioStatisticsDirectory != null ? ioStatisticsDirectory.getDelegate() : directory;
+			synchronized (warmedFiles) {
+				final String[] files = dir.listAll();
+				warmedFiles.retainAll(Arrays.asList(files));
+				final byte[] buffer = new byte[WARM_BUFFER_SIZE];
+				for (String file : files) {
+					if (warmedFiles.contains(file) || !extensions.contains(IOStatisticsDirectory.getFileType(file)))
+						continue;
+					final IndexInput input = dir.openInput(file);
+					try {
+						long remaining = input.length();
+						while (remaining > 0) {
+							final int len = (int) Math.min(remaining, buffer.length);
+							input.readBytes(buffer, 0, len);
+							remaining -= len;
+						}
+					} finally {
+						input.close();
+					}
+					warmedFiles.add(file);
+				}
+			}
+		} catch (IOException e) {
+			Logging.warn(e);
+		} finally {
+			rwl.r.unlock();
+		}
+	}
+
 	public boolean isEmpty() throws IOException {
 		rwl.r.lock();
 		try {
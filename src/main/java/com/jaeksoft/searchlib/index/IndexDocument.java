@@ -132,17 +132,9 @@ public class IndexDocument implements Iterable<FieldContent> {
 				boolean removeTag = "yes".equalsIgnoreCase(XPathParser.getAttributeString(valueNode, "removeTag"));
 				boolean convertHtmlEntities = "yes".equalsIgnoreCase(
 						XPathParser.getAttributeString(valueNode, "convertHtmlEntities"));
-
-				String textContent = valueNode.getTextContent();
-				if (convertHtmlEntities)
-					textContent = StringEscapeUtils.unescapeHtml4(textContent);
-				if (removeTag)
-					textContent = StringUtils.removeTag(textContent);
 				Float boost = XPathParser.getAttributeFloat(valueNode, "boost");
-				add(fieldName, textContent, boost);
-				if (copyFieldList != null)
-					for (String f : copyFieldList)
-						add(f, textContent, boost);
+				addXmlValue(fieldName, copyFieldList, valueNode.getTextContent(), boost, removeTag,
+						convertHtmlEntities);
 			}
 		}
 		List<Node> binaryNodes = DomUtils.getNodes(documentNode, "binary");
@@ -159,13 +151,48 @@ public class IndexDocument implements Iterable<FieldContent> {
 				contentType = XPathParser.getAttributeString(node, "contenttype");
 			String content = node.getTextContent();
 			String url = XPathParser.getAttributeString(node, "url");
-			Parser parser = doBinary(url, content, filePath, filename, client, parserSelector, contentType,
-					urlDefaultCredential, httpDownloader, bFaultTolerant);
-			if (parser != null)
-				parser.popupateResult(0, this);
+			addXmlBinary(url, content, filePath, filename, client, parserSelector, contentType, urlDefaultCredential,
+					httpDownloader, bFaultTolerant);
 		}
 	}
 
+	/**
+	 * Add a value of the XML update format (the value element of a field)
+	 *
+	 * @param fieldName           the name of the field
+	 * @param copyFieldList       the fields receiving a copy of the value (may be null)
+	 * @param textContent         the text of the value
+	 * @param boost               the boost of the value (may be null)
+	 * @param removeTag           true to remove the HTML tags
+	 * @param convertHtmlEntities true to decode the HTML entities
+	 */
+	public void addXmlValue(String fieldName, List<String> copyFieldList, String textContent, Float boost,
+			boolean removeTag, boolean convertHtmlEntities) {
+		if (convertHtmlEntities)
+			textContent = StringEscapeUtils.unescapeHtml4(textContent);
+		if (removeTag)
+			textContent = StringUtils.removeTag(textContent);
+		add(fieldName, textContent, boost);
+		if (copyFieldList != null)
+			for (String f : copyFieldList)
+				add(f, textContent, boost);
+	}
+
+	/**
+	 * Parse a binary of the XML update format (the binary element), and add
+	 * the extracted fields
+	 */
+	public void addXmlBinary(String url, String content, String filePath, String filename, Client client,
+			ParserSelector parserSelector, String contentType, CredentialItem urlDefaultCredential,
+			HttpDownloader httpDownloader, boolean bFaultTolerant)
+			throws IOException, URISyntaxException, InstantiationException, IllegalAccessException,
+			ClassNotFoundException, SearchLibException {
+		Parser parser = doBinary(url, content, filePath, filename, client, parserSelector, contentType,
+				urlDefaultCredential, httpDownloader, bFaultTolerant);
+		if (parser != null)
+			parser.popupateResult(0, this);
+	}
+
 	private Parser doBinary(String url, String content, String filePath, String filename, Client client,
 			ParserSelector parserSelector, String contentType, CredentialItem urlDefaultCredential,
 			HttpDownloader httpDownloader, boolean bFaultTolerant)
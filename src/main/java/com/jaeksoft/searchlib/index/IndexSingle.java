@@ -35,17 +35,21 @@ import com.jaeksoft.searchlib.query.ParseException;
 import com.jaeksoft.searchlib.request.AbstractLocalSearchRequest;
 import com.jaeksoft.searchlib.request.AbstractRequest;
 import com.jaeksoft.searchlib.request.DocumentsRequest;
+import com.jaeksoft.searchlib.request.MoreLikeThisRequest;
 import com.jaeksoft.searchlib.result.AbstractResult;
 import com.jaeksoft.searchlib.result.ResultDocuments;
+import com.jaeksoft.searchlib.result.ResultSearchSingle;
 import com.jaeksoft.searchlib.schema.FieldValue;
 import com.jaeksoft.searchlib.schema.Schema;
 import com.jaeksoft.searchlib.schema.SchemaField;
 import com.jaeksoft.searchlib.util.IOUtils;
+import com.jaeksoft.searchlib.util.StringUtils;
 import com.jaeksoft.searchlib.util.Timer;
 import com.jaeksoft.searchlib.util.XmlWriter;
 import com.jaeksoft.searchlib.webservice.query.document.IndexDocumentResult;
 import com.qwazr.utils.FunctionUtils;
 import org.apache.commons.io.filefilter.DirectoryFileFilter;
+import org.apache.lucene.document.Document;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.index.TermDocs;
 import org.apache.lucene.index.TermEnum;
@@ -62,6 +66,7 @@ import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
@@ -71,10 +76,16 @@ import java.util.Set;
 
 public class IndexSingle extends IndexAbstract {
 
+	private final static int MAX_DELETE_BY_IDS_ATTEMPTS = 3;
+
+	private final static int DELETE_TERMS_BATCH_SIZE = 10000;
+
 	final private IndexDirectory indexDirectory;
 	final private IndexDirectory snapshotDeletionDirectory;
 	private volatile ReaderLocal _reader;
 	private final WriterLocal writer;
+	private final SearchCursorManager cursorManager = new SearchCursorManager();
+	private final MoreLikeThisCache moreLikeThisCache = new MoreLikeThisCache(1000);
 
 	private volatile boolean online;
 
@@ -115,7 +126,8 @@ public class IndexSingle extends IndexAbstract {
 		} else
 			indexDir = findIndexDirOrSub(indexDir);
 		URI remoteURI = indexConfig.getRemoteURI();
-		indexDirectory = remoteURI == null ? new IndexDirectory(indexDir) : new IndexDirectory(remoteURI);
+		indexDirectory = remoteURI == null ? new IndexDirectory(indexDir, indexConfig) :
+				new IndexDirectory(remoteURI, new File(configDir, "objectStorageCache"));
 
 		snapshotDeletionDirectory = new IndexDirectory(new File(configDir, "snapshot"));
 
@@ -129,7 +141,8 @@ public class IndexSingle extends IndexAbstract {
 			writer = null;
 			reloadIndexList = new ArrayList<>();
 		}
-		_reader = new ReaderLocal(indexConfig, indexDirectory);
+		indexDirectory.warm(indexConfig.getWarmExtensionSet());
+		_reader = new ReaderLocal(indexConfig, indexDirectory, moreLikeThisCache);
 		eventUpdateInterface();
 	}
 
@@ -258,9 +271,12 @@ public class IndexSingle extends IndexAbstract {
 				emptyReloadEvents();
 			}
 		}
+		cursorManager.closeAll();
 		if (_reader != null)
 			IOUtils.close(_reader);
 		_reader = null;
+		if (writer != null)
+			writer.close();
 
 		indexDirectory.close();
 		snapshotDeletionDirectory.close();
@@ -280,35 +296,130 @@ public class IndexSingle extends IndexAbstract {
 		reloadNoLock();
 	}
 
-	private int[] getIds(AbstractRequest request) throws IOException, ParseException, SyntaxError, SearchLibException {
-		ReaderLocal reader = acquire();
+	private static int[] getIds(ReaderLocal reader, AbstractRequest request)
+			throws IOException, ParseException, SyntaxError, SearchLibException {
+		if (request instanceof AbstractLocalSearchRequest) {
+			DocSetHits dsh = reader.searchDocSet((AbstractLocalSearchRequest) request, null);
+			if (dsh != null)
+				return dsh.getIds();
+		} else if (request instanceof DocumentsRequest) {
+			ResultDocuments result = (ResultDocuments) reader.request(request);
+			if (result != null)
+				return result.getDocIdArray();
+		}
+		return null;
+	}
+
+	/**
+	 * @return the terms matching the given values (the unique field is used if
+	 * no field is given)
+	 */
+	private static Term[] getTerms(DocumentsRequest request) throws SearchLibException {
+		final Schema schema = request.getConfig().getSchema();
+		final String field = request.getField();
+		final SchemaField schemaField =
+				StringUtils.isEmpty(field) ? schema.getFieldList().getUniqueField() : schema.getField(field);
+		if (schemaField == null)
+			throw new SearchLibException(StringUtils.isEmpty(field) ? "No unique field" : "Field not found: " + field);
+		final Collection<String> values = request.getUniqueKeyList();
+		final Term[] terms = new Term[values.size()];
+		int i = 0;
+		for (String value : values)
+			terms[i++] = new Term(schemaField.getName(), value);
+		return terms;
+	}
+
+	/**
+	 * A search request without filter and join can be applied as a query by
+	 * the writer
+	 */
+	private static boolean isQueryOnly(AbstractRequest request) {
+		if (!(request instanceof AbstractLocalSearchRequest))
+			return false;
+		final AbstractLocalSearchRequest searchRequest = (AbstractLocalSearchRequest) request;
+		return searchRequest.getFilterList().size() == 0 && searchRequest.getJoinList().size() == 0;
+	}
+
+	/**
+	 * Delete the documents found by the request. The document ids are
+	 * translated into unique keys using the reader which found them, then
+	 * the keys are deleted by the writer. The read-write IndexReader is only
+	 * used if some documents have no unique key. In that case, the search is
+	 * run again if a merge has renumbered the documents in the meantime.
+	 */
+	private int deleteDocumentsByIds(AbstractRequest request)
+			throws IOException, ParseException, SyntaxError, SearchLibException {
+		for (int i = 0; i < MAX_DELETE_BY_IDS_ATTEMPTS; i++) {
+			final int res = deleteDocumentsByIdsAttempt(request);
+			if (res >= 0)
+				return res;
+			reloadNoLock();
+		}
+		throw new SearchLibException("The index is changing too fast to delete the documents by id");
+	}
+
+	/**
+	 * @return the number of deleted documents, or -1 if the ids were not
+	 * applied because the index version has changed
+	 */
+	private int deleteDocumentsByIdsAttempt(AbstractRequest request)
+			throws IOException, ParseException, SyntaxError, SearchLibException {
+		final SchemaField uniqueField = request.getConfig().getSchema().getFieldList().getUniqueField();
+		final ReaderLocal reader = acquire();
 		try {
-			if (request instanceof AbstractLocalSearchRequest) {
-				DocSetHits dsh = reader.searchDocSet((AbstractLocalSearchRequest) request, null);
-				if (dsh != null)
-					return dsh.getIds();
-			} else if (request instanceof DocumentsRequest) {
-				ResultDocuments result = (ResultDocuments) reader.request(request);
-				if (result != null)
-					return result.getDocIdArray();
-			}
-			return null;
+			final long version = reader.getVersion();
+			final int[] ids = getIds(reader, request);
+			if (ids == null || ids.length == 0)
+				return 0;
+			if (uniqueField == null)
+				return writer.deleteDocuments(ids, version);
+			final String fieldName = uniqueField.getName();
+			final FieldCacheIndex stringIndex = reader.getStringIndex(fieldName);
+			for (int id : ids)
+				if (stringIndex.lookup[stringIndex.order[id]] == null)
+					return writer.deleteDocuments(ids, version);
+			// A reverse request may return most of the index: the terms are
+			// built and handed to the writer by batches.
+			return writer.deleteDocuments(indexWriter -> {
+				final Term[] terms = new Term[Math.min(ids.length, DELETE_TERMS_BATCH_SIZE)];
+				int i = 0;
+				for (int id : ids) {
+					terms[i++] = new Term(fieldName, stringIndex.lookup[stringIndex.order[id]]);
+					if (i == terms.length) {
+						indexWriter.deleteDocuments(terms);
+						i = 0;
+					}
+				}
+				if (i > 0)
+					indexWriter.deleteDocuments(Arrays.copyOf(terms, i));
+			});
 		} finally {
 			release(reader);
 		}
 	}
 
+	/**
+	 * Like the updates, each call commits its deletions and reloads the
+	 * reader, so the deleted documents are gone for the next search and the
+	 * returned count is exact. The reload is skipped when nothing has been
+	 * deleted. Callers deleting in batches should send large batches.
+	 */
 	@Override
 	public int deleteDocuments(AbstractRequest request) throws SearchLibException {
 		try {
 			checkOnline(true);
 			if (writer == null)
 				return 0;
-			int[] ids = getIds(request);
-			if (ids == null || ids.length == 0)
-				return 0;
-			int res = writer.deleteDocuments(ids);
-			reloadNoLock();
+			final int res;
+			if (request instanceof DocumentsRequest && !((DocumentsRequest) request).isReverse())
+				res = writer.deleteDocuments(getTerms((DocumentsRequest) request));
+			else if (isQueryOnly(request))
+				res = writer.deleteDocuments(((AbstractLocalSearchRequest) request).getQuery());
+			else
+				res = deleteDocumentsByIds(request);
+			// The current reader remains valid if nothing has been deleted
+			if (res > 0)
+				reloadNoLock();
 			return res;
 		} catch (IOException | ParseException | SyntaxError e) {
 			throw new SearchLibException(e);
@@ -379,8 +490,9 @@ public class IndexSingle extends IndexAbstract {
 
 	private synchronized void reloadNoLock() throws SearchLibException {
 		ReaderLocal oldReader = _reader;
+		indexDirectory.warm(indexConfig.getWarmExtensionSet());
 		try {
-			_reader = new ReaderLocal(indexConfig, indexDirectory);
+			_reader = new ReaderLocal(indexConfig, indexDirectory, moreLikeThisCache);
 		} catch (IOException e) {
 			throw new SearchLibException(e);
 		}
@@ -415,8 +527,56 @@ public class IndexSingle extends IndexAbstract {
 	public AbstractResult<?> request(AbstractRequest request) throws SearchLibException {
 		checkOnline(true);
 		ReaderLocal reader = acquire();
+		MergeThrottle.INSTANCE.searchStarted();
+		final IOStatisticsDirectory ioStatistics = indexDirectory.getIOStatistics();
+		final long[] ioCounters = ioStatistics == null ? null : IOStatisticsDirectory.getThreadCounters();
+		try {
+			final AbstractResult<?> result = reader.request(request);
+			if (result != null)
+				IOStatisticsDirectory.addTimer(result.getTimer(), ioCounters);
+			return result;
+		} finally {
+			MergeThrottle.INSTANCE.searchEnded();
+			release(reader);
+		}
+	}
+
+	@Override
+	public SearchCursor openCursor(AbstractLocalSearchRequest request, Integer ttlSeconds)
+			throws SearchLibException {
+		checkOnline(true);
+		ReaderLocal reader = acquire();
+		try {
+			AbstractResult<?> result = reader.request(request);
+			if (!(result instanceof ResultSearchSingle))
+				throw new SearchLibException("This request does not support cursors");
+			SearchCursor cursor = cursorManager.open(reader, (ResultSearchSingle) result, ttlSeconds);
+			// The cursor owns the reader reference now
+			reader = null;
+			return cursor;
+		} finally {
+			if (reader != null)
+				release(reader);
+		}
+	}
+
+	@Override
+	public SearchCursor getCursor(String cursorId) {
+		return cursorManager.get(cursorId);
+	}
+
+	@Override
+	public boolean closeCursor(String cursorId) {
+		return cursorManager.close(cursorId);
+	}
+
+	@Override
+	public int export(AbstractLocalSearchRequest request, Set<String> fieldNameSet,
+			FunctionUtils.ConsumerEx<Document, IOException> consumer) throws IOException, SearchLibException {
+		checkOnline(true);
+		ReaderLocal reader = acquire();
 		try {
-			return reader.request(request);
+			return reader.export(request, fieldNameSet, consumer);
 		} finally {
 			release(reader);
 		}
@@ -445,12 +605,17 @@ public class IndexSingle extends IndexAbstract {
 	@Override
 	public IndexStatistics getStatistics() throws IOException, SearchLibException {
 		checkOnline(true);
+		final IndexStatistics statistics;
 		ReaderLocal reader = acquire();
 		try {
-			return reader.getStatistics();
+			statistics = reader.getStatistics();
 		} finally {
 			release(reader);
 		}
+		if (writer != null)
+			statistics.setMerges(writer.getMergeScheduler());
+		statistics.setIOStatistics(indexDirectory.getIOStatistics());
+		return statistics;
 	}
 
 	@Override
@@ -593,6 +758,8 @@ public class IndexSingle extends IndexAbstract {
 		else {
 			IOUtils.close(_reader);
 			_reader = null;
+			if (writer != null)
+				writer.close();
 		}
 	}
 
@@ -617,6 +784,16 @@ public class IndexSingle extends IndexAbstract {
 		}
 	}
 
+	public ResultSearchCache getResultCache() throws SearchLibException {
+		checkOnline(true);
+		ReaderLocal reader = acquire();
+		try {
+			return reader.getResultSearchCache();
+		} finally {
+			release(reader);
+		}
+	}
+
 	@Override
 	public String[] getDocTerms(String field) throws SearchLibException, IOException {
 		checkOnline(true);
@@ -680,6 +857,17 @@ public class IndexSingle extends IndexAbstract {
 		}
 	}
 
+	@Override
+	public Query getMoreLikeThisQuery(MoreLikeThisRequest request) throws SearchLibException {
+		checkOnline(true);
+		ReaderLocal reader = acquire();
+		try {
+			return reader.getMoreLikeThisQuery(request);
+		} finally {
+			release(reader);
+		}
+	}
+
 	@Override
 	public MoreLikeThis getMoreLikeThis() throws SearchLibException {
 		checkOnline(true);
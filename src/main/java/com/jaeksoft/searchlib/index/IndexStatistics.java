@@ -26,6 +26,7 @@ package com.jaeksoft.searchlib.index;
 
 import java.io.IOException;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.lucene.index.IndexReader;
 
 public class IndexStatistics {
@@ -35,6 +36,11 @@ public class IndexStatistics {
 	private int numDeletedDocs;
 	private boolean hasDeletions;
 	private boolean isOptimized;
+	private int runningMerges;
+	private long doneMerges;
+	private long mergedBytes;
+	private String mergeProgress;
+	private String ioStatistics;
 
 	protected IndexStatistics() {
 		maxDoc = 0;
@@ -42,6 +48,11 @@ public class IndexStatistics {
 		numDeletedDocs = 0;
 		hasDeletions = false;
 		isOptimized = false;
+		runningMerges = 0;
+		doneMerges = 0;
+		mergedBytes = 0;
+		mergeProgress = null;
+		ioStatistics = null;
 	}
 
 	protected IndexStatistics(IndexReader indexReader) {
@@ -50,6 +61,24 @@ public class IndexStatistics {
 		numDeletedDocs = indexReader.numDeletedDocs();
 		hasDeletions = indexReader.hasDeletions();
 		isOptimized = indexReader.isOptimized();
+		runningMerges = 0;
+		doneMerges = 0;
+		mergedBytes = 0;
+		mergeProgress = null;
+		ioStatistics = null;
+	}
+
+	protected void setMerges(ThrottledMergeScheduler mergeScheduler) {
+		if (mergeScheduler == null)
+			return;
+		runningMerges = mergeScheduler.getRunningMerges();
+		doneMerges = mergeScheduler.getDoneMerges();
+		mergedBytes = mergeScheduler.getWrittenBytes();
+		mergeProgress = mergeScheduler.getProgressInfo();
+	}
+
+	protected void setIOStatistics(IOStatisticsDirectory ioStatisticsDirectory) {
+		ioStatistics = ioStatisticsDirectory == null ? null : ioStatisticsDirectory.getInfo();
 	}
 
 	protected void add(IndexStatistics stats) {
@@ -60,6 +89,9 @@ public class IndexStatistics {
 			hasDeletions = stats.hasDeletions;
 		if (stats.isOptimized)
 			isOptimized = stats.isOptimized;
+		runningMerges += stats.runningMerges;
+		doneMerges += stats.doneMerges;
+		mergedBytes += stats.mergedBytes;
 	}
 
 	final public int getMaxDoc() throws IOException {
@@ -82,4 +114,38 @@ public class IndexStatistics {
 		return isOptimized;
 	}
 
+	final public int getRunningMerges() {
+		return runningMerges;
+	}
+
+	final public long getDoneMerges() {
+		return doneMerges;
+	}
+
+	/**
+	 * @return the number of bytes written by the merges since the index was
+	 *         opened
+	 */
+	final public long getMergedBytes() {
+		return mergedBytes;
+	}
+
+	final public String getMergedSize() {
+		return FileUtils.byteCountToDisplaySize(mergedBytes);
+	}
+
+	/**
+	 * @return the progress of the running merges
+	 */
+	final public String getMergeProgress() {
+		return mergeProgress;
+	}
+
+	/**
+	 * @return the bytes read per file type, if the I/O statistics are enabled
+	 */
+	final public String getIoStatistics() {
+		return ioStatistics;
+	}
+
 }
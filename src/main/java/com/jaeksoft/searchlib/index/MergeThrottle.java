@@ -0,0 +1,125 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.index;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits the write rate of the merges of all the indexes of the node. While
+ * searches are running, the lower "search" rate applies, so the merges leave
+ * the disk to the searches.
+ */
+public class MergeThrottle {
+
+	public final static MergeThrottle INSTANCE = new MergeThrottle();
+
+	private final static long MB = 1024 * 1024;
+
+	private final AtomicInteger runningSearches;
+
+	private final AtomicLong pausedNanos;
+
+	private volatile int maxWriteMBPerSec;
+
+	private volatile int searchWriteMBPerSec;
+
+	private long nextNanos;
+
+	private MergeThrottle() {
+		runningSearches = new AtomicInteger();
+		pausedNanos = new AtomicLong();
+		maxWriteMBPerSec = 0;
+		searchWriteMBPerSec = 0;
+		nextNanos = System.nanoTime();
+	}
+
+	/**
+	 * @param maxWriteMBPerSec    the maximum write rate of the merges, null or 0
+	 *                            means unlimited
+	 * @param searchWriteMBPerSec the maximum write rate of the merges while
+	 *                            searches are running, null or 0 means the
+	 *                            maximum write rate applies
+	 */
+	public void setRates(Integer maxWriteMBPerSec, Integer searchWriteMBPerSec) {
+		this.maxWriteMBPerSec = maxWriteMBPerSec == null ? 0 : maxWriteMBPerSec;
+		this.searchWriteMBPerSec = searchWriteMBPerSec == null ? 0 : searchWriteMBPerSec;
+	}
+
+	public void searchStarted() {
+		runningSearches.incrementAndGet();
+	}
+
+	public void searchEnded() {
+		runningSearches.decrementAndGet();
+	}
+
+	/**
+	 * @return the number of searches currently running on the node
+	 */
+	public int getRunningSearches() {
+		return runningSearches.get();
+	}
+
+	/**
+	 * @return the current rate limit in MB per second, or 0 if unlimited
+	 */
+	public int getCurrentWriteMBPerSec() {
+		final int max = maxWriteMBPerSec;
+		final int search = searchWriteMBPerSec;
+		if (search <= 0 || runningSearches.get() == 0)
+			return max;
+		return max <= 0 ? search : Math.min(max, search);
+	}
+
+	public long getPausedMillis() {
+		return pausedNanos.get() / 1000000;
+	}
+
+	/**
+	 * Called by the merge threads after writing some bytes. Blocks the thread
+	 * as long as the rate limit is exceeded.
+	 *
+	 * @param bytes the number of bytes written
+	 * @throws InterruptedException if the merge thread was interrupted
+	 */
+	void pause(long bytes) throws InterruptedException {
+		final int rate = getCurrentWriteMBPerSec();
+		if (rate <= 0)
+			return;
+		final long duration = bytes * 1000000000L / (rate * MB);
+		final long now = System.nanoTime();
+		final long waitNanos;
+		synchronized (this) {
+			final long start = Math.max(nextNanos, now);
+			nextNanos = start + duration;
+			waitNanos = start - now;
+		}
+		if (waitNanos <= 0)
+			return;
+		pausedNanos.addAndGet(waitNanos);
+		Thread.sleep(waitNanos / 1000000, (int) (waitNanos % 1000000));
+	}
+}
@@ -0,0 +1,139 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.index;
+
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IndexOutput;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+/**
+ * The directory given to the IndexWriter. The files created by a merge
+ * thread are counted in the merge progress and throttled by the
+ * MergeThrottle. Everything else is delegated as is.
+ */
+public class MergeThrottledDirectory extends DelegatingDirectory {
+
+	// The throttle is called every 64KB
+	private final static int PAUSE_BYTES = 65536;
+
+	public MergeThrottledDirectory(Directory directory) {
+		super(directory);
+	}
+
+	@Override
+	public IndexOutput createOutput(String name) throws IOException {
+		final IndexOutput output = directory.createOutput(name);
+		final ThrottledMergeScheduler.Progress progress = ThrottledMergeScheduler.current();
+		return progress == null ? output : new ThrottledOutput(output, progress);
+	}
+
+	/**
+	 * The wrapped directory belongs to the IndexDirectory, which closes it
+	 */
+	@Override
+	public void close() throws IOException {
+	}
+
+	private static class ThrottledOutput extends IndexOutput {
+
+		private final IndexOutput output;
+		private final ThrottledMergeScheduler.Progress progress;
+		private long pending;
+
+		private ThrottledOutput(IndexOutput output, ThrottledMergeScheduler.Progress progress) {
+			this.output = output;
+			this.progress = progress;
+			this.pending = 0;
+		}
+
+		private void written(long bytes) throws IOException {
+			pending += bytes;
+			if (pending < PAUSE_BYTES)
+				return;
+			pause();
+		}
+
+		private void pause() throws IOException {
+			progress.written(pending);
+			try {
+				MergeThrottle.INSTANCE.pause(pending);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Merge interrupted");
+			} finally {
+				pending = 0;
+			}
+		}
+
+		@Override
+		public void writeByte(byte b) throws IOException {
+			output.writeByte(b);
+			written(1);
+		}
+
+		@Override
+		public void writeBytes(byte[] b, int offset, int length) throws IOException {
+			output.writeBytes(b, offset, length);
+			written(length);
+		}
+
+		@Override
+		public void flush() throws IOException {
+			output.flush();
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				output.close();
+			} finally {
+				progress.written(pending);
+				pending = 0;
+			}
+		}
+
+		@Override
+		public long getFilePointer() {
+			return output.getFilePointer();
+		}
+
+		@Override
+		public void seek(long pos) throws IOException {
+			output.seek(pos);
+		}
+
+		@Override
+		public long length() throws IOException {
+			return output.length();
+		}
+
+		@Override
+		public void setLength(long length) throws IOException {
+			output.setLength(length);
+		}
+	}
+}
@@ -0,0 +1,75 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.index;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.Query;
+
+import com.jaeksoft.searchlib.SearchLibException;
+import com.jaeksoft.searchlib.cache.LRUCache;
+import com.jaeksoft.searchlib.request.MoreLikeThisRequest;
+
+/**
+ * Keeps the generated MoreLikeThis queries. The queries seeded by a document
+ * are identified by the segment of the document: they survive the reopening of
+ * the index as long as the segment is not merged.
+ */
+public class MoreLikeThisCache extends LRUCache<MoreLikeThisCacheItem> {
+
+	public MoreLikeThisCache(int maxSize) {
+		super("More like this", maxSize);
+	}
+
+	/**
+	 * @param segment
+	 *            the name of the segment of the seed document (or null)
+	 * @param docId
+	 *            the id of the seed document in the segment (-1 for a text
+	 *            seed)
+	 * @param likeText
+	 *            the seed text (null for a document seed)
+	 * @param indexReader
+	 *            the reader used to build the query
+	 * @param readerDocId
+	 *            the id of the seed document in the reader
+	 * @param request
+	 *            the request
+	 * @return the query
+	 * @throws SearchLibException
+	 */
+	public Query get(String segment, int docId, String likeText,
+			IndexReader indexReader, int readerDocId,
+			MoreLikeThisRequest request) throws SearchLibException {
+		MoreLikeThisCacheItem item = new MoreLikeThisCacheItem(segment, docId,
+				likeText, indexReader, readerDocId, request);
+		try {
+			return getAndJoin(item, null).getQuery();
+		} catch (Exception e) {
+			remove(item);
+			throw new SearchLibException(e);
+		}
+	}
+
+}
@@ -0,0 +1,110 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.index;
+
+import java.io.StringReader;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.similar.MoreLikeThis;
+
+import com.jaeksoft.searchlib.cache.LRUItemAbstract;
+import com.jaeksoft.searchlib.request.MoreLikeThisRequest;
+import com.jaeksoft.searchlib.util.StringUtils;
+import com.jaeksoft.searchlib.util.Timer;
+
+public class MoreLikeThisCacheItem extends
+		LRUItemAbstract<MoreLikeThisCacheItem> {
+
+	private final String segment;
+	private final int docId;
+	private final String likeText;
+	private final String key;
+
+	private IndexReader indexReader;
+	private MoreLikeThisRequest request;
+	private int readerDocId;
+
+	private Query query;
+
+	/**
+	 * @param segment
+	 *            the name of the segment of the seed document (or null)
+	 * @param docId
+	 *            the id of the seed document in the segment (-1 for a text
+	 *            seed)
+	 * @param likeText
+	 *            the seed text (null for a document seed)
+	 * @param indexReader
+	 *            the reader used to build the query
+	 * @param readerDocId
+	 *            the id of the seed document in the reader
+	 * @param request
+	 *            the request
+	 */
+	MoreLikeThisCacheItem(String segment, int docId, String likeText,
+			IndexReader indexReader, int readerDocId,
+			MoreLikeThisRequest request) {
+		this.segment = segment;
+		this.docId = docId;
+		this.likeText = likeText;
+		this.key = request.getMoreLikeThisKey();
+		this.indexReader = indexReader;
+		this.readerDocId = readerDocId;
+		this.request = request;
+		this.query = null;
+	}
+
+	@Override
+	public int compareTo(MoreLikeThisCacheItem i) {
+		if (docId != i.docId)
+			return docId < i.docId ? -1 : 1;
+		int c = StringUtils.compareNullString(segment, i.segment);
+		if (c != 0)
+			return c;
+		c = StringUtils.compareNullString(likeText, i.likeText);
+		if (c != 0)
+			return c;
+		return StringUtils.compareNullString(key, i.key);
+	}
+
+	@Override
+	protected void populate(Timer timer) throws Exception {
+		try {
+			MoreLikeThis mlt = new MoreLikeThis(indexReader);
+			request.configure(mlt);
+			query = likeText != null ? mlt.like(new StringReader(likeText))
+					: mlt.like(readerDocId);
+		} finally {
+			// The cache outlives the reader
+			indexReader = null;
+			request = null;
+		}
+	}
+
+	public Query getQuery() {
+		return query;
+	}
+}
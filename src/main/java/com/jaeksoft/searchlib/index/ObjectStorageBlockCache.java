@@ -0,0 +1,417 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.index;
+
+import com.jaeksoft.searchlib.Logging;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A two level cache of fixed size blocks of remote objects. The most recently
+ * used blocks are kept in memory, the others are persisted in a local
+ * directory, and both levels are bounded by a byte budget. Missing blocks are
+ * fetched using range requests. When an input reads its blocks sequentially,
+ * the following blocks are fetched by the same request (read-ahead).
+ * <p>
+ * A block is identified by the name, the length and the modification time of
+ * its object, so a recreated object never hits a stale block.
+ */
+public class ObjectStorageBlockCache {
+
+	public interface RangeReader {
+
+		/**
+		 * Read exactly length bytes of the object, starting at offset
+		 */
+		void read(String name, long offset, byte[] buffer, int length) throws IOException;
+	}
+
+	private final static String BLOCK_EXTENSION = ".blk";
+	private final static String TEMP_EXTENSION = ".tmp";
+
+	private final RangeReader rangeReader;
+	private final File cacheDirectory;
+	private final int blockSize;
+	private final long memoryBudget;
+	private final long diskBudget;
+	private final int readAhead;
+
+	private final LinkedHashMap<String, byte[]> memoryBlocks;
+	private long memorySize;
+
+	private final LinkedHashMap<String, Integer> diskBlocks;
+	private long diskSize;
+
+	private final AtomicLong memoryHits;
+	private final AtomicLong diskHits;
+	private final AtomicLong misses;
+	private final AtomicLong fetchedBytes;
+
+	/**
+	 * @param rangeReader    the reader used to fetch the missing blocks
+	 * @param cacheDirectory the directory of the disk level (may be null)
+	 * @param blockSize      the size of the blocks in bytes
+	 * @param memoryBudget   the maximum size of the memory level in bytes
+	 * @param diskBudget     the maximum size of the disk level in bytes
+	 * @param readAhead      the number of blocks fetched ahead on sequential reads
+	 */
+	public ObjectStorageBlockCache(final RangeReader rangeReader, final File cacheDirectory, final int blockSize,
+			final long memoryBudget, final long diskBudget, final int readAhead) {
+		if (blockSize <= 0)
+			throw new IllegalArgumentException("Wrong block size: " + blockSize);
+		this.rangeReader = rangeReader;
+		this.blockSize = blockSize;
+		this.memoryBudget = memoryBudget;
+		this.diskBudget = cacheDirectory == null ? 0 : diskBudget;
+		this.cacheDirectory = this.diskBudget > 0 ? cacheDirectory : null;
+		this.readAhead = readAhead < 0 ? 0 : readAhead;
+		this.memoryBlocks = new LinkedHashMap<>(16, 0.75f, true);
+		this.memorySize = 0;
+		this.diskBlocks = new LinkedHashMap<>(16, 0.75f, true);
+		this.diskSize = 0;
+		this.memoryHits = new AtomicLong();
+		this.diskHits = new AtomicLong();
+		this.misses = new AtomicLong();
+		this.fetchedBytes = new AtomicLong();
+		if (this.cacheDirectory != null)
+			loadDiskBlocks();
+	}
+
+	/**
+	 * Register the blocks persisted by a previous instance, the oldest first
+	 */
+	private void loadDiskBlocks() {
+		if (!cacheDirectory.exists())
+			cacheDirectory.mkdirs();
+		final File[] files = cacheDirectory.listFiles();
+		if (files == null)
+			return;
+		Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+		synchronized (this) {
+			for (File file : files) {
+				final String fileName = file.getName();
+				if (fileName.endsWith(TEMP_EXTENSION)) {
+					file.delete();
+					continue;
+				}
+				if (!fileName.endsWith(BLOCK_EXTENSION))
+					continue;
+				final int size = (int) file.length();
+				diskBlocks.put(fileName.substring(0, fileName.length() - BLOCK_EXTENSION.length()), size);
+				diskSize += size;
+			}
+			evictDisk();
+		}
+	}
+
+	public int getBlockSize() {
+		return blockSize;
+	}
+
+	/**
+	 * @return an identifier of the current version of an object
+	 */
+	public static String getObjectKey(final String name, final long length, final Long lastModified) {
+		try {
+			return URLEncoder.encode(name, "UTF-8") + '~' + length + '~' + (lastModified == null ? 0 : lastModified);
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static String getBlockKey(final String objectKey, final long blockIndex) {
+		return objectKey + '~' + blockIndex;
+	}
+
+	private int getBlockLength(final long objectLength, final long blockIndex) {
+		return (int) Math.min(blockSize, objectLength - blockIndex * blockSize);
+	}
+
+	/**
+	 * Copy a range of an object.
+	 *
+	 * @param name         the name of the object
+	 * @param objectKey    the key returned by getObjectKey
+	 * @param objectLength the length of the object
+	 * @param position     the position of the first byte to read
+	 * @param bytes        the destination array
+	 * @param offset       the offset in the destination array
+	 * @param length       the number of bytes to read
+	 * @param sequential   true if the previous read of the input ended in the
+	 *                     previous block
+	 * @throws IOException if the object can't be read
+	 */
+	public void read(final String name, final String objectKey, final long objectLength, long position,
+			final byte[] bytes, int offset, int length, boolean sequential) throws IOException {
+		if (position + length > objectLength)
+			throw new EOFException("Read past EOF: " + name);
+		while (length > 0) {
+			final long blockIndex = position / blockSize;
+			final int blockOffset = (int) (position - blockIndex * blockSize);
+			final byte[] block = getBlock(name, objectKey, objectLength, blockIndex, sequential);
+			final int count = Math.min(length, block.length - blockOffset);
+			if (count <= 0)
+				throw new EOFException("Read past EOF: " + name);
+			System.arraycopy(block, blockOffset, bytes, offset, count);
+			position += count;
+			offset += count;
+			length -= count;
+			sequential = true;
+		}
+	}
+
+	private byte[] getBlock(final String name, final String objectKey, final long objectLength,
+			final long blockIndex, final boolean sequential) throws IOException {
+		final String blockKey = getBlockKey(objectKey, blockIndex);
+		final int blockLength = getBlockLength(objectLength, blockIndex);
+		byte[] block = getMemory(blockKey);
+		if (block != null) {
+			memoryHits.incrementAndGet();
+			return block;
+		}
+		block = readDisk(blockKey, blockLength);
+		if (block != null) {
+			diskHits.incrementAndGet();
+			putMemory(blockKey, block);
+			return block;
+		}
+		misses.incrementAndGet();
+		return fetch(name, objectKey, objectLength, blockIndex, sequential ? readAhead : 0);
+	}
+
+	/**
+	 * Fetch a block, and the following missing blocks if requested, using one
+	 * range request
+	 */
+	private byte[] fetch(final String name, final String objectKey, final long objectLength, final long blockIndex,
+			final int ahead) throws IOException {
+		final long lastBlockIndex = (objectLength - 1) / blockSize;
+		long endBlockIndex = blockIndex + 1;
+		while (endBlockIndex <= lastBlockIndex && endBlockIndex - blockIndex <= ahead &&
+				!isCached(getBlockKey(objectKey, endBlockIndex)))
+			endBlockIndex++;
+		final long start = blockIndex * blockSize;
+		final long end = Math.min(objectLength, endBlockIndex * blockSize);
+		final byte[] buffer = new byte[(int) (end - start)];
+		rangeReader.read(name, start, buffer, buffer.length);
+		fetchedBytes.addAndGet(buffer.length);
+		byte[] first = null;
+		int pos = 0;
+		for (long i = blockIndex; i < endBlockIndex; i++) {
+			final int blockLength = getBlockLength(objectLength, i);
+			final byte[] block = Arrays.copyOfRange(buffer, pos, pos + blockLength);
+			pos += blockLength;
+			final String blockKey = getBlockKey(objectKey, i);
+			putMemory(blockKey, block);
+			writeDisk(blockKey, block);
+			if (first == null)
+				first = block;
+		}
+		return first;
+	}
+
+	/**
+	 * Store the content of a local copy of an object in the disk level. Used
+	 * when an object has just been uploaded.
+	 */
+	public void put(final String objectKey, final File file) throws IOException {
+		if (cacheDirectory == null)
+			return;
+		final long objectLength = file.length();
+		try (final InputStream input = Files.newInputStream(file.toPath())) {
+			long blockIndex = 0;
+			for (long pos = 0; pos < objectLength; pos += blockSize) {
+				final byte[] block = new byte[getBlockLength(objectLength, blockIndex)];
+				int read = 0;
+				while (read < block.length) {
+					final int n = input.read(block, read, block.length - read);
+					if (n == -1)
+						throw new EOFException("Unexpected end of file: " + file);
+					read += n;
+				}
+				writeDisk(getBlockKey(objectKey, blockIndex++), block);
+			}
+		}
+	}
+
+	/**
+	 * Remove all the blocks of an object
+	 */
+	public void invalidate(final String name) {
+		final String prefix;
+		try {
+			prefix = URLEncoder.encode(name, "UTF-8") + '~';
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
+		synchronized (this) {
+			final Iterator<Map.Entry<String, byte[]>> memoryIterator = memoryBlocks.entrySet().iterator();
+			while (memoryIterator.hasNext()) {
+				final Map.Entry<String, byte[]> entry = memoryIterator.next();
+				if (entry.getKey().startsWith(prefix)) {
+					memorySize -= entry.getValue().length;
+					memoryIterator.remove();
+				}
+			}
+			final Iterator<Map.Entry<String, Integer>> diskIterator = diskBlocks.entrySet().iterator();
+			while (diskIterator.hasNext()) {
+				final Map.Entry<String, Integer> entry = diskIterator.next();
+				if (entry.getKey().startsWith(prefix)) {
+					diskSize -= entry.getValue();
+					diskIterator.remove();
+					getBlockFile(entry.getKey()).delete();
+				}
+			}
+		}
+	}
+
+	private synchronized boolean isCached(final String blockKey) {
+		return memoryBlocks.containsKey(blockKey) || diskBlocks.containsKey(blockKey);
+	}
+
+	private synchronized byte[] getMemory(final String blockKey) {
+		return memoryBlocks.get(blockKey);
+	}
+
+	private synchronized void putMemory(final String blockKey, final byte[] block) {
+		if (block.length > memoryBudget)
+			return;
+		final byte[] previous = memoryBlocks.put(blockKey, block);
+		if (previous != null)
+			memorySize -= previous.length;
+		memorySize += block.length;
+		final Iterator<byte[]> iterator = memoryBlocks.values().iterator();
+		while (memorySize > memoryBudget && iterator.hasNext()) {
+			memorySize -= iterator.next().length;
+			iterator.remove();
+		}
+	}
+
+	private File getBlockFile(final String blockKey) {
+		return new File(cacheDirectory, blockKey + BLOCK_EXTENSION);
+	}
+
+	private byte[] readDisk(final String blockKey, final int blockLength) {
+		if (cacheDirectory == null)
+			return null;
+		synchronized (this) {
+			if (diskBlocks.get(blockKey) == null)
+				return null;
+		}
+		try {
+			final byte[] block = Files.readAllBytes(getBlockFile(blockKey).toPath());
+			if (block.length == blockLength)
+				return block;
+		} catch (IOException e) {
+			// The block has been evicted concurrently, or the file is damaged
+		}
+		removeDisk(blockKey);
+		return null;
+	}
+
+	private void writeDisk(final String blockKey, final byte[] block) {
+		if (cacheDirectory == null || block.length > diskBudget)
+			return;
+		final File blockFile = getBlockFile(blockKey);
+		final File tempFile = new File(cacheDirectory, blockKey + TEMP_EXTENSION);
+		try {
+			Files.write(tempFile.toPath(), block);
+			Files.move(tempFile.toPath(), blockFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			Logging.warn("Cannot write the block " + blockFile, e);
+			tempFile.delete();
+			return;
+		}
+		synchronized (this) {
+			final Integer previous = diskBlocks.put(blockKey, block.length);
+			if (previous != null)
+				diskSize -= previous;
+			diskSize += block.length;
+			evictDisk();
+		}
+	}
+
+	private synchronized void removeDisk(final String blockKey) {
+		final Integer size = diskBlocks.remove(blockKey);
+		if (size != null)
+			diskSize -= size;
+		getBlockFile(blockKey).delete();
+	}
+
+	private void evictDisk() {
+		final Iterator<Map.Entry<String, Integer>> iterator = diskBlocks.entrySet().iterator();
+		while (diskSize > diskBudget && iterator.hasNext()) {
+			final Map.Entry<String, Integer> entry = iterator.next();
+			diskSize -= entry.getValue();
+			iterator.remove();
+			getBlockFile(entry.getKey()).delete();
+		}
+	}
+
+	/**
+	 * Release the memory level. The disk level is kept for the next instance.
+	 */
+	public synchronized void clear() {
+		memoryBlocks.clear();
+		memorySize = 0;
+	}
+
+	public long getMemoryHits() {
+		return memoryHits.get();
+	}
+
+	public long getDiskHits() {
+		return diskHits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public long getFetchedBytes() {
+		return fetchedBytes.get();
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "memory: " + memorySize + '/' + memoryBudget + " (" + memoryHits.get() + " hits) - disk: " +
+				diskSize + '/' + diskBudget + " (" + diskHits.get() + " hits) - misses: " + misses.get() +
+				" - fetched: " + fetchedBytes.get();
+	}
+}
@@ -24,13 +24,15 @@
 
 package com.jaeksoft.searchlib.index;
 
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.RandomAccessFile;
 import java.util.List;
 
 import org.apache.commons.collections.CollectionUtils;
-import org.apache.commons.lang3.ArrayUtils;
+import org.apache.lucene.store.BufferedIndexInput;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.IndexInput;
 import org.apache.lucene.store.IndexOutput;
@@ -43,32 +45,104 @@ import com.jaeksoft.searchlib.cache.LRUItemAbstract;
 import com.jaeksoft.searchlib.crawler.file.process.fileInstances.swift.SwiftProtocol;
 import com.jaeksoft.searchlib.crawler.file.process.fileInstances.swift.SwiftProtocol.ObjectMeta;
 import com.jaeksoft.searchlib.crawler.file.process.fileInstances.swift.SwiftToken;
-import com.jaeksoft.searchlib.crawler.web.spider.DownloadItem;
 import com.jaeksoft.searchlib.crawler.web.spider.HttpDownloader;
 import com.jaeksoft.searchlib.util.ExceptionUtils;
 import com.jaeksoft.searchlib.util.IOUtils;
 import com.jaeksoft.searchlib.util.StringUtils;
 import com.jaeksoft.searchlib.util.Timer;
-import com.jaeksoft.searchlib.util.array.BytesOutputStream;
 
+/**
+ * A Lucene directory stored in an Object Storage container. The files are
+ * never loaded as a whole: inputs read fixed size blocks through an
+ * ObjectStorageBlockCache, and outputs are spooled to a local temporary file
+ * which is uploaded when the output is closed.
+ */
 public class ObjectStorageDirectory extends Directory {
 
+	public final static int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+	public final static long DEFAULT_MEMORY_BUDGET = 64L * 1024 * 1024;
+	public final static long DEFAULT_DISK_BUDGET = 2048L * 1024 * 1024;
+	public final static int DEFAULT_READ_AHEAD = 4;
+
 	private final HttpDownloader httpDownloader;
 	private final SwiftToken swiftToken;
 	private final String container;
-	private final ByteCache inputCache;
+	private final MetaCache metaCache;
+	private final ObjectStorageBlockCache blockCache;
+	private final File spoolDirectory;
 	private String[] listAllCache;
 
 	public ObjectStorageDirectory(HttpDownloader httpDownloader,
 			SwiftToken token, String container) throws SearchLibException {
+		this(httpDownloader, token, container, null, DEFAULT_BLOCK_SIZE,
+				DEFAULT_MEMORY_BUDGET, 0, DEFAULT_READ_AHEAD);
+	}
+
+	/**
+	 * @param httpDownloader the HTTP client
+	 * @param token          the authentication token
+	 * @param container      the name of the container
+	 * @param cacheDirectory the local directory used by the disk level of the
+	 *                       block cache and by the spooled outputs (may be
+	 *                       null)
+	 * @param blockSize      the size of the blocks in bytes
+	 * @param memoryBudget   the size of the memory level in bytes
+	 * @param diskBudget     the size of the disk level in bytes
+	 * @param readAhead      the number of blocks read ahead on sequential
+	 *                       reads
+	 * @throws SearchLibException
+	 */
+	public ObjectStorageDirectory(HttpDownloader httpDownloader,
+			SwiftToken token, String container, File cacheDirectory,
+			int blockSize, long memoryBudget, long diskBudget, int readAhead)
+			throws SearchLibException {
 		this.httpDownloader = httpDownloader;
 		this.swiftToken = token;
 		this.container = container;
 		this.lockFactory = NoLockFactory.getNoLockFactory();
-		this.inputCache = new ByteCache(100);
+		this.metaCache = new MetaCache(1000);
+		this.blockCache = new ObjectStorageBlockCache(this::readRange,
+				cacheDirectory == null ? null : new File(cacheDirectory,
+						"blocks"), blockSize, memoryBudget, diskBudget,
+				readAhead);
+		if (cacheDirectory != null) {
+			spoolDirectory = new File(cacheDirectory, "spool");
+			if (!spoolDirectory.exists())
+				spoolDirectory.mkdirs();
+		} else
+			spoolDirectory = null;
 		this.listAllCache = null;
 	}
 
+	private void readRange(String name, long offset, byte[] buffer, int length)
+			throws IOException {
+		if (length == 0)
+			return;
+		InputStream inputStream = null;
+		try {
+			inputStream = SwiftProtocol.readObject(httpDownloader, swiftToken,
+					container, name, offset, offset + length - 1);
+			int pos = 0;
+			while (pos < length) {
+				int read = inputStream.read(buffer, pos, length - pos);
+				if (read == -1)
+					throw new IOException("Truncated range: " + name + " "
+							+ offset + " " + length);
+				pos += read;
+			}
+		} catch (IOException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new IOException(e);
+		} finally {
+			IOUtils.close(inputStream);
+		}
+	}
+
+	public ObjectStorageBlockCache getBlockCache() {
+		return blockCache;
+	}
+
 	@Override
 	public String[] listAll() throws IOException {
 		try {
@@ -90,7 +164,7 @@ public class ObjectStorageDirectory extends Directory {
 	@Override
 	public boolean fileExists(String name) throws IOException {
 		try {
-			return inputCache.get(name) != null;
+			return metaCache.get(name) != null;
 		} catch (FileNotFoundException e) {
 			return false;
 		}
@@ -112,7 +186,7 @@ public class ObjectStorageDirectory extends Directory {
 
 	@Override
 	final public long fileModified(final String name) throws IOException {
-		ByteCacheItem item = inputCache.get(name);
+		MetaCacheItem item = metaCache.get(name);
 		if (item.meta.lastModified == null)
 			throw new IOException("No lastModified information");
 		return item.meta.lastModified;
@@ -123,6 +197,7 @@ public class ObjectStorageDirectory extends Directory {
 		try {
 			SwiftProtocol.touchObject(httpDownloader, swiftToken, container,
 					name);
+			metaCache.remove(name);
 		} catch (IOException e) {
 			throw e;
 		} catch (Exception e) {
@@ -135,7 +210,8 @@ public class ObjectStorageDirectory extends Directory {
 		try {
 			SwiftProtocol.deleteObject(httpDownloader, swiftToken, container,
 					name);
-			inputCache.remove(name);
+			metaCache.remove(name);
+			blockCache.invalidate(name);
 			listAllCache = null;
 		} catch (IOException e) {
 			throw e;
@@ -146,7 +222,7 @@ public class ObjectStorageDirectory extends Directory {
 
 	@Override
 	public long fileLength(String name) throws IOException {
-		ByteCacheItem item = inputCache.get(name);
+		MetaCacheItem item = metaCache.get(name);
 		if (item.meta.contentLength == null)
 			throw new IOException("No contentLength information");
 		return item.meta.contentLength;
@@ -159,93 +235,77 @@ public class ObjectStorageDirectory extends Directory {
 
 	@Override
 	public IndexInput openInput(String name) throws IOException {
-		InputStream inputStream = null;
-		try {
-			ByteCacheItem item = inputCache.get(name);
-			if (item.bytes != null)
-				return new Input(name, item.bytes);
-
-			DownloadItem downloadItem = SwiftProtocol.readObject(
-					httpDownloader, swiftToken, container, name);
-			Long length = downloadItem.getContentLength();
-			if (length == null)
-				throw new IOException("No content length");
-			if (length > 0) {
-				inputStream = downloadItem.getContentInputStream();
-				item.bytes = IOUtils.toByteArray(inputStream);
-				inputStream.read();
-			} else
-				item.bytes = ArrayUtils.EMPTY_BYTE_ARRAY;
-			return new Input(name, item.bytes);
-		} catch (IOException e) {
-			throw e;
-		} catch (Exception e) {
-			throw new IOException(e);
-		} finally {
-			IOUtils.close(inputStream);
-		}
+		MetaCacheItem item = metaCache.get(name);
+		if (item.meta.contentLength == null)
+			throw new IOException("No content length");
+		return new Input(name, item.meta.contentLength,
+				ObjectStorageBlockCache.getObjectKey(name,
+						item.meta.contentLength, item.meta.lastModified));
 	}
 
 	@Override
 	public void close() throws IOException {
 		httpDownloader.release();
-		inputCache.clear();
+		metaCache.clear();
+		blockCache.clear();
 	}
 
-	public class Input extends IndexInput {
+	public class Input extends BufferedIndexInput {
 
-		private byte[] bytes;
-		private long pos;
+		private final String name;
+		private final long length;
+		private final String objectKey;
+		private long nextBlockIndex;
 
-		public Input(String path, byte[] bytes) {
-			super(StringUtils.fastConcat("ObjectStorage ", path));
-			this.bytes = bytes;
-			pos = 0;
+		public Input(String name, long length, String objectKey) {
+			super(StringUtils.fastConcat("ObjectStorage ", name));
+			this.name = name;
+			this.length = length;
+			this.objectKey = objectKey;
+			this.nextBlockIndex = -1;
 		}
 
 		@Override
-		public void close() throws IOException {
-			bytes = null;
+		protected void readInternal(byte[] b, int offset, int len)
+				throws IOException {
+			final long position = getFilePointer();
+			final int blockSize = blockCache.getBlockSize();
+			final long blockIndex = position / blockSize;
+			blockCache.read(name, objectKey, length, position, b, offset,
+					len, blockIndex == nextBlockIndex);
+			nextBlockIndex = (position + len) / blockSize;
+			if ((position + len) % blockSize != 0)
+				nextBlockIndex++;
 		}
 
 		@Override
-		public long getFilePointer() {
-			return pos;
+		protected void seekInternal(long pos) throws IOException {
 		}
 
 		@Override
-		public void seek(long pos) throws IOException {
-			this.pos = pos;
+		public void close() throws IOException {
 		}
 
 		@Override
 		public long length() {
-			return bytes == null ? 0 : bytes.length;
-		}
-
-		@Override
-		public byte readByte() throws IOException {
-			return bytes[(int) pos++];
-		}
-
-		@Override
-		public void readBytes(byte[] b, int offset, int len) throws IOException {
-			System.arraycopy(bytes, (int) pos, b, offset, len);
-			pos += len;
+			return length;
 		}
 	}
 
 	private class Output extends IndexOutput {
 
-		private BytesOutputStream bytes;
 		private final String pathName;
+		private File spoolFile;
+		private RandomAccessFile randomAccessFile;
 		private long pos;
 		private long length;
 
-		private Output(final String pathName) {
+		private Output(final String pathName) throws IOException {
 			this.pathName = pathName;
+			this.spoolFile = File.createTempFile("oss", ".spool",
+					spoolDirectory);
+			this.randomAccessFile = new RandomAccessFile(spoolFile, "rw");
 			this.pos = 0;
-			this.bytes = new BytesOutputStream();
 			this.length = 0;
 		}
 
@@ -256,23 +316,30 @@ public class ObjectStorageDirectory extends Directory {
 		@Override
 		public void close() throws IOException {
 			try {
-				if (bytes == null)
+				if (randomAccessFile == null)
 					return;
-				DownloadItem downloadItem = SwiftProtocol.writeObject(
-						httpDownloader, swiftToken, container, pathName, bytes);
-				ByteCacheItem item = new ByteCacheItem(pathName);
-				item.meta = new ObjectMeta(pathName, downloadItem);
-				if (length > 0)
-					item.bytes = bytes.toByteArray();
-				else
-					item.bytes = ArrayUtils.EMPTY_BYTE_ARRAY;
-				inputCache.put(item);
-				bytes = null;
-				length = 0;
+				randomAccessFile.close();
+				randomAccessFile = null;
+				SwiftProtocol.writeObject(httpDownloader, swiftToken,
+						container, pathName, spoolFile);
+				metaCache.remove(pathName);
+				blockCache.invalidate(pathName);
+				listAllCache = null;
+				// The new file is likely to be read soon
+				MetaCacheItem item = metaCache.get(pathName);
+				if (item.meta.contentLength != null
+						&& item.meta.contentLength == length)
+					blockCache.put(ObjectStorageBlockCache.getObjectKey(
+							pathName, length, item.meta.lastModified),
+							spoolFile);
 			} catch (IOException e) {
 				throw e;
 			} catch (Exception e) {
 				throw new IOException(e);
+			} finally {
+				if (randomAccessFile != null)
+					IOUtils.close(randomAccessFile);
+				spoolFile.delete();
 			}
 		}
 
@@ -283,6 +350,7 @@ public class ObjectStorageDirectory extends Directory {
 
 		@Override
 		public void seek(long pos) throws IOException {
+			randomAccessFile.seek(pos);
 			this.pos = pos;
 		}
 
@@ -293,40 +361,35 @@ public class ObjectStorageDirectory extends Directory {
 
 		@Override
 		public void setLength(long len) throws IOException {
-			if (len != length)
-				throw new IOException("SET LENGTH: " + len + " " + length);
+			randomAccessFile.setLength(len);
+			length = len;
 		}
 
 		@Override
 		public void writeByte(byte b) throws IOException {
-			if (pos == length)
-				bytes.write(b);
-			else
-				bytes.write((int) pos, b);
+			randomAccessFile.write(b);
 			pos++;
-			length++;
+			if (pos > length)
+				length = pos;
 		}
 
 		@Override
 		public void writeBytes(byte[] b, int offset, int len)
 				throws IOException {
-			if (pos == length)
-				bytes.write(b, offset, len);
-			else
-				bytes.write((int) pos, b, offset, len);
+			randomAccessFile.write(b, offset, len);
 			pos += len;
-			length += len;
+			if (pos > length)
+				length = pos;
 		}
 
 	}
 
-	private class ByteCacheItem extends LRUItemAbstract<ByteCacheItem> {
+	private class MetaCacheItem extends LRUItemAbstract<MetaCacheItem> {
 
 		private final String name;
 		private ObjectMeta meta;
-		private byte[] bytes = null;
 
-		private ByteCacheItem(String name) {
+		private MetaCacheItem(String name) {
 			this.name = name;
 			this.meta = null;
 		}
@@ -334,12 +397,11 @@ public class ObjectStorageDirectory extends Directory {
 		@Override
 		final public String toString() {
 			return meta == null ? "Empty" : StringUtils.fastConcat(
-					meta.contentLength, ' ', meta.lastModified, ' ',
-					bytes != null ? bytes.length : 0);
+					meta.contentLength, ' ', meta.lastModified);
 		}
 
 		@Override
-		public int compareTo(ByteCacheItem o) {
+		public int compareTo(MetaCacheItem o) {
 			return StringUtils.compareNullString(name, o.name);
 		}
 
@@ -349,15 +411,15 @@ public class ObjectStorageDirectory extends Directory {
 		}
 	}
 
-	private class ByteCache extends LRUCache<ByteCacheItem> {
+	private class MetaCache extends LRUCache<MetaCacheItem> {
 
-		private ByteCache(int maxSize) {
+		private MetaCache(int maxSize) {
 			super("ObjectStorage", maxSize);
 		}
 
-		private ByteCacheItem get(String name) throws IOException {
+		private MetaCacheItem get(String name) throws IOException {
 			try {
-				return getAndJoin(new ByteCacheItem(name), null);
+				return getAndJoin(new MetaCacheItem(name), null);
 			} catch (Exception e) {
 				throw ExceptionUtils.<IOException> throwException(e,
 						IOException.class);
@@ -365,7 +427,7 @@ public class ObjectStorageDirectory extends Directory {
 		}
 
 		private boolean remove(String name) {
-			return remove(new ByteCacheItem(name));
+			return remove(new MetaCacheItem(name));
 		}
 	}
 }
@@ -42,6 +42,7 @@ import com.jaeksoft.searchlib.index.docvalue.RadiansDocValue;
 import com.jaeksoft.searchlib.index.docvalue.ReverseOrderDocValue;
 import com.jaeksoft.searchlib.query.ParseException;
 import com.jaeksoft.searchlib.request.AbstractLocalSearchRequest;
+import com.jaeksoft.searchlib.result.ResultSearchSingle;
 import com.jaeksoft.searchlib.schema.SchemaField;
 import com.jaeksoft.searchlib.util.Timer;
 
@@ -70,6 +71,9 @@ public abstract class ReaderAbstract implements ReaderInterface {
 
 	public abstract int maxDoc() throws IOException;
 
+	public abstract ResultSearchSingle searchResult(AbstractLocalSearchRequest searchRequest)
+			throws SearchLibException;
+
 	final public DocValueInterface getDocValueInterface(final String field,
 			final DocValueType type) throws IOException {
 		FieldCacheIndex stringIndex = getStringIndex(field);
@@ -32,6 +32,7 @@ import com.jaeksoft.searchlib.function.expression.SyntaxError;
 import com.jaeksoft.searchlib.query.ParseException;
 import com.jaeksoft.searchlib.request.AbstractLocalSearchRequest;
 import com.jaeksoft.searchlib.request.AbstractRequest;
+import com.jaeksoft.searchlib.request.MoreLikeThisRequest;
 import com.jaeksoft.searchlib.result.AbstractResult;
 import com.jaeksoft.searchlib.schema.FieldValue;
 import com.jaeksoft.searchlib.schema.SchemaField;
@@ -96,6 +97,8 @@ public interface ReaderInterface {
 
 	MoreLikeThis getMoreLikeThis() throws SearchLibException;
 
+	Query getMoreLikeThisQuery(MoreLikeThisRequest request) throws SearchLibException;
+
 	AbstractResult<?> request(AbstractRequest request) throws SearchLibException;
 
 	String explain(AbstractRequest request, int docId, boolean bHtml) throws SearchLibException;
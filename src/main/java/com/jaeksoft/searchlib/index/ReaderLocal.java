@@ -27,6 +27,7 @@ package com.jaeksoft.searchlib.index;
 import com.jaeksoft.searchlib.ClientCatalog;
 import com.jaeksoft.searchlib.SearchLibException;
 import com.jaeksoft.searchlib.analysis.PerFieldAnalyzer;
+import com.jaeksoft.searchlib.authentication.AuthManager;
 import com.jaeksoft.searchlib.filter.FilterAbstract;
 import com.jaeksoft.searchlib.filter.FilterHits;
 import com.jaeksoft.searchlib.filter.FilterListExecutor;
@@ -34,11 +35,17 @@ import com.jaeksoft.searchlib.function.expression.SyntaxError;
 import com.jaeksoft.searchlib.query.ParseException;
 import com.jaeksoft.searchlib.request.AbstractLocalSearchRequest;
 import com.jaeksoft.searchlib.request.AbstractRequest;
+import com.jaeksoft.searchlib.request.AbstractSearchRequest;
+import com.jaeksoft.searchlib.request.MoreLikeThisRequest;
+import com.jaeksoft.searchlib.request.SearchPatternRequest;
 import com.jaeksoft.searchlib.result.AbstractResult;
+import com.jaeksoft.searchlib.result.AbstractResultSearch;
+import com.jaeksoft.searchlib.result.ResultSearchSingle;
 import com.jaeksoft.searchlib.schema.FieldValue;
 import com.jaeksoft.searchlib.schema.FieldValueItem;
 import com.jaeksoft.searchlib.schema.FieldValueOriginEnum;
 import com.jaeksoft.searchlib.schema.SchemaField;
+import com.jaeksoft.searchlib.snippet.SnippetOffsetCache;
 import com.jaeksoft.searchlib.spellcheck.SpellCheckCache;
 import com.jaeksoft.searchlib.util.IOUtils;
 import com.jaeksoft.searchlib.util.Timer;
@@ -49,11 +56,13 @@ import org.apache.lucene.document.FieldSelectorResult;
 import org.apache.lucene.document.Fieldable;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.MultiReader;
+import org.apache.lucene.index.SegmentReader;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.index.TermDocs;
 import org.apache.lucene.index.TermEnum;
 import org.apache.lucene.index.TermFreqVector;
 import org.apache.lucene.index.TermPositions;
+import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.Collector;
 import org.apache.lucene.search.Explanation;
 import org.apache.lucene.search.FieldCache.StringIndex;
@@ -62,6 +71,7 @@ import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Scorer;
 import org.apache.lucene.search.Similarity;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.similar.MoreLikeThis;
@@ -90,17 +100,36 @@ public class ReaderLocal extends ReaderAbstract implements ReaderInterface, Clos
 	private final IndexDirectory indexDirectory;
 	private final SpellCheckCache spellCheckCache;
 	private final DocSetHitsCache docSetHitsCache;
+	private final ResultSearchCache resultSearchCache;
+	private final SnippetOffsetCache snippetOffsetCache;
+	private final MoreLikeThisCache moreLikeThisCache;
+	private final MoreLikeThisCache segmentMoreLikeThisCache;
 
 	private final IndexSearcher indexSearcher;
 	private final IndexReader indexReader;
 	private final IndexReader[] indexReaders;
 	private final IndexDirectory[] indexDirectories;
 	private final AtomicInteger references;
-
-	ReaderLocal(IndexConfig indexConfig, IndexDirectory indexDirectory) throws IOException, SearchLibException {
+	private final String[] segmentNames;
+	private final int[] segmentStarts;
+
+	/**
+	 * @param indexConfig              the configuration of the index
+	 * @param indexDirectory           the directory of the index
+	 * @param segmentMoreLikeThisCache the MoreLikeThis cache shared by the
+	 *                                 successive readers of the index
+	 * @throws IOException
+	 * @throws SearchLibException
+	 */
+	ReaderLocal(IndexConfig indexConfig, IndexDirectory indexDirectory,
+			MoreLikeThisCache segmentMoreLikeThisCache) throws IOException, SearchLibException {
 		super(indexConfig);
 		spellCheckCache = new SpellCheckCache(100);
 		docSetHitsCache = new DocSetHitsCache(indexConfig);
+		resultSearchCache = new ResultSearchCache(indexConfig);
+		snippetOffsetCache = new SnippetOffsetCache(indexConfig.getSnippetOffsetCache());
+		moreLikeThisCache = new MoreLikeThisCache(100);
+		this.segmentMoreLikeThisCache = segmentMoreLikeThisCache;
 		this.indexDirectory = indexDirectory;
 		references = new AtomicInteger(0);
 		acquire();
@@ -126,6 +155,26 @@ public class ReaderLocal extends ReaderAbstract implements ReaderInterface, Clos
 		}
 		indexSearcher = new IndexSearcher(indexReader);
 
+		if (indexReaders == null && segmentMoreLikeThisCache != null) {
+			final List<IndexReader> subReaders = new ArrayList<>();
+			ReaderUtil.gatherSubReaders(subReaders, indexReader);
+			segmentNames = new String[subReaders.size()];
+			segmentStarts = new int[subReaders.size()];
+			int i = 0;
+			int start = 0;
+			for (IndexReader subReader : subReaders) {
+				// The name and the size identify the (immutable) segment
+				segmentNames[i] = subReader instanceof SegmentReader ?
+						((SegmentReader) subReader).getSegmentName() + ':' + subReader.maxDoc() :
+						null;
+				segmentStarts[i++] = start;
+				start += subReader.maxDoc();
+			}
+		} else {
+			segmentNames = null;
+			segmentStarts = null;
+		}
+
 		final Similarity similarity = indexConfig.getNewSimilarityInstance();
 		if (similarity != null)
 			indexSearcher.setSimilarity(similarity);
@@ -257,6 +306,31 @@ public class ReaderLocal extends ReaderAbstract implements ReaderInterface, Clos
 		return new MoreLikeThis(indexReader);
 	}
 
+	@Override
+	public Query getMoreLikeThisQuery(final MoreLikeThisRequest mltRequest) throws SearchLibException {
+		final String docQuery = mltRequest.getDocQuery();
+		if (docQuery != null && docQuery.length() > 0) {
+			final AbstractSearchRequest searchRequest = new SearchPatternRequest(mltRequest.getConfig());
+			searchRequest.setRows(1);
+			searchRequest.setQueryString(docQuery);
+			final AbstractResultSearch<?> result = (AbstractResultSearch<?>) request(searchRequest);
+			if (result.getNumFound() == 0)
+				return new BooleanQuery();
+			final int docId = result.getDocs().getIds()[0];
+			if (segmentNames != null) {
+				final int segment = ReaderUtil.subIndex(docId, segmentStarts);
+				if (segmentNames[segment] != null)
+					return segmentMoreLikeThisCache.get(segmentNames[segment], docId - segmentStarts[segment], null,
+							indexReader, docId, mltRequest);
+			}
+			return moreLikeThisCache.get(null, docId, null, indexReader, docId, mltRequest);
+		}
+		final String likeText = mltRequest.getLikeText();
+		if (likeText != null && likeText.length() > 0)
+			return moreLikeThisCache.get(null, -1, likeText, indexReader, -1, mltRequest);
+		return null;
+	}
+
 	@Override
 	public Query rewrite(Query query) throws SearchLibException {
 		try {
@@ -375,6 +449,72 @@ public class ReaderLocal extends ReaderAbstract implements ReaderInterface, Clos
 		}
 	}
 
+	@Override
+	public ResultSearchSingle searchResult(AbstractLocalSearchRequest searchRequest) throws SearchLibException {
+		return resultSearchCache.get(this, searchRequest);
+	}
+
+	/**
+	 * Visit every document matching the request in index order. Nothing is
+	 * sorted or buffered: each document is loaded and passed to the consumer
+	 * as soon as it is collected. All the stored fields are returned if the
+	 * field set is empty.
+	 *
+	 * @return the number of exported documents
+	 */
+	public int export(final AbstractLocalSearchRequest searchRequest, final Set<String> fieldNameSet,
+			final FunctionUtils.ConsumerEx<Document, IOException> consumer) throws IOException, SearchLibException {
+		try {
+			final AuthManager authManager = searchRequest.getConfig().getAuthManager();
+			if (authManager.isEnabled())
+				authManager.apply(searchRequest);
+			final FilterHits filterHits = new FilterListExecutor(searchRequest, null).getFilterHits();
+			final FieldSelector fieldSelector = fieldNameSet == null || fieldNameSet.isEmpty() ?
+					FieldSelectors.LoadFieldSelector.INSTANCE :
+					new FieldSelectors.SetFieldSelector(fieldNameSet);
+			final ExportCollector collector = new ExportCollector(fieldSelector, consumer);
+			search(searchRequest.getQuery(), filterHits, collector);
+			return collector.count;
+		} catch (ParseException | SyntaxError e) {
+			throw new SearchLibException(e);
+		}
+	}
+
+	private static class ExportCollector extends Collector {
+
+		private final FieldSelector fieldSelector;
+		private final FunctionUtils.ConsumerEx<Document, IOException> consumer;
+		private IndexReader currentReader;
+		private int count;
+
+		private ExportCollector(final FieldSelector fieldSelector,
+				final FunctionUtils.ConsumerEx<Document, IOException> consumer) {
+			this.fieldSelector = fieldSelector;
+			this.consumer = consumer;
+			this.count = 0;
+		}
+
+		@Override
+		public void setScorer(final Scorer scorer) {
+		}
+
+		@Override
+		public void collect(final int doc) throws IOException {
+			consumer.accept(currentReader.document(doc, fieldSelector));
+			count++;
+		}
+
+		@Override
+		public void setNextReader(final IndexReader reader, final int docBase) {
+			currentReader = reader;
+		}
+
+		@Override
+		public boolean acceptsDocsOutOfOrder() {
+			return false;
+		}
+	}
+
 	@Override
 	final public LinkedHashMap<String, FieldValue> getDocumentStoredField(final int docId) throws IOException {
 		LinkedHashMap<String, FieldValue> documentFields = new LinkedHashMap<String, FieldValue>();
@@ -543,6 +683,14 @@ public class ReaderLocal extends ReaderAbstract implements ReaderInterface, Clos
 		return docSetHitsCache;
 	}
 
+	protected ResultSearchCache getResultSearchCache() {
+		return resultSearchCache;
+	}
+
+	public SnippetOffsetCache getSnippetOffsetCache() {
+		return snippetOffsetCache;
+	}
+
 	@Override
 	public AbstractResult<?> request(AbstractRequest request) throws SearchLibException {
 		return request.execute(this);
@@ -0,0 +1,167 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.index;
+
+import com.jaeksoft.searchlib.SearchLibException;
+import com.jaeksoft.searchlib.cache.LRUCache;
+import com.jaeksoft.searchlib.request.AbstractLocalSearchRequest;
+import com.jaeksoft.searchlib.request.SearchFilterRequest;
+import com.jaeksoft.searchlib.result.ResultSearchSingle;
+
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the whole results (documents, facets and snippets) of the first pages.
+ * The cache belongs to the reader: it is dropped when the index is reloaded.
+ */
+public class ResultSearchCache extends LRUCache<ResultSearchCacheItem> {
+
+	/**
+	 * Deeper pages are not cached
+	 */
+	public final static int MAX_CACHED_END = 100;
+
+	private final static String NO_TEMPLATE = "(no template)";
+
+	private final IndexConfig indexConfig;
+
+	private final ConcurrentMap<String, TemplateStatistics> templateStatistics;
+
+	public ResultSearchCache(IndexConfig indexConfig) {
+		super("Result", indexConfig.getResultCache());
+		this.indexConfig = indexConfig;
+		this.templateStatistics = new ConcurrentHashMap<String, TemplateStatistics>();
+	}
+
+	@Override
+	public void setMaxSize(int newMaxSize) {
+		super.setMaxSize(newMaxSize);
+		indexConfig.setResultCache(newMaxSize);
+	}
+
+	private boolean isCacheable(final AbstractLocalSearchRequest searchRequest) {
+		if (getMaxSize() == 0 || indexConfig.isMulti())
+			return false;
+		if (searchRequest instanceof SearchFilterRequest || searchRequest.isForFilter())
+			return false;
+		// A join depends on the version of the other indexes
+		if (searchRequest.isJoin())
+			return false;
+		return searchRequest.getEnd() <= MAX_CACHED_END;
+	}
+
+	/**
+	 * Returns the cached result of an equivalent request, or executes the
+	 * request.
+	 * 
+	 * @param reader
+	 * @param searchRequest
+	 * @return the result
+	 * @throws SearchLibException
+	 */
+	public ResultSearchSingle get(final ReaderAbstract reader, final AbstractLocalSearchRequest searchRequest)
+			throws SearchLibException {
+		try {
+			if (!isCacheable(searchRequest))
+				return new ResultSearchSingle(reader, searchRequest);
+			final ResultSearchCacheItem item = new ResultSearchCacheItem(reader, searchRequest);
+			final ResultSearchCacheItem cachedItem;
+			try {
+				cachedItem = getAndJoin(item, null);
+			} catch (Exception e) {
+				remove(item);
+				throw e;
+			}
+			final boolean hit = cachedItem != item;
+			getTemplateStatistics(searchRequest.getRequestName()).lookup(hit);
+			return hit ? new ResultSearchSingle(cachedItem.getResult(), searchRequest) : cachedItem.getResult();
+		} catch (Exception e) {
+			throw SearchLibException.newInstance(e);
+		}
+	}
+
+	private TemplateStatistics getTemplateStatistics(String requestName) {
+		if (requestName == null)
+			requestName = NO_TEMPLATE;
+		TemplateStatistics statistics = templateStatistics.get(requestName);
+		if (statistics != null)
+			return statistics;
+		statistics = new TemplateStatistics(requestName);
+		final TemplateStatistics previous = templateStatistics.putIfAbsent(requestName, statistics);
+		return previous == null ? statistics : previous;
+	}
+
+	/**
+	 * @return the lookups and the hits of each request template
+	 */
+	public List<TemplateStatistics> getTemplateStatistics() {
+		return new ArrayList<TemplateStatistics>(templateStatistics.values());
+	}
+
+	public static class TemplateStatistics {
+
+		private final String name;
+		private final AtomicLong lookups;
+		private final AtomicLong hits;
+
+		private TemplateStatistics(final String name) {
+			this.name = name;
+			this.lookups = new AtomicLong();
+			this.hits = new AtomicLong();
+		}
+
+		private void lookup(final boolean hit) {
+			lookups.incrementAndGet();
+			if (hit)
+				hits.incrementAndGet();
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public long getLookups() {
+			return lookups.get();
+		}
+
+		public long getHits() {
+			return hits.get();
+		}
+
+		public float getHitRatio() {
+			final long l = lookups.get();
+			return l == 0 ? 0 : (float) hits.get() / l;
+		}
+
+		public String getHitRatioPercent() {
+			return NumberFormat.getPercentInstance().format(getHitRatio());
+		}
+	}
+}
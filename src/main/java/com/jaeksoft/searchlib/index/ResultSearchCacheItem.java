@@ -0,0 +1,246 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.index;
+
+import com.jaeksoft.searchlib.SearchLibException;
+import com.jaeksoft.searchlib.analysis.LanguageEnum;
+import com.jaeksoft.searchlib.analysis.PerFieldAnalyzer;
+import com.jaeksoft.searchlib.cache.LRUItemAbstract;
+import com.jaeksoft.searchlib.collapse.CollapseFunctionField;
+import com.jaeksoft.searchlib.filter.FilterAbstract;
+import com.jaeksoft.searchlib.filter.FilterList;
+import com.jaeksoft.searchlib.function.expression.SyntaxError;
+import com.jaeksoft.searchlib.query.ParseException;
+import com.jaeksoft.searchlib.request.AbstractLocalSearchRequest;
+import com.jaeksoft.searchlib.result.ResultSearchSingle;
+import com.jaeksoft.searchlib.schema.AbstractField;
+import com.jaeksoft.searchlib.schema.AbstractFieldList;
+import com.jaeksoft.searchlib.schema.SchemaField;
+import com.jaeksoft.searchlib.scoring.AdvancedScore;
+import com.jaeksoft.searchlib.util.Timer;
+import com.jaeksoft.searchlib.util.XmlWriter;
+import com.jaeksoft.searchlib.webservice.query.search.SearchQueryAbstract.OperatorEnum;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.Query;
+import org.xml.sax.SAXException;
+
+import javax.xml.transform.TransformerConfigurationException;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * A whole search result, identified by the canonical form of its request.
+ */
+public class ResultSearchCacheItem extends LRUItemAbstract<ResultSearchCacheItem> {
+
+	private final String key;
+
+	private ReaderAbstract reader;
+	private AbstractLocalSearchRequest searchRequest;
+
+	private ResultSearchSingle result;
+
+	ResultSearchCacheItem(final ReaderAbstract reader, final AbstractLocalSearchRequest searchRequest)
+			throws ParseException, SyntaxError, SearchLibException, IOException, SAXException,
+			TransformerConfigurationException {
+		this.key = getCanonicalKey(searchRequest);
+		this.reader = reader;
+		this.searchRequest = searchRequest;
+		this.result = null;
+	}
+
+	@Override
+	public int compareTo(final ResultSearchCacheItem item) {
+		return key.compareTo(item.key);
+	}
+
+	@Override
+	protected void populate(final Timer timer) throws Exception {
+		result = new ResultSearchSingle(reader, searchRequest);
+		// The result keeps what it needs
+		reader = null;
+		searchRequest = null;
+	}
+
+	public ResultSearchSingle getResult() {
+		return result;
+	}
+
+	/**
+	 * Write the query with the clauses of the boolean queries sorted: the
+	 * order of the clauses does not change the matching documents.
+	 * 
+	 * @param query
+	 * @param sb
+	 */
+	static void canonicalQuery(final Query query, final StringBuilder sb) {
+		if (!(query instanceof BooleanQuery)) {
+			sb.append(query);
+			return;
+		}
+		final BooleanQuery booleanQuery = (BooleanQuery) query;
+		final BooleanClause[] clauses = booleanQuery.getClauses();
+		final String[] clauseKeys = new String[clauses.length];
+		int i = 0;
+		for (BooleanClause clause : clauses) {
+			final StringBuilder clauseSb = new StringBuilder(clause.getOccur().toString());
+			canonicalQuery(clause.getQuery(), clauseSb);
+			clauseKeys[i++] = clauseSb.toString();
+		}
+		Arrays.sort(clauseKeys);
+		sb.append('(');
+		for (String clauseKey : clauseKeys) {
+			sb.append(clauseKey);
+			sb.append(' ');
+		}
+		sb.append(')');
+		if (booleanQuery.getMinimumNumberShouldMatch() > 0) {
+			sb.append('~');
+			sb.append(booleanQuery.getMinimumNumberShouldMatch());
+		}
+		if (booleanQuery.isCoordDisabled())
+			sb.append("!coord");
+		if (booleanQuery.getBoost() != 1.0f) {
+			sb.append('^');
+			sb.append(booleanQuery.getBoost());
+		}
+	}
+
+	static String canonicalQuery(final Query query) {
+		if (query == null)
+			return null;
+		final StringBuilder sb = new StringBuilder();
+		canonicalQuery(query, sb);
+		return sb.toString();
+	}
+
+	private static <T extends AbstractField<T>> void writeSortedFields(final XmlWriter xmlWriter,
+			final String nodeName, final AbstractFieldList<T> fieldList) throws SAXException {
+		if (fieldList == null || fieldList.size() == 0)
+			return;
+		final TreeMap<String, T> sortedFields = new TreeMap<String, T>();
+		for (T field : fieldList)
+			sortedFields.put(field.getName(), field);
+		xmlWriter.startElement(nodeName);
+		for (T field : sortedFields.values())
+			field.writeXmlConfig(xmlWriter);
+		xmlWriter.endElement();
+	}
+
+	private static void writeSortedValues(final XmlWriter xmlWriter, final String nodeName,
+			final Collection<String> values) throws SAXException {
+		if (values == null || values.isEmpty())
+			return;
+		for (String value : new TreeSet<String>(values))
+			xmlWriter.writeSubTextNodeIfAny(nodeName, value);
+	}
+
+	/**
+	 * The canonical form of a search request: the parsed queries with sorted
+	 * boolean clauses, the resolved filters, and the fields in a stable order.
+	 * The whitespaces of the query string, the order of the filters, of the
+	 * returned fields, of the facets and the name of the template do not change
+	 * the key. The order of the sort fields does.
+	 * 
+	 * @param request
+	 * @return the key
+	 * @throws ParseException
+	 * @throws SyntaxError
+	 * @throws SearchLibException
+	 * @throws IOException
+	 * @throws SAXException
+	 * @throws TransformerConfigurationException
+	 */
+	public static String getCanonicalKey(final AbstractLocalSearchRequest request)
+			throws ParseException, SyntaxError, SearchLibException, IOException, SAXException,
+			TransformerConfigurationException {
+		final StringWriter stringWriter = new StringWriter();
+		final PrintWriter printWriter = new PrintWriter(stringWriter);
+		final XmlWriter xmlWriter = new XmlWriter(printWriter, "UTF-8");
+		final LanguageEnum lang = request.getLang();
+		xmlWriter.startElement("request", "type", request.getType().name(), "start",
+				Integer.toString(request.getStart()), "rows", Integer.toString(request.getRows()), "lang",
+				lang == null ? null : lang.getCode(), "collapseMode", request.getCollapseMode().getLabel(),
+				"collapseType", request.getCollapseType().getLabel(), "collapseField", request.getCollapseField(),
+				"collapseMax", Integer.toString(request.getCollapseMax()), "withSortValues",
+				Boolean.toString(request.isWithSortValues()));
+
+		xmlWriter.writeSubTextNodeIfAny("query", canonicalQuery(request.getQuery()));
+		if (request.getSnippetFieldList().size() > 0)
+			xmlWriter.writeSubTextNodeIfAny("snippetQuery", canonicalQuery(request.getSnippetQuery()));
+
+		final FilterList filterList = request.getFilterList();
+		if (filterList != null && filterList.size() > 0) {
+			final SchemaField defaultField = request.getConfig().getSchema().getFieldList().getDefaultField();
+			final PerFieldAnalyzer analyzer = request.getAnalyzer();
+			final OperatorEnum defaultOperator = filterList.getDefaultOperator();
+			final TreeSet<String> filterKeys = new TreeSet<String>();
+			for (FilterAbstract<?> filter : filterList) {
+				final StringBuilder sb = new StringBuilder();
+				sb.append(filter.isNegative() ? '-' : '+');
+				sb.append(filter.getOperator(defaultOperator));
+				sb.append(' ');
+				sb.append(filter.getCacheKey(defaultField, analyzer, request));
+				filterKeys.add(sb.toString());
+			}
+			writeSortedValues(xmlWriter, "filter", filterKeys);
+		}
+
+		writeSortedFields(xmlWriter, "returnFields", request.getReturnFieldList());
+		writeSortedFields(xmlWriter, "snippet", request.getSnippetFieldList());
+		writeSortedFields(xmlWriter, "facetFields", request.getFacetFieldList());
+
+		if (request.getSortFieldList().size() > 0) {
+			xmlWriter.startElement("sort");
+			request.getSortFieldList().writeXmlConfig(xmlWriter);
+			xmlWriter.endElement();
+		}
+
+		final Collection<CollapseFunctionField> functionFields = request.getCollapseFunctionFields();
+		if (functionFields != null)
+			for (CollapseFunctionField functionField : functionFields)
+				functionField.writeXmlConfig(xmlWriter, "collapseFunction");
+
+		final AdvancedScore advancedScore = request.getAdvancedScore();
+		if (advancedScore != null)
+			advancedScore.writeXmlConfig(xmlWriter);
+
+		if (request.isDistanceRequired())
+			request.getGeoParameters().writeXmlConfig(xmlWriter, "geoParameters");
+
+		writeSortedValues(xmlWriter, "user", request.getUsers());
+		writeSortedValues(xmlWriter, "group", request.getGroups());
+
+		xmlWriter.endDocument();
+		printWriter.flush();
+		return stringWriter.toString();
+	}
+}
@@ -0,0 +1,115 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.index;
+
+import com.jaeksoft.searchlib.result.ResultSearchSingle;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A search cursor keeps the sorted (and collapsed) hits of a search request
+ * together with the reader which produced them. The reader is pinned until the
+ * cursor is closed or expires, so the pages are consistent even if the index
+ * is reloaded, and each page costs only the loading of its documents.
+ */
+public class SearchCursor {
+
+	private final String id;
+
+	private final ReaderLocal reader;
+
+	private final ResultSearchSingle result;
+
+	private final long ttlMs;
+
+	private volatile long expiration;
+
+	private int position;
+
+	private boolean closed;
+
+	SearchCursor(ReaderLocal reader, ResultSearchSingle result, int ttlSeconds) {
+		this.id = UUID.randomUUID().toString();
+		this.reader = reader;
+		this.result = result;
+		this.ttlMs = TimeUnit.SECONDS.toMillis(ttlSeconds);
+		this.position = result.getRequest().getStart();
+		this.closed = false;
+		touch();
+	}
+
+	private void touch() {
+		expiration = System.currentTimeMillis() + ttlMs;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public ResultSearchSingle getResult() {
+		return result;
+	}
+
+	public long getReaderVersion() {
+		return reader.getVersion();
+	}
+
+	public long getExpiration() {
+		return expiration;
+	}
+
+	boolean isExpired(long now) {
+		return now > expiration;
+	}
+
+	/**
+	 * Reserve the next page of the cursor.
+	 *
+	 * @param rows the maximum number of rows
+	 * @return an array with the start (inclusive) and end (exclusive) positions
+	 * of the page, or null if the cursor is closed
+	 */
+	public synchronized int[] nextPage(int rows) {
+		if (closed)
+			return null;
+		touch();
+		final int start = position;
+		final int end = Math.min(start + Math.max(rows, 0), result.getDocLength());
+		position = Math.max(start, end);
+		return new int[] { start, position };
+	}
+
+	public synchronized boolean isExhausted() {
+		return position >= result.getDocLength();
+	}
+
+	synchronized void close() {
+		if (closed)
+			return;
+		closed = true;
+		reader.release();
+	}
+}
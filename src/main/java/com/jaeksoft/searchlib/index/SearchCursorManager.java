@@ -0,0 +1,102 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.index;
+
+import com.jaeksoft.searchlib.SearchLibException;
+import com.jaeksoft.searchlib.result.ResultSearchSingle;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the open search cursors of one index. Expired cursors are released
+ * lazily, each time a cursor is opened or accessed.
+ */
+public class SearchCursorManager {
+
+	public final static int DEFAULT_TTL_SECONDS = 60;
+
+	public final static int MAX_TTL_SECONDS = 3600;
+
+	private final static int MAX_CURSORS = 200;
+
+	private final ConcurrentHashMap<String, SearchCursor> cursors;
+
+	SearchCursorManager() {
+		cursors = new ConcurrentHashMap<>();
+	}
+
+	private void expire() {
+		final long now = System.currentTimeMillis();
+		final Iterator<Map.Entry<String, SearchCursor>> iterator = cursors.entrySet().iterator();
+		while (iterator.hasNext()) {
+			final SearchCursor cursor = iterator.next().getValue();
+			if (cursor.isExpired(now)) {
+				iterator.remove();
+				cursor.close();
+			}
+		}
+	}
+
+	/**
+	 * Register a new cursor. The reader must have been acquired by the caller,
+	 * the cursor takes over the reference.
+	 */
+	SearchCursor open(ReaderLocal reader, ResultSearchSingle result, Integer ttlSeconds) throws SearchLibException {
+		expire();
+		if (cursors.size() >= MAX_CURSORS)
+			throw new SearchLibException("Too many open cursors (" + MAX_CURSORS + ")");
+		int ttl = ttlSeconds == null ? DEFAULT_TTL_SECONDS : Math.min(Math.max(ttlSeconds, 1), MAX_TTL_SECONDS);
+		final SearchCursor cursor = new SearchCursor(reader, result, ttl);
+		cursors.put(cursor.getId(), cursor);
+		return cursor;
+	}
+
+	SearchCursor get(String id) {
+		expire();
+		return id == null ? null : cursors.get(id);
+	}
+
+	boolean close(String id) {
+		if (id == null)
+			return false;
+		final SearchCursor cursor = cursors.remove(id);
+		if (cursor == null)
+			return false;
+		cursor.close();
+		return true;
+	}
+
+	void closeAll() {
+		for (SearchCursor cursor : cursors.values())
+			cursor.close();
+		cursors.clear();
+	}
+
+	public int size() {
+		return cursors.size();
+	}
+}
@@ -0,0 +1,165 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.index;
+
+import com.jaeksoft.searchlib.Logging;
+import org.apache.commons.io.FileUtils;
+import org.apache.lucene.index.ConcurrentMergeScheduler;
+import org.apache.lucene.index.MergePolicy;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the merges in background threads, with a bounded concurrency. The
+ * bytes written by the merges are counted and throttled by the node wide
+ * MergeThrottle (see MergeThrottledDirectory).
+ */
+public class ThrottledMergeScheduler extends ConcurrentMergeScheduler {
+
+	private final static ThreadLocal<Progress> CURRENT = new ThreadLocal<>();
+
+	public static class Progress {
+
+		private final long estimatedBytes;
+		private final AtomicLong writtenBytes;
+
+		private Progress(long estimatedBytes) {
+			this.estimatedBytes = estimatedBytes;
+			this.writtenBytes = new AtomicLong();
+		}
+
+		void written(long bytes) {
+			writtenBytes.addAndGet(bytes);
+		}
+	}
+
+	private final Set<Progress> runningMerges;
+
+	private final AtomicLong doneMerges;
+
+	private final AtomicLong writtenBytes;
+
+	private volatile Runnable mergeListener;
+
+	/**
+	 * @param maxThreads the maximum number of concurrent merges
+	 */
+	public ThrottledMergeScheduler(int maxThreads) {
+		if (maxThreads < 1)
+			maxThreads = 1;
+		setMaxMergeCount(maxThreads + 2);
+		setMaxThreadCount(maxThreads);
+		this.runningMerges = ConcurrentHashMap.newKeySet();
+		this.doneMerges = new AtomicLong();
+		this.writtenBytes = new AtomicLong();
+	}
+
+	/**
+	 * @param mergeListener called by the merge thread each time a merge is
+	 *                      done. It must not wait for the IndexWriter.
+	 */
+	public void setMergeListener(Runnable mergeListener) {
+		this.mergeListener = mergeListener;
+	}
+
+	/**
+	 * @return the progress of the merge run by the current thread, or null
+	 */
+	static Progress current() {
+		return CURRENT.get();
+	}
+
+	@Override
+	protected void doMerge(MergePolicy.OneMerge merge) throws IOException {
+		long estimatedBytes;
+		try {
+			estimatedBytes = merge.totalBytesSize();
+		} catch (IOException e) {
+			estimatedBytes = 0;
+		}
+		final Progress progress = new Progress(estimatedBytes);
+		runningMerges.add(progress);
+		CURRENT.set(progress);
+		try {
+			super.doMerge(merge);
+			doneMerges.incrementAndGet();
+			final Runnable listener = mergeListener;
+			if (listener != null)
+				listener.run();
+		} finally {
+			CURRENT.remove();
+			runningMerges.remove(progress);
+			writtenBytes.addAndGet(progress.writtenBytes.get());
+		}
+	}
+
+	@Override
+	protected void handleMergeException(Throwable exc) {
+		Logging.warn("Merge failed", exc);
+		super.handleMergeException(exc);
+	}
+
+	public int getRunningMerges() {
+		return runningMerges.size();
+	}
+
+	public long getDoneMerges() {
+		return doneMerges.get();
+	}
+
+	/**
+	 * @return the bytes written by the done and the running merges
+	 */
+	public long getWrittenBytes() {
+		long bytes = writtenBytes.get();
+		for (Progress progress : runningMerges)
+			bytes += progress.writtenBytes.get();
+		return bytes;
+	}
+
+	/**
+	 * @return a description of the running merges
+	 */
+	public String getProgressInfo() {
+		final StringBuilder sb = new StringBuilder();
+		for (Progress progress : runningMerges) {
+			if (sb.length() > 0)
+				sb.append(", ");
+			final long written = progress.writtenBytes.get();
+			sb.append(FileUtils.byteCountToDisplaySize(written));
+			if (progress.estimatedBytes > 0) {
+				sb.append(" (");
+				sb.append(Math.min(100, written * 100 / progress.estimatedBytes));
+				sb.append("% of ");
+				sb.append(FileUtils.byteCountToDisplaySize(progress.estimatedBytes));
+				sb.append(')');
+			}
+		}
+		return sb.toString();
+	}
+}
@@ -42,6 +42,7 @@ import com.jaeksoft.searchlib.util.IOUtils;
 import com.jaeksoft.searchlib.webservice.query.document.IndexDocumentResult;
 import com.jaeksoft.searchlib.webservice.query.document.IndexDocumentResult.IndexField;
 import com.jaeksoft.searchlib.webservice.query.document.IndexDocumentResult.IndexTerm;
+import com.qwazr.utils.FunctionUtils;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.index.CorruptIndexException;
@@ -49,9 +50,10 @@ import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.IndexWriterConfig.OpenMode;
-import org.apache.lucene.index.SerialMergeScheduler;
 import org.apache.lucene.index.SnapshotDeletionPolicy;
 import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TieredMergePolicy;
+import org.apache.lucene.search.Query;
 import org.apache.lucene.search.Similarity;
 import org.apache.lucene.util.Version;
 
@@ -62,49 +64,95 @@ import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReentrantLock;
 
 public class WriterLocal extends WriterAbstract {
 
+	/**
+	 * Commits the merges done after the last update. The merge threads only
+	 * submit the commit, as the IndexWriter may be waiting for them while
+	 * holding the lock.
+	 */
+	private final static ExecutorService MERGE_COMMIT_EXECUTOR = Executors.newSingleThreadExecutor(target -> {
+		Thread thread = new Thread(target, "Merge commit");
+		thread.setDaemon(true);
+		return thread;
+	});
+
 	private final IndexDirectory indexDirectory;
 	private final ReentrantLock indexWriterLock;
+	private final AtomicBoolean mergeCommitPending;
+
+	/**
+	 * The IndexWriter stays open between the updates, so the merges can run in
+	 * background. Guarded by indexWriterLock.
+	 */
+	private IndexWriter indexWriter;
+	private volatile ThrottledMergeScheduler mergeScheduler;
 
 	protected WriterLocal(IndexConfig indexConfig, IndexDirectory indexDirectory,
 			IndexDirectory snapshotDeletionDirectory) throws IOException {
 		super(indexConfig);
 		this.indexDirectory = indexDirectory;
 		indexWriterLock = new ReentrantLock();
+		mergeCommitPending = new AtomicBoolean();
+		indexWriter = null;
+		mergeScheduler = null;
 	}
 
-	private void close(IndexWriter indexWriter) {
+	/**
+	 * Close the IndexWriter. The lock must be held by the caller.
+	 *
+	 * @param waitForMerges if false, the running merges are aborted
+	 */
+	private void closeNoLock(boolean waitForMerges) {
 		if (indexWriter == null)
 			return;
 		try {
-			indexWriter.close();
+			indexWriter.close(waitForMerges);
 		} catch (Exception e) {
 			Logging.warn(e);
 		} finally {
+			indexWriter = null;
 			indexDirectory.unlock();
+		}
+	}
+
+	/**
+	 * Close the IndexWriter, aborting the running merges
+	 */
+	public void close() {
+		indexWriterLock.lock();
+		try {
+			closeNoLock(false);
+		} finally {
 			indexWriterLock.unlock();
 		}
 	}
 
 	public final void create() throws IOException, SearchLibException {
-		IndexWriter indexWriter = null;
+		indexWriterLock.lock();
 		try {
+			closeNoLock(true);
 			indexWriter = open(true);
+			closeNoLock(true);
 		} finally {
-			close(indexWriter);
+			indexWriterLock.unlock();
 		}
 	}
 
 	private IndexWriter open(boolean create) throws IOException, SearchLibException {
-		indexWriterLock.lock();
 		final IndexWriterConfig config = new IndexWriterConfig(Version.LUCENE_36, null);
 		config.setOpenMode(create ? OpenMode.CREATE_OR_APPEND : OpenMode.APPEND);
-		config.setMergeScheduler(new SerialMergeScheduler());
+		final ThrottledMergeScheduler scheduler = new ThrottledMergeScheduler(indexConfig.getMergeThreads());
+		config.setMergeScheduler(scheduler);
+		final TieredMergePolicy mergePolicy = new TieredMergePolicy();
+		mergePolicy.setSegmentsPerTier(indexConfig.getSegmentsPerTier());
+		mergePolicy.setMaxMergedSegmentMB(indexConfig.getMaxMergedSegmentMB());
+		config.setMergePolicy(mergePolicy);
 		config.setWriteLockTimeout(indexConfig.getWriteLockTimeout());
 		config.setRAMBufferSizeMB(128);
 		final Similarity similarity = indexConfig.getNewSimilarityInstance();
@@ -116,11 +164,73 @@ public class WriterLocal extends WriterAbstract {
 			config.setIndexDeletionPolicy(snapshotDeletionPolicy);
 		}
 		Logging.debug("WriteLocal open " + indexDirectory.getDirectory());
-		return new IndexWriter(indexDirectory.getDirectory(), config);
+		final IndexWriter indexWriter =
+				new IndexWriter(new MergeThrottledDirectory(indexDirectory.getDirectory()), config);
+		scheduler.setMergeListener(() -> scheduleMergeCommit(indexWriter));
+		mergeScheduler = scheduler;
+		return indexWriter;
+	}
+
+	private void scheduleMergeCommit(final IndexWriter mergingWriter) {
+		if (mergeCommitPending.compareAndSet(false, true))
+			MERGE_COMMIT_EXECUTOR.execute(() -> commitMerges(mergingWriter));
 	}
 
+	/**
+	 * Commit the done merges, unless the IndexWriter has been closed (which
+	 * commits or discards them) or replaced in the meantime
+	 */
+	private void commitMerges(final IndexWriter mergingWriter) {
+		mergeCommitPending.set(false);
+		indexWriterLock.lock();
+		try {
+			if (indexWriter != mergingWriter)
+				return;
+			indexWriter.commit();
+		} catch (Exception e) {
+			Logging.warn(e);
+		} finally {
+			indexWriterLock.unlock();
+		}
+	}
+
+	/**
+	 * Lock and return the IndexWriter, opening it if required
+	 */
 	private IndexWriter open() throws IOException, SearchLibException {
-		return open(false);
+		indexWriterLock.lock();
+		try {
+			if (indexWriter == null)
+				indexWriter = open(false);
+			return indexWriter;
+		} catch (IOException | SearchLibException | RuntimeException e) {
+			indexWriterLock.unlock();
+			throw e;
+		}
+	}
+
+	/**
+	 * Commit the changes and unlock the IndexWriter. The running merges go on,
+	 * they are committed as soon as they are done (see commitMerges).
+	 */
+	private void release(IndexWriter indexWriter) {
+		if (indexWriter == null)
+			return;
+		try {
+			indexWriter.commit();
+		} catch (Exception e) {
+			Logging.warn(e);
+			closeNoLock(false);
+		} finally {
+			indexWriterLock.unlock();
+		}
+	}
+
+	/**
+	 * @return the merge scheduler of the current IndexWriter, or null
+	 */
+	public ThrottledMergeScheduler getMergeScheduler() {
+		return mergeScheduler;
 	}
 
 	@Deprecated
@@ -130,7 +240,7 @@ public class WriterLocal extends WriterAbstract {
 			indexWriter = open();
 			indexWriter.addDocument(document);
 		} finally {
-			close(indexWriter);
+			release(indexWriter);
 		}
 	}
 
@@ -165,13 +275,13 @@ public class WriterLocal extends WriterAbstract {
 			indexWriter = open();
 			SchemaField uniqueField = schema.getFieldList().getUniqueField();
 			boolean updated = updateDocNoLock(uniqueField, indexWriter, schema, document);
-			close(indexWriter);
+			release(indexWriter);
 			indexWriter = null;
 			return updated;
 		} catch (IOException | NoSuchAlgorithmException e) {
 			throw new SearchLibException(e);
 		} finally {
-			close(indexWriter);
+			release(indexWriter);
 		}
 	}
 
@@ -206,13 +316,13 @@ public class WriterLocal extends WriterAbstract {
 			if (exceptionReference.get() != null)
 				throw SearchLibException.newInstance(exceptionReference.get());
 
-			close(indexWriter);
+			release(indexWriter);
 			indexWriter = null;
 			return count.get();
 		} catch (IOException | InterruptedException e) {
 			throw new SearchLibException(e);
 		} finally {
-			close(indexWriter);
+			release(indexWriter);
 		}
 	}
 
@@ -249,13 +359,13 @@ public class WriterLocal extends WriterAbstract {
 			if (exceptionReference.get() != null)
 				throw SearchLibException.newInstance(exceptionReference.get());
 
-			close(indexWriter);
+			release(indexWriter);
 			indexWriter = null;
 			return count.get();
 		} catch (IOException | InterruptedException e) {
 			throw new SearchLibException(e);
 		} finally {
-			close(indexWriter);
+			release(indexWriter);
 		}
 	}
 
@@ -314,13 +424,79 @@ public class WriterLocal extends WriterAbstract {
 		return doc;
 	}
 
-	public int deleteDocuments(int[] ids) throws IOException, SearchLibException {
+	/**
+	 * Apply the deletions through the IndexWriter and commit them. The number
+	 * of live documents is compared before and after the commit, which gives
+	 * the exact number of deleted documents.
+	 */
+	int deleteDocuments(final FunctionUtils.ConsumerEx<IndexWriter, IOException> deletions)
+			throws SearchLibException {
+		IndexWriter indexWriter = null;
+		try {
+			indexWriter = open();
+			final int numDocs = indexWriter.numDocs();
+			deletions.accept(indexWriter);
+			indexWriter.commit();
+			final int deleted = numDocs - indexWriter.numDocs();
+			release(indexWriter);
+			indexWriter = null;
+			return deleted;
+		} catch (IOException e) {
+			throw new SearchLibException(e);
+		} finally {
+			release(indexWriter);
+		}
+	}
+
+	/**
+	 * Delete the documents containing any of the terms
+	 *
+	 * @param terms the terms, typically a list of unique keys
+	 * @return the number of deleted documents
+	 * @throws SearchLibException
+	 */
+	public int deleteDocuments(final Term... terms) throws SearchLibException {
+		if (terms == null || terms.length == 0)
+			return 0;
+		return deleteDocuments(indexWriter -> indexWriter.deleteDocuments(terms));
+	}
+
+	/**
+	 * Delete the documents matching the query
+	 *
+	 * @param query the query
+	 * @return the number of deleted documents
+	 * @throws SearchLibException
+	 */
+	public int deleteDocuments(final Query query) throws SearchLibException {
+		if (query == null)
+			return 0;
+		return deleteDocuments(indexWriter -> indexWriter.deleteDocuments(query));
+	}
+
+	/**
+	 * Delete the documents by document id, using a read-write IndexReader.
+	 * The IndexWriter is closed first, as the IndexReader needs the write lock.
+	 * The running merges are completed and committed, not discarded. As a
+	 * committed merge renumbers the documents, the ids are only applied if the
+	 * last commit is still the one they come from.
+	 *
+	 * @param ids     the document ids
+	 * @param version the version of the index the ids come from
+	 * @return the number of deleted documents, or -1 if the index version has
+	 * changed
+	 */
+	public int deleteDocuments(int[] ids, long version) throws IOException, SearchLibException {
 		if (ids == null || ids.length == 0)
 			return 0;
 		IndexReader indexReader = null;
+		indexWriterLock.lock();
 		try {
+			closeNoLock(true);
 			int l = 0;
 			indexReader = IndexReader.open(indexDirectory.getDirectory(), false);
+			if (indexReader.getVersion() != version)
+				return -1;
 			for (int id : ids)
 				if (!indexReader.isDeleted(id)) {
 					indexReader.deleteDocument(id);
@@ -331,6 +507,7 @@ public class WriterLocal extends WriterAbstract {
 			return l;
 		} finally {
 			IOUtils.close(indexReader);
+			indexWriterLock.unlock();
 		}
 	}
 
@@ -340,12 +517,12 @@ public class WriterLocal extends WriterAbstract {
 		try {
 			indexWriter = open();
 			indexWriter.deleteAll();
-			close(indexWriter);
+			release(indexWriter);
 			indexWriter = null;
 		} catch (IOException e) {
 			throw new SearchLibException(e);
 		} finally {
-			close(indexWriter);
+			release(indexWriter);
 		}
 	}
 
@@ -359,12 +536,12 @@ public class WriterLocal extends WriterAbstract {
 		try {
 			indexWriter = open();
 			indexWriter.addIndexes(directory.getDirectory());
-			close(indexWriter);
+			release(indexWriter);
 			indexWriter = null;
 		} catch (IOException e) {
 			throw new SearchLibException(e);
 		} finally {
-			close(indexWriter);
+			release(indexWriter);
 		}
 
 	}
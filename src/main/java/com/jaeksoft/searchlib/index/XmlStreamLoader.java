@@ -0,0 +1,492 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.index;
+
+import com.ctc.wstx.stax.WstxInputFactory;
+import com.jaeksoft.searchlib.Client;
+import com.jaeksoft.searchlib.Logging;
+import com.jaeksoft.searchlib.SearchLibException;
+import com.jaeksoft.searchlib.analysis.LanguageEnum;
+import com.jaeksoft.searchlib.crawler.web.database.CredentialItem;
+import com.jaeksoft.searchlib.crawler.web.spider.HttpDownloader;
+import com.jaeksoft.searchlib.parser.ParserSelector;
+import com.jaeksoft.searchlib.util.InfoCallback;
+import org.codehaus.stax2.XMLStreamReader2;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PushbackReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streaming loader of the XML update format:
+ * <pre>
+ * &lt;index&gt;
+ *   &lt;document lang="en"&gt;
+ *     &lt;field name="title"&gt;&lt;copy field="full"/&gt;&lt;value boost="2"&gt;...&lt;/value&gt;&lt;/field&gt;
+ *     &lt;binary fileName="..." contentType="..." url="..."&gt;base64&lt;/binary&gt;
+ *   &lt;/document&gt;
+ *   &lt;delete&gt;&lt;uniquekey&gt;...&lt;/uniquekey&gt;&lt;/delete&gt;
+ * &lt;/index&gt;
+ * </pre>
+ * The feed is read with a StAX pull parser: only the current batch of
+ * documents is held in memory. After each committed batch, the checkpoint
+ * gives the offset (in characters of the decoded feed) right after the last
+ * committed element. Loading the same feed again from this offset resumes the
+ * load.
+ */
+public class XmlStreamLoader {
+
+	private final static String ROOT_ELEMENT = "index";
+
+	private final static String[] BINARY_FILENAME = { "fileName", "filename" };
+	private final static String[] BINARY_FILEPATH = { "filePath", "filepath" };
+	private final static String[] BINARY_CONTENTTYPE = { "contentType", "contenttype" };
+
+	private final static int ENCODING_PROBE_LIMIT = 1024 * 1024;
+
+	private final Client client;
+	private final ParserSelector parserSelector;
+	private final int bufferSize;
+	private final CredentialItem urlDefaultCredential;
+	private final HttpDownloader httpDownloader;
+	private final InfoCallback infoCallBack;
+
+	private final List<IndexDocument> updateList;
+	private final List<String> deleteList;
+
+	private long baseOffset;
+	private long lastElementEnd;
+	private long checkpoint;
+
+	private int updatedCount;
+	private int deletedCount;
+	private long startTime;
+
+	public XmlStreamLoader(Client client, int bufferSize, CredentialItem urlDefaultCredential,
+			HttpDownloader httpDownloader, InfoCallback infoCallBack) throws SearchLibException {
+		this.client = client;
+		this.parserSelector = client.getParserSelector();
+		this.bufferSize = bufferSize < 1 ? 1 : bufferSize;
+		this.urlDefaultCredential = urlDefaultCredential;
+		this.httpDownloader = httpDownloader;
+		this.infoCallBack = infoCallBack;
+		this.updateList = new ArrayList<>(this.bufferSize);
+		this.deleteList = new ArrayList<>(this.bufferSize);
+	}
+
+	/**
+	 * Woodstox is used explicitly: its LocationInfo gives the exact end offset
+	 * of the current event, the generic Location only gives an approximation.
+	 */
+	private static XMLInputFactory newFactory() {
+		final XMLInputFactory factory = new WstxInputFactory();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+		return factory;
+	}
+
+	/**
+	 * Read the encoding declared by the XML prolog, then rewind the stream
+	 */
+	private static String probeEncoding(final XMLInputFactory factory, final BufferedInputStream input)
+			throws IOException, XMLStreamException {
+		input.mark(ENCODING_PROBE_LIMIT);
+		final XMLStreamReader probe = factory.createXMLStreamReader(input);
+		try {
+			final String encoding = probe.getCharacterEncodingScheme();
+			if (encoding != null)
+				return encoding;
+			return probe.getEncoding() != null ? probe.getEncoding() : "UTF-8";
+		} finally {
+			probe.close();
+			input.reset();
+		}
+	}
+
+	/**
+	 * Load the feed, the encoding is given by the XML declaration
+	 *
+	 * @param inputStream  the XML feed
+	 * @param resumeOffset a checkpoint returned by a previous load, or 0
+	 * @return the number of updated documents
+	 * @throws SearchLibException if the feed is malformed or the update failed
+	 * @throws IOException        if the feed cannot be read
+	 */
+	public int load(final InputStream inputStream, final long resumeOffset) throws SearchLibException, IOException {
+		final BufferedInputStream input = new BufferedInputStream(inputStream, 65536);
+		final String encoding;
+		try {
+			encoding = probeEncoding(newFactory(), input);
+		} catch (XMLStreamException e) {
+			throw new SearchLibException("XML error: " + e.getMessage(), e);
+		}
+		return load(new InputStreamReader(input, encoding), resumeOffset);
+	}
+
+	/**
+	 * Load the feed
+	 *
+	 * @param feedReader   the XML feed
+	 * @param resumeOffset a checkpoint returned by a previous load, or 0
+	 * @return the number of updated documents
+	 * @throws SearchLibException if the feed is malformed or the update failed
+	 * @throws IOException        if the feed cannot be read
+	 */
+	public int load(final Reader feedReader, final long resumeOffset) throws SearchLibException, IOException {
+		XMLStreamReader2 reader = null;
+		try {
+			// Parsing from a Reader: the locations are offsets in characters
+			final PushbackReader decoded = new PushbackReader(feedReader, 1);
+			final int first = decoded.read();
+			if (first != -1 && first != '\uFEFF')
+				decoded.unread(first);
+			final Reader source;
+			if (resumeOffset > 0) {
+				long toSkip = resumeOffset;
+				while (toSkip > 0) {
+					final long skipped = decoded.skip(toSkip);
+					if (skipped <= 0)
+						throw new SearchLibException("The resume offset is beyond the end of the feed: " + resumeOffset);
+					toSkip -= skipped;
+				}
+				final String prefix = "<" + ROOT_ELEMENT + ">";
+				source = new PrefixedReader(prefix, decoded);
+				baseOffset = resumeOffset - prefix.length();
+			} else {
+				source = decoded;
+				baseOffset = 0;
+			}
+			checkpoint = resumeOffset;
+			lastElementEnd = resumeOffset;
+			startTime = System.nanoTime();
+			reader = (XMLStreamReader2) newFactory().createXMLStreamReader(source);
+			parse(reader);
+			flush();
+			return updatedCount;
+		} catch (XMLStreamException e) {
+			throw new SearchLibException("XML error after the checkpoint " + checkpoint + ": " + e.getMessage(), e);
+		} finally {
+			if (reader != null) {
+				try {
+					reader.close();
+				} catch (XMLStreamException e) {
+					Logging.warn(e);
+				}
+			}
+		}
+	}
+
+	private void parse(final XMLStreamReader2 reader)
+			throws XMLStreamException, SearchLibException, IOException {
+		while (reader.hasNext()) {
+			if (reader.next() != XMLStreamConstants.START_ELEMENT)
+				continue;
+			switch (reader.getLocalName()) {
+			case ROOT_ELEMENT:
+				// Enter the root element
+				break;
+			case "document":
+				updateList.add(readDocument(reader));
+				elementEnd(reader);
+				if (updateList.size() >= bufferSize)
+					flush();
+				break;
+			case "delete":
+				readDelete(reader);
+				elementEnd(reader);
+				if (deleteList.size() >= bufferSize)
+					flush();
+				break;
+			default:
+				skipElement(reader);
+				break;
+			}
+		}
+	}
+
+	private void elementEnd(final XMLStreamReader2 reader) throws XMLStreamException {
+		lastElementEnd = baseOffset + reader.getLocationInfo().getEndingCharOffset();
+	}
+
+	private IndexDocument readDocument(final XMLStreamReader reader)
+			throws XMLStreamException, SearchLibException, IOException {
+		final IndexDocument document =
+				new IndexDocument(LanguageEnum.findByCode(reader.getAttributeValue(null, "lang")));
+		while (nextChild(reader)) {
+			switch (reader.getLocalName()) {
+			case "field":
+				readField(reader, document);
+				break;
+			case "binary":
+				readBinary(reader, document);
+				break;
+			default:
+				skipElement(reader);
+				break;
+			}
+		}
+		return document;
+	}
+
+	private static class XmlValue {
+
+		private final String text;
+		private final Float boost;
+		private final boolean removeTag;
+		private final boolean convertHtmlEntities;
+
+		private XmlValue(final XMLStreamReader reader) throws XMLStreamException {
+			final String boostAttr = reader.getAttributeValue(null, "boost");
+			boost = boostAttr == null || boostAttr.isEmpty() ? null : Float.parseFloat(boostAttr);
+			removeTag = "yes".equalsIgnoreCase(reader.getAttributeValue(null, "removeTag"));
+			convertHtmlEntities = "yes".equalsIgnoreCase(reader.getAttributeValue(null, "convertHtmlEntities"));
+			text = getTextContent(reader);
+		}
+	}
+
+	private static void readField(final XMLStreamReader reader, final IndexDocument document)
+			throws XMLStreamException {
+		final String fieldName = reader.getAttributeValue(null, "name");
+		List<String> copyFieldList = null;
+		final List<XmlValue> values = new ArrayList<>(1);
+		while (nextChild(reader)) {
+			switch (reader.getLocalName()) {
+			case "copy":
+				final String copyField = reader.getAttributeValue(null, "field");
+				if (copyField != null) {
+					if (copyFieldList == null)
+						copyFieldList = new ArrayList<>(1);
+					copyFieldList.add(copyField);
+				}
+				skipElement(reader);
+				break;
+			case "value":
+				values.add(new XmlValue(reader));
+				break;
+			default:
+				skipElement(reader);
+				break;
+			}
+		}
+		// The copy elements apply to every value, whatever their position
+		for (XmlValue value : values)
+			document.addXmlValue(fieldName, copyFieldList, value.text, value.boost, value.removeTag,
+					value.convertHtmlEntities);
+	}
+
+	private static String getAttribute(final XMLStreamReader reader, final String[] names) {
+		for (String name : names) {
+			final String value = reader.getAttributeValue(null, name);
+			if (value != null && !value.isEmpty())
+				return value;
+		}
+		return null;
+	}
+
+	private void readBinary(final XMLStreamReader reader, final IndexDocument document)
+			throws XMLStreamException, SearchLibException, IOException {
+		final boolean faultTolerant = "yes".equalsIgnoreCase(reader.getAttributeValue(null, "faultTolerant"));
+		final String filename = getAttribute(reader, BINARY_FILENAME);
+		final String filePath = getAttribute(reader, BINARY_FILEPATH);
+		final String contentType = getAttribute(reader, BINARY_CONTENTTYPE);
+		final String url = reader.getAttributeValue(null, "url");
+		final String content = getTextContent(reader);
+		try {
+			document.addXmlBinary(url, content, filePath, filename, client, parserSelector, contentType,
+					urlDefaultCredential, httpDownloader, faultTolerant);
+		} catch (URISyntaxException | InstantiationException | IllegalAccessException | ClassNotFoundException e) {
+			throw new SearchLibException(e);
+		}
+	}
+
+	private void readDelete(final XMLStreamReader reader) throws XMLStreamException {
+		while (nextChild(reader)) {
+			if ("uniquekey".equals(reader.getLocalName()))
+				deleteList.add(getTextContent(reader));
+			else
+				skipElement(reader);
+		}
+	}
+
+	/**
+	 * Move to the next child element of the current element
+	 *
+	 * @return false when the end of the current element is reached
+	 */
+	private static boolean nextChild(final XMLStreamReader reader) throws XMLStreamException {
+		for (;;) {
+			switch (reader.next()) {
+			case XMLStreamConstants.START_ELEMENT:
+				return true;
+			case XMLStreamConstants.END_ELEMENT:
+				return false;
+			default:
+				break;
+			}
+		}
+	}
+
+	private static void skipElement(final XMLStreamReader reader) throws XMLStreamException {
+		int depth = 1;
+		while (depth > 0) {
+			switch (reader.next()) {
+			case XMLStreamConstants.START_ELEMENT:
+				depth++;
+				break;
+			case XMLStreamConstants.END_ELEMENT:
+				depth--;
+				break;
+			default:
+				break;
+			}
+		}
+	}
+
+	/**
+	 * @return the text of the current element and of its descendants (as the
+	 * DOM getTextContent). The reader is left on the end of the element.
+	 */
+	private static String getTextContent(final XMLStreamReader reader) throws XMLStreamException {
+		final StringBuilder sb = new StringBuilder();
+		int depth = 1;
+		while (depth > 0) {
+			switch (reader.next()) {
+			case XMLStreamConstants.START_ELEMENT:
+				depth++;
+				break;
+			case XMLStreamConstants.END_ELEMENT:
+				depth--;
+				break;
+			case XMLStreamConstants.CHARACTERS:
+			case XMLStreamConstants.CDATA:
+			case XMLStreamConstants.SPACE:
+			case XMLStreamConstants.ENTITY_REFERENCE:
+				sb.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+				break;
+			default:
+				break;
+			}
+		}
+		return sb.toString();
+	}
+
+	private void flush() throws SearchLibException, IOException {
+		if (!updateList.isEmpty()) {
+			updatedCount += client.updateDocuments(updateList);
+			updateList.clear();
+		}
+		if (!deleteList.isEmpty()) {
+			deletedCount += client.deleteDocuments(client.getSchema().getUniqueField(), deleteList);
+			deleteList.clear();
+		}
+		checkpoint = lastElementEnd;
+		final String info = getInfo();
+		if (infoCallBack != null)
+			infoCallBack.setInfo(info);
+		else
+			Logging.info(info);
+	}
+
+	public int getUpdatedCount() {
+		return updatedCount;
+	}
+
+	public int getDeletedCount() {
+		return deletedCount;
+	}
+
+	/**
+	 * @return the offset (in characters) right after the last committed
+	 * element. Pass it to load to resume an interrupted load.
+	 */
+	public long getCheckpoint() {
+		return checkpoint;
+	}
+
+	/**
+	 * @return the number of updated and deleted documents per second
+	 */
+	public long getRate() {
+		final long elapsed = System.nanoTime() - startTime;
+		return elapsed <= 0 ? 0 : (updatedCount + deletedCount) * TimeUnit.SECONDS.toNanos(1) / elapsed;
+	}
+
+	public String getInfo() {
+		final StringBuilder sb = new StringBuilder();
+		sb.append(updatedCount);
+		sb.append(" XML document(s) updated, ");
+		sb.append(deletedCount);
+		sb.append(" deleted (");
+		sb.append(getRate());
+		sb.append("/s) - checkpoint: ");
+		sb.append(checkpoint);
+		return sb.toString();
+	}
+
+	/**
+	 * Reads a prefix, then the given reader
+	 */
+	private static class PrefixedReader extends Reader {
+
+		private final Reader prefix;
+		private final Reader reader;
+		private boolean prefixDone;
+
+		private PrefixedReader(final String prefix, final Reader reader) {
+			this.prefix = new StringReader(prefix);
+			this.reader = reader;
+			this.prefixDone = false;
+		}
+
+		@Override
+		public int read(final char[] cbuf, final int off, final int len) throws IOException {
+			if (!prefixDone) {
+				final int read = prefix.read(cbuf, off, len);
+				if (read != -1)
+					return read;
+				prefixDone = true;
+			}
+			return reader.read(cbuf, off, len);
+		}
+
+		@Override
+		public void close() throws IOException {
+			reader.close();
+		}
+	}
+}
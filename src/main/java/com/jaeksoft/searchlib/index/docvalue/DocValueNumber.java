@@ -26,28 +26,52 @@ package com.jaeksoft.searchlib.index.docvalue;
 
 import java.text.NumberFormat;
 import java.text.ParseException;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 import com.jaeksoft.searchlib.index.FieldCacheIndex;
 
+/**
+ * The terms of the field cache are parsed once: the decoded values are kept as
+ * long as the lookup array of the field cache is alive.
+ */
 public abstract class DocValueNumber extends DocValueStringIndex {
 
-	private final NumberFormat numberFormat;
+	private final static Map<String[], float[]> DECODED_VALUES = new WeakHashMap<String[], float[]>();
+
+	private final float[] values;
 
 	protected DocValueNumber(final FieldCacheIndex stringIndex,
 			final NumberFormat numberFormat) {
 		super(stringIndex);
-		this.numberFormat = numberFormat;
+		this.values = getValues(stringIndex.lookup, numberFormat);
+	}
+
+	private final static float[] getValues(final String[] lookup,
+			final NumberFormat numberFormat) {
+		synchronized (DECODED_VALUES) {
+			float[] values = DECODED_VALUES.get(lookup);
+			if (values != null)
+				return values;
+			values = new float[lookup.length];
+			int i = 0;
+			for (String s : lookup) {
+				if (s != null) {
+					try {
+						values[i] = numberFormat.parse(s).floatValue();
+					} catch (ParseException e) {
+						values[i] = 0;
+					}
+				}
+				i++;
+			}
+			DECODED_VALUES.put(lookup, values);
+			return values;
+		}
 	}
 
 	@Override
 	final public float getFloat(final int doc) {
-		try {
-			String s = stringIndex.lookup[stringIndex.order[doc]];
-			if (s == null)
-				return 0;
-			return numberFormat.parse(s).floatValue();
-		} catch (ParseException e) {
-			return 0;
-		}
+		return values[stringIndex.order[doc]];
 	}
 }
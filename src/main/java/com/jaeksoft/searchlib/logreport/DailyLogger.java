@@ -24,24 +24,80 @@
 
 package com.jaeksoft.searchlib.logreport;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.InputStream;
+import java.nio.charset.Charset;
 import java.util.Calendar;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
-import com.jaeksoft.searchlib.SearchLibException;
+import com.jaeksoft.searchlib.Logging;
+import com.jaeksoft.searchlib.util.FileUtils;
 import com.jaeksoft.searchlib.util.FormatUtils.ThreadSafeDateFormat;
 import com.jaeksoft.searchlib.util.FormatUtils.ThreadSafeSimpleDateFormat;
 import com.jaeksoft.searchlib.util.IOUtils;
-import com.jaeksoft.searchlib.util.SimpleLock;
 
+/**
+ * A daily log file written by a background thread. The callers only enqueue
+ * entries in a bounded, lock-free queue. The writer thread writes the pending
+ * entries by batch and flushes once per batch (group commit). When the queue
+ * is full, the entry is dropped and counted: logging never blocks the caller.
+ * 
+ * The file is rotated every day, and optionally when it reaches a maximum
+ * size (the next parts are suffixed by .1, .2, ...). Rotated files can be
+ * compressed (.gz).
+ */
 public class DailyLogger {
 
-	final private SimpleLock lock = new SimpleLock();
+	public final static int DEFAULT_QUEUE_CAPACITY = 65536;
+
+	public final static String GZIP_EXTENSION = ".gz";
+
+	private final static int MAX_BATCH_SIZE = 4096;
+
+	private final static int BUFFER_SIZE = 65536;
+
+	private final static long GROUP_COMMIT_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+	private final static long CLOSE_TIMEOUT_MS = 10000;
+
+	final private static ThreadSafeDateFormat dailyFormat = new ThreadSafeSimpleDateFormat("yyyy-MM-dd");
+
+	/**
+	 * An entry of the log. The time is captured when the entry is created, the
+	 * line is formatted later by the writer thread.
+	 */
+	public static abstract class Entry {
+
+		private final long time;
 
-	final private static ThreadSafeDateFormat dailyFormat = new ThreadSafeSimpleDateFormat(
-			"yyyy-MM-dd");
+		protected Entry() {
+			time = System.currentTimeMillis();
+		}
+
+		protected abstract void format(StringBuilder sb) throws IOException;
+	}
+
+	private static class MessageEntry extends Entry {
+
+		private final String message;
+
+		private MessageEntry(String message) {
+			this.message = message;
+		}
+
+		@Override
+		protected void format(StringBuilder sb) {
+			sb.append(message);
+		}
+	}
 
 	final private ThreadSafeDateFormat timeStampFormat;
 
@@ -49,77 +105,312 @@ public class DailyLogger {
 
 	final private String filePrefix;
 
-	private long timeLimit;
+	final private long maxFileSize;
+
+	final private boolean compress;
+
+	final private int queueCapacity;
+
+	final private ConcurrentLinkedQueue<Entry> queue = new ConcurrentLinkedQueue<Entry>();
+
+	final private AtomicInteger queueSize = new AtomicInteger();
 
-	private String currentLogFileName;
+	final private AtomicLong droppedCount = new AtomicLong();
 
-	private PrintWriter printWriter = null;
+	final private AtomicLong writtenCount = new AtomicLong();
 
-	private FileWriter fileWriter = null;
+	private volatile Writer writer = null;
 
-	public DailyLogger(File parentDir, String filePrefix,
-			ThreadSafeDateFormat timeStampFormat) {
+	/**
+	 * @param parentDir
+	 *            the directory of the log files
+	 * @param filePrefix
+	 *            the prefix of the log files
+	 * @param timeStampFormat
+	 *            the format of the timestamp starting each line (may be null)
+	 * @param maxFileSize
+	 *            the size of a file which triggers a rotation (0 means no
+	 *            limit)
+	 * @param compress
+	 *            true to compress the rotated files
+	 * @param queueCapacity
+	 *            the maximum number of pending entries
+	 */
+	public DailyLogger(File parentDir, String filePrefix, ThreadSafeDateFormat timeStampFormat, long maxFileSize,
+			boolean compress, int queueCapacity) {
 		this.parentDir = parentDir;
 		this.filePrefix = filePrefix;
 		this.timeStampFormat = timeStampFormat;
-		setTimeLimit(System.currentTimeMillis());
+		this.maxFileSize = maxFileSize;
+		this.compress = compress;
+		this.queueCapacity = queueCapacity;
+	}
+
+	public DailyLogger(File parentDir, String filePrefix, ThreadSafeDateFormat timeStampFormat) {
+		this(parentDir, filePrefix, timeStampFormat, 0, false, DEFAULT_QUEUE_CAPACITY);
+	}
+
+	/**
+	 * @return the number of entries dropped because the queue was full, or
+	 *         because the file could not be written
+	 */
+	public long getDroppedCount() {
+		return droppedCount.get();
 	}
 
-	private void setTimeLimit(long millis) {
-		lock.rl.lock();
+	public long getWrittenCount() {
+		return writtenCount.get();
+	}
+
+	public int getPendingCount() {
+		return queueSize.get();
+	}
+
+	private synchronized Writer startWriter() {
+		if (writer != null)
+			return writer;
+		final Writer w = new Writer();
+		w.thread = new Thread(w, "DailyLogger " + filePrefix);
+		w.thread.setDaemon(true);
+		w.thread.start();
+		writer = w;
+		return w;
+	}
+
+	/**
+	 * Write the pending entries and close the file. The writer thread is
+	 * started again by the next log.
+	 */
+	final public synchronized void close() {
+		final Writer w = writer;
+		if (w == null)
+			return;
+		writer = null;
+		w.stopping = true;
+		LockSupport.unpark(w.thread);
 		try {
-			close();
-			Calendar cal = Calendar.getInstance();
-			cal.setTimeInMillis(millis);
-			cal.set(Calendar.HOUR, 0);
-			cal.set(Calendar.MINUTE, 0);
-			cal.set(Calendar.SECOND, 0);
-			cal.set(Calendar.MILLISECOND, 0);
-			StringBuilder sb = new StringBuilder(filePrefix);
-			sb.append('.');
-			sb.append(dailyFormat.format(cal.getTime()));
-			currentLogFileName = sb.toString();
-			cal.add(Calendar.DAY_OF_MONTH, 1);
-			timeLimit = cal.getTimeInMillis();
-		} finally {
-			lock.rl.unlock();
+			w.thread.join(CLOSE_TIMEOUT_MS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
 		}
 	}
 
-	final private void open() throws IOException {
-		fileWriter = new FileWriter(new File(parentDir, currentLogFileName),
-				true);
-		printWriter = new PrintWriter(fileWriter);
+	final protected void log(Entry entry) {
+		final int size = queueSize.incrementAndGet();
+		if (size > queueCapacity) {
+			queueSize.decrementAndGet();
+			droppedCount.incrementAndGet();
+			return;
+		}
+		queue.offer(entry);
+		Writer w = writer;
+		if (w == null)
+			w = startWriter();
+		// Wake up the writer before the end of the group commit interval
+		if (size == queueCapacity / 2)
+			LockSupport.unpark(w.thread);
 	}
 
-	final public void close() {
-		lock.rl.lock();
-		try {
-			IOUtils.close(printWriter, fileWriter);
-			printWriter = null;
-			fileWriter = null;
-		} finally {
-			lock.rl.unlock();
+	final protected void log(String message) {
+		log(new MessageEntry(message));
+	}
+
+	private String getFileName(String day, int part) {
+		StringBuilder sb = new StringBuilder(filePrefix);
+		sb.append('.');
+		sb.append(day);
+		if (part > 0) {
+			sb.append('.');
+			sb.append(part);
 		}
+		return sb.toString();
 	}
 
-	final protected void log(String message) throws SearchLibException {
-		lock.rl.lock();
+	private static long getNextDay(long millis) {
+		Calendar cal = Calendar.getInstance();
+		cal.setTimeInMillis(millis);
+		cal.set(Calendar.HOUR_OF_DAY, 0);
+		cal.set(Calendar.MINUTE, 0);
+		cal.set(Calendar.SECOND, 0);
+		cal.set(Calendar.MILLISECOND, 0);
+		cal.add(Calendar.DAY_OF_MONTH, 1);
+		return cal.getTimeInMillis();
+	}
+
+	private void compress(File file) {
+		if (!file.exists())
+			return;
+		File gzipFile = new File(file.getParentFile(), file.getName() + GZIP_EXTENSION);
+		InputStream input = null;
 		try {
-			long time = System.currentTimeMillis();
-			if (time >= timeLimit)
-				setTimeLimit(time);
-			if (printWriter == null)
-				open();
-			if (timeStampFormat != null)
-				printWriter.print(timeStampFormat.format(time));
-			printWriter.println(message);
-			printWriter.flush();
+			input = new FileInputStream(file);
+			FileUtils.writeToGzipFile(input, gzipFile);
+			input.close();
+			input = null;
+			if (!file.delete())
+				Logging.warn("Unable to delete the compressed log file " + file.getAbsolutePath());
 		} catch (IOException e) {
-			close();
-			throw new SearchLibException(e);
+			Logging.warn("Unable to compress the log file " + file.getAbsolutePath(), e);
+			gzipFile.delete();
 		} finally {
-			lock.rl.unlock();
+			IOUtils.close(input);
+		}
+	}
+
+	/**
+	 * The writer thread. Only this thread touches the file. The lines are
+	 * encoded in a buffer, so the size of the file is known in bytes, and an
+	 * entry is only counted as written once its bytes reached the file.
+	 */
+	private class Writer implements Runnable {
+
+		private Thread thread;
+
+		private volatile boolean stopping = false;
+
+		private final StringBuilder line = new StringBuilder();
+
+		private final Charset charset = Charset.defaultCharset();
+
+		private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(BUFFER_SIZE);
+
+		private int bufferedEntries = 0;
+
+		private String day = null;
+
+		private long dayLimit = 0;
+
+		private int part = 0;
+
+		private File file = null;
+
+		private FileOutputStream output = null;
+
+		private long fileSize = 0;
+
+		/**
+		 * Write the buffer to the file. If it fails, the buffered entries are
+		 * counted as dropped.
+		 */
+		private void flushBuffer() throws IOException {
+			if (buffer.size() == 0)
+				return;
+			final int entries = bufferedEntries;
+			bufferedEntries = 0;
+			try {
+				buffer.writeTo(output);
+				writtenCount.addAndGet(entries);
+			} catch (IOException e) {
+				droppedCount.addAndGet(entries);
+				throw e;
+			} finally {
+				buffer.reset();
+			}
+		}
+
+		private void warn(IOException e) {
+			Logging.warn("Unable to write the log file " + (file == null ? filePrefix : file.getAbsolutePath()), e);
+		}
+
+		private void closeFile(boolean rotate) {
+			if (output == null)
+				return;
+			try {
+				flushBuffer();
+			} catch (IOException e) {
+				warn(e);
+			}
+			IOUtils.close(output);
+			output = null;
+			if (rotate && compress)
+				compress(file);
+		}
+
+		private void openFile(long time) throws IOException {
+			if (time >= dayLimit) {
+				closeFile(true);
+				day = dailyFormat.format(time);
+				dayLimit = getNextDay(time);
+				part = 0;
+			} else if (maxFileSize > 0 && fileSize >= maxFileSize) {
+				closeFile(true);
+				part++;
+			}
+			if (output != null)
+				return;
+			for (;;) {
+				file = new File(parentDir, getFileName(day, part));
+				boolean full = maxFileSize > 0 && file.length() >= maxFileSize;
+				if (!full && !new File(parentDir, file.getName() + GZIP_EXTENSION).exists())
+					break;
+				part++;
+			}
+			fileSize = file.length();
+			output = new FileOutputStream(file, true);
+		}
+
+		private void write(Entry entry) throws IOException {
+			try {
+				line.setLength(0);
+				if (timeStampFormat != null)
+					line.append(timeStampFormat.format(entry.time));
+				entry.format(line);
+				line.append(System.lineSeparator());
+				openFile(entry.time);
+			} catch (IOException e) {
+				droppedCount.incrementAndGet();
+				throw e;
+			}
+			final byte[] bytes = line.toString().getBytes(charset);
+			buffer.write(bytes, 0, bytes.length);
+			bufferedEntries++;
+			fileSize += bytes.length;
+			if (buffer.size() >= BUFFER_SIZE)
+				flushBuffer();
+		}
+
+		/**
+		 * Write one batch of entries, then flush
+		 * 
+		 * @return the number of entries taken from the queue
+		 */
+		private int writeBatch() {
+			int count = 0;
+			Entry entry;
+			try {
+				while (count < MAX_BATCH_SIZE && (entry = queue.poll()) != null) {
+					queueSize.decrementAndGet();
+					count++;
+					write(entry);
+				}
+				flushBuffer();
+			} catch (IOException e) {
+				// The entries which did not reach the file are already counted
+				warn(e);
+				closeFile(false);
+			}
+			return count;
+		}
+
+		@Override
+		public void run() {
+			long lastDropped = droppedCount.get();
+			try {
+				for (;;) {
+					if (writeBatch() > 0)
+						continue;
+					if (stopping)
+						break;
+					long dropped = droppedCount.get();
+					if (dropped != lastDropped) {
+						Logging.warn(filePrefix + ": " + (dropped - lastDropped) + " log entries dropped");
+						lastDropped = dropped;
+					}
+					LockSupport.parkNanos(this, GROUP_COMMIT_NANOS);
+				}
+			} finally {
+				closeFile(false);
+			}
 		}
 	}
 }
@@ -50,6 +50,8 @@ public class LogReportManager {
 	final private File dirLog;
 	final private DailyLogger logger;
 
+	private final static long MAX_FILE_SIZE = 100 * 1024 * 1024;
+
 	private final static ThreadSafeDateFormat timeStampFormat = new ThreadSafeSimpleDateFormat(
 			"yyyy-MM-dd'T'HH:mm:ssZ");
 
@@ -57,7 +59,8 @@ public class LogReportManager {
 		dirLog = new File(StartStopListener.OPENSEARCHSERVER_DATA_FILE, "logs");
 		if (!dirLog.exists())
 			dirLog.mkdir();
-		logger = new DailyLogger(getLogDirectory(), "report." + indexName, timeStampFormat);
+		logger = new DailyLogger(getLogDirectory(), "report." + indexName, timeStampFormat, MAX_FILE_SIZE, true,
+				DailyLogger.DEFAULT_QUEUE_CAPACITY);
 	}
 
 	public void close() {
@@ -110,28 +113,41 @@ public class LogReportManager {
 			throw new IOException("Unable to delete " + logFile.getAbsolutePath());
 	}
 
-	final public void log(AbstractRequest request, Timer timer, AbstractResult<?> result) throws SearchLibException {
-		if (request == null)
-			return;
-		if (!request.isLogReport())
-			return;
-		try {
-			AbstractSearchRequest searchRequest = request instanceof AbstractSearchRequest
-					? (AbstractSearchRequest) request : null;
-			StringBuilder sb = new StringBuilder();
+	/**
+	 * The fields of a report line, copied from the request thread. The line
+	 * is formatted by the writer thread.
+	 */
+	private static class ReportEntry extends DailyLogger.Entry {
+
+		private final String queryString;
+		private final long duration;
+		private final int numFound;
+		private final int start;
+		private final String[] customLogs;
+
+		private ReportEntry(AbstractSearchRequest searchRequest, Timer timer, AbstractResult<?> result) {
+			queryString = searchRequest == null ? null : searchRequest.getQueryString();
+			duration = timer == null ? -1 : timer.getDuration();
+			numFound = result instanceof AbstractResultSearch ? ((AbstractResultSearch<?>) result).getNumFound() : -1;
+			start = searchRequest == null ? -1 : searchRequest.getStart();
+			List<String> logs = searchRequest == null ? null : searchRequest.getCustomLogs();
+			customLogs = logs == null ? null : logs.toArray(new String[logs.size()]);
+		}
+
+		@Override
+		protected void format(StringBuilder sb) throws UnsupportedEncodingException {
 			sb.append('\u0009');
-			if (searchRequest != null)
-				sb.append(URLEncoder.encode(searchRequest.getQueryString(), "UTF-8"));
+			if (queryString != null)
+				sb.append(URLEncoder.encode(queryString, "UTF-8"));
 			sb.append('\u0009');
-			if (timer != null)
-				sb.append(timer.getDuration());
+			if (duration != -1)
+				sb.append(duration);
 			sb.append('\u0009');
-			if (result != null && result instanceof AbstractResultSearch)
-				sb.append(((AbstractResultSearch<?>) result).getNumFound());
+			if (numFound != -1)
+				sb.append(numFound);
 			sb.append('\u0009');
-			if (searchRequest != null) {
-				sb.append(searchRequest.getStart());
-				List<String> customLogs = searchRequest.getCustomLogs();
+			if (start != -1) {
+				sb.append(start);
 				if (customLogs != null) {
 					for (String customLog : customLogs) {
 						sb.append('\u0009');
@@ -139,9 +155,23 @@ public class LogReportManager {
 					}
 				}
 			}
-			logger.log(sb.toString());
-		} catch (UnsupportedEncodingException e) {
-			throw new SearchLibException(e);
 		}
 	}
+
+	/**
+	 * @return the number of report lines lost because the log queue was full
+	 */
+	public long getDroppedCount() {
+		return logger.getDroppedCount();
+	}
+
+	final public void log(AbstractRequest request, Timer timer, AbstractResult<?> result) throws SearchLibException {
+		if (request == null)
+			return;
+		if (!request.isLogReport())
+			return;
+		AbstractSearchRequest searchRequest = request instanceof AbstractSearchRequest
+				? (AbstractSearchRequest) request : null;
+		logger.log(new ReportEntry(searchRequest, timer, result));
+	}
 }
@@ -31,6 +31,7 @@ import com.jaeksoft.searchlib.analysis.LanguageEnum;
 import com.jaeksoft.searchlib.crawler.web.database.UrlFilterItem;
 import com.jaeksoft.searchlib.crawler.web.database.UrlItemFieldEnum;
 import com.jaeksoft.searchlib.index.IndexDocument;
+import com.jaeksoft.searchlib.parser.htmlParser.HtmlCharsetSniffer;
 import com.jaeksoft.searchlib.parser.htmlParser.HtmlDocumentProvider;
 import com.jaeksoft.searchlib.parser.htmlParser.HtmlNodeAbstract;
 import com.jaeksoft.searchlib.parser.htmlParser.HtmlParserEnum;
@@ -41,13 +42,6 @@ import com.jaeksoft.searchlib.util.Lang;
 import com.jaeksoft.searchlib.util.LinkUtils;
 import com.jaeksoft.searchlib.util.StringUtils;
 import org.apache.commons.text.StringEscapeUtils;
-import org.apache.lucene.analysis.Analyzer;
-import org.apache.lucene.analysis.WhitespaceAnalyzer;
-import org.apache.lucene.index.IndexReader;
-import org.apache.lucene.index.memory.MemoryIndex;
-import org.apache.lucene.search.IndexSearcher;
-import org.apache.lucene.search.similar.MoreLikeThis;
-import org.apache.lucene.util.Version;
 import org.xml.sax.SAXException;
 
 import javax.xml.parsers.ParserConfigurationException;
@@ -57,6 +51,8 @@ import java.io.StringWriter;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
@@ -221,10 +217,7 @@ public class HtmlParser extends Parser {
 		}
 
 		if (node.isTextNode()) {
-			String text = node.getText();
-			text = text.replaceAll("\\r", " ");
-			text = text.replaceAll("\\n", " ");
-			text = StringUtils.replaceConsecutiveSpaces(text, " ");
+			String text = StringUtils.replaceConsecutiveSpaces(node.getText(), " ");
 			text = text.trim();
 			if (text.length() > 0) {
 				text = StringEscapeUtils.unescapeHtml4(text);
@@ -283,7 +276,7 @@ public class HtmlParser extends Parser {
 				selected = position;
 				continue;
 			}
-			if (!first.equals(charset))
+			if (!isSameCharset(first, charset))
 				break;
 		}
 		if (Logging.isDebug)
@@ -291,6 +284,22 @@ public class HtmlParser extends Parser {
 		return first;
 	}
 
+	/**
+	 * Charset names are case insensitive and may be aliases ("latin1",
+	 * "ISO-8859-1")
+	 */
+	final static boolean isSameCharset(String charset1, String charset2) {
+		if (charset1 == null || charset2 == null)
+			return charset1 == charset2;
+		if (charset1.equalsIgnoreCase(charset2))
+			return true;
+		try {
+			return Charset.forName(charset1).equals(Charset.forName(charset2));
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+	}
+
 	private final HtmlDocumentProvider<Object> getHtmlDocumentProvider(HtmlParserEnum htmlParserEnum, String charset,
 			StreamLimiter streamLimiter, String xPathExclusions, Set<Object> xPathExclusionSet)
 			throws IOException, SearchLibException {
@@ -336,6 +345,7 @@ public class HtmlParser extends Parser {
 
 		String currentCharset = null;
 		String headerCharset = null;
+		String sniffedCharset = null;
 		String detectedCharset = null;
 
 		IndexDocument sourceDocument = getSourceDocument();
@@ -353,6 +363,12 @@ public class HtmlParser extends Parser {
 			currentCharset = headerCharset;
 		}
 
+		// The charset declared in the first bytes avoids parsing the page twice
+		if (currentCharset == null) {
+			sniffedCharset = HtmlCharsetSniffer.sniff(streamLimiter);
+			currentCharset = sniffedCharset;
+		}
+
 		if (currentCharset == null) {
 			detectedCharset = streamLimiter.getDetectedCharset();
 			currentCharset = detectedCharset;
@@ -418,21 +434,26 @@ public class HtmlParser extends Parser {
 
 		// Check ContentType charset in meta http-equiv
 		String metaCharset = htmlProvider.getMetaCharset();
+		if (metaCharset == null)
+			metaCharset = sniffedCharset;
 
 		String selectedCharset = selectCharset(headerCharset, metaCharset, detectedCharset);
 
 		if (selectedCharset != null) {
-			if (!selectedCharset.equals(currentCharset)) {
+			if (!isSameCharset(selectedCharset, currentCharset)) {
 				currentCharset = selectedCharset;
 				htmlProvider = getHtmlDocumentProvider(htmlParserEnum, currentCharset, streamLimiter, xPathExclusions,
 						xPathExclusionsSet);
 			}
 		}
 
-		StringWriter writer = new StringWriter();
-		IOUtils.copy(streamLimiter.getNewInputStream(), writer, currentCharset);
-		result.addField(ParserFieldEnum.htmlSource, writer.toString());
-		writer.close();
+		// The whole source is only decoded when it is indexed
+		if (getFieldMap().isMapped(ParserFieldEnum.htmlSource)) {
+			StringWriter writer = new StringWriter();
+			IOUtils.copy(streamLimiter.getNewInputStream(), writer, currentCharset);
+			result.addField(ParserFieldEnum.htmlSource, writer.toString());
+			writer.close();
+		}
 
 		final HtmlNodeAbstract<Object> rootNode = htmlProvider.getRootNode();
 		if (rootNode == null)
@@ -441,18 +462,6 @@ public class HtmlParser extends Parser {
 		if (!StringUtils.isBlank(xPathExclusions))
 			result.addField(ParserFieldEnum.generatedSource, htmlProvider.generateSource());
 
-		for (HtmlNodeAbstract<?> metaNode : htmlProvider.getMetas()) {
-			String metaName = metaNode.getAttributeText("name");
-			if (metaName != null && metaName.startsWith(OPENSEARCHSERVER_FIELD)) {
-				String field = metaName.substring(OPENSEARCHSERVER_FIELD_LENGTH);
-				String[] fields = field.split("\\.");
-				if (fields != null) {
-					String content = metaNode.getAttributeText("content");
-					result.addDirectFields(fields, content);
-				}
-			}
-		}
-
 		result.addField(ParserFieldEnum.charset, currentCharset);
 
 		String metaRobots = null;
@@ -464,7 +473,14 @@ public class HtmlParser extends Parser {
 		for (HtmlNodeAbstract<?> node : htmlProvider.getMetas()) {
 			String attr_name = node.getAttributeText("name");
 			String attr_http_equiv = node.getAttributeText("http-equiv");
-			if ("keywords".equalsIgnoreCase(attr_name))
+			if (attr_name != null && attr_name.startsWith(OPENSEARCHSERVER_FIELD)) {
+				String field = attr_name.substring(OPENSEARCHSERVER_FIELD_LENGTH);
+				String[] fields = field.split("\\.");
+				if (fields != null) {
+					String content = node.getAttributeText("content");
+					result.addDirectFields(fields, content);
+				}
+			} else if ("keywords".equalsIgnoreCase(attr_name))
 				result.addField(ParserFieldEnum.meta_keywords, HtmlDocumentProvider.getMetaContent(node));
 			else if ("description".equalsIgnoreCase(attr_name))
 				result.addField(ParserFieldEnum.meta_description, HtmlDocumentProvider.getMetaContent(node));
@@ -597,27 +613,9 @@ public class HtmlParser extends Parser {
 				}
 			}
 
-			if (generatedTitle == null) {
-				final String FIELD_TITLE = "contents";
-
-				MemoryIndex bodyMemoryIndex = new MemoryIndex();
-				Analyzer bodyAnalyzer = new WhitespaceAnalyzer(Version.LUCENE_36);
-				String bodyText = result.getMergedBodyText(100000, " ", ParserFieldEnum.body);
-				bodyMemoryIndex.addField(FIELD_TITLE, bodyText, bodyAnalyzer);
-
-				IndexSearcher indexSearcher = bodyMemoryIndex.createSearcher();
-				IndexReader indexReader = indexSearcher.getIndexReader();
-				MoreLikeThis mlt = new MoreLikeThis(indexReader);
-				mlt.setAnalyzer(bodyAnalyzer);
-				mlt.setFieldNames(new String[] { FIELD_TITLE });
-				mlt.setMinWordLen(3);
-				mlt.setMinTermFreq(1);
-				mlt.setMinDocFreq(1);
-
-				String[] words = mlt.retrieveInterestingTerms(0);
-				if (words != null && words.length > 0)
-					generatedTitle = words[0];
-			}
+			if (generatedTitle == null)
+				generatedTitle = getMostFrequentWord(result.getMergedBodyText(100000, " ", ParserFieldEnum.body),
+						GENERATED_TITLE_MAX_TOKENS, 3);
 
 			if (generatedTitle != null) {
 				if (sb.length() > 0)
@@ -637,6 +635,48 @@ public class HtmlParser extends Parser {
 
 	}
 
+	private final static int GENERATED_TITLE_MAX_TOKENS = 5000;
+
+	/**
+	 * The most frequent whitespace separated word. For a single document, this
+	 * is the first "interesting term" MoreLikeThis would return.
+	 *
+	 * @param text       the text
+	 * @param maxTokens  the maximum number of words to read
+	 * @param minWordLen the minimum length of the word
+	 * @return the most frequent word or null
+	 */
+	private static String getMostFrequentWord(final String text, final int maxTokens, final int minWordLen) {
+		if (text == null)
+			return null;
+		final Map<String, int[]> counts = new HashMap<>();
+		final int length = text.length();
+		String bestWord = null;
+		int bestCount = 0;
+		int tokens = 0;
+		int start = -1;
+		for (int i = 0; i <= length && tokens < maxTokens; i++) {
+			if (i < length && !Character.isWhitespace(text.charAt(i))) {
+				if (start == -1)
+					start = i;
+				continue;
+			}
+			if (start == -1)
+				continue;
+			tokens++;
+			if (i - start >= minWordLen) {
+				final String word = text.substring(start, i);
+				final int[] count = counts.computeIfAbsent(word, w -> new int[1]);
+				if (++count[0] > bestCount) {
+					bestCount = count[0];
+					bestWord = word;
+				}
+			}
+			start = -1;
+		}
+		return bestWord;
+	}
+
 	/**
 	 * @return the isCanonical
 	 */
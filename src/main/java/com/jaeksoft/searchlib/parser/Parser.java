@@ -39,10 +39,13 @@ import org.xml.sax.SAXException;
 import com.jaeksoft.searchlib.Logging;
 import com.jaeksoft.searchlib.SearchLibException;
 import com.jaeksoft.searchlib.analysis.LanguageEnum;
+import com.jaeksoft.searchlib.index.FieldContent;
 import com.jaeksoft.searchlib.index.IndexDocument;
+import com.jaeksoft.searchlib.schema.FieldValueItem;
 import com.jaeksoft.searchlib.streamlimiter.LimitException;
 import com.jaeksoft.searchlib.streamlimiter.StreamLimiter;
 import com.jaeksoft.searchlib.util.FileUtils;
+import com.jaeksoft.searchlib.util.SimHash;
 import com.jaeksoft.searchlib.util.StringUtils;
 
 public abstract class Parser extends ParserFactory {
@@ -187,6 +190,32 @@ public abstract class Parser extends ParserFactory {
 		return hash;
 	}
 
+	private final static ParserFieldEnum[] SIMHASH_FIELDS =
+			{ ParserFieldEnum.title, ParserFieldEnum.body, ParserFieldEnum.content };
+
+	/**
+	 * @return the SimHash fingerprint of the extracted text, or null if there
+	 *         is no text
+	 */
+	public Long getSimHash() {
+		if (resultItems == null)
+			return null;
+		SimHash simHash = new SimHash();
+		for (ParserResultItem result : resultItems) {
+			for (ParserFieldEnum field : SIMHASH_FIELDS) {
+				FieldContent fieldContent = result.getFieldContent(field);
+				if (fieldContent == null)
+					continue;
+				List<FieldValueItem> values = fieldContent.getValues();
+				if (values == null)
+					continue;
+				for (FieldValueItem value : values)
+					simHash.add(value.getValue());
+			}
+		}
+		return simHash.getFingerprint();
+	}
+
 	@Override
 	public int hashCode() {
 		return this.getClass().getName().hashCode();
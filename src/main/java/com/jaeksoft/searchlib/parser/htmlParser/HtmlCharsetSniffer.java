@@ -0,0 +1,97 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.parser.htmlParser;
+
+import com.jaeksoft.searchlib.streamlimiter.StreamLimiter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the charset declared by an HTML document by looking at its first bytes
+ * (byte order mark, &lt;meta charset&gt; or &lt;meta http-equiv="content-type"&gt;),
+ * before any decoding.
+ */
+public class HtmlCharsetSniffer {
+
+	public final static int PRESCAN_LENGTH = 4096;
+
+	private final static Pattern META_PATTERN =
+			Pattern.compile("<meta\\s[^>]*?charset\\s*=\\s*[\"']?\\s*([a-z0-9_.:\\-]+)", Pattern.CASE_INSENSITIVE);
+
+	private final static Pattern COMMENT_PATTERN = Pattern.compile("<!--.*?-->", Pattern.DOTALL);
+
+	/**
+	 * @param bytes  the first bytes of the document
+	 * @param length the number of bytes
+	 * @return the declared charset, or null
+	 */
+	public static String sniff(final byte[] bytes, final int length) {
+		if (length >= 3 && (bytes[0] & 0xFF) == 0xEF && (bytes[1] & 0xFF) == 0xBB && (bytes[2] & 0xFF) == 0xBF)
+			return "UTF-8";
+		if (length >= 2) {
+			if ((bytes[0] & 0xFF) == 0xFE && (bytes[1] & 0xFF) == 0xFF)
+				return "UTF-16BE";
+			if ((bytes[0] & 0xFF) == 0xFF && (bytes[1] & 0xFF) == 0xFE)
+				return "UTF-16LE";
+		}
+		// Any ASCII compatible decoding is fine to read the declarations
+		String head = new String(bytes, 0, length, StandardCharsets.ISO_8859_1);
+		head = COMMENT_PATTERN.matcher(head).replaceAll("");
+		final Matcher matcher = META_PATTERN.matcher(head);
+		while (matcher.find()) {
+			final String charset = matcher.group(1).toLowerCase(Locale.ROOT);
+			try {
+				if (Charset.isSupported(charset))
+					return charset;
+			} catch (IllegalCharsetNameException e) {
+				// Try the next declaration
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @param streamLimiter the document
+	 * @return the declared charset, or null
+	 * @throws IOException if the document can't be read
+	 */
+	public static String sniff(final StreamLimiter streamLimiter) throws IOException {
+		try (final InputStream is = streamLimiter.getNewInputStream()) {
+			final byte[] bytes = new byte[PRESCAN_LENGTH];
+			int length = 0;
+			int read;
+			while (length < bytes.length && (read = is.read(bytes, length, bytes.length - length)) != -1)
+				length += read;
+			return sniff(bytes, length);
+		}
+	}
+}
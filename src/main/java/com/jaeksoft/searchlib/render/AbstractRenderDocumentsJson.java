@@ -25,12 +25,11 @@
 package com.jaeksoft.searchlib.render;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.commons.collections.CollectionUtils;
-import org.json.simple.JSONObject;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.jaeksoft.searchlib.SearchLibException;
 import com.jaeksoft.searchlib.function.expression.SyntaxError;
 import com.jaeksoft.searchlib.query.ParseException;
@@ -57,97 +56,96 @@ public abstract class AbstractRenderDocumentsJson<T1 extends AbstractRequest, T2
 				: null;
 	}
 
-	@SuppressWarnings("unchecked")
-	final protected void renderDocuments(JSONObject jsonResponse)
+	/**
+	 * Each document is loaded just before being written, and released once
+	 * written.
+	 */
+	final protected void renderDocuments(JsonGenerator json)
 			throws IOException, ParseException, SyntaxError, SearchLibException {
 		int start = resultDocs.getRequestStart();
 		int end = resultDocs.getDocumentCount() + start;
-		JSONObject jsonResult = new JSONObject();
-		ArrayList<JSONObject> resultArrayList = new ArrayList<JSONObject>();
-		jsonResult.put("numFound", resultDocs.getNumFound());
-		jsonResult.put("collapsedDocCount", resultDocs.getCollapsedDocCount());
-		jsonResult.put("start", start);
-		jsonResult.put("rows", resultDocs.getRequestRows());
-		jsonResult.put("maxScore", resultDocs.getMaxScore());
-		jsonResult.put("time", result.getTimer().getDuration());
-		for (int i = start; i < end; i++)
-			this.renderDocument(request, i, jsonResult, resultArrayList);
-		jsonResult.put("doc", resultArrayList);
-		jsonResponse.put("result", jsonResult);
-	}
-
-	@SuppressWarnings("unchecked")
-	private void renderDocument(AbstractRequest abstractRequest, int pos,
-			JSONObject jsonResult, ArrayList<JSONObject> resultArrayList)
-			throws IOException, ParseException, SyntaxError, SearchLibException {
-		JSONObject jsonDoc = new JSONObject();
-		ArrayList<JSONObject> jsonFieldList = new ArrayList<JSONObject>();
-		ArrayList<JSONObject> jsonSnippetList = new ArrayList<JSONObject>();
-		jsonDoc.put("score", resultDocs.getScore(pos));
-		jsonDoc.put("pos", pos);
-		ResultDocument doc = resultDocs.getDocument(pos, renderingTimer);
+		json.writeObjectFieldStart("result");
+		json.writeNumberField("numFound", resultDocs.getNumFound());
+		json.writeNumberField("collapsedDocCount",
+				resultDocs.getCollapsedDocCount());
+		json.writeNumberField("start", start);
+		json.writeNumberField("rows", resultDocs.getRequestRows());
+		json.writeNumberField("maxScore", resultDocs.getMaxScore());
+		json.writeNumberField("time", result.getTimer().getDuration());
+		json.writeArrayFieldStart("doc");
 		ReturnFieldList returnFieldList = null;
 		SnippetFieldList snippetFieldList = null;
-		if (abstractRequest instanceof AbstractSearchRequest) {
-			returnFieldList = ((AbstractSearchRequest) abstractRequest)
+		if (request instanceof AbstractSearchRequest) {
+			returnFieldList = ((AbstractSearchRequest) request)
 					.getReturnFieldList();
-			snippetFieldList = ((AbstractSearchRequest) abstractRequest)
+			snippetFieldList = ((AbstractSearchRequest) request)
 					.getSnippetFieldList();
-		} else if (abstractRequest instanceof RequestInterfaces.ReturnedFieldInterface) {
-			returnFieldList = ((RequestInterfaces.ReturnedFieldInterface) abstractRequest)
+		} else if (request instanceof RequestInterfaces.ReturnedFieldInterface) {
+			returnFieldList = ((RequestInterfaces.ReturnedFieldInterface) request)
 					.getReturnFieldList();
 		}
-		if (returnFieldList != null)
-			for (ReturnField field : returnFieldList) {
-				renderField(doc, field, jsonFieldList);
-				jsonDoc.put("field", jsonFieldList);
-			}
-		if (snippetFieldList != null)
-			for (SnippetField field : snippetFieldList) {
-				renderSnippetValue(doc, field, jsonSnippetList);
-				jsonDoc.put("snippet", jsonSnippetList);
-			}
+		for (int i = start; i < end; i++)
+			this.renderDocument(json, i, returnFieldList, snippetFieldList);
+		json.writeEndArray();
+		json.writeEndObject();
+	}
 
+	private void renderDocument(JsonGenerator json, int pos,
+			ReturnFieldList returnFieldList, SnippetFieldList snippetFieldList)
+			throws IOException, ParseException, SyntaxError, SearchLibException {
+		json.writeStartObject();
+		json.writeNumberField("score", resultDocs.getScore(pos));
+		json.writeNumberField("pos", pos);
+		ResultDocument doc = resultDocs.getDocument(pos, renderingTimer);
+		if (returnFieldList != null && returnFieldList.size() > 0) {
+			json.writeArrayFieldStart("field");
+			for (ReturnField field : returnFieldList)
+				renderField(json, doc, field);
+			json.writeEndArray();
+		}
+		if (snippetFieldList != null && snippetFieldList.size() > 0) {
+			json.writeArrayFieldStart("snippet");
+			for (SnippetField field : snippetFieldList)
+				renderSnippetValue(json, doc, field);
+			json.writeEndArray();
+		}
 		int cc = resultDocs.getCollapseCount(pos);
 		if (cc > 0)
-			jsonDoc.put("collapseCount", cc);
-
-		resultArrayList.add(jsonDoc);
+			json.writeNumberField("collapseCount", cc);
+		json.writeEndObject();
 	}
 
-	@SuppressWarnings("unchecked")
-	private void renderField(ResultDocument doc, ReturnField field,
-			ArrayList<JSONObject> jsonFieldList) throws IOException {
+	private void renderField(JsonGenerator json, ResultDocument doc,
+			ReturnField field) throws IOException {
 		String fieldName = field.getName();
 		List<FieldValueItem> values = doc.getValues(field);
-		JSONObject jsonField = new JSONObject();
 		if (CollectionUtils.isEmpty(values))
 			return;
 		for (FieldValueItem v : values) {
-			jsonField.put("name", fieldName);
+			json.writeStartObject();
+			json.writeStringField("name", fieldName);
 			Float b = v.getBoost();
 			if (b != null)
-				jsonField.put("boost", b);
-			jsonField.put("value", v.getValue());
-			jsonFieldList.add(jsonField);
+				json.writeNumberField("boost", b);
+			json.writeStringField("value", v.getValue());
+			json.writeEndObject();
 		}
 	}
 
-	@SuppressWarnings("unchecked")
-	private void renderSnippetValue(ResultDocument doc, SnippetField field,
-			ArrayList<JSONObject> jsonSnippetList) throws IOException {
+	private void renderSnippetValue(JsonGenerator json, ResultDocument doc,
+			SnippetField field) throws IOException {
 		String fieldName = field.getName();
 		List<FieldValueItem> snippets = doc.getSnippetValues(field);
 		if (snippets == null)
 			return;
-		JSONObject jsonSnippet = new JSONObject();
 		boolean highlighted = doc.isHighlighted(field.getName());
 		for (FieldValueItem snippet : snippets) {
-			jsonSnippet.put("name", fieldName);
+			json.writeStartObject();
+			json.writeStringField("name", fieldName);
 			if (highlighted)
-				jsonSnippet.put("highlighted", "yes");
-			jsonSnippet.put("value", snippet.getValue());
-			jsonSnippetList.add(jsonSnippet);
+				json.writeStringField("highlighted", "yes");
+			json.writeStringField("value", snippet.getValue());
+			json.writeEndObject();
 		}
 	}
 
@@ -168,7 +168,7 @@ public abstract class AbstractRenderDocumentsXml<T1 extends AbstractRequest, T2
 				writer.print('"');
 			}
 			writer.print('>');
-			writer.print(xmlTextRender(v.getValue()));
+			writeXmlText(v.getValue());
 			writer.println("</field>");
 		}
 	}
@@ -190,7 +190,7 @@ public abstract class AbstractRenderDocumentsXml<T1 extends AbstractRequest, T2
 			if (highlighted)
 				writer.print(" highlighted=\"yes\"");
 			writer.print('>');
-			writer.print(xmlTextRender(snippet.getValue()));
+			writeXmlText(snippet.getValue());
 			writer.println("\t\t</snippet>");
 		}
 	}
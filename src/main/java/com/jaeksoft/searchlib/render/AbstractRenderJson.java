@@ -27,11 +27,8 @@ package com.jaeksoft.searchlib.render;
 import java.io.IOException;
 import java.io.PrintWriter;
 
-import org.json.simple.JSONObject;
-
-import com.jaeksoft.searchlib.SearchLibException;
-import com.jaeksoft.searchlib.function.expression.SyntaxError;
-import com.jaeksoft.searchlib.query.ParseException;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.jaeksoft.searchlib.request.AbstractRequest;
 import com.jaeksoft.searchlib.result.AbstractResult;
 import com.jaeksoft.searchlib.web.ServletTransaction;
@@ -39,6 +36,9 @@ import com.jaeksoft.searchlib.web.ServletTransaction;
 public abstract class AbstractRenderJson<T1 extends AbstractRequest, T2 extends AbstractResult<T1>>
 		extends AbstractRender<T1, T2> {
 
+	private final static JsonFactory JSON_FACTORY = new JsonFactory()
+			.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
 	protected PrintWriter writer;
 
 	protected AbstractRenderJson(T2 result) {
@@ -48,15 +48,29 @@ public abstract class AbstractRenderJson<T1 extends AbstractRequest, T2 extends
 
 	public abstract void render() throws Exception;
 
-	@SuppressWarnings("unchecked")
-	protected void renderPrefix(JSONObject jsonResponse, String queryString)
-			throws ParseException, SyntaxError, SearchLibException, IOException {
-		JSONObject jsonHeader = new JSONObject();
-		jsonHeader.put("status", 0);
-		if (queryString != null)
-			jsonHeader.put("query", queryString);
-		jsonResponse.put("header", jsonHeader);
+	/**
+	 * The generator writes directly to the response writer. Nothing is built in
+	 * memory besides the generator buffer.
+	 * 
+	 * @param indent
+	 *            true to pretty print the output
+	 * @return a new JsonGenerator
+	 * @throws IOException
+	 */
+	protected JsonGenerator newJsonGenerator(Boolean indent) throws IOException {
+		JsonGenerator json = JSON_FACTORY.createGenerator(writer);
+		if (indent != null && indent)
+			json.useDefaultPrettyPrinter();
+		return json;
+	}
 
+	protected void renderPrefix(JsonGenerator json, String queryString)
+			throws IOException {
+		json.writeObjectFieldStart("header");
+		json.writeNumberField("status", 0);
+		if (queryString != null)
+			json.writeStringField("query", queryString);
+		json.writeEndObject();
 	}
 
 	@Override
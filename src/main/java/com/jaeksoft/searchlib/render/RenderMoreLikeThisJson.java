@@ -24,8 +24,7 @@
 
 package com.jaeksoft.searchlib.render;
 
-import org.json.simple.JSONObject;
-
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.jaeksoft.searchlib.request.MoreLikeThisRequest;
 import com.jaeksoft.searchlib.result.ResultMoreLikeThis;
 
@@ -38,19 +37,16 @@ public class RenderMoreLikeThisJson extends
 		this.indent = indent;
 	}
 
-	@SuppressWarnings("unchecked")
 	@Override
 	public void render() throws Exception {
-		JSONObject jsonResponse = new JSONObject();
-		renderPrefix(jsonResponse, request.getDocQuery());
-		renderDocuments(jsonResponse);
-		JSONObject json = new JSONObject();
-		json.put("response", jsonResponse);
-		if (indent)
-			writer.println(new org.json.JSONObject(json.toJSONString())
-					.toString(4));
-		else
-			writer.println(json);
-
+		try (JsonGenerator json = newJsonGenerator(indent)) {
+			json.writeStartObject();
+			json.writeObjectFieldStart("response");
+			renderPrefix(json, request.getDocQuery());
+			renderDocuments(json);
+			json.writeEndObject();
+			json.writeEndObject();
+		}
+		writer.println();
 	}
 }
@@ -24,14 +24,12 @@
 
 package com.jaeksoft.searchlib.render;
 
-import java.util.ArrayList;
+import java.io.IOException;
 import java.util.Map;
 
-import org.json.simple.JSONObject;
-
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.jaeksoft.searchlib.facet.Facet;
 import com.jaeksoft.searchlib.facet.FacetCounter;
-import com.jaeksoft.searchlib.facet.FacetField;
 import com.jaeksoft.searchlib.facet.FacetList;
 import com.jaeksoft.searchlib.request.AbstractLocalSearchRequest;
 import com.jaeksoft.searchlib.request.AbstractSearchRequest;
@@ -47,52 +45,45 @@ public class RenderSearchJson<T extends AbstractSearchRequest> extends
 		this.indent = jsonIndent;
 	}
 
-	@SuppressWarnings("unchecked")
-	private void renderFacets(JSONObject jsonResponse) throws Exception {
+	private void renderFacets(JsonGenerator json) throws IOException {
 		FacetList facetList = result.getFacetList();
 		if (facetList == null)
 			return;
-		ArrayList<JSONObject> jsonFacetingList = new ArrayList<JSONObject>();
+		json.writeArrayFieldStart("faceting");
 		for (Facet facet : facetList) {
-			JSONObject jsonFaceting = new JSONObject();
-			FacetField facetField = facet.getFacetField();
-			jsonFaceting.put("fieldName", facetField.getName());
-			ArrayList<JSONObject> jsonFacetList = new ArrayList<JSONObject>();
-			renderFacet(facet, jsonFacetList);
-			jsonFaceting.put("facet", jsonFacetList);
-			jsonFacetingList.add(jsonFaceting);
+			json.writeStartObject();
+			json.writeStringField("fieldName", facet.getFacetField().getName());
+			json.writeArrayFieldStart("facet");
+			renderFacet(json, facet);
+			json.writeEndArray();
+			json.writeEndObject();
 		}
-		jsonResponse.put("faceting", jsonFacetingList);
+		json.writeEndArray();
 	}
 
-	@SuppressWarnings("unchecked")
-	private void renderFacet(Facet facet, ArrayList<JSONObject> jsonFacetList)
-			throws Exception {
+	private void renderFacet(JsonGenerator json, Facet facet)
+			throws IOException {
 		for (Map.Entry<String, FacetCounter> facetItem : facet) {
-			JSONObject jsonFacet = new JSONObject();
-			jsonFacet.put("name", facetItem.getKey());
-			jsonFacet.put("value", facetItem.getValue().count);
-			jsonFacetList.add(jsonFacet);
+			json.writeStartObject();
+			json.writeStringField("name", facetItem.getKey());
+			json.writeNumberField("value", facetItem.getValue().count);
+			json.writeEndObject();
 		}
-
 	}
 
-	@SuppressWarnings("unchecked")
 	@Override
 	public void render() throws Exception {
-		JSONObject jsonResponse = new JSONObject();
 		String queryParsed = request instanceof AbstractLocalSearchRequest ? ((AbstractLocalSearchRequest) request)
 				.getQueryParsed() : request.getQueryString();
-		renderPrefix(jsonResponse, queryParsed);
-		renderDocuments(jsonResponse);
-		renderFacets(jsonResponse);
-		JSONObject json = new JSONObject();
-		json.put("response", jsonResponse);
-		if (indent)
-			writer.println(new org.json.JSONObject(json.toJSONString())
-					.toString(4));
-		else
-			writer.println(json);
-
+		try (JsonGenerator json = newJsonGenerator(indent)) {
+			json.writeStartObject();
+			json.writeObjectFieldStart("response");
+			renderPrefix(json, queryParsed);
+			renderDocuments(json);
+			renderFacets(json);
+			json.writeEndObject();
+			json.writeEndObject();
+		}
+		writer.println();
 	}
 }
@@ -24,11 +24,10 @@
 
 package com.jaeksoft.searchlib.render;
 
-import java.util.ArrayList;
+import java.io.IOException;
 import java.util.List;
 
-import org.json.simple.JSONObject;
-
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.jaeksoft.searchlib.request.SpellCheckRequest;
 import com.jaeksoft.searchlib.result.ResultSpellCheck;
 import com.jaeksoft.searchlib.spellcheck.SpellCheck;
@@ -45,53 +44,47 @@ public class RenderSpellCheckJson extends
 		this.indent = indent;
 	}
 
-	@SuppressWarnings("unchecked")
-	private void renderSpellCheck(SpellCheck spellCheck,
-			ArrayList<JSONObject> jsonSpellCheckList) throws Exception {
+	private void renderSpellCheck(JsonGenerator json, SpellCheck spellCheck)
+			throws IOException {
 		for (SpellCheckItem spellCheckItem : spellCheck) {
-			JSONObject jsonSpellCheck = new JSONObject();
-			jsonSpellCheck.put("name", spellCheckItem.getWord());
-			ArrayList<JSONObject> jsonSpellcheckWords = new ArrayList<JSONObject>();
+			json.writeStartObject();
+			json.writeStringField("name", spellCheckItem.getWord());
+			json.writeArrayFieldStart("suggestions");
 			for (SuggestionItem suggest : spellCheckItem.getSuggestions()) {
-				JSONObject jsonSpellSuggest = new JSONObject();
-				jsonSpellSuggest.put("suggest", suggest.getTerm());
-				jsonSpellSuggest.put("freq", suggest.getFreq());
-				jsonSpellcheckWords.add(jsonSpellSuggest);
+				json.writeStartObject();
+				json.writeStringField("suggest", suggest.getTerm());
+				json.writeNumberField("freq", suggest.getFreq());
+				json.writeEndObject();
 			}
-			jsonSpellCheck.put("suggestions", jsonSpellcheckWords);
-			jsonSpellCheckList.add(jsonSpellCheck);
+			json.writeEndArray();
+			json.writeEndObject();
 		}
-
 	}
 
-	@SuppressWarnings("unchecked")
-	private void renderSpellChecks(JSONObject jsonResponse) throws Exception {
+	private void renderSpellChecks(JsonGenerator json) throws IOException {
 		List<SpellCheck> spellChecklist = result.getSpellCheckList();
-		ArrayList<JSONObject> jsonSpellCheckArray = new ArrayList<JSONObject>();
 		if (spellChecklist == null)
 			return;
-
+		json.writeArrayFieldStart("spellcheck");
 		for (SpellCheck spellCheck : spellChecklist) {
-			JSONObject jsonSpellCheck = new JSONObject();
-			ArrayList<JSONObject> jsonSpellcheckList = new ArrayList<JSONObject>();
-			String fieldName = spellCheck.getFieldName();
-			jsonSpellCheck.put("fieldName", fieldName);
-			renderSpellCheck(spellCheck, jsonSpellcheckList);
-			jsonSpellCheck.put("word", jsonSpellcheckList);
-			jsonSpellCheckArray.add(jsonSpellCheck);
+			json.writeStartObject();
+			json.writeStringField("fieldName", spellCheck.getFieldName());
+			json.writeArrayFieldStart("word");
+			renderSpellCheck(json, spellCheck);
+			json.writeEndArray();
+			json.writeEndObject();
 		}
-		jsonResponse.put("spellcheck", jsonSpellCheckArray);
+		json.writeEndArray();
 	}
 
 	@Override
 	public void render() throws Exception {
-		JSONObject json = new JSONObject();
-		renderPrefix(json, request.getQueryString());
-		renderSpellChecks(json);
-		if (indent)
-			writer.println(new org.json.JSONObject(json.toJSONString())
-					.toString(4));
-		else
-			writer.println(json);
+		try (JsonGenerator json = newJsonGenerator(indent)) {
+			json.writeStartObject();
+			renderPrefix(json, request.getQueryString());
+			renderSpellChecks(json);
+			json.writeEndObject();
+		}
+		writer.println();
 	}
 }
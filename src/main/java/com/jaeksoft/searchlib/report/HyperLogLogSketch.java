@@ -0,0 +1,111 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.report;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * HyperLogLog estimation of a number of distinct terms, with 2^12 registers
+ * (about 1.6% of standard error, 4KB). Two sketches are merged by taking the
+ * maximum of each register.
+ */
+public class HyperLogLogSketch {
+
+	private final static int PRECISION = 12;
+
+	private final static int REGISTERS = 1 << PRECISION;
+
+	private final static double ALPHA = 0.7213 / (1 + 1.079 / REGISTERS);
+
+	private final static long FNV_OFFSET = 0xcbf29ce484222325L;
+
+	private final static long FNV_PRIME = 0x100000001b3L;
+
+	private final byte[] registers;
+
+	public HyperLogLogSketch() {
+		registers = new byte[REGISTERS];
+	}
+
+	/**
+	 * FNV-1a over the characters, spread by the Murmur3 finalizer
+	 */
+	private static long hash(CharSequence term) {
+		long h = FNV_OFFSET;
+		final int length = term.length();
+		for (int i = 0; i < length; i++)
+			h = (h ^ term.charAt(i)) * FNV_PRIME;
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	public void add(CharSequence term) {
+		final long h = hash(term);
+		final int index = (int) (h >>> (64 - PRECISION));
+		final int rank = Long.numberOfLeadingZeros((h << PRECISION) | (1L << (PRECISION - 1))) + 1;
+		if (rank > registers[index])
+			registers[index] = (byte) rank;
+	}
+
+	public void merge(HyperLogLogSketch sketch) {
+		for (int i = 0; i < REGISTERS; i++)
+			if (sketch.registers[i] > registers[i])
+				registers[i] = sketch.registers[i];
+	}
+
+	/**
+	 * @return the estimated number of distinct terms
+	 */
+	public long getCardinality() {
+		double sum = 0;
+		int zeros = 0;
+		for (byte register : registers) {
+			sum += 1.0 / (1L << register);
+			if (register == 0)
+				zeros++;
+		}
+		final double estimate = ALPHA * REGISTERS * REGISTERS / sum;
+		// Small range correction: linear counting
+		if (estimate <= 2.5 * REGISTERS && zeros != 0)
+			return Math.round(REGISTERS * Math.log((double) REGISTERS / zeros));
+		return Math.round(estimate);
+	}
+
+	public void write(DataOutput output) throws IOException {
+		output.write(registers);
+	}
+
+	public static HyperLogLogSketch read(DataInput input) throws IOException {
+		final HyperLogLogSketch sketch = new HyperLogLogSketch();
+		input.readFully(sketch.registers);
+		return sketch;
+	}
+}
@@ -0,0 +1,130 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.report;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Histogram of response times in milliseconds, with log-linear buckets: exact
+ * below 16ms, then 8 buckets per power of two (less than 12.5% of relative
+ * error). Histograms are merged by adding the buckets.
+ */
+public class LatencyHistogram {
+
+	private final static int LINEAR = 16;
+
+	private final static int SUB_BUCKETS = 8;
+
+	private final static int BUCKETS = LINEAR + (64 - 4) * SUB_BUCKETS;
+
+	private final long[] counts;
+
+	private long total;
+
+	public LatencyHistogram() {
+		counts = new long[BUCKETS];
+		total = 0;
+	}
+
+	private static int getIndex(long value) {
+		if (value < LINEAR)
+			return value < 0 ? 0 : (int) value;
+		final int exponent = 63 - Long.numberOfLeadingZeros(value);
+		final int sub = (int) (value >>> (exponent - 3)) & (SUB_BUCKETS - 1);
+		return LINEAR + (exponent - 4) * SUB_BUCKETS + sub;
+	}
+
+	/**
+	 * @return the lowest value of the bucket
+	 */
+	private static long getValue(int index) {
+		if (index < LINEAR)
+			return index;
+		final int exponent = (index - LINEAR) / SUB_BUCKETS + 4;
+		final int sub = (index - LINEAR) % SUB_BUCKETS;
+		return (long) (SUB_BUCKETS + sub) << (exponent - 3);
+	}
+
+	public void add(long millis) {
+		counts[getIndex(millis)]++;
+		total++;
+	}
+
+	public void merge(LatencyHistogram histogram) {
+		for (int i = 0; i < BUCKETS; i++)
+			counts[i] += histogram.counts[i];
+		total += histogram.total;
+	}
+
+	public long getTotal() {
+		return total;
+	}
+
+	/**
+	 * @param percentile between 0 and 100
+	 * @return the estimated value of the percentile, or null if the histogram
+	 *         is empty
+	 */
+	public Long getPercentile(double percentile) {
+		if (total == 0)
+			return null;
+		final long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+		long sum = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			sum += counts[i];
+			if (sum >= rank)
+				return getValue(i);
+		}
+		return getValue(BUCKETS - 1);
+	}
+
+	public void write(DataOutput output) throws IOException {
+		int size = 0;
+		for (long count : counts)
+			if (count != 0)
+				size++;
+		output.writeShort(size);
+		for (int i = 0; i < BUCKETS; i++) {
+			if (counts[i] == 0)
+				continue;
+			output.writeShort(i);
+			output.writeLong(counts[i]);
+		}
+	}
+
+	public static LatencyHistogram read(DataInput input) throws IOException {
+		final LatencyHistogram histogram = new LatencyHistogram();
+		int size = input.readShort();
+		while (size-- > 0) {
+			final int index = input.readShort();
+			final long count = input.readLong();
+			histogram.counts[index] = count;
+			histogram.total += count;
+		}
+		return histogram;
+	}
+}
@@ -0,0 +1,131 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.report;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * The query analytics of a time bucket: counters, top queries, top queries
+ * without result, distinct queries and the response time histogram. Every
+ * part is mergeable, so the report of any range of buckets is the merge of
+ * its buckets.
+ */
+public class QueryReport {
+
+	public final static int TOP_CAPACITY = 1000;
+
+	private long queryCount;
+
+	private long noResultCount;
+
+	private final TopKSketch topQueries;
+
+	private final TopKSketch topNoResultQueries;
+
+	private final HyperLogLogSketch distinctQueries;
+
+	private final LatencyHistogram responseTimes;
+
+	private QueryReport(long queryCount, long noResultCount, TopKSketch topQueries,
+			TopKSketch topNoResultQueries, HyperLogLogSketch distinctQueries, LatencyHistogram responseTimes) {
+		this.queryCount = queryCount;
+		this.noResultCount = noResultCount;
+		this.topQueries = topQueries;
+		this.topNoResultQueries = topNoResultQueries;
+		this.distinctQueries = distinctQueries;
+		this.responseTimes = responseTimes;
+	}
+
+	public QueryReport() {
+		this(0, 0, new TopKSketch(TOP_CAPACITY), new TopKSketch(TOP_CAPACITY), new HyperLogLogSketch(),
+				new LatencyHistogram());
+	}
+
+	/**
+	 * @param query        the query string
+	 * @param responseTime the response time in milliseconds, or null
+	 * @param numFound     the number of documents found, or null
+	 */
+	public void add(String query, Long responseTime, Integer numFound) {
+		queryCount++;
+		topQueries.add(query);
+		distinctQueries.add(query);
+		if (numFound != null && numFound == 0) {
+			noResultCount++;
+			topNoResultQueries.add(query);
+		}
+		if (responseTime != null)
+			responseTimes.add(responseTime);
+	}
+
+	public void merge(QueryReport report) {
+		queryCount += report.queryCount;
+		noResultCount += report.noResultCount;
+		topQueries.merge(report.topQueries);
+		topNoResultQueries.merge(report.topNoResultQueries);
+		distinctQueries.merge(report.distinctQueries);
+		responseTimes.merge(report.responseTimes);
+	}
+
+	public long getQueryCount() {
+		return queryCount;
+	}
+
+	public long getNoResultCount() {
+		return noResultCount;
+	}
+
+	public TopKSketch getTopQueries() {
+		return topQueries;
+	}
+
+	public TopKSketch getTopNoResultQueries() {
+		return topNoResultQueries;
+	}
+
+	public long getDistinctQueryCount() {
+		return distinctQueries.getCardinality();
+	}
+
+	public LatencyHistogram getResponseTimes() {
+		return responseTimes;
+	}
+
+	public void write(DataOutput output) throws IOException {
+		output.writeLong(queryCount);
+		output.writeLong(noResultCount);
+		topQueries.write(output);
+		topNoResultQueries.write(output);
+		distinctQueries.write(output);
+		responseTimes.write(output);
+	}
+
+	public static QueryReport read(DataInput input) throws IOException {
+		return new QueryReport(input.readLong(), input.readLong(), TopKSketch.read(input), TopKSketch.read(input),
+				HyperLogLogSketch.read(input), LatencyHistogram.read(input));
+	}
+}
@@ -1,58 +0,0 @@
-/**   
- * License Agreement for OpenSearchServer
- *
- * Copyright (C) 2012 Emmanuel Keller / Jaeksoft
- * 
- * http://www.open-search-server.com
- * 
- * This file is part of OpenSearchServer.
- *
- * OpenSearchServer is free software: you can redistribute it and/or
- * modify it under the terms of the GNU General Public License as published by
- * the Free Software Foundation, either version 3 of the License, or
- *  (at your option) any later version.
- *
- * OpenSearchServer is distributed in the hope that it will be useful,
- * but WITHOUT ANY WARRANTY; without even the implied warranty of
- * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
- * GNU General Public License for more details.
- *
- *  You should have received a copy of the GNU General Public License
- *  along with OpenSearchServer. 
- *  If not, see <http://www.gnu.org/licenses/>.
- **/
-package com.jaeksoft.searchlib.report;
-
-public enum ReportItemFieldEnum {
-
-	datetime,
-
-	keywords,
-
-	responseTime,
-
-	documentsFound,
-
-	reportId,
-
-	custom1,
-
-	custom2,
-
-	custom3,
-
-	custom4,
-
-	custom5,
-
-	custom6,
-
-	custom7,
-
-	custom8,
-
-	custom9,
-
-	keywordsExact
-
-}
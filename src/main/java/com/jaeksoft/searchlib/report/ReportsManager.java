@@ -21,46 +21,73 @@
  *  along with OpenSearchServer. 
  *  If not, see <http://www.gnu.org/licenses/>.
  **/
+
 package com.jaeksoft.searchlib.report;
 
 import java.io.BufferedReader;
 import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FilenameFilter;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.UnsupportedEncodingException;
-import java.net.MalformedURLException;
 import java.net.URLDecoder;
-import java.util.ArrayList;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Calendar;
 import java.util.Date;
-import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
 
 import com.jaeksoft.searchlib.Client;
+import com.jaeksoft.searchlib.Logging;
 import com.jaeksoft.searchlib.SearchLibException;
-import com.jaeksoft.searchlib.analysis.LanguageEnum;
 import com.jaeksoft.searchlib.config.Config;
-import com.jaeksoft.searchlib.facet.Facet;
-import com.jaeksoft.searchlib.facet.FacetField;
-import com.jaeksoft.searchlib.facet.FacetList;
-import com.jaeksoft.searchlib.index.IndexDocument;
-import com.jaeksoft.searchlib.query.ParseException;
-import com.jaeksoft.searchlib.request.SearchPatternRequest;
-import com.jaeksoft.searchlib.result.AbstractResultSearch;
+import com.jaeksoft.searchlib.logreport.DailyLogger;
+import com.jaeksoft.searchlib.util.FileUtils;
 import com.jaeksoft.searchlib.util.FormatUtils.ThreadSafeDateFormat;
 import com.jaeksoft.searchlib.util.FormatUtils.ThreadSafeSimpleDateFormat;
 import com.jaeksoft.searchlib.util.IOUtils;
-import com.jaeksoft.searchlib.webservice.query.search.SearchQueryAbstract.Facet.OrderByEnum;
+import com.jaeksoft.searchlib.util.PropertiesUtils;
+import com.jaeksoft.searchlib.util.ReadWriteLock;
+import com.jaeksoft.searchlib.util.StringUtils;
 
+/**
+ * Query analytics computed from the query logs. Each log line updates the
+ * QueryReport of its hour. The hourly reports of a day are stored in one
+ * compressed file (sketch.yyyy-MM-dd), and the report of any date range is
+ * the merge of its hourly reports.
+ * 
+ * The number of lines already read is kept for each log file, so loading a
+ * file again (e.g. the log of the current day) only reads the new lines. The
+ * offset of a log file is kept when the file is rotated and compressed.
+ */
 public class ReportsManager {
 
-	private Client client;
-	private Client reportsClient;
+	private final static String SKETCH_PREFIX = "sketch.";
+
+	private final static String OFFSETS_FILE = "sketch.offsets.xml";
+
+	private final static int FORMAT_VERSION = 1;
+
+	private final static int HOURS = 24;
 
-	public ReportsManager(Config config, File directory) throws SearchLibException {
+	private final static ThreadSafeDateFormat dayFormat = new ThreadSafeSimpleDateFormat("yyyy-MM-dd");
+
+	private final Client client;
+
+	private final File directory;
+
+	private final ReadWriteLock rwl = new ReadWriteLock();
+
+	public ReportsManager(Config config, File directory) {
 		this.client = (Client) config;
-		this.reportsClient = new Client(directory, "/com/jaeksoft/searchlib/report_config.xml", true);
+		this.directory = directory;
 	}
 
 	private class ReportFileFilter implements FilenameFilter {
@@ -78,164 +105,209 @@ public class ReportsManager {
 		return logDirectory.listFiles(new ReportFileFilter());
 	}
 
-	public void updateReportItem(ReportItem reportItem) throws SearchLibException {
+	private File getSketchFile(String day) {
+		return new File(directory, SKETCH_PREFIX + day);
+	}
 
+	private QueryReport[] readDay(String day) throws IOException {
+		final QueryReport[] hours = new QueryReport[HOURS];
+		final File file = getSketchFile(day);
+		if (!file.exists())
+			return hours;
+		DataInputStream input = null;
 		try {
-			IndexDocument indexDocument = new IndexDocument();
-			reportItem.populate(indexDocument);
-			reportsClient.updateDocument(indexDocument);
-
-		} catch (MalformedURLException e) {
-			throw new SearchLibException(e);
-		} catch (IOException e) {
-			throw new SearchLibException(e);
+			input = new DataInputStream(FileUtils.readFromGzipFile(file));
+			if (input.readInt() != FORMAT_VERSION)
+				throw new IOException("Unsupported report format: " + file.getAbsolutePath());
+			int hour;
+			while ((hour = input.readByte()) != -1)
+				hours[hour] = QueryReport.read(input);
+			return hours;
+		} finally {
+			IOUtils.close(input);
 		}
 	}
 
-	public String[] generateReportItem(String reportLine) {
-		return reportLine.split("\\s+");
-	}
-
-	private SearchPatternRequest getNewSearchRequest(String defaultOperator, int rows) throws SearchLibException {
-		SearchPatternRequest searchRequest = new SearchPatternRequest(reportsClient);
-		searchRequest.setDefaultOperator(defaultOperator);
-		searchRequest.setRows(rows);
-		searchRequest.setPhraseSlop(2);
-		searchRequest.setStart(0);
-		searchRequest.addReturnField("keywords");
-		searchRequest.addReturnField("reportId");
-		searchRequest.addReturnField("keywordsExact");
-		searchRequest.addReturnField("datetime");
-		searchRequest.addReturnField("responseTime");
-		searchRequest.getFacetFieldList()
-				.put(new FacetField("keywords", 1, false, false, rows, OrderByEnum.count_desc, null));
-		searchRequest.setLang(LanguageEnum.UNDEFINED);
-		return searchRequest;
-	}
-
-	private SearchPatternRequest addDateFilter(SearchPatternRequest searchRequest, String startDate, String endDate)
-			throws ParseException {
-		StringBuilder addDateBuffer = new StringBuilder();
-		addDateBuffer.append(" ");
-		addDateBuffer.append("datetime:[");
-		addDateBuffer.append(startDate);
-		addDateBuffer.append(" TO ");
-		addDateBuffer.append(endDate);
-		addDateBuffer.append("]");
-		searchRequest.addFilter(addDateBuffer.toString(), false);
-		return searchRequest;
+	private void writeDay(String day, QueryReport[] hours) throws IOException {
+		final File file = getSketchFile(day);
+		final File tmpFile = new File(directory, file.getName() + ".tmp");
+		DataOutputStream output = null;
+		try {
+			output = new DataOutputStream(FileUtils.writeToGzipFile(tmpFile));
+			output.writeInt(FORMAT_VERSION);
+			for (int hour = 0; hour < HOURS; hour++) {
+				if (hours[hour] == null)
+					continue;
+				output.writeByte(hour);
+				hours[hour].write(output);
+			}
+			output.writeByte(-1);
+			output.close();
+			output = null;
+			Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			IOUtils.close(output);
+		}
 	}
 
-	private SearchPatternRequest generateSearchRequest(String topKeywords, String startDate, String endDate,
-			boolean withResult, int rows) throws ParseException, SearchLibException {
-		SearchPatternRequest searchRequest = getNewSearchRequest("OR", rows);
-		if (!withResult) {
-			StringBuilder addFilterBuffer = new StringBuilder();
-			addFilterBuffer.append(" ");
-			addFilterBuffer.append("documentsFound:" + 0);
-			searchRequest.addFilter(addFilterBuffer.toString(), false);
+	private void addLine(String line, Map<String, QueryReport[]> days) throws UnsupportedEncodingException {
+		final String[] fields = line.split("\t", 5);
+		// The timestamp starts with yyyy-MM-ddTHH
+		if (fields.length < 2 || fields[0].length() < 13)
+			return;
+		final String day = fields[0].substring(0, 10);
+		final int hour;
+		try {
+			hour = Integer.parseInt(fields[0].substring(11, 13));
+		} catch (NumberFormatException e) {
+			return;
 		}
-		searchRequest = addDateFilter(searchRequest, startDate, endDate);
-		if (topKeywords != null && !topKeywords.equalsIgnoreCase("")) {
-			searchRequest.setPatternQuery("keywordsExact:($$)");
-			searchRequest.setQueryString(topKeywords);
-		} else
-			searchRequest.setEmptyReturnsAll(true);
-		return searchRequest;
+		if (hour < 0 || hour >= HOURS)
+			return;
+		QueryReport[] hours = days.get(day);
+		if (hours == null) {
+			hours = new QueryReport[HOURS];
+			days.put(day, hours);
+		}
+		if (hours[hour] == null)
+			hours[hour] = new QueryReport();
+		final String query = URLDecoder.decode(fields[1], "UTF-8");
+		final Long responseTime = fields.length > 2 && !fields[2].isEmpty() ? Long.parseLong(fields[2]) : null;
+		final Integer numFound = fields.length > 3 && !fields[3].isEmpty() ? Integer.parseInt(fields[3]) : null;
+		hours[hour].add(query, responseTime, numFound);
 	}
 
-	private final static ThreadSafeDateFormat changeDateFormat = new ThreadSafeSimpleDateFormat("yyyyMMddhhmmss");
-
-	private final String modifyDate(Date date) throws java.text.ParseException {
-		return changeDateFormat.format(date);
+	/**
+	 * Read the new lines of a query log file and merge them into the stored
+	 * hourly reports.
+	 * 
+	 * @param filename
+	 *            the name of the log file
+	 * @return the number of lines read
+	 * @throws IOException
+	 * @throws SearchLibException
+	 */
+	public int loadReportFile(String filename) throws IOException, SearchLibException {
+		return loadReportFile(client.getLogReportManager().getLogDirectory(), filename);
 	}
 
-	public Facet getSearchReport(String topKeywords, Date startDate, Date endDate, boolean withResult, int rows)
-			throws SearchLibException, ParseException {
-
-		SearchPatternRequest searchRequest;
-		String fromDate;
-		String dateTo;
-
-		try {
-			fromDate = startDate == null ? "00000000000000" : modifyDate(startDate);
-			dateTo = endDate == null ? "99999999999999" : modifyDate(endDate);
-			searchRequest = generateSearchRequest(topKeywords, fromDate, dateTo, withResult, rows);
-			AbstractResultSearch<?> result = (AbstractResultSearch<?>) reportsClient.request(searchRequest);
-			FacetList facet = result.getFacetList();
-			return facet.getByField("keywords");
-		} catch (java.text.ParseException e) {
-			throw new SearchLibException(e);
-		}
+	/**
+	 * The offsets are stored under the name of the uncompressed log file
+	 */
+	private static String getOffsetKey(String filename) {
+		return StringUtils.removeEnd(filename, DailyLogger.GZIP_EXTENSION);
 	}
 
-	public int loadReportFile(String filename) throws UnsupportedEncodingException, IOException, SearchLibException {
-		List<String> fileList = new ArrayList<String>();
-		int count = 0;
-
-		FileInputStream fstream = null;
-		DataInputStream in = null;
-		BufferedReader br = null;
-		InputStreamReader isr = null;
+	int loadReportFile(File logDirectory, String filename) throws IOException {
+		rwl.w.lock();
 		try {
-			File reportFile = new File(client.getLogReportManager().getLogDirectory(), filename);
-			fstream = new FileInputStream(reportFile);
-			in = new DataInputStream(fstream);
-			isr = new InputStreamReader(in);
-			br = new BufferedReader(isr);
-			String strLine;
-			while ((strLine = br.readLine()) != null) {
-				fileList.add(strLine);
-				if (fileList.size() >= 1000)
-					loadReportItems(fileList, reportFile);
-				count++;
+			final File offsetsFile = new File(directory, OFFSETS_FILE);
+			final Properties offsets = PropertiesUtils.loadFromXml(offsetsFile);
+			final String offsetKey = getOffsetKey(filename);
+			final long offset = Long.parseLong(offsets.getProperty(offsetKey, "0"));
+			final Map<String, QueryReport[]> days = new TreeMap<String, QueryReport[]>();
+			final File reportFile = new File(logDirectory, filename);
+			long lineNumber = 0;
+			int count = 0;
+			InputStream input = null;
+			BufferedReader br = null;
+			try {
+				input = new FileInputStream(reportFile);
+				if (filename.endsWith(DailyLogger.GZIP_EXTENSION))
+					input = new GZIPInputStream(input);
+				br = new BufferedReader(new InputStreamReader(input));
+				String line;
+				while ((line = br.readLine()) != null) {
+					if (lineNumber++ < offset)
+						continue;
+					try {
+						addLine(line, days);
+					} catch (IllegalArgumentException e) {
+						Logging.warn("Malformed report line " + lineNumber + " in " + filename);
+					}
+					count++;
+				}
+			} finally {
+				IOUtils.close(br, input);
+			}
+			for (Map.Entry<String, QueryReport[]> entry : days.entrySet()) {
+				final QueryReport[] stored = readDay(entry.getKey());
+				final QueryReport[] loaded = entry.getValue();
+				for (int hour = 0; hour < HOURS; hour++) {
+					if (loaded[hour] == null)
+						continue;
+					if (stored[hour] == null)
+						stored[hour] = loaded[hour];
+					else
+						stored[hour].merge(loaded[hour]);
+				}
+				writeDay(entry.getKey(), stored);
 			}
-			if (fileList.size() != 0)
-				loadReportItems(fileList, reportFile);
-			in.close();
+			// Forget the log files which have been archived or deleted
+			for (String name : offsets.stringPropertyNames())
+				if (!new File(logDirectory, name).exists()
+						&& !new File(logDirectory, name + DailyLogger.GZIP_EXTENSION).exists())
+					offsets.remove(name);
+			offsets.setProperty(offsetKey, Long.toString(lineNumber));
+			PropertiesUtils.storeToXml(offsets, offsetsFile);
 			return count;
 		} finally {
-			IOUtils.close(br, in, isr, fstream);
+			rwl.w.unlock();
 		}
 	}
 
-	public void loadReportItems(List<String> fileList, File reportFile)
-			throws UnsupportedEncodingException, SearchLibException {
-		List<ReportItem> reportItems = createIndexvalues(fileList, reportFile);
-		updateReportItems(reportItems);
-		fileList.clear();
-	}
-
-	private List<ReportItem> createIndexvalues(List<String> reportFileString, File reportFile)
-			throws UnsupportedEncodingException {
-		List<ReportItem> listReportItem = new ArrayList<ReportItem>();
-		int id = 1;
-		for (String reportList : reportFileString) {
-			String[] reportItems = generateReportItem(reportList);
-			ReportItem reportItem = new ReportItem();
-			reportItem.setReportId(reportFile.getName() + "_" + id);
-			reportItem.setDatetime(createDate(reportItems[0]));
-			reportItem.setKeywords(URLDecoder.decode(reportItems[1], "UTF-8"));
-			reportItem.setKeywordsExact(URLDecoder.decode(reportItems[1], "UTF-8"));
-			reportItem.setResponseTime(reportItems[2]);
-			reportItem.setDocumentsFound(reportItems[3]);
-			listReportItem.add(reportItem);
-			id++;
+	/**
+	 * @param startDate
+	 *            the beginning of the range (null for no limit)
+	 * @param endDate
+	 *            the end of the range, inclusive (null for no limit)
+	 * @return the merged report of the hours of the range
+	 * @throws IOException
+	 */
+	public QueryReport getQueryReport(Date startDate, Date endDate) throws IOException {
+		rwl.r.lock();
+		try {
+			final QueryReport report = new QueryReport();
+			final String[] files = directory.list();
+			if (files == null)
+				return report;
+			final Calendar cal = Calendar.getInstance();
+			final String startDay;
+			final int startHour;
+			if (startDate != null) {
+				cal.setTime(startDate);
+				startDay = dayFormat.format(startDate);
+				startHour = cal.get(Calendar.HOUR_OF_DAY);
+			} else {
+				startDay = "";
+				startHour = 0;
+			}
+			final String endDay;
+			final int endHour;
+			if (endDate != null) {
+				cal.setTime(endDate);
+				endDay = dayFormat.format(endDate);
+				endHour = cal.get(Calendar.HOUR_OF_DAY);
+			} else {
+				endDay = null;
+				endHour = HOURS - 1;
+			}
+			for (String file : files) {
+				if (!file.startsWith(SKETCH_PREFIX) || file.length() != SKETCH_PREFIX.length() + 10)
+					continue;
+				final String day = file.substring(SKETCH_PREFIX.length());
+				if (day.compareTo(startDay) < 0 || (endDay != null && day.compareTo(endDay) > 0))
+					continue;
+				final int fromHour = day.equals(startDay) ? startHour : 0;
+				final int toHour = day.equals(endDay) ? endHour : HOURS - 1;
+				final QueryReport[] hours = readDay(day);
+				for (int hour = fromHour; hour <= toHour; hour++)
+					if (hours[hour] != null)
+						report.merge(hours[hour]);
+			}
+			return report;
+		} finally {
+			rwl.r.unlock();
 		}
-		return listReportItem;
 	}
-
-	public void updateReportItems(List<ReportItem> listItem) throws SearchLibException {
-		for (ReportItem reportItemList : listItem)
-			updateReportItem(reportItemList);
-	}
-
-	public String createDate(String date) {
-		String[] sDate = date.split("T");
-		String yyymmdd = sDate[0].replaceAll("\\-", "");
-		String hhmmss = sDate[1].substring(0, sDate[1].length() - 5);
-		hhmmss = hhmmss.replaceAll(":", "");
-		return yyymmdd + hhmmss;
-	}
-
 }
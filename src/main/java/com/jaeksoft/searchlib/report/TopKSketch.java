@@ -0,0 +1,218 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.report;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Space-Saving top-K summary. At most "capacity" terms are monitored: a new
+ * term replaces the least frequent one and inherits its count as an error
+ * bound. Two summaries can be merged (Agarwal et al., Mergeable Summaries).
+ */
+public class TopKSketch {
+
+	public static class Counter implements Comparable<Counter> {
+
+		private final String key;
+		private long count;
+		private long error;
+
+		private Counter(String key, long count, long error) {
+			this.key = key;
+			this.count = count;
+			this.error = error;
+		}
+
+		public String getKey() {
+			return key;
+		}
+
+		/**
+		 * @return the estimated count (never underestimated)
+		 */
+		public long getCount() {
+			return count;
+		}
+
+		/**
+		 * @return the maximum overestimation of the count
+		 */
+		public long getError() {
+			return error;
+		}
+
+		@Override
+		public int compareTo(Counter o) {
+			int c = Long.compare(count, o.count);
+			return c != 0 ? c : key.compareTo(o.key);
+		}
+	}
+
+	/**
+	 * Longer keys are truncated: DataOutput.writeUTF is limited to 65535
+	 * bytes, and a char takes at most 3 bytes.
+	 */
+	public final static int MAX_KEY_LENGTH = 65535 / 3;
+
+	private final int capacity;
+
+	private final Map<String, Counter> counters;
+
+	private final TreeSet<Counter> ordered;
+
+	public TopKSketch(int capacity) {
+		this.capacity = capacity;
+		this.counters = new HashMap<String, Counter>();
+		this.ordered = new TreeSet<Counter>();
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public int getSize() {
+		return counters.size();
+	}
+
+	/**
+	 * @return the count of the least frequent monitored term when the summary
+	 *         is full (the maximum count of a term which is not monitored)
+	 */
+	private long getMinCount() {
+		return counters.size() < capacity || ordered.isEmpty() ? 0 : ordered.first().count;
+	}
+
+	private void put(String key, long count, long error) {
+		Counter counter = counters.get(key);
+		if (counter != null) {
+			ordered.remove(counter);
+			counter.count += count;
+			counter.error += error;
+		} else if (counters.size() < capacity) {
+			counter = new Counter(key, count, error);
+			counters.put(key, counter);
+		} else {
+			final Counter min = ordered.pollFirst();
+			counters.remove(min.key);
+			counter = new Counter(key, min.count + count, min.count + error);
+			counters.put(key, counter);
+		}
+		ordered.add(counter);
+	}
+
+	public void add(String key) {
+		put(truncate(key), 1, 0);
+	}
+
+	static String truncate(String key) {
+		if (key.length() <= MAX_KEY_LENGTH)
+			return key;
+		int end = MAX_KEY_LENGTH;
+		// Do not split a surrogate pair
+		if (Character.isHighSurrogate(key.charAt(end - 1)))
+			end--;
+		return key.substring(0, end);
+	}
+
+	public void merge(TopKSketch sketch) {
+		final long min1 = getMinCount();
+		final long min2 = sketch.getMinCount();
+		final Set<String> keys = new HashSet<String>(counters.keySet());
+		keys.addAll(sketch.counters.keySet());
+		final List<Counter> merged = new ArrayList<Counter>(keys.size());
+		for (String key : keys) {
+			final Counter c1 = counters.get(key);
+			final Counter c2 = sketch.counters.get(key);
+			final long count = (c1 == null ? min1 : c1.count) + (c2 == null ? min2 : c2.count);
+			final long error = (c1 == null ? min1 : c1.error) + (c2 == null ? min2 : c2.error);
+			merged.add(new Counter(key, count, error));
+		}
+		counters.clear();
+		ordered.clear();
+		final TreeSet<Counter> sorted = new TreeSet<Counter>(merged);
+		for (Counter counter : sorted.descendingSet()) {
+			if (counters.size() == capacity)
+				break;
+			counters.put(counter.key, counter);
+			ordered.add(counter);
+		}
+	}
+
+	/**
+	 * @param rows     the maximum number of terms to return
+	 * @param keywords if not null, only the terms containing one of these
+	 *                 keywords (case insensitive) are returned
+	 * @return the most frequent terms, by descending count
+	 */
+	public List<Counter> getTop(int rows, Collection<String> keywords) {
+		final List<Counter> list = new ArrayList<Counter>(Math.min(rows, counters.size()));
+		for (Counter counter : ordered.descendingSet()) {
+			if (list.size() >= rows)
+				break;
+			if (keywords != null && !contains(counter.key.toLowerCase(), keywords))
+				continue;
+			list.add(counter);
+		}
+		return list;
+	}
+
+	private static boolean contains(String term, Collection<String> keywords) {
+		for (String keyword : keywords)
+			if (term.contains(keyword))
+				return true;
+		return false;
+	}
+
+	public void write(DataOutput output) throws IOException {
+		output.writeInt(capacity);
+		output.writeInt(counters.size());
+		for (Counter counter : ordered) {
+			output.writeUTF(counter.key);
+			output.writeLong(counter.count);
+			output.writeLong(counter.error);
+		}
+	}
+
+	public static TopKSketch read(DataInput input) throws IOException {
+		final TopKSketch sketch = new TopKSketch(input.readInt());
+		int size = input.readInt();
+		while (size-- > 0) {
+			final Counter counter = new Counter(input.readUTF(), input.readLong(), input.readLong());
+			sketch.counters.put(counter.key, counter);
+			sketch.ordered.add(counter);
+		}
+		return sketch;
+	}
+}
@@ -34,7 +34,6 @@ import com.jaeksoft.searchlib.index.ReaderAbstract;
 import com.jaeksoft.searchlib.index.ReaderInterface;
 import com.jaeksoft.searchlib.query.ParseException;
 import com.jaeksoft.searchlib.result.AbstractResult;
-import com.jaeksoft.searchlib.result.ResultSearchSingle;
 import com.jaeksoft.searchlib.schema.Schema;
 import com.jaeksoft.searchlib.schema.SchemaField;
 import org.apache.lucene.queryParser.QueryParser;
@@ -249,21 +248,11 @@ public abstract class AbstractLocalSearchRequest extends AbstractSearchRequest
 			if (authManager.isEnabled() && !(this instanceof SearchFilterRequest)) {
 				authManager.apply(this);
 			}
-			return new ResultSearchSingle((ReaderAbstract) reader, this);
+			return ((ReaderAbstract) reader).searchResult(this);
 		} catch (IOException e) {
 			throw new SearchLibException(e);
-		} catch (ParseException e) {
-			throw new SearchLibException(e);
-		} catch (SyntaxError e) {
-			throw new SearchLibException(e);
 		} catch (SearchLibException e) {
 			throw new SearchLibException(e);
-		} catch (InstantiationException e) {
-			throw new SearchLibException(e);
-		} catch (IllegalAccessException e) {
-			throw new SearchLibException(e);
-		} catch (ClassNotFoundException e) {
-			throw new SearchLibException(e);
 		}
 	}
 
@@ -25,7 +25,6 @@
 package com.jaeksoft.searchlib.request;
 
 import java.io.IOException;
-import java.io.StringReader;
 import java.util.Set;
 
 import javax.xml.xpath.XPathExpressionException;
@@ -46,12 +45,10 @@ import com.jaeksoft.searchlib.filter.FilterAbstract;
 import com.jaeksoft.searchlib.filter.FilterList;
 import com.jaeksoft.searchlib.filter.QueryFilter;
 import com.jaeksoft.searchlib.function.expression.SyntaxError;
-import com.jaeksoft.searchlib.index.IndexAbstract;
 import com.jaeksoft.searchlib.index.ReaderInterface;
 import com.jaeksoft.searchlib.index.ReaderLocal;
 import com.jaeksoft.searchlib.query.ParseException;
 import com.jaeksoft.searchlib.result.AbstractResult;
-import com.jaeksoft.searchlib.result.AbstractResultSearch;
 import com.jaeksoft.searchlib.result.ResultMoreLikeThis;
 import com.jaeksoft.searchlib.schema.SchemaFieldList;
 import com.jaeksoft.searchlib.util.StringUtils;
@@ -137,6 +134,19 @@ public class MoreLikeThisRequest extends AbstractRequest implements
 
 	@Override
 	public Query getQuery() throws SearchLibException, IOException {
+		return getQuery(getConfig().getIndexAbstract());
+	}
+
+	/**
+	 * Build the query using the given reader. The seed document is searched
+	 * in the same reader.
+	 * 
+	 * @param reader
+	 *            the reader
+	 * @return the query
+	 * @throws SearchLibException
+	 */
+	public Query getQuery(ReaderInterface reader) throws SearchLibException {
 		rwl.r.lock();
 		try {
 			if (mltQuery != null)
@@ -148,10 +158,26 @@ public class MoreLikeThisRequest extends AbstractRequest implements
 		try {
 			if (mltQuery != null)
 				return mltQuery;
-			Config config = getConfig();
-			IndexAbstract index = config.getIndexAbstract();
+			mltQuery = reader.getMoreLikeThisQuery(this);
+			return mltQuery;
+		} finally {
+			rwl.w.unlock();
+		}
+	}
 
-			MoreLikeThis mlt = index.getMoreLikeThis();
+	/**
+	 * Apply the parameters of the request to a MoreLikeThis instance
+	 * 
+	 * @param mlt
+	 *            the MoreLikeThis instance
+	 * @throws SearchLibException
+	 * @throws IOException
+	 */
+	public void configure(MoreLikeThis mlt) throws SearchLibException,
+			IOException {
+		rwl.r.lock();
+		try {
+			Config config = getConfig();
 			mlt.setMinWordLen(minWordLen);
 			mlt.setMaxWordLen(maxWordLen);
 			mlt.setMinDocFreq(minDocFreq);
@@ -168,7 +194,7 @@ public class MoreLikeThisRequest extends AbstractRequest implements
 					mlt.setAnalyzer(analyzer.getQueryAnalyzer());
 			}
 			if (stopWords != null && stopWords.length() > 0) {
-				WordArray wordArray = getConfig().getStopWordsManager()
+				WordArray wordArray = config.getStopWordsManager()
 						.getWordArray(stopWords, false);
 				if (wordArray != null) {
 					Set<String> stopWords = wordArray.getWordSet();
@@ -176,24 +202,53 @@ public class MoreLikeThisRequest extends AbstractRequest implements
 						mlt.setStopWords(stopWords);
 				}
 			}
+		} finally {
+			rwl.r.unlock();
+		}
+	}
 
-			if (docQuery != null && docQuery.length() > 0) {
-				AbstractSearchRequest searchRequest = new SearchPatternRequest(
-						config);
-				searchRequest.setRows(1);
-				searchRequest.setQueryString(docQuery);
-				AbstractResultSearch<?> result = (AbstractResultSearch<?>) index
-						.request(searchRequest);
-				if (result.getNumFound() == 0)
-					return mlt.like(new StringReader(""));
-				int docId = result.getDocs().getIds()[0];
-				mltQuery = mlt.like(docId);
-			} else if (likeText != null & likeText.length() > 0) {
-				mltQuery = mlt.like(new StringReader(likeText));
+	/**
+	 * @return a key identifying the parameters which change the generated
+	 *         query (the seed excepted). The version of the analyzers makes
+	 *         the cached queries obsolete when an analyzer or a stop words
+	 *         list is edited.
+	 */
+	public String getMoreLikeThisKey() {
+		rwl.r.lock();
+		try {
+			StringBuilder sb = new StringBuilder();
+			for (String field : fieldList.getArrayName()) {
+				sb.append(field);
+				sb.append(',');
 			}
-			return mltQuery;
+			sb.append('|');
+			sb.append(analyzerName);
+			sb.append('|');
+			sb.append(lang);
+			sb.append('|');
+			sb.append(minWordLen);
+			sb.append('|');
+			sb.append(maxWordLen);
+			sb.append('|');
+			sb.append(minDocFreq);
+			sb.append('|');
+			sb.append(minTermFreq);
+			sb.append('|');
+			sb.append(maxNumTokensParsed);
+			sb.append('|');
+			sb.append(maxQueryTerms);
+			sb.append('|');
+			sb.append(boost);
+			sb.append('|');
+			sb.append(stopWords);
+			final Config config = getConfig();
+			if (config != null) {
+				sb.append('|');
+				sb.append(config.getSchema().getAnalyzersVersion());
+			}
+			return sb.toString();
 		} finally {
-			rwl.w.unlock();
+			rwl.r.unlock();
 		}
 	}
 
@@ -70,6 +70,27 @@ public abstract class AbstractResultSearch<T extends AbstractSearchRequest>
 		collapse = CollapseAbstract.newInstance(searchRequest);
 	}
 
+	/**
+	 * Share the documents, the facets and the collapsing of a previous result
+	 * computed by an equivalent request.
+	 * 
+	 * @param result
+	 * @param searchRequest
+	 */
+	protected AbstractResultSearch(AbstractResultSearch<T> result, T searchRequest) {
+		super(searchRequest);
+		this.reader = result.reader;
+		this.collapse = result.collapse;
+		this.facetList = result.facetList;
+		this.docs = result.docs;
+		this.scores = result.scores;
+		this.distances = result.distances;
+		this.numFound = result.numFound;
+		this.maxScore = result.maxScore;
+		this.collapsedDocCount = result.collapsedDocCount;
+		this.joinResults = result.joinResults;
+	}
+
 	public ReaderAbstract getReader() {
 		return reader;
 	}
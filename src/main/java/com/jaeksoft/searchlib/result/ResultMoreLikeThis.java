@@ -67,7 +67,7 @@ public class ResultMoreLikeThis extends AbstractResult<MoreLikeThisRequest>
 		AbstractLocalSearchRequest searchRequest = new SearchPatternRequest(request.getConfig());
 		for (FilterAbstract<?> filter : request.getFilterList())
 			searchRequest.getFilterList().add(filter);
-		searchRequest.setBoostedComplexQuery(request.getQuery());
+		searchRequest.setBoostedComplexQuery(request.getQuery(reader));
 		DocSetHits dsh = reader.searchDocSet(searchRequest, timer);
 		if (dsh == null) {
 			fieldNameSet = null;
@@ -168,6 +168,20 @@ public class ResultSearchSingle extends AbstractResultSearch<AbstractLocalSearch
 			resultDocuments[i] = getLazyDocument(pos++, timer);
 	}
 
+	/**
+	 * Returns the result of a previous execution of an equivalent request,
+	 * e.g. a cached result.
+	 * 
+	 * @param result
+	 * @param searchRequest
+	 */
+	public ResultSearchSingle(ResultSearchSingle result, AbstractLocalSearchRequest searchRequest) {
+		super(result, searchRequest);
+		docSetHits = result.docSetHits;
+		fieldNameSet = result.fieldNameSet;
+		resultDocuments = result.resultDocuments;
+	}
+
 	/**
 	 * Returns the searcher used to build the result.
 	 * 
@@ -143,8 +143,8 @@ public class CollapseBaseCollector extends
 		if (bitSet != null)
 			return bitSet;
 		bitSet = new RoaringBitmap();
-		for (int id : ids)
-			bitSet.add(id);
+		for (int i = 0; i < currentPos; i++)
+			bitSet.add(ids[i]);
 		return bitSet;
 	}
 
@@ -0,0 +1,214 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.result.collector.join;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.roaringbitmap.RoaringBitmap;
+
+import com.jaeksoft.searchlib.index.FieldCacheIndex;
+import com.jaeksoft.searchlib.join.JoinItem.OuterCollector;
+
+/**
+ * Join executed on the term ordinals of the FieldCache. The local ordinals are
+ * translated into foreign ordinals once per pair of field caches (the
+ * translation array is cached until the readers are closed). A query then
+ * only needs a hash table keyed by foreign ordinal, built on the smaller side
+ * of the join, without any sort.
+ */
+class HashJoin {
+
+	/**
+	 * Translation arrays, keyed by the lookup tables of the local and the
+	 * foreign field caches. The lookup tables are owned by the Lucene field
+	 * cache, they are released with their reader.
+	 */
+	private final static WeakHashMap<String[], WeakHashMap<String[], int[]>> ORDINAL_MAPS = new WeakHashMap<>();
+
+	static int[] getCachedOrdinalMap(final FieldCacheIndex localIndex,
+			final FieldCacheIndex foreignIndex) {
+		synchronized (ORDINAL_MAPS) {
+			final WeakHashMap<String[], int[]> maps = ORDINAL_MAPS
+					.get(localIndex.lookup);
+			return maps == null ? null : maps.get(foreignIndex.lookup);
+		}
+	}
+
+	/**
+	 * @return an array giving the foreign ordinal of each local ordinal (-1 if
+	 *         the term does not exist in the foreign index)
+	 */
+	static int[] getOrdinalMap(final FieldCacheIndex localIndex,
+			final FieldCacheIndex foreignIndex) {
+		int[] ordinalMap = getCachedOrdinalMap(localIndex, foreignIndex);
+		if (ordinalMap != null)
+			return ordinalMap;
+		ordinalMap = buildOrdinalMap(localIndex.lookup, foreignIndex.lookup);
+		synchronized (ORDINAL_MAPS) {
+			ORDINAL_MAPS.computeIfAbsent(localIndex.lookup,
+					lookup -> new WeakHashMap<>()).put(foreignIndex.lookup,
+					ordinalMap);
+		}
+		return ordinalMap;
+	}
+
+	private static int[] buildOrdinalMap(final String[] localLookup,
+			final String[] foreignLookup) {
+		final int[] ordinalMap = new int[localLookup.length];
+		Arrays.fill(ordinalMap, -1);
+		// The hash table is built on the smaller lookup table
+		if (localLookup.length <= foreignLookup.length) {
+			final Map<String, Integer> localOrds = toOrdinalMap(localLookup);
+			for (int foreignOrd = 0; foreignOrd < foreignLookup.length; foreignOrd++) {
+				final Integer localOrd = localOrds.get(foreignLookup[foreignOrd]);
+				if (localOrd != null)
+					ordinalMap[localOrd] = foreignOrd;
+			}
+		} else {
+			final Map<String, Integer> foreignOrds = toOrdinalMap(foreignLookup);
+			for (int localOrd = 0; localOrd < localLookup.length; localOrd++) {
+				final Integer foreignOrd = foreignOrds.get(localLookup[localOrd]);
+				if (foreignOrd != null)
+					ordinalMap[localOrd] = foreignOrd;
+			}
+		}
+		return ordinalMap;
+	}
+
+	private static Map<String, Integer> toOrdinalMap(final String[] lookup) {
+		final Map<String, Integer> map = new HashMap<>(lookup.length * 2);
+		for (int ord = 0; ord < lookup.length; ord++)
+			map.putIfAbsent(lookup[ord], ord);
+		return map;
+	}
+
+	/**
+	 * Join the documents. For each local document, the first foreign document
+	 * sharing the same term is set as foreign document.
+	 *
+	 * @param inner
+	 *            if true, the local documents without foreign document are
+	 *            removed (set to -1)
+	 */
+	static void join(final JoinDocCollector docs1,
+			final FieldCacheIndex doc1StringIndex, final int[] ids2,
+			final FieldCacheIndex doc2StringIndex, final float scores2[],
+			final int joinResultPos, final int[] ordinalMap,
+			final boolean inner, final OuterCollector outerCollector) {
+		final int[] ids1 = docs1.getIds();
+		final int[] order1 = doc1StringIndex.order;
+		final int[] order2 = doc2StringIndex.order;
+
+		// Build the table on the smaller side
+		final OrdinalTable table;
+		if (ids1.length < ids2.length) {
+			final RoaringBitmap neededOrds = new RoaringBitmap();
+			for (int id1 : ids1) {
+				final int ord2 = ordinalMap[order1[id1]];
+				if (ord2 != -1)
+					neededOrds.add(ord2);
+			}
+			table = new OrdinalTable(neededOrds.getCardinality());
+			for (int i2 = 0; i2 < ids2.length; i2++) {
+				final int ord2 = order2[ids2[i2]];
+				if (neededOrds.contains(ord2))
+					table.putIfAbsent(ord2, i2);
+			}
+		} else {
+			table = new OrdinalTable(ids2.length);
+			for (int i2 = 0; i2 < ids2.length; i2++)
+				table.putIfAbsent(order2[ids2[i2]], i2);
+		}
+
+		// Probe with the local documents
+		final RoaringBitmap matchedOrds = outerCollector == null ? null
+				: new RoaringBitmap();
+		for (int i1 = 0; i1 < ids1.length; i1++) {
+			final int ord2 = ordinalMap[order1[ids1[i1]]];
+			final int i2 = ord2 == -1 ? -1 : table.get(ord2);
+			if (i2 == -1) {
+				if (inner)
+					ids1[i1] = -1;
+				continue;
+			}
+			docs1.setForeignDoc(i1, joinResultPos, ids2[i2],
+					scores2 != null ? scores2[i2] : 1.0F);
+			if (matchedOrds != null)
+				matchedOrds.add(ord2);
+		}
+
+		// Foreign documents without local document
+		if (outerCollector != null)
+			for (int id2 : ids2) {
+				final int ord2 = order2[id2];
+				if (!matchedOrds.contains(ord2))
+					outerCollector.collect(id2, doc2StringIndex.lookup[ord2]);
+			}
+	}
+
+	/**
+	 * Open addressing hash table mapping an ordinal to a position
+	 */
+	private static class OrdinalTable {
+
+		private final int[] keys;
+		private final int[] values;
+		private final int mask;
+
+		private OrdinalTable(final int expectedSize) {
+			int capacity = Integer.highestOneBit(Math.max(expectedSize, 1) * 2 - 1) << 1;
+			if (capacity < 16)
+				capacity = 16;
+			keys = new int[capacity];
+			Arrays.fill(keys, -1);
+			values = new int[capacity];
+			mask = capacity - 1;
+		}
+
+		private int slot(final int key) {
+			int hash = key * 0x9E3779B9;
+			int slot = (hash ^ (hash >>> 16)) & mask;
+			while (keys[slot] != -1 && keys[slot] != key)
+				slot = (slot + 1) & mask;
+			return slot;
+		}
+
+		private void putIfAbsent(final int key, final int value) {
+			final int slot = slot(key);
+			if (keys[slot] != -1)
+				return;
+			keys[slot] = key;
+			values[slot] = value;
+		}
+
+		private int get(final int key) {
+			final int slot = slot(key);
+			return keys[slot] == -1 ? -1 : values[slot];
+		}
+	}
+}
@@ -42,6 +42,19 @@ public class JoinUtils {
 			final int joinResultPos, Timer timer, JoinType joinType,
 			OuterCollector outerCollector, ReaderAbstract foreignReader)
 			throws NoCollectorException {
+		return join(docs, doc1StringIndex, docs2, doc2StringIndex,
+				joinResultSize, joinResultPos, timer, joinType,
+				outerCollector, foreignReader, isHashJoinCheaper(
+						docs.getSize(), doc1StringIndex, docs2.getSize(),
+						doc2StringIndex));
+	}
+
+	final static DocIdInterface join(final DocIdInterface docs,
+			FieldCacheIndex doc1StringIndex, DocIdInterface docs2,
+			FieldCacheIndex doc2StringIndex, int joinResultSize,
+			final int joinResultPos, Timer timer, JoinType joinType,
+			OuterCollector outerCollector, ReaderAbstract foreignReader,
+			boolean hashJoin) throws NoCollectorException {
 
 		if (docs.getSize() == 0 && outerCollector == null)
 			return docs;
@@ -52,6 +65,23 @@ public class JoinUtils {
 		JoinDocCollector docs1 = JoinUtils.getCollector(docs, joinResultSize);
 		docs1.getForeignReaders()[joinResultPos] = foreignReader;
 
+		if (hashJoin) {
+			Timer t = new Timer(timer, "ordinal map");
+			final int[] ordinalMap = HashJoin.getOrdinalMap(doc1StringIndex,
+					doc2StringIndex);
+			t.getDuration();
+			t = new Timer(timer, "hash join operation");
+			ScoreInterface scoreDocs2 = docs2
+					.getCollector(ScoreInterface.class);
+			HashJoin.join(docs1, doc1StringIndex, docs2.getIds(),
+					doc2StringIndex,
+					scoreDocs2 != null ? scoreDocs2.getScores() : null,
+					joinResultPos, ordinalMap, joinType == JoinType.INNER,
+					joinType == JoinType.INNER ? outerCollector : null);
+			t.getDuration();
+			return (DocIdInterface) docs1.duplicate();
+		}
+
 		Timer t = new Timer(timer, "copy & sort local documents");
 		new AscStringIndexSorter(docs1, doc1StringIndex, false).quickSort(t);
 		t.getDuration();
@@ -83,6 +113,29 @@ public class JoinUtils {
 		return (DocIdInterface) docs1.duplicate();
 	}
 
+	/**
+	 * The hash join needs the ordinal map of the two field caches. Once built
+	 * (and cached) it is always the cheapest way. Otherwise, building it costs
+	 * one hash operation per term of both fields, while the sort-merge join
+	 * sorts both document sets.
+	 */
+	final static boolean isHashJoinCheaper(final int size1,
+			final FieldCacheIndex doc1StringIndex, final int size2,
+			final FieldCacheIndex doc2StringIndex) {
+		if (HashJoin.getCachedOrdinalMap(doc1StringIndex, doc2StringIndex) != null)
+			return true;
+		final long hashCost = (long) doc1StringIndex.lookup.length
+				+ doc2StringIndex.lookup.length;
+		final long sortCost = sortCost(size1) + sortCost(size2);
+		return hashCost <= sortCost;
+	}
+
+	private static long sortCost(final int size) {
+		if (size < 2)
+			return size;
+		return (long) size * (32 - Integer.numberOfLeadingZeros(size));
+	}
+
 	final private static JoinDocCollector getCollector(
 			final DocIdInterface docs, final int joinResultSize) {
 		JoinDocCollector base = new JoinDocCollector(docs, joinResultSize);
@@ -25,24 +25,19 @@
 package com.jaeksoft.searchlib.scheduler.task;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.URISyntaxException;
-import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
 import java.util.regex.Pattern;
 
-import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.TransformerException;
 import javax.xml.transform.stream.StreamSource;
-import javax.xml.xpath.XPathExpressionException;
 
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.net.ftp.FTPClient;
 import org.apache.commons.net.ftp.FTPConnectionClosedException;
 import org.apache.commons.net.ftp.FTPFile;
-import org.w3c.dom.Node;
-import org.xml.sax.SAXException;
 
 import com.jaeksoft.searchlib.Client;
 import com.jaeksoft.searchlib.Logging;
@@ -194,15 +189,14 @@ public class TaskFtpXmlFeed extends TaskAbstract {
 				}
 				taskLog.setInfo("Working on: " + filePathName);
 				inputStream = ftp.retrieveFileStream(filePathName);
-				Node xmlDoc = null;
 				if (xsl != null && xsl.length() > 0) {
 					xmlTempResult = File.createTempFile("ossftpfeed", ".xml");
 					DomUtils.xslt(new StreamSource(inputStream), xsl, xmlTempResult);
-					xmlDoc = DomUtils.readXml(new StreamSource(xmlTempResult), false);
+					try (InputStream input = new FileInputStream(xmlTempResult)) {
+						client.loadXmlDocuments(new StreamSource(input), 0, bufferSize, null, httpDownloader, taskLog);
+					}
 				} else
-					xmlDoc = DomUtils.readXml(new StreamSource(inputStream), false);
-				client.updateXmlDocuments(xmlDoc, bufferSize, null, httpDownloader, taskLog);
-				client.deleteXmlDocuments(xmlDoc, bufferSize, taskLog);
+					client.loadXmlDocuments(new StreamSource(inputStream), 0, bufferSize, null, httpDownloader, taskLog);
 				inputStream.close();
 				inputStream = null;
 				if (!ftp.completePendingCommand())
@@ -217,24 +211,8 @@ public class TaskFtpXmlFeed extends TaskAbstract {
 				loaded++;
 			}
 			taskLog.setInfo(loaded + " file(s) loaded - " + ignored + " file(s) ignored");
-		} catch (XPathExpressionException e) {
-			throw new SearchLibException(e);
-		} catch (NoSuchAlgorithmException e) {
-			throw new SearchLibException(e);
-		} catch (ParserConfigurationException e) {
-			throw new SearchLibException(e);
-		} catch (SAXException e) {
-			throw new SearchLibException(e);
 		} catch (IOException e) {
 			throw new SearchLibException(e);
-		} catch (URISyntaxException e) {
-			throw new SearchLibException(e);
-		} catch (InstantiationException e) {
-			throw new SearchLibException(e);
-		} catch (IllegalAccessException e) {
-			throw new SearchLibException(e);
-		} catch (ClassNotFoundException e) {
-			throw new SearchLibException(e);
 		} catch (TransformerException e) {
 			throw new SearchLibException(e);
 		} finally {
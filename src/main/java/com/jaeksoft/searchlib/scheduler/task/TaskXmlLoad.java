@@ -25,19 +25,14 @@
 package com.jaeksoft.searchlib.scheduler.task;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.security.NoSuchAlgorithmException;
 
-import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.TransformerException;
 import javax.xml.transform.stream.StreamSource;
-import javax.xml.xpath.XPathExpressionException;
-
-import org.w3c.dom.Node;
-import org.xml.sax.InputSource;
-import org.xml.sax.SAXException;
 
 import com.jaeksoft.searchlib.Client;
 import com.jaeksoft.searchlib.Logging;
@@ -47,6 +42,7 @@ import com.jaeksoft.searchlib.crawler.web.database.CredentialItem;
 import com.jaeksoft.searchlib.crawler.web.database.CredentialItem.CredentialType;
 import com.jaeksoft.searchlib.crawler.web.spider.DownloadItem;
 import com.jaeksoft.searchlib.crawler.web.spider.HttpDownloader;
+import com.jaeksoft.searchlib.index.XmlStreamLoader;
 import com.jaeksoft.searchlib.scheduler.TaskAbstract;
 import com.jaeksoft.searchlib.scheduler.TaskLog;
 import com.jaeksoft.searchlib.scheduler.TaskProperties;
@@ -73,8 +69,11 @@ public class TaskXmlLoad extends TaskAbstract {
 	final private TaskPropertyDef propXsl = new TaskPropertyDef(TaskPropertyType.multilineTextBox, "XSL", "XSL", null,
 			100, 30);
 
+	final private TaskPropertyDef propResumeOffset = new TaskPropertyDef(TaskPropertyType.textBox, "Resume offset",
+			"Resume offset", "The checkpoint reported by an interrupted load", 20);
+
 	final private TaskPropertyDef[] taskPropertyDefs = { propUri, propLogin, propPassword, propUserAgent,
-			propBuffersize, propXsl };
+			propBuffersize, propXsl, propResumeOffset };
 
 	@Override
 	public String getName() {
@@ -118,6 +117,10 @@ public class TaskXmlLoad extends TaskAbstract {
 		int bufferSize = 50;
 		if (p != null && p.length() > 0)
 			bufferSize = Integer.parseInt(p);
+		String r = properties.getValue(propResumeOffset);
+		long resumeOffset = 0;
+		if (r != null && r.length() > 0)
+			resumeOffset = Long.parseLong(r);
 		HttpDownloader httpDownloader = client.getWebCrawlMaster().getNewHttpDownloader(true, userAgent, false);
 		try {
 			URI uri = new URI(uriString);
@@ -126,34 +129,22 @@ public class TaskXmlLoad extends TaskAbstract {
 				credentialItem = new CredentialItem(CredentialType.BASIC_DIGEST, null, login, password, null, null);
 			DownloadItem downloadItem = httpDownloader.get(uri, credentialItem);
 			downloadItem.checkNoErrorList(200);
-			Node xmlDoc = null;
+			XmlStreamLoader loader;
 			if (xsl != null && xsl.length() > 0) {
 				xmlTempResult = File.createTempFile("ossupload", ".xml");
 				DomUtils.xslt(new StreamSource(downloadItem.getContentInputStream()), xsl, xmlTempResult);
-				xmlDoc = DomUtils.readXml(new StreamSource(xmlTempResult), false);
+				try (InputStream input = new FileInputStream(xmlTempResult)) {
+					loader = client.loadXmlDocuments(new StreamSource(input), resumeOffset, bufferSize,
+							credentialItem, httpDownloader, taskLog);
+				}
 			} else
-				xmlDoc = DomUtils.readXml(new InputSource(downloadItem.getContentInputStream()), false);
-
-			client.updateXmlDocuments(xmlDoc, bufferSize, credentialItem, httpDownloader, taskLog);
-			client.deleteXmlDocuments(xmlDoc, bufferSize, taskLog);
-		} catch (XPathExpressionException e) {
-			throw new SearchLibException(e);
-		} catch (NoSuchAlgorithmException e) {
-			throw new SearchLibException(e);
-		} catch (ParserConfigurationException e) {
-			throw new SearchLibException(e);
-		} catch (SAXException e) {
-			throw new SearchLibException(e);
+				loader = client.loadXmlDocuments(new StreamSource(downloadItem.getContentInputStream()),
+						resumeOffset, bufferSize, credentialItem, httpDownloader, taskLog);
+			taskLog.setInfo(loader.getInfo());
 		} catch (IOException e) {
 			throw new SearchLibException(e);
 		} catch (URISyntaxException e) {
 			throw new SearchLibException(e);
-		} catch (InstantiationException e) {
-			throw new SearchLibException(e);
-		} catch (IllegalAccessException e) {
-			throw new SearchLibException(e);
-		} catch (ClassNotFoundException e) {
-			throw new SearchLibException(e);
 		} catch (TransformerException e) {
 			throw new SearchLibException(e);
 		} finally {
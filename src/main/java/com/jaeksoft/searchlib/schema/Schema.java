@@ -26,6 +26,7 @@ package com.jaeksoft.searchlib.schema;
 
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.xml.xpath.XPathExpressionException;
 
@@ -46,6 +47,8 @@ import com.jaeksoft.searchlib.util.XmlWriter;
 
 public class Schema {
 
+	private final static AtomicLong ANALYZERS_VERSION = new AtomicLong();
+
 	private Config config;
 
 	private SchemaFieldList fieldList;
@@ -58,10 +61,13 @@ public class Schema {
 
 	private ReadWriteLock rwl = new ReadWriteLock();
 
+	private volatile long analyzersVersion;
+
 	private Schema(Config config) {
 		this.config = config;
 		fieldList = null;
 		analyzers = null;
+		analyzersVersion = ANALYZERS_VERSION.incrementAndGet();
 		langQueryAnalyzers = new TreeMap<String, PerFieldAnalyzer>();
 		langIndexAnalyzers = new TreeMap<String, PerFieldAnalyzer>();
 	}
@@ -193,11 +199,21 @@ public class Schema {
 			analyzers.recompile();
 			langQueryAnalyzers.clear();
 			langIndexAnalyzers.clear();
+			analyzersVersion = ANALYZERS_VERSION.incrementAndGet();
 		} finally {
 			rwl.w.unlock();
 		}
 	}
 
+	/**
+	 * @return a number which changes each time the analyzers are recompiled
+	 *         (after an edit of an analyzer or of a stop words list). It is
+	 *         unique among all the schemas.
+	 */
+	public long getAnalyzersVersion() {
+		return analyzersVersion;
+	}
+
 	public Analyzer getAnalyzer(SchemaField schemaField, LanguageEnum lang) {
 		rwl.r.lock();
 		try {
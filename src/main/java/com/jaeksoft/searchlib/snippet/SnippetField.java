@@ -26,6 +26,7 @@ package com.jaeksoft.searchlib.snippet;
 
 import com.jaeksoft.searchlib.SearchLibException;
 import com.jaeksoft.searchlib.analysis.CompiledAnalyzer;
+import com.jaeksoft.searchlib.analysis.LanguageEnum;
 import com.jaeksoft.searchlib.function.expression.SyntaxError;
 import com.jaeksoft.searchlib.index.ReaderInterface;
 import com.jaeksoft.searchlib.query.ParseException;
@@ -65,6 +66,7 @@ public class SnippetField extends AbstractField<SnippetField> {
 	private transient Query query;
 	private transient CompiledAnalyzer queryAnalyzer;
 	private transient CompiledAnalyzer indexAnalyzer;
+	private transient LanguageEnum lang;
 
 	private SnippetField(String fieldName, String tag, String separator, int maxSnippetSize, int maxSnippetNumber,
 			FragmenterAbstract fragmenterTemplate, int timeLimit) {
@@ -207,6 +209,7 @@ public class SnippetField extends AbstractField<SnippetField> {
 		query = null;
 		queryAnalyzer = null;
 		indexAnalyzer = null;
+		lang = null;
 	}
 
 	public void initSearchTerms(AbstractLocalSearchRequest searchRequest)
@@ -216,9 +219,10 @@ public class SnippetField extends AbstractField<SnippetField> {
 				return;
 			this.query = searchRequest.getSnippetQuery();
 			this.queryAnalyzer = searchRequest.getAnalyzer().getCompiledAnalyzer(name);
+			this.lang = searchRequest.getLang();
 			this.indexAnalyzer = searchRequest.getConfig()
 					.getSchema()
-					.getIndexPerFieldAnalyzer(searchRequest.getLang())
+					.getIndexPerFieldAnalyzer(lang)
 					.getCompiledAnalyzer(name);
 			snippetQueries = new SnippetQueries(this.query, name);
 		}
@@ -285,7 +289,7 @@ public class SnippetField extends AbstractField<SnippetField> {
 		Timer t = new Timer(timer, "extractTermVectorIterator");
 
 		Iterator<SnippetVector> vectorIterator =
-				SnippetVectors.extractTermVectorIterator(docId, reader, snippetQueries, name, values, indexAnalyzer, t,
+				SnippetVectors.extractTermVectorIterator(docId, reader, snippetQueries, name, lang, values, indexAnalyzer, t,
 						halfTimeExpiration);
 		if (vectorIterator != null)
 			currentVector = vectorIterator.hasNext() ? vectorIterator.next() : null;
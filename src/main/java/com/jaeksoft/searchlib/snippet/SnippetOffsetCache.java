@@ -0,0 +1,61 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.snippet;
+
+import java.util.List;
+
+import com.jaeksoft.searchlib.SearchLibException;
+import com.jaeksoft.searchlib.analysis.CompiledAnalyzer;
+import com.jaeksoft.searchlib.analysis.LanguageEnum;
+import com.jaeksoft.searchlib.cache.LRUCache;
+import com.jaeksoft.searchlib.schema.FieldValueItem;
+
+/**
+ * Keeps the snippet offsets of the recently highlighted documents. One cache
+ * belongs to one reader: the document ids are stable.
+ */
+public class SnippetOffsetCache extends LRUCache<SnippetOffsetCacheItem> {
+
+	public SnippetOffsetCache(int maxSize) {
+		super("Snippet offsets", maxSize);
+	}
+
+	/**
+	 * @param lang
+	 *            the language of the request, which selects the analyzer
+	 */
+	public SnippetOffsets get(int docId, String field, LanguageEnum lang,
+			List<FieldValueItem> values, CompiledAnalyzer analyzer)
+			throws SearchLibException {
+		try {
+			return getAndJoin(
+					new SnippetOffsetCacheItem(docId, field, lang, values,
+							analyzer), null).getSnippetOffsets();
+		} catch (Exception e) {
+			throw new SearchLibException(e);
+		}
+	}
+
+}
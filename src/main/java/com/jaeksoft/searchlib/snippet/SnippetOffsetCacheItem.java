@@ -0,0 +1,77 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.snippet;
+
+import java.util.List;
+
+import com.jaeksoft.searchlib.analysis.CompiledAnalyzer;
+import com.jaeksoft.searchlib.analysis.LanguageEnum;
+import com.jaeksoft.searchlib.cache.LRUItemAbstract;
+import com.jaeksoft.searchlib.schema.FieldValueItem;
+import com.jaeksoft.searchlib.util.StringUtils;
+import com.jaeksoft.searchlib.util.Timer;
+
+public class SnippetOffsetCacheItem extends
+		LRUItemAbstract<SnippetOffsetCacheItem> {
+
+	private final int docId;
+	private final String field;
+	// The offsets depend on the analyzer, which depends on the language
+	private final LanguageEnum lang;
+	private List<FieldValueItem> values;
+	private CompiledAnalyzer analyzer;
+
+	private SnippetOffsets snippetOffsets = null;
+
+	SnippetOffsetCacheItem(int docId, String field, LanguageEnum lang,
+			List<FieldValueItem> values, CompiledAnalyzer analyzer) {
+		this.docId = docId;
+		this.field = field;
+		this.lang = lang == null ? LanguageEnum.UNDEFINED : lang;
+		this.values = values;
+		this.analyzer = analyzer;
+	}
+
+	@Override
+	public int compareTo(SnippetOffsetCacheItem i) {
+		if (docId != i.docId)
+			return docId < i.docId ? -1 : 1;
+		int c = StringUtils.compareNullString(field, i.field);
+		if (c != 0)
+			return c;
+		return lang.compareTo(i.lang);
+	}
+
+	@Override
+	protected void populate(Timer timer) throws Exception {
+		snippetOffsets = new SnippetOffsets(values, analyzer);
+		values = null;
+		analyzer = null;
+	}
+
+	public SnippetOffsets getSnippetOffsets() {
+		return snippetOffsets;
+	}
+}
@@ -0,0 +1,124 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.snippet;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.jaeksoft.searchlib.analysis.CompiledAnalyzer;
+import com.jaeksoft.searchlib.analysis.TokenTerm;
+import com.jaeksoft.searchlib.schema.FieldValueItem;
+
+/**
+ * The positions and the offsets of every term of a field, computed once by
+ * analyzing the stored values. The terms are sorted, the occurrences of the
+ * term i are stored from starts[i] to starts[i + 1].
+ */
+public class SnippetOffsets {
+
+	private final String[] terms;
+	private final int[] starts;
+	private final int[] positions;
+	private final int[] startOffsets;
+	private final int[] endOffsets;
+
+	SnippetOffsets(final List<FieldValueItem> values,
+			final CompiledAnalyzer analyzer) throws IOException {
+		final TreeMap<String, IntArrayList> termMap = new TreeMap<String, IntArrayList>();
+		final List<TokenTerm> tokenTerms = new ArrayList<TokenTerm>();
+		int positionOffset = 0;
+		int characterOffset = 0;
+		int count = 0;
+		for (FieldValueItem fieldValueItem : values) {
+			if (fieldValueItem.value == null)
+				continue;
+			analyzer.populate(fieldValueItem.value, tokenTerms);
+			for (TokenTerm tokenTerm : tokenTerms) {
+				IntArrayList occurrences = termMap.get(tokenTerm.term);
+				if (occurrences == null) {
+					occurrences = new IntArrayList(3);
+					termMap.put(tokenTerm.term, occurrences);
+				}
+				occurrences.add(positionOffset);
+				occurrences.add(tokenTerm.start + characterOffset);
+				occurrences.add(tokenTerm.end + characterOffset);
+				positionOffset += tokenTerm.increment;
+				count++;
+			}
+			characterOffset += fieldValueItem.value.length() + 1;
+			tokenTerms.clear();
+		}
+		terms = new String[termMap.size()];
+		starts = new int[terms.length + 1];
+		positions = new int[count];
+		startOffsets = new int[count];
+		endOffsets = new int[count];
+		int i = 0;
+		int pos = 0;
+		for (Map.Entry<String, IntArrayList> entry : termMap.entrySet()) {
+			terms[i] = entry.getKey();
+			starts[i++] = pos;
+			final int[] occurrences = entry.getValue().elements();
+			final int size = entry.getValue().size();
+			for (int j = 0; j < size; j += 3) {
+				positions[pos] = occurrences[j];
+				startOffsets[pos] = occurrences[j + 1];
+				endOffsets[pos++] = occurrences[j + 2];
+			}
+		}
+		starts[i] = pos;
+	}
+
+	/**
+	 * Build a term vector restricted to the given terms
+	 * 
+	 * @param field
+	 *            the name of the field
+	 * @param queryTerms
+	 *            the terms to look for
+	 * @return a new term vector
+	 */
+	SnippetTermPositionVector getTermPositionVector(final String field,
+			final String[] queryTerms) {
+		final SnippetTermPositionVector stpv = new SnippetTermPositionVector(
+				field, queryTerms);
+		if (queryTerms == null)
+			return stpv;
+		for (String queryTerm : queryTerms) {
+			final int i = Arrays.binarySearch(terms, queryTerm);
+			if (i < 0)
+				continue;
+			stpv.setOccurrences(queryTerm, positions, startOffsets,
+					endOffsets, starts[i], starts[i + 1]);
+		}
+		return stpv;
+	}
+}
@@ -24,64 +24,35 @@
 
 package com.jaeksoft.searchlib.snippet;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
+import java.util.Arrays;
 import java.util.TreeMap;
 
-import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang3.ArrayUtils;
 import org.apache.lucene.index.TermPositionVector;
 import org.apache.lucene.index.TermVectorOffsetInfo;
 
-import com.jaeksoft.searchlib.analysis.TokenTerm;
-
 public class SnippetTermPositionVector implements TermPositionVector {
 
-	private class Info {
-
-		private final List<Integer> positionList = new ArrayList<Integer>();
-		private final List<TermVectorOffsetInfo> offsetList = new ArrayList<TermVectorOffsetInfo>();
-		private int[] positionArray = null;
-		private TermVectorOffsetInfo[] offsetArray = null;
-
-		private final void compile() {
-			compilePositions();
-			compileOffsets();
-		}
-
-		private final void compilePositions() {
-			if (positionArray != null
-					&& positionArray.length == positionList.size())
-				return;
-			positionArray = new int[positionList.size()];
-			int i = 0;
-			for (int pos : positionList)
-				positionArray[i++] = pos;
-		}
-
-		private final void compileOffsets() {
-			if (offsetArray != null && offsetArray.length == offsetList.size())
-				return;
-			offsetArray = offsetList
-					.toArray(new TermVectorOffsetInfo[offsetList.size()]);
-		}
-	}
+	private final static TermVectorOffsetInfo[] EMPTY_OFFSETS = new TermVectorOffsetInfo[0];
 
 	private final String[] terms;
 	private final String field;
 	private final TreeMap<String, Integer> termMap = new TreeMap<String, Integer>();
-	private final Info[] infoArray;
+	private final int[][] positionArrays;
+	private final TermVectorOffsetInfo[][] offsetArrays;
 	private final int[] frequencyArray;
 
 	SnippetTermPositionVector(final String field, final String[] terms) {
 		this.field = field;
 		this.terms = terms;
 		if (terms == null) {
-			infoArray = null;
+			positionArrays = null;
+			offsetArrays = null;
 			frequencyArray = null;
 			return;
 		}
-		infoArray = new Info[terms.length];
+		positionArrays = new int[terms.length][];
+		offsetArrays = new TermVectorOffsetInfo[terms.length][];
 		frequencyArray = new int[terms.length];
 		int idx = 0;
 		for (String term : terms) {
@@ -89,34 +60,29 @@ public class SnippetTermPositionVector implements TermPositionVector {
 				continue;
 			termMap.put(term, idx);
 			frequencyArray[idx] = 0;
-			infoArray[idx++] = new Info();
-		}
-	}
-
-	int addCollection(final Collection<TokenTerm> tokenTerms,
-			final int characterOffset, int positionOffset) {
-		if (CollectionUtils.isEmpty(tokenTerms))
-			return positionOffset;
-		for (TokenTerm tokenTerm : tokenTerms) {
-			Integer idx = termMap.get(tokenTerm.term);
-			if (idx != null) {
-				frequencyArray[idx]++;
-				Info info = infoArray[idx];
-				info.offsetList.add(new TermVectorOffsetInfo(tokenTerm.start
-						+ characterOffset, tokenTerm.end + characterOffset));
-				info.positionList.add(positionOffset);
-			}
-			positionOffset += tokenTerm.increment;
+			positionArrays[idx] = ArrayUtils.EMPTY_INT_ARRAY;
+			offsetArrays[idx++] = EMPTY_OFFSETS;
 		}
-		compile();
-		return positionOffset;
 	}
 
-	void compile() {
-		if (infoArray == null)
+	/**
+	 * Set the occurrences of a term, copied from the range [from, to) of the
+	 * given arrays
+	 */
+	void setOccurrences(final String term, final int[] positions,
+			final int[] startOffsets, final int[] endOffsets, final int from,
+			final int to) {
+		final Integer idx = termMap.get(term);
+		if (idx == null)
 			return;
-		for (Info info : infoArray)
-			info.compile();
+		frequencyArray[idx] = to - from;
+		positionArrays[idx] = Arrays.copyOfRange(positions, from, to);
+		final TermVectorOffsetInfo[] offsets = new TermVectorOffsetInfo[to
+				- from];
+		for (int i = from; i < to; i++)
+			offsets[i - from] = new TermVectorOffsetInfo(startOffsets[i],
+					endOffsets[i]);
+		offsetArrays[idx] = offsets;
 	}
 
 	@Override
@@ -159,12 +125,12 @@ public class SnippetTermPositionVector implements TermPositionVector {
 
 	@Override
 	public int[] getTermPositions(int index) {
-		return infoArray[index].positionArray;
+		return positionArrays[index];
 	}
 
 	@Override
 	public TermVectorOffsetInfo[] getOffsets(int index) {
-		return infoArray[index].offsetArray;
+		return offsetArrays[index];
 	}
 
 }
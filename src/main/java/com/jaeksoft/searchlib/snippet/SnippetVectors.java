@@ -41,9 +41,10 @@ import org.apache.lucene.index.TermVectorOffsetInfo;
 
 import com.jaeksoft.searchlib.SearchLibException;
 import com.jaeksoft.searchlib.analysis.CompiledAnalyzer;
-import com.jaeksoft.searchlib.analysis.TokenTerm;
+import com.jaeksoft.searchlib.analysis.LanguageEnum;
 import com.jaeksoft.searchlib.function.expression.SyntaxError;
 import com.jaeksoft.searchlib.index.ReaderInterface;
+import com.jaeksoft.searchlib.index.ReaderLocal;
 import com.jaeksoft.searchlib.query.ParseException;
 import com.jaeksoft.searchlib.schema.FieldValueItem;
 import com.jaeksoft.searchlib.util.Timer;
@@ -80,15 +81,16 @@ class SnippetVectors {
 	final static Iterator<SnippetVector> extractTermVectorIterator(
 			final int docId, final ReaderInterface reader,
 			final SnippetQueries snippetQueries, final String fieldName,
-			List<FieldValueItem> values, CompiledAnalyzer analyzer,
-			final Timer parentTimer, final long expiration) throws IOException,
+			final LanguageEnum lang, List<FieldValueItem> values,
+			CompiledAnalyzer analyzer, final Timer parentTimer,
+			final long expiration) throws IOException,
 			ParseException, SyntaxError, SearchLibException {
 		if (ArrayUtils.isEmpty(snippetQueries.terms))
 			return null;
 
 		Timer t = new Timer(parentTimer, "getTermPositionVector " + fieldName);
 		TermPositionVector termVector = getTermPositionVector(
-				snippetQueries.terms, reader, docId, fieldName, values,
+				snippetQueries.terms, reader, docId, fieldName, lang, values,
 				analyzer, t);
 		t.end(null);
 
@@ -118,8 +120,8 @@ class SnippetVectors {
 
 	private static final TermPositionVector getTermPositionVector(
 			final String[] terms, final ReaderInterface readerInterface,
-			final int docId, final String field, List<FieldValueItem> values,
-			CompiledAnalyzer analyzer, Timer timer) throws IOException,
+			final int docId, final String field, final LanguageEnum lang,
+			List<FieldValueItem> values, CompiledAnalyzer analyzer, Timer timer) throws IOException,
 			SearchLibException, ParseException, SyntaxError {
 		TermFreqVector termFreqVector = readerInterface.getTermFreqVector(
 				docId, field);
@@ -128,22 +130,14 @@ class SnippetVectors {
 				return (TermPositionVector) termFreqVector;
 		if (analyzer == null)
 			return null;
-		SnippetTermPositionVector stpv = new SnippetTermPositionVector(field,
-				terms);
-		int positionOffset = 0;
-		int characterOffset = 0;
-		List<TokenTerm> tokenTerms = new ArrayList<TokenTerm>();
-		for (FieldValueItem fieldValueItem : values) {
-			if (fieldValueItem.value == null)
-				continue;
-			analyzer.populate(fieldValueItem.value, tokenTerms);
-			positionOffset = stpv.addCollection(tokenTerms, characterOffset,
-					positionOffset);
-			characterOffset += fieldValueItem.value.length() + 1;
-			tokenTerms.clear();
-		}
-		stpv.compile();
-		return stpv;
+		final SnippetOffsets snippetOffsets;
+		if (readerInterface instanceof ReaderLocal)
+			snippetOffsets = ((ReaderLocal) readerInterface)
+					.getSnippetOffsetCache().get(docId, field, lang,
+							values, analyzer);
+		else
+			snippetOffsets = new SnippetOffsets(values, analyzer);
+		return snippetOffsets.getTermPositionVector(field, terms);
 	}
 
 	private static final void populate(final TermPositionVector termVector,
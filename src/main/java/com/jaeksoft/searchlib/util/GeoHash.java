@@ -0,0 +1,186 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Geohash encoding of locations given in radians. A geohash of n characters
+ * identifies a cell of a grid built by interleaving 5 x n bits, starting with
+ * the longitude. Each prefix of a geohash is the hash of the enclosing cell:
+ * indexing every prefix of a location allows to query it at any precision.
+ */
+public class GeoHash {
+
+	private final static char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz"
+			.toCharArray();
+
+	public final static int MAX_PRECISION = 12;
+
+	/**
+	 * The precision used at indexing time: cells of about 5 x 5 meters
+	 */
+	public final static int DEFAULT_PRECISION = 9;
+
+	private final static double MIN_LAT = -Math.PI / 2;
+	private final static double MIN_LON = -Math.PI;
+	private final static double LAT_RANGE = Math.PI;
+	private final static double LON_RANGE = 2 * Math.PI;
+
+	public static class Cell {
+
+		final public String hash;
+		final public double minLatitude;
+		final public double minLongitude;
+		final public double maxLatitude;
+		final public double maxLongitude;
+
+		private Cell(final int latIndex, final int lonIndex,
+				final int precision) {
+			hash = encode(latIndex, lonIndex, precision);
+			final double latStep = LAT_RANGE / (1L << latBits(precision));
+			final double lonStep = LON_RANGE / (1L << lonBits(precision));
+			minLatitude = MIN_LAT + latIndex * latStep;
+			maxLatitude = minLatitude + latStep;
+			minLongitude = MIN_LON + lonIndex * lonStep;
+			maxLongitude = minLongitude + lonStep;
+		}
+
+		@Override
+		public String toString() {
+			return hash;
+		}
+	}
+
+	final private static int lonBits(final int precision) {
+		return (5 * precision + 1) / 2;
+	}
+
+	final private static int latBits(final int precision) {
+		return 5 * precision / 2;
+	}
+
+	final private static int cellIndex(final double value, final double min,
+			final double range, final int bits) {
+		final long cells = 1L << bits;
+		final long index = (long) Math.floor((value - min) / range * cells);
+		if (index < 0)
+			return 0;
+		if (index >= cells)
+			return (int) (cells - 1);
+		return (int) index;
+	}
+
+	final private static String encode(final int latIndex, final int lonIndex,
+			final int precision) {
+		final char[] chars = new char[precision];
+		int lonShift = lonBits(precision);
+		int latShift = latBits(precision);
+		int ch = 0;
+		final int bits = precision * 5;
+		for (int k = 0; k < bits; k++) {
+			final int bit = (k & 1) == 0 ? (lonIndex >>> --lonShift) & 1
+					: (latIndex >>> --latShift) & 1;
+			ch = (ch << 1) | bit;
+			if (k % 5 == 4) {
+				chars[k / 5] = BASE32[ch];
+				ch = 0;
+			}
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * @param latitude
+	 *            the latitude in radians
+	 * @param longitude
+	 *            the longitude in radians
+	 * @param precision
+	 *            the number of characters of the hash
+	 * @return the geohash of the location
+	 */
+	public final static String encode(final double latitude,
+			final double longitude, final int precision) {
+		return encode(
+				cellIndex(latitude, MIN_LAT, LAT_RANGE, latBits(precision)),
+				cellIndex(longitude, MIN_LON, LON_RANGE, lonBits(precision)),
+				precision);
+	}
+
+	private final static int[] lonRange(final double minLon,
+			final double maxLon, final int bits) {
+		return new int[] { cellIndex(minLon, MIN_LON, LON_RANGE, bits),
+				cellIndex(maxLon, MIN_LON, LON_RANGE, bits) };
+	}
+
+	/**
+	 * Returns the cells covering a bounding box. The precision is the highest
+	 * one (up to maxPrecision) which needs no more than maxCells cells. The
+	 * box crosses the antimeridian when minLon is greater than maxLon.
+	 * 
+	 * @param minLat
+	 * @param minLon
+	 * @param maxLat
+	 * @param maxLon
+	 * @param maxPrecision
+	 * @param maxCells
+	 * @return the list of cells
+	 */
+	public final static List<Cell> cover(final double minLat,
+			final double minLon, final double maxLat, final double maxLon,
+			final int maxPrecision, final int maxCells) {
+		int precision = Math.min(maxPrecision, MAX_PRECISION);
+		int[] latRange;
+		List<int[]> lonRanges = new ArrayList<int[]>(2);
+		for (;;) {
+			final int latBits = latBits(precision);
+			final int lonBits = lonBits(precision);
+			latRange = new int[] {
+					cellIndex(minLat, MIN_LAT, LAT_RANGE, latBits),
+					cellIndex(maxLat, MIN_LAT, LAT_RANGE, latBits) };
+			lonRanges.clear();
+			if (minLon <= maxLon)
+				lonRanges.add(lonRange(minLon, maxLon, lonBits));
+			else {
+				lonRanges.add(lonRange(minLon, -MIN_LON, lonBits));
+				lonRanges.add(lonRange(MIN_LON, maxLon, lonBits));
+			}
+			long count = 0;
+			for (int[] lonRange : lonRanges)
+				count += (long) (latRange[1] - latRange[0] + 1)
+						* (lonRange[1] - lonRange[0] + 1);
+			if (count <= maxCells || precision == 1)
+				break;
+			precision--;
+		}
+		List<Cell> cells = new ArrayList<Cell>();
+		for (int[] lonRange : lonRanges)
+			for (int lat = latRange[0]; lat <= latRange[1]; lat++)
+				for (int lon = lonRange[0]; lon <= lonRange[1]; lon++)
+					cells.add(new Cell(lat, lon, precision));
+		return cells;
+	}
+}
@@ -74,6 +74,28 @@ public class Geospatial {
 		return d;
 	}
 
+	/**
+	 * Return the great-circle distance (haversine formula) between two points
+	 * passed as latitude and longitude in Radians. Unlike distance(), it is
+	 * exact at any latitude and across the antimeridian.
+	 * 
+	 * @param lat1
+	 * @param lon1
+	 * @param lat2
+	 * @param lon2
+	 * @param radius
+	 * @return
+	 */
+	public final static double greatCircleDistance(final double lat1,
+			final double lon1, final double lat2, final double lon2,
+			final double radius) {
+		double sinLat = Math.sin((lat2 - lat1) / 2);
+		double sinLon = Math.sin((lon2 - lon1) / 2);
+		double a = sinLat * sinLat + Math.cos(lat1) * Math.cos(lat2) * sinLon
+				* sinLon;
+		return 2 * Math.asin(Math.min(1, Math.sqrt(a))) * radius;
+	}
+
 	/**
 	 * <p>
 	 * Part of this code was originally published at <a
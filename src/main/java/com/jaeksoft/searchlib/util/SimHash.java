@@ -0,0 +1,164 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.util;
+
+/**
+ * 64 bits SimHash fingerprint of a text, computed over overlapping shingles of
+ * words. Two texts sharing most of their shingles get fingerprints separated
+ * by a small Hamming distance.
+ */
+public class SimHash {
+
+	public final static int SHINGLE_SIZE = 3;
+
+	public final static int BITS = 64;
+
+	private final int[] weights;
+
+	private final long[] window;
+
+	private int wordCount;
+
+	private long wordHash;
+
+	private int wordLength;
+
+	public SimHash() {
+		weights = new int[BITS];
+		window = new long[SHINGLE_SIZE];
+		wordCount = 0;
+		wordHash = FNV_OFFSET;
+		wordLength = 0;
+	}
+
+	private final static long FNV_OFFSET = 0xcbf29ce484222325L;
+
+	private final static long FNV_PRIME = 0x100000001b3L;
+
+	/**
+	 * Murmur3 finalizer: spreads the bits of the combined shingle hash
+	 */
+	private static long mix(long h) {
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	private void addShingle(final int size, final int[] target) {
+		long h = 0;
+		for (int i = 0; i < size; i++)
+			h = Long.rotateLeft(h, 21) ^ window[(wordCount - size + i) % SHINGLE_SIZE];
+		h = mix(h);
+		for (int i = 0; i < BITS; i++)
+			target[i] += ((h >>> i) & 1) != 0 ? 1 : -1;
+	}
+
+	private void endWord() {
+		if (wordLength == 0)
+			return;
+		window[wordCount % SHINGLE_SIZE] = wordHash;
+		wordCount++;
+		if (wordCount >= SHINGLE_SIZE)
+			addShingle(SHINGLE_SIZE, weights);
+		wordHash = FNV_OFFSET;
+		wordLength = 0;
+	}
+
+	/**
+	 * Add a text. The words are the sequences of letters or digits, compared
+	 * case insensitively.
+	 *
+	 * @param text the text to add
+	 */
+	public void add(final CharSequence text) {
+		if (text == null)
+			return;
+		final int length = text.length();
+		for (int i = 0; i < length; i++) {
+			final char c = text.charAt(i);
+			if (Character.isLetterOrDigit(c)) {
+				wordHash = (wordHash ^ Character.toLowerCase(c)) * FNV_PRIME;
+				wordLength++;
+			} else
+				endWord();
+		}
+		endWord();
+	}
+
+	/**
+	 * @return the number of words added
+	 */
+	public int getWordCount() {
+		return wordCount;
+	}
+
+	/**
+	 * @return the fingerprint, or null if no word has been added
+	 */
+	public Long getFingerprint() {
+		if (wordCount == 0)
+			return null;
+		final int[] w;
+		if (wordCount < SHINGLE_SIZE) {
+			// Too short for a whole shingle: use the words we have
+			w = new int[BITS];
+			addShingle(wordCount, w);
+		} else
+			w = weights;
+		long fingerprint = 0;
+		for (int i = 0; i < BITS; i++)
+			if (w[i] > 0)
+				fingerprint |= 1L << i;
+		return fingerprint;
+	}
+
+	public static int distance(final long fingerprint1, final long fingerprint2) {
+		return Long.bitCount(fingerprint1 ^ fingerprint2);
+	}
+
+	public static String toString(final long fingerprint) {
+		final String hex = Long.toHexString(fingerprint);
+		if (hex.length() == 16)
+			return hex;
+		return "0000000000000000".substring(hex.length()) + hex;
+	}
+
+	/**
+	 * @param value the hexadecimal form of a fingerprint
+	 * @return the fingerprint, or null if the value is empty or malformed
+	 */
+	public static Long parse(final String value) {
+		if (value == null || value.length() == 0 || value.length() > 16)
+			return null;
+		try {
+			return Long.parseUnsignedLong(value, 16);
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+}
@@ -27,19 +27,13 @@ package com.jaeksoft.searchlib.web;
 import com.jaeksoft.searchlib.Client;
 import com.jaeksoft.searchlib.SearchLibException;
 import com.jaeksoft.searchlib.crawler.web.spider.HttpDownloader;
+import com.jaeksoft.searchlib.index.XmlStreamLoader;
 import com.jaeksoft.searchlib.user.Role;
 import com.jaeksoft.searchlib.user.User;
-import com.jaeksoft.searchlib.util.DomUtils;
-import org.w3c.dom.Node;
-import org.xml.sax.SAXException;
 
 import javax.naming.NamingException;
-import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.stream.StreamSource;
-import javax.xml.xpath.XPathExpressionException;
 import java.io.IOException;
-import java.net.URISyntaxException;
-import java.security.NoSuchAlgorithmException;
 
 public class IndexServlet extends AbstractServlet {
 
@@ -66,35 +60,21 @@ public class IndexServlet extends AbstractServlet {
 			int deletedCount = 0;
 			httpDownloader = client.getWebCrawlMaster().getNewHttpDownloader(true);
 			if (ct != null && ct.toLowerCase().contains("xml")) {
-				Node xmlDoc = DomUtils.readXml(new StreamSource(transaction.getInputStream()), false);
-				updatedCount = client.updateXmlDocuments(xmlDoc, bufferSize, null, httpDownloader, null);
-				deletedCount = client.deleteXmlDocuments(xmlDoc, bufferSize, null);
+				XmlStreamLoader loader =
+						client.loadXmlDocuments(new StreamSource(transaction.getInputStream()), 0, bufferSize, null,
+								httpDownloader, null);
+				updatedCount = loader.getUpdatedCount();
+				deletedCount = loader.getDeletedCount();
 			}
 			transaction.addXmlResponse("Status", "OK");
 			transaction.addXmlResponse("Count", Integer.toString(updatedCount));
 			transaction.addXmlResponse("Deleted", Integer.toString(deletedCount));
 		} catch (IOException e) {
 			throw new ServletException(e);
-		} catch (XPathExpressionException e) {
-			throw new ServletException(e);
-		} catch (NoSuchAlgorithmException e) {
-			throw new ServletException(e);
-		} catch (ParserConfigurationException e) {
-			throw new ServletException(e);
-		} catch (SAXException e) {
-			throw new ServletException(e);
-		} catch (URISyntaxException e) {
-			throw new ServletException(e);
 		} catch (SearchLibException e) {
 			throw new ServletException(e);
 		} catch (NamingException e) {
 			throw new ServletException(e);
-		} catch (InstantiationException e) {
-			throw new ServletException(e);
-		} catch (IllegalAccessException e) {
-			throw new ServletException(e);
-		} catch (ClassNotFoundException e) {
-			throw new ServletException(e);
 		} catch (InterruptedException e) {
 			throw new ServletException(e);
 		} finally {
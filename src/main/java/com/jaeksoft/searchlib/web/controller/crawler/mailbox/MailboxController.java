@@ -70,11 +70,23 @@ public class MailboxController
 		return crawlList;
 	}
 
+	/**
+	 * The next crawl will be a full synchronization
+	 */
+	private void clearSyncState(MailboxCrawlItem crawlItem) throws SearchLibException {
+		try {
+			MailboxSyncState.clear(getClient().getDirectory(), crawlItem.getName());
+		} catch (IOException e) {
+			throw new SearchLibException(e);
+		}
+	}
+
 	@Override
 	protected void doDelete(MailboxCrawlItem crawlItem) throws SearchLibException {
 		Client client = getClient();
 		client.getMailboxCrawlList().remove(crawlItem);
 		client.saveMailboxCrawlList();
+		clearSyncState(crawlItem);
 	}
 
 	@Override
@@ -91,9 +103,11 @@ public class MailboxController
 	@Command
 	public void onSave() throws InterruptedException, SearchLibException {
 		getMailboxCrawlList();
-		if (getSelectedCrawl() != null)
+		if (getSelectedCrawl() != null) {
+			if (!getSelectedCrawl().isSameMailbox(getCurrentCrawl()))
+				clearSyncState(getSelectedCrawl());
 			getCurrentCrawl().copyTo(getSelectedCrawl());
-		else {
+		} else {
 			if (crawlList.get(getCurrentCrawl().getName()) != null) {
 				new AlertController("The crawl name is already used");
 				return;
@@ -30,6 +30,7 @@ import org.zkoss.bind.annotation.Command;
 
 import com.jaeksoft.searchlib.Client;
 import com.jaeksoft.searchlib.SearchLibException;
+import com.jaeksoft.searchlib.crawler.web.database.NearDuplicatePolicy;
 import com.jaeksoft.searchlib.crawler.web.database.WebPropertyManager;
 import com.jaeksoft.searchlib.crawler.web.process.WebCrawlMaster;
 import com.jaeksoft.searchlib.web.controller.crawler.CrawlerController;
@@ -65,6 +66,10 @@ public class CrawlWebController extends CrawlerController {
 		return fetchIntervalUnitValues;
 	}
 
+	public String[] getNearDuplicatePolicies() {
+		return NearDuplicatePolicy.getNames();
+	}
+
 	@Override
 	public WebCrawlMaster getCrawlMaster() throws SearchLibException {
 		Client client = getClient();
@@ -27,19 +27,18 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
-import java.util.Map;
 
 import org.zkoss.bind.annotation.AfterCompose;
 import org.zkoss.bind.annotation.Command;
 import org.zkoss.zul.Filedownload;
 
 import com.jaeksoft.searchlib.SearchLibException;
-import com.jaeksoft.searchlib.facet.Facet;
-import com.jaeksoft.searchlib.facet.FacetCounter;
-import com.jaeksoft.searchlib.query.ParseException;
-import com.jaeksoft.searchlib.report.ReportsManager;
+import com.jaeksoft.searchlib.report.QueryReport;
+import com.jaeksoft.searchlib.report.TopKSketch;
 import com.jaeksoft.searchlib.util.IOUtils;
 
 @AfterCompose(superclass = true)
@@ -51,7 +50,9 @@ public class QueryReportsController extends ReportsController {
 	private int numberOfQuery;
 	private String topKeywords;
 
-	private List<Map.Entry<String, FacetCounter>> reportList;
+	private QueryReport report;
+
+	private List<TopKSketch.Counter> reportList;
 
 	public QueryReportsController() throws SearchLibException {
 		super();
@@ -63,27 +64,55 @@ public class QueryReportsController extends ReportsController {
 		endDate = new Date();
 		queryType = "topqueries";
 		numberOfQuery = 100;
+		report = null;
 		reportList = null;
 	}
 
+	private static Date atHour(Date date, int hour) {
+		if (date == null)
+			return null;
+		Calendar cal = Calendar.getInstance();
+		cal.setTime(date);
+		cal.set(Calendar.HOUR_OF_DAY, hour);
+		return cal.getTime();
+	}
+
 	@Command
-	public void onCreateReport() throws SearchLibException, ParseException {
-		ReportsManager reports = getReportsManager();
-		Facet facetReportsList = null;
-		if ("topqueries".equals(queryType)) {
-			facetReportsList = reports.getSearchReport(topKeywords, beginDate, endDate, true, numberOfQuery);
-		} else if ("topqueriesnoresult".equals(queryType)) {
-			facetReportsList = reports.getSearchReport(topKeywords, beginDate, endDate, false, numberOfQuery);
+	public void onCreateReport() throws SearchLibException, IOException {
+		// The report covers whole days, the end day included
+		report = getReportsManager().getQueryReport(atHour(beginDate, 0), atHour(endDate, 23));
+		List<String> keywords = null;
+		if (topKeywords != null && !topKeywords.trim().isEmpty()) {
+			keywords = new ArrayList<String>();
+			for (String keyword : topKeywords.trim().toLowerCase().split("\\s+"))
+				keywords.add(keyword);
 		}
-		if (facetReportsList != null)
-			reportList = facetReportsList.getList();
+		TopKSketch topQueries = "topqueriesnoresult".equals(queryType) ? report.getTopNoResultQueries()
+				: report.getTopQueries();
+		reportList = topQueries.getTop(numberOfQuery, keywords);
 		reload();
 	}
 
-	public List<Map.Entry<String, FacetCounter>> getReportList() {
+	public List<TopKSketch.Counter> getReportList() {
 		return reportList;
 	}
 
+	public QueryReport getReport() {
+		return report;
+	}
+
+	public Long getResponseTimePercentile50() {
+		return report == null ? null : report.getResponseTimes().getPercentile(50);
+	}
+
+	public Long getResponseTimePercentile95() {
+		return report == null ? null : report.getResponseTimes().getPercentile(95);
+	}
+
+	public Long getResponseTimePercentile99() {
+		return report == null ? null : report.getResponseTimes().getPercentile(99);
+	}
+
 	public boolean isReportListExists() {
 		return reportList != null;
 	}
@@ -94,12 +123,12 @@ public class QueryReportsController extends ReportsController {
 		try {
 			File tempFile = File.createTempFile("OSS_Query_Reports", "csv");
 			pw = new PrintWriter(tempFile);
-			for (Map.Entry<String, FacetCounter> facetItem : reportList) {
+			for (TopKSketch.Counter counter : reportList) {
 				pw.print('"');
-				pw.print(facetItem.getKey().replaceAll("\"", "\"\""));
+				pw.print(counter.getKey().replaceAll("\"", "\"\""));
 				pw.print('"');
 				pw.print(',');
-				pw.println(facetItem.getValue().count);
+				pw.println(counter.getCount());
 			}
 			pw.close();
 			pw = null;
@@ -36,6 +36,7 @@ import com.jaeksoft.searchlib.SearchLibException;
 import com.jaeksoft.searchlib.cache.LRUCache;
 import com.jaeksoft.searchlib.index.IndexAbstract;
 import com.jaeksoft.searchlib.index.IndexSingle;
+import com.jaeksoft.searchlib.index.ResultSearchCache;
 import com.jaeksoft.searchlib.web.controller.CommonController;
 
 @AfterCompose(superclass = true)
@@ -73,11 +74,21 @@ public class CacheController extends CommonController {
 				return null;
 			cacheList = new ArrayList<LRUCache<?>>(3);
 			cacheList.add(index.getSearchCache());
+			cacheList.add(index.getResultCache());
 			return cacheList;
 		}
 
 	}
 
+	public List<ResultSearchCache.TemplateStatistics> getTemplateStatistics() throws SearchLibException {
+		synchronized (this) {
+			IndexSingle index = getIndexSingle();
+			if (index == null)
+				return null;
+			return index.getResultCache().getTemplateStatistics();
+		}
+	}
+
 	@Command
 	@NotifyChange("*")
 	public void doFlush(@BindingParam("cache") LRUCache<?> cache)
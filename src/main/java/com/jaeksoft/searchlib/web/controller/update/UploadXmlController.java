@@ -25,17 +25,13 @@
 package com.jaeksoft.searchlib.web.controller.update;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
-import java.net.URISyntaxException;
-import java.security.NoSuchAlgorithmException;
+import java.io.InputStream;
 
-import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.TransformerException;
 import javax.xml.transform.stream.StreamSource;
-import javax.xml.xpath.XPathExpressionException;
 
-import org.w3c.dom.Node;
-import org.xml.sax.SAXException;
 import org.zkoss.bind.annotation.AfterCompose;
 
 import com.jaeksoft.searchlib.Client;
@@ -63,35 +59,19 @@ public class UploadXmlController extends AbstractUploadController {
 			try {
 				httpDownloader = client.getWebCrawlMaster()
 						.getNewHttpDownloader(true);
-				Node xmlDoc;
 				if (xsl != null && xsl.length() > 0) {
 					tempResult = File.createTempFile("ossupload", ".xml");
 					DomUtils.xslt(streamSource, xsl, tempResult);
-					xmlDoc = DomUtils.readXml(new StreamSource(tempResult),
-							false);
-				} else {
-					xmlDoc = DomUtils.readXml(streamSource, false);
+					try (InputStream input = new FileInputStream(tempResult)) {
+						return client.loadXmlDocuments(new StreamSource(input),
+								0, 50, null, httpDownloader, this)
+								.getUpdatedCount();
+					}
 				}
-				return client.updateXmlDocuments(xmlDoc, 50, null,
-						httpDownloader, this);
+				return client.loadXmlDocuments(streamSource, 0, 50, null,
+						httpDownloader, this).getUpdatedCount();
 			} catch (TransformerException e) {
 				throw new SearchLibException(e);
-			} catch (SAXException e) {
-				throw new SearchLibException(e);
-			} catch (ParserConfigurationException e) {
-				throw new SearchLibException(e);
-			} catch (XPathExpressionException e) {
-				throw new SearchLibException(e);
-			} catch (NoSuchAlgorithmException e) {
-				throw new SearchLibException(e);
-			} catch (URISyntaxException e) {
-				throw new SearchLibException(e);
-			} catch (InstantiationException e) {
-				throw new SearchLibException(e);
-			} catch (IllegalAccessException e) {
-				throw new SearchLibException(e);
-			} catch (ClassNotFoundException e) {
-				throw new SearchLibException(e);
 			} finally {
 				if (httpDownloader != null)
 					httpDownloader.release();
@@ -24,25 +24,88 @@
 package com.jaeksoft.searchlib.webservice.cluster;
 
 import java.io.IOException;
+import java.util.List;
 
 import javax.xml.ws.WebServiceException;
 
+import com.jaeksoft.searchlib.ClientCatalog;
 import com.jaeksoft.searchlib.ClientFactory;
 import com.jaeksoft.searchlib.SearchLibException;
+import com.jaeksoft.searchlib.user.Role;
 import com.jaeksoft.searchlib.user.User;
 import com.jaeksoft.searchlib.webservice.CommonServices;
 
 public class ClusterImpl extends CommonServices implements RestCluster {
 
+	private void checkUser(String login, String key) throws SearchLibException,
+			InterruptedException, IOException {
+		User user = getLoggedUser(login, key);
+		if (user != null)
+			if (!user.isMonitoring() && !user.isAdmin())
+				throw new CommonServiceException("Not allowed");
+		ClientFactory.INSTANCE.properties.checkApi();
+	}
+
+	@Override
+	public ClusterInfoResult info(String login, String key, List<String> indexes) {
+		try {
+			checkUser(login, key);
+			return new ClusterInfoResult(indexes);
+		} catch (SearchLibException e) {
+			throw new CommonServiceException(e);
+		} catch (InterruptedException e) {
+			throw new WebServiceException(e);
+		} catch (IOException e) {
+			throw new WebServiceException(e);
+		}
+	}
+
+	@Override
+	public ClusterInfoResult infoJSON(String login, String key,
+			List<String> indexes) {
+		return info(login, key, indexes);
+	}
+
+	@Override
+	public ClusterRouteResult route(String login, String key, String index) {
+		try {
+			checkUser(login, key);
+			return new ClusterRouteResult(index, ClientCatalog
+					.getClusterManager().getReplicas(index));
+		} catch (SearchLibException e) {
+			throw new CommonServiceException(e);
+		} catch (InterruptedException e) {
+			throw new WebServiceException(e);
+		} catch (IOException e) {
+			throw new WebServiceException(e);
+		}
+	}
+
+	@Override
+	public String routeSearchField(String login, String key, String index,
+			String template, String query) {
+		try {
+			getLoggedClientAnyRole(index, login, key, Role.GROUP_INDEX);
+			ClientFactory.INSTANCE.properties.checkApi();
+			return ClientCatalog.getClusterManager().getRouter()
+					.searchField(index, template, query);
+		} catch (SearchLibException e) {
+			throw new CommonServiceException(e);
+		} catch (InterruptedException e) {
+			throw new WebServiceException(e);
+		} catch (IOException e) {
+			throw new WebServiceException(e);
+		}
+	}
+
 	@Override
-	public ClusterInfoResult info(String login, String key) {
+	public String routeSearchPattern(String login, String key, String index,
+			String template, String query) {
 		try {
-			User user = getLoggedUser(login, key);
-			if (user != null)
-				if (!user.isMonitoring() && !user.isAdmin())
-					throw new CommonServiceException("Not allowed");
+			getLoggedClientAnyRole(index, login, key, Role.GROUP_INDEX);
 			ClientFactory.INSTANCE.properties.checkApi();
-			return new ClusterInfoResult();
+			return ClientCatalog.getClusterManager().getRouter()
+					.searchPattern(index, template, query);
 		} catch (SearchLibException e) {
 			throw new CommonServiceException(e);
 		} catch (InterruptedException e) {
@@ -23,16 +23,21 @@
  **/
 package com.jaeksoft.searchlib.webservice.cluster;
 
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
 
 import com.jaeksoft.searchlib.ClientCatalog;
 import com.jaeksoft.searchlib.ClientFactory;
 import com.jaeksoft.searchlib.SearchLibException;
 import com.jaeksoft.searchlib.cluster.ClusterInstance;
+import com.jaeksoft.searchlib.index.MergeThrottle;
 import com.jaeksoft.searchlib.webservice.CommonResult;
 
 @XmlAccessorType(XmlAccessType.PUBLIC_MEMBER)
@@ -42,13 +47,66 @@ public class ClusterInfoResult extends CommonResult {
 	public final Integer id;
 	public final long time;
 	public final int instancesNumber;
+	public final double loadAverage;
+	public final int processors;
+	public final int runningSearches;
 
-	public ClusterInfoResult() throws SearchLibException {
+	@XmlElement(name = "index")
+	public final List<IndexVersion> indexes;
+
+	@XmlAccessorType(XmlAccessType.PUBLIC_MEMBER)
+	public static class IndexVersion {
+
+		public final String name;
+		public final long version;
+
+		public IndexVersion() {
+			name = null;
+			version = 0;
+		}
+
+		public IndexVersion(String name, long version) {
+			this.name = name;
+			this.version = version;
+		}
+	}
+
+	public ClusterInfoResult() {
+		id = null;
+		time = 0;
+		instancesNumber = 0;
+		loadAverage = 0;
+		processors = 0;
+		runningSearches = 0;
+		indexes = null;
+	}
+
+	/**
+	 * @param indexNames
+	 *            the indexes for which the version is returned (may be null)
+	 * @throws SearchLibException
+	 */
+	public ClusterInfoResult(Collection<String> indexNames)
+			throws SearchLibException {
+		super(true, null);
 		id = ClientFactory.INSTANCE.getClusterInstanceId().getValue();
 		time = System.currentTimeMillis();
 		Collection<ClusterInstance> list = ClientCatalog.getClusterManager()
 				.getInstances();
 		instancesNumber = list == null ? 0 : list.size();
+		loadAverage = ManagementFactory.getOperatingSystemMXBean()
+				.getSystemLoadAverage();
+		processors = Runtime.getRuntime().availableProcessors();
+		runningSearches = MergeThrottle.INSTANCE.getRunningSearches();
+		if (indexNames == null || indexNames.isEmpty()) {
+			indexes = null;
+			return;
+		}
+		indexes = new ArrayList<IndexVersion>(indexNames.size());
+		for (String indexName : indexNames)
+			if (ClientCatalog.exists(indexName))
+				indexes.add(new IndexVersion(indexName, ClientCatalog
+						.getClient(indexName).getIndex().getVersion()));
 	}
 
 }
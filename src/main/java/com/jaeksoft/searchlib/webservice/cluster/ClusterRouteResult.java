@@ -0,0 +1,95 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.webservice.cluster;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.jaeksoft.searchlib.cluster.ClusterInstance;
+import com.jaeksoft.searchlib.webservice.CommonResult;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import java.util.ArrayList;
+import java.util.List;
+
+@XmlAccessorType(XmlAccessType.PUBLIC_MEMBER)
+@XmlRootElement(name = "result")
+@JsonInclude(Include.NON_NULL)
+public class ClusterRouteResult extends CommonResult {
+
+	final public String index;
+
+	@XmlElement(name = "replica")
+	final public List<Replica> replicas;
+
+	@XmlAccessorType(XmlAccessType.PUBLIC_MEMBER)
+	public static class Replica {
+
+		final public String uri;
+		final public Integer id;
+		final public Long version;
+		final public double latency;
+		final public double requestLatency;
+		final public int runningSearches;
+
+		public Replica() {
+			uri = null;
+			id = null;
+			version = null;
+			latency = 0;
+			requestLatency = 0;
+			runningSearches = 0;
+		}
+
+		public Replica(ClusterInstance instance, String index) {
+			uri = instance.getUri().toString();
+			id = instance.getId();
+			version = instance.getIndexVersion(index);
+			latency = instance.getLatency();
+			requestLatency = instance.getRequestLatency();
+			runningSearches = instance.getRunningSearches();
+		}
+	}
+
+	public ClusterRouteResult() {
+		index = null;
+		replicas = null;
+	}
+
+	/**
+	 * @param index    the name of the index
+	 * @param replicas the healthy replicas, the best one first
+	 */
+	public ClusterRouteResult(String index, List<ClusterInstance> replicas) {
+		super(true, replicas.size() + " replica(s)");
+		this.index = index;
+		this.replicas = new ArrayList<>(replicas.size());
+		for (ClusterInstance instance : replicas)
+			this.replicas.add(new Replica(instance, index));
+	}
+
+}
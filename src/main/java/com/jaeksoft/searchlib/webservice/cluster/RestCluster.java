@@ -23,8 +23,13 @@
  **/
 package com.jaeksoft.searchlib.webservice.cluster;
 
+import java.util.List;
+
+import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
+import javax.ws.rs.POST;
 import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
@@ -35,6 +40,36 @@ public interface RestCluster {
 	@GET
 	@Produces({ MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON })
 	public ClusterInfoResult info(@QueryParam("login") String login,
-			@QueryParam("key") String key);
+			@QueryParam("key") String key,
+			@QueryParam("index") List<String> indexes);
+
+	@GET
+	@Produces(MediaType.APPLICATION_JSON)
+	@Path("/json")
+	public ClusterInfoResult infoJSON(@QueryParam("login") String login,
+			@QueryParam("key") String key,
+			@QueryParam("index") List<String> indexes);
+
+	@GET
+	@Produces(MediaType.APPLICATION_JSON)
+	@Path("/route/{index}/json")
+	public ClusterRouteResult route(@QueryParam("login") String login,
+			@QueryParam("key") String key, @PathParam("index") String index);
+
+	@POST
+	@Consumes(MediaType.APPLICATION_JSON)
+	@Produces(MediaType.APPLICATION_JSON)
+	@Path("/route/{index}/search/field/{template}")
+	public String routeSearchField(@QueryParam("login") String login,
+			@QueryParam("key") String key, @PathParam("index") String index,
+			@PathParam("template") String template, String query);
+
+	@POST
+	@Consumes(MediaType.APPLICATION_JSON)
+	@Produces(MediaType.APPLICATION_JSON)
+	@Path("/route/{index}/search/pattern/{template}")
+	public String routeSearchPattern(@QueryParam("login") String login,
+			@QueryParam("key") String key, @PathParam("index") String index,
+			@PathParam("template") String template, String query);
 
 }
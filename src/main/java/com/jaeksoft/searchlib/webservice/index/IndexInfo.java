@@ -51,6 +51,7 @@ public class IndexInfo {
 	final public String humanSize;
 	final public List<String> threads;
 	final public Boolean loaded;
+	final public String status;
 
 	public IndexInfo() {
 		indexName = null;
@@ -60,6 +61,7 @@ public class IndexInfo {
 		humanSize = null;
 		threads = null;
 		loaded = null;
+		status = null;
 	}
 
 	public IndexInfo(ClientCatalogItem clientCatalogItem) throws IOException, SearchLibException {
@@ -68,7 +70,8 @@ public class IndexInfo {
 		numDocs = clientCatalogItem.getNumDocs();
 		size = clientCatalogItem.getSize();
 		humanSize = clientCatalogItem.getSizeString();
-		Client client = clientCatalogItem.getClient();
+		status = clientCatalogItem.getStatus().name();
+		Client client = clientCatalogItem.getLoadedClient();
 		List<String> threadList = null;
 		if (client != null) {
 			loaded = true;
@@ -139,4 +142,11 @@ public class IndexInfo {
 	public Boolean getLoaded() {
 		return loaded;
 	}
+
+	/**
+	 * @return the loading status
+	 */
+	public String getStatus() {
+		return status;
+	}
 }
\ No newline at end of file
@@ -0,0 +1,117 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.jaeksoft.searchlib.webservice.query.search;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.jaeksoft.searchlib.SearchLibException;
+import com.jaeksoft.searchlib.index.SearchCursor;
+import com.jaeksoft.searchlib.result.ResultDocument;
+import com.jaeksoft.searchlib.result.ResultSearchSingle;
+import com.jaeksoft.searchlib.webservice.CommonResult;
+import com.jaeksoft.searchlib.webservice.CommonServices;
+import com.jaeksoft.searchlib.webservice.query.document.DocumentResult;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import java.util.ArrayList;
+import java.util.List;
+
+@XmlRootElement(name = "result")
+@XmlAccessorType(XmlAccessType.PUBLIC_MEMBER)
+@JsonInclude(Include.NON_NULL)
+public class SearchCursorResult extends CommonResult {
+
+	@XmlAttribute
+	final public String cursor;
+
+	@XmlElement(name = "document")
+	@JsonProperty("documents")
+	final public List<DocumentResult> documents;
+
+	@XmlAttribute
+	final public int start;
+
+	@XmlAttribute
+	final public int rows;
+
+	@XmlAttribute
+	final public int numFound;
+
+	@XmlAttribute
+	final public long collapsedDocCount;
+
+	@XmlAttribute
+	final public long readerVersion;
+
+	@XmlAttribute
+	final public long expiration;
+
+	@XmlAttribute
+	final public boolean exhausted;
+
+	public SearchCursorResult() {
+		cursor = null;
+		documents = null;
+		start = 0;
+		rows = 0;
+		numFound = 0;
+		collapsedDocCount = 0;
+		readerVersion = 0;
+		expiration = 0;
+		exhausted = true;
+	}
+
+	public SearchCursorResult(SearchCursor searchCursor, Integer pageRows) {
+		super(true, null);
+		try {
+			final ResultSearchSingle result = searchCursor.getResult();
+			final int[] page =
+					searchCursor.nextPage(pageRows == null ? result.getRequest().getRows() : pageRows);
+			if (page == null)
+				throw new CommonServices.CommonServiceException("The cursor is closed");
+			cursor = searchCursor.getId();
+			start = page[0];
+			rows = page[1] - page[0];
+			numFound = result.getNumFound();
+			collapsedDocCount = result.getCollapsedDocCount();
+			readerVersion = searchCursor.getReaderVersion();
+			expiration = searchCursor.getExpiration();
+			exhausted = searchCursor.isExhausted();
+			documents = new ArrayList<>(rows);
+			for (int pos = page[0]; pos < page[1]; pos++) {
+				final ResultDocument resultDocument = result.getLazyDocument(pos, null);
+				documents.add(new DocumentResult(resultDocument, result.getCollapseCount(pos), pos,
+						result.getScore(pos), result.getDistance(pos), result.getJoinDocumentList(pos, null),
+						resultDocument.getCollapsedDocuments()));
+			}
+		} catch (SearchLibException e) {
+			throw new CommonServices.CommonServiceException(e);
+		}
+	}
+}
@@ -24,9 +24,14 @@
 
 package com.jaeksoft.searchlib.webservice.query.search;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.jaeksoft.searchlib.Client;
 import com.jaeksoft.searchlib.ClientFactory;
 import com.jaeksoft.searchlib.SearchLibException;
+import com.jaeksoft.searchlib.index.SearchCursor;
+import com.jaeksoft.searchlib.request.AbstractLocalSearchRequest;
 import com.jaeksoft.searchlib.request.AbstractSearchRequest;
 import com.jaeksoft.searchlib.request.RequestTypeEnum;
 import com.jaeksoft.searchlib.request.SearchFieldRequest;
@@ -36,9 +41,18 @@ import com.jaeksoft.searchlib.user.Role;
 import com.jaeksoft.searchlib.webservice.CommonResult;
 import com.jaeksoft.searchlib.webservice.query.CommonQuery;
 import com.jaeksoft.searchlib.webservice.query.QueryTemplateResultList;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Fieldable;
 
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 
 public class SearchImpl extends CommonQuery implements RestSearch {
 
@@ -145,4 +159,114 @@ public class SearchImpl extends CommonQuery implements RestSearch {
 			throw new CommonServiceException(e);
 		}
 	}
+
+	private SearchCursorResult openCursor(Client client, AbstractLocalSearchRequest searchRequest, Integer ttl)
+			throws SearchLibException {
+		SearchCursor cursor = client.getIndexAbstract().openCursor(searchRequest, ttl);
+		return new SearchCursorResult(cursor, null);
+	}
+
+	@Override
+	public SearchCursorResult searchFieldCursor(String index, String login, String key, Integer ttl,
+			SearchFieldQuery query) {
+		try {
+			Client client = getLoggedClientAnyRole(index, login, key, Role.GROUP_INDEX);
+			ClientFactory.INSTANCE.properties.checkApi();
+			SearchFieldRequest searchRequest = new SearchFieldRequest(client);
+			if (query != null)
+				query.apply(searchRequest);
+			return openCursor(client, searchRequest, ttl);
+		} catch (InterruptedException | IOException | SearchLibException e) {
+			throw new CommonServiceException(e);
+		}
+	}
+
+	@Override
+	public SearchCursorResult searchPatternCursor(String index, String login, String key, Integer ttl,
+			SearchPatternQuery query) {
+		try {
+			Client client = getLoggedClientAnyRole(index, login, key, Role.GROUP_INDEX);
+			ClientFactory.INSTANCE.properties.checkApi();
+			SearchPatternRequest searchRequest = new SearchPatternRequest(client);
+			if (query != null)
+				query.apply(searchRequest);
+			return openCursor(client, searchRequest, ttl);
+		} catch (InterruptedException | IOException | SearchLibException e) {
+			throw new CommonServiceException(e);
+		}
+	}
+
+	@Override
+	public SearchCursorResult searchCursorNext(String index, String login, String key, String cursorId,
+			Integer rows) {
+		try {
+			Client client = getLoggedClientAnyRole(index, login, key, Role.GROUP_INDEX);
+			ClientFactory.INSTANCE.properties.checkApi();
+			SearchCursor cursor = client.getIndexAbstract().getCursor(cursorId);
+			if (cursor == null)
+				throw new CommonServiceException(Response.Status.NOT_FOUND, "Cursor not found: " + cursorId);
+			return new SearchCursorResult(cursor, rows);
+		} catch (InterruptedException | IOException | SearchLibException e) {
+			throw new CommonServiceException(e);
+		}
+	}
+
+	@Override
+	public CommonResult searchCursorClose(String index, String login, String key, String cursorId) {
+		try {
+			Client client = getLoggedClientAnyRole(index, login, key, Role.GROUP_INDEX);
+			ClientFactory.INSTANCE.properties.checkApi();
+			if (!client.getIndexAbstract().closeCursor(cursorId))
+				throw new CommonServiceException(Response.Status.NOT_FOUND, "Cursor not found: " + cursorId);
+			return new CommonResult(true, "Cursor closed: " + cursorId);
+		} catch (InterruptedException | IOException | SearchLibException e) {
+			throw new CommonServiceException(e);
+		}
+	}
+
+	private final static JsonFactory EXPORT_JSON_FACTORY =
+			new JsonFactory().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+	private static void writeDocument(JsonGenerator json, Document document) throws IOException {
+		Map<String, List<String>> fields = new LinkedHashMap<>();
+		for (Fieldable field : document.getFields()) {
+			if (field.isBinary())
+				continue;
+			fields.computeIfAbsent(field.name(), name -> new ArrayList<>()).add(field.stringValue());
+		}
+		json.writeStartObject();
+		for (Map.Entry<String, List<String>> entry : fields.entrySet()) {
+			json.writeArrayFieldStart(entry.getKey());
+			for (String value : entry.getValue())
+				json.writeString(value);
+			json.writeEndArray();
+		}
+		json.writeEndObject();
+	}
+
+	@Override
+	public StreamingOutput searchFieldExport(String index, String login, String key, SearchFieldQuery query) {
+		try {
+			Client client = getLoggedClientAnyRole(index, login, key, Role.GROUP_INDEX);
+			ClientFactory.INSTANCE.properties.checkApi();
+			SearchFieldRequest searchRequest = new SearchFieldRequest(client);
+			if (query != null)
+				query.apply(searchRequest);
+			LinkedHashSet<String> fieldNameSet = new LinkedHashSet<>();
+			searchRequest.getReturnFieldList().populate(fieldNameSet);
+			return output -> {
+				try (JsonGenerator json = EXPORT_JSON_FACTORY.createGenerator(output, JsonEncoding.UTF8)) {
+					json.writeStartArray();
+					// The generator writes its buffer to the output when it is full
+					client.getIndexAbstract().export(searchRequest, fieldNameSet,
+							document -> writeDocument(json, document));
+					json.writeEndArray();
+				} catch (SearchLibException e) {
+					throw new WebApplicationException(e);
+				}
+			};
+		} catch (InterruptedException | IOException | SearchLibException e) {
+			throw new CommonServiceException(e);
+		}
+	}
 }
@@ -291,6 +291,7 @@ public abstract class SearchQueryAbstract extends QueryAbstract {
 
 		final public String latitudeField;
 		final public String longitudeField;
+		final public String geohashField;
 		final public Double latitude;
 		final public Double longitude;
 		final public CoordUnit coordUnit;
@@ -299,6 +300,7 @@ public abstract class SearchQueryAbstract extends QueryAbstract {
 		public Geo() {
 			latitudeField = null;
 			longitudeField = null;
+			geohashField = null;
 			latitude = null;
 			longitude = null;
 			coordUnit = null;
@@ -308,6 +310,7 @@ public abstract class SearchQueryAbstract extends QueryAbstract {
 		public Geo(GeoParameters geoParams) {
 			latitudeField = geoParams.getLatitudeField();
 			longitudeField = geoParams.getLongitudeField();
+			geohashField = geoParams.getGeohashField();
 			latitude = geoParams.getLatitude();
 			longitude = geoParams.getLongitude();
 			coordUnit = geoParams.getCoordUnit();
@@ -323,6 +326,8 @@ public abstract class SearchQueryAbstract extends QueryAbstract {
 				geoParams.setLatitudeField(latitudeField);
 			if (longitudeField != null)
 				geoParams.setLongitudeField(longitudeField);
+			if (geohashField != null)
+				geoParams.setGeohashField(geohashField);
 			if (coordUnit != null)
 				geoParams.setCoordUnit(coordUnit);
 			if (distanceReturn != null)
@@ -0,0 +1,146 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.classifier;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.WhitespaceAnalyzer;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.memory.MemoryIndex;
+import org.apache.lucene.queryParser.ParseException;
+import org.apache.lucene.queryParser.QueryParser;
+import org.apache.lucene.search.DisjunctionMaxQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.util.Version;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ClassifierRuleIndexTest {
+
+	private final static String FIELD = "content";
+
+	private final static Analyzer ANALYZER = new WhitespaceAnalyzer(Version.LUCENE_36);
+
+	private final static String[] RULES = { "apple",
+			"\"red apple\"",
+			"apple AND pie",
+			"+banana -split",
+			"cherry OR plum",
+			"+(cherry OR plum) +tart",
+			"appl*",
+			"[kiwi TO lemon]",
+			"cherry^2 apple",
+			"pie" };
+
+	private final static String[] DOCUMENTS = { "a red apple pie",
+			"banana split",
+			"banana bread",
+			"plum tart and cherry jam",
+			"applesauce",
+			"kiwi juice",
+			"nothing relevant here",
+			"" };
+
+	private static Query[] getQueries() throws ParseException {
+		final QueryParser parser = new QueryParser(Version.LUCENE_36, FIELD, ANALYZER);
+		final Query[] queries = new Query[RULES.length + 1];
+		for (int i = 0; i < RULES.length; i++)
+			queries[i] = parser.parse(RULES[i]);
+		final DisjunctionMaxQuery dismax = new DisjunctionMaxQuery(0.1f);
+		dismax.add(new TermQuery(new Term(FIELD, "jam")));
+		dismax.add(new TermQuery(new Term(FIELD, "bread")));
+		queries[RULES.length] = dismax;
+		return queries;
+	}
+
+	private static MemoryIndex getIndex(final String document) {
+		final MemoryIndex index = new MemoryIndex();
+		index.addField(FIELD, document, ANALYZER);
+		return index;
+	}
+
+	/**
+	 * The MULTIVALUED selection: every matching rule, in the order of the rules
+	 */
+	private static List<Integer> multivalued(final Iterable<Integer> rules, final Query[] queries,
+			final MemoryIndex index) {
+		final List<Integer> selected = new ArrayList<>();
+		for (int rule : rules)
+			if (index.search(queries[rule]) > 0.0f)
+				selected.add(rule);
+		return selected;
+	}
+
+	/**
+	 * The BESTSCORE selection: the first rule with the highest score
+	 */
+	private static Integer bestScore(final Iterable<Integer> rules, final Query[] queries, final MemoryIndex index) {
+		Integer selected = null;
+		float maxScore = 0;
+		for (int rule : rules) {
+			final float score = index.search(queries[rule]);
+			if (score > maxScore) {
+				selected = rule;
+				maxScore = score;
+			}
+		}
+		return selected;
+	}
+
+	@Test
+	public void sameSelectionAsScan() throws ParseException, IOException {
+		final Query[] queries = getQueries();
+		final List<Integer> allRules = new ArrayList<>();
+		for (int i = 0; i < queries.length; i++)
+			allRules.add(i);
+		final ClassifierRuleIndex ruleIndex = new ClassifierRuleIndex(queries);
+		int matchedDocuments = 0;
+		for (String document : DOCUMENTS) {
+			final MemoryIndex index = getIndex(document);
+			final List<Integer> candidates = new ArrayList<>();
+			for (int rule : ruleIndex.getCandidates(index))
+				candidates.add(rule);
+			final List<Integer> expected = multivalued(allRules, queries, index);
+			Assert.assertEquals(document, expected, multivalued(candidates, queries, index));
+			Assert.assertEquals(document, bestScore(allRules, queries, index), bestScore(candidates, queries, index));
+			if (!expected.isEmpty())
+				matchedDocuments++;
+		}
+		Assert.assertEquals(5, matchedDocuments);
+	}
+
+	@Test
+	public void skipNonMatchingRules() throws ParseException, IOException {
+		final ClassifierRuleIndex ruleIndex = new ClassifierRuleIndex(getQueries());
+		// Only the wildcard and the range rules are always checked
+		Assert.assertEquals(2, ruleIndex.getCandidates(getIndex("nothing relevant here")).getCardinality());
+		Assert.assertNull(ClassifierRuleIndex.getRequiredTerms(new QueryParser(Version.LUCENE_36, FIELD, ANALYZER)
+				.parse("-apple")));
+	}
+}
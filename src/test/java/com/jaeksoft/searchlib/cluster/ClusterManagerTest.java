@@ -0,0 +1,209 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.cluster;
+
+import com.jaeksoft.searchlib.SearchLibException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ClusterManagerTest {
+
+	private final static String INDEX = "test_index";
+
+	private final static String SEARCH_PATH = "/index/" + INDEX + "/search/field/search";
+
+	private File dataDir;
+
+	private ClusterManager clusterManager;
+
+	private List<HttpServer> servers;
+
+	@Before
+	public void before() throws IOException {
+		dataDir = Files.createTempDirectory("oss-cluster").toFile();
+		clusterManager = new ClusterManager(dataDir, () -> 1, INDEX::equals);
+		servers = new ArrayList<>();
+	}
+
+	@After
+	public void after() throws IOException {
+		clusterManager.close();
+		for (HttpServer server : servers)
+			server.stop(0);
+		FileUtils.deleteDirectory(dataDir);
+	}
+
+	private static void send(HttpExchange exchange, int status, String content) throws IOException {
+		final byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json");
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (final OutputStream output = exchange.getResponseBody()) {
+			output.write(bytes);
+		}
+	}
+
+	/**
+	 * Start an instance serving the index
+	 *
+	 * @param id              the ID of the instance
+	 * @param version         the version of the index
+	 * @param runningSearches the number of running searches reported by the
+	 *                        probes (the higher, the more expensive)
+	 * @param searchDelay     the duration of a search in milliseconds
+	 * @param searchCount     counts the searches received by the instance
+	 * @return the registered cluster instance
+	 */
+	private ClusterInstance addInstance(int id, long version, int runningSearches, long searchDelay,
+			AtomicInteger searchCount) throws IOException, URISyntaxException {
+		final HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/services/rest/cluster/json", exchange -> {
+			final String query = exchange.getRequestURI().getRawQuery();
+			// The version is only returned if the index is requested
+			final String indexes = query != null && query.contains("index=" + INDEX) ?
+					",\"indexes\":[{\"name\":\"" + INDEX + "\",\"version\":" + version + "}]" :
+					"";
+			send(exchange, 200, "{\"successful\":true,\"id\":" + id +
+					",\"processors\":2,\"loadAverage\":0.5,\"runningSearches\":" + runningSearches + indexes +
+					"}");
+		});
+		server.createContext("/services/rest" + SEARCH_PATH, exchange -> {
+			searchCount.incrementAndGet();
+			try {
+				Thread.sleep(searchDelay);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			send(exchange, 200, "{\"successful\":true,\"id\":" + id + "}");
+		});
+		server.setExecutor(null);
+		server.start();
+		servers.add(server);
+		return addInstance("http://127.0.0.1:" + server.getAddress().getPort());
+	}
+
+	private ClusterInstance addInstance(int id, long version) throws IOException, URISyntaxException {
+		return addInstance(id, version, 0, 0, new AtomicInteger());
+	}
+
+	private ClusterInstance addInstance(String uri) throws IOException, URISyntaxException {
+		final ClusterInstance instance = new ClusterInstance();
+		instance.setUri(uri);
+		clusterManager.set(null, instance);
+		return instance;
+	}
+
+	/**
+	 * Register the index for routing and wait for a probe
+	 */
+	private List<ClusterInstance> getReplicas() {
+		clusterManager.getReplicas(INDEX);
+		clusterManager.checkStatus();
+		return clusterManager.getReplicas(INDEX);
+	}
+
+	@Test
+	public void excludeStaleAndDownInstances() throws IOException, URISyntaxException {
+		final ClusterInstance upToDate1 = addInstance(2, 5);
+		final ClusterInstance stale = addInstance(3, 4);
+		final ClusterInstance upToDate2 = addInstance(4, 5);
+		final ClusterInstance down = addInstance("http://127.0.0.1:1");
+		final List<ClusterInstance> replicas = getReplicas();
+		Assert.assertEquals(2, replicas.size());
+		Assert.assertTrue(replicas.contains(upToDate1));
+		Assert.assertTrue(replicas.contains(upToDate2));
+		Assert.assertEquals(ClusterStatus.OK, stale.getStatus());
+		Assert.assertEquals(Long.valueOf(4), stale.getIndexVersion(INDEX));
+		Assert.assertEquals(ClusterStatus.CONNECTION_ERROR, down.getStatus());
+	}
+
+	@Test
+	public void onlyLocalIndexes() throws IOException, URISyntaxException {
+		final ClusterInstance instance = addInstance(2, 5);
+		Assert.assertTrue(clusterManager.getReplicas("unknown_index").isEmpty());
+		clusterManager.checkStatus();
+		Assert.assertEquals(ClusterStatus.OK, instance.getStatus());
+		Assert.assertTrue(instance.getIndexVersions().isEmpty());
+		Assert.assertTrue(clusterManager.getReplicas("unknown_index").isEmpty());
+	}
+
+	@Test
+	public void instanceIdConflict() throws IOException, URISyntaxException {
+		final ClusterInstance instance = addInstance(1, 5);
+		Assert.assertTrue(getReplicas().isEmpty());
+		Assert.assertEquals(ClusterStatus.INSTANCE_ID_CONFLICT, instance.getStatus());
+	}
+
+	@Test
+	public void hedgeSlowReplica() throws IOException, URISyntaxException, SearchLibException {
+		final AtomicInteger slowCount = new AtomicInteger();
+		final AtomicInteger fastCount = new AtomicInteger();
+		// The slow instance reports no running search: it is tried first
+		final ClusterInstance slow = addInstance(2, 5, 0, 5000, slowCount);
+		addInstance(3, 5, 50, 0, fastCount);
+		Assert.assertSame(slow, getReplicas().get(0));
+		final long start = System.currentTimeMillis();
+		final String result = clusterManager.getRouter().forward(INDEX, SEARCH_PATH, "{}");
+		Assert.assertTrue(System.currentTimeMillis() - start < 2500);
+		Assert.assertTrue(result.contains("\"id\":3"));
+		Assert.assertEquals(1, slowCount.get());
+		Assert.assertEquals(1, fastCount.get());
+	}
+
+	@Test
+	public void failoverAndExclusion() throws IOException, URISyntaxException, SearchLibException {
+		final ClusterInstance failing = addInstance(2, 5, 0, 0, new AtomicInteger());
+		final HttpServer failingServer = servers.get(0);
+		addInstance(3, 5, 50, 0, new AtomicInteger());
+		Assert.assertSame(failing, getReplicas().get(0));
+		// The first replica goes down after the probe
+		servers.remove(failingServer);
+		failingServer.stop(0);
+		for (int i = 0; i < 5; i++)
+			Assert.assertTrue(clusterManager.getRouter().forward(INDEX, SEARCH_PATH, "{}").contains("\"id\":3"));
+		Assert.assertEquals(ClusterStatus.CONNECTION_ERROR, failing.getStatus());
+		Assert.assertEquals(1, clusterManager.getReplicas(INDEX).size());
+	}
+
+	@Test(expected = SearchLibException.class)
+	public void noReplica() throws SearchLibException {
+		clusterManager.getRouter().forward(INDEX, SEARCH_PATH, "{}");
+	}
+}
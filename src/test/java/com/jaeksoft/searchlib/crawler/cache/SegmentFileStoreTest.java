@@ -0,0 +1,115 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.crawler.cache;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+public class SegmentFileStoreTest {
+
+	private File directory;
+
+	@Before
+	public void before() throws IOException {
+		directory = Files.createTempDirectory("segment-store").toFile();
+	}
+
+	@After
+	public void after() throws IOException {
+		FileUtils.deleteDirectory(directory);
+	}
+
+	private static byte[] bytes(String value) {
+		return value.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static String read(SegmentFileStore store, String key) throws IOException {
+		final SegmentFileStore.Record record = store.read(SegmentFileStore.TYPE_DOWNLOAD, key);
+		return record == null ? null : new String(record.getContent(), StandardCharsets.UTF_8);
+	}
+
+	private static void write(SegmentFileStore store, String key, String content) throws IOException {
+		store.write(SegmentFileStore.TYPE_DOWNLOAD, key, bytes("meta"), bytes(content));
+	}
+
+	@Test
+	public void testWriteReadDelete() throws IOException {
+		try (final SegmentFileStore store = new SegmentFileStore(directory, 1024)) {
+			for (int i = 0; i < 100; i++)
+				write(store, "http://localhost/" + i, "content" + i);
+			write(store, "http://localhost/5", "updated");
+			Assert.assertTrue(store.delete("http://localhost/7"));
+			Assert.assertFalse(store.delete("http://localhost/7"));
+			store.write(SegmentFileStore.TYPE_INDEXED, "http://localhost/8", null, bytes("indexed"));
+			Assert.assertEquals("content1", read(store, "http://localhost/1"));
+			Assert.assertEquals("updated", read(store, "http://localhost/5"));
+			Assert.assertNull(read(store, "http://localhost/7"));
+			Assert.assertNull(read(store, "http://localhost/unknown"));
+			Assert.assertEquals("content8", read(store, "http://localhost/8"));
+			Assert.assertEquals(99, store.getEntryCount());
+			Assert.assertTrue(store.getSegmentCount() > 1);
+		}
+		// The index is rebuilt from the segments
+		try (final SegmentFileStore store = new SegmentFileStore(directory, 1024)) {
+			Assert.assertEquals(99, store.getEntryCount());
+			Assert.assertEquals("updated", read(store, "http://localhost/5"));
+			Assert.assertNull(read(store, "http://localhost/7"));
+			Assert.assertEquals("indexed", new String(
+					store.read(SegmentFileStore.TYPE_INDEXED, "http://localhost/8").getContent(),
+					StandardCharsets.UTF_8));
+		}
+	}
+
+	@Test
+	public void testCompaction() throws IOException {
+		try (final SegmentFileStore store = new SegmentFileStore(directory, 1024)) {
+			for (int i = 0; i < 100; i++)
+				write(store, "http://localhost/" + i, "content" + i);
+			final long size = store.getSize();
+			for (int i = 0; i < 90; i++)
+				store.delete("http://localhost/" + i);
+			Assert.assertEquals(0, store.flush(0));
+			Assert.assertTrue(store.getSize() < size);
+			Assert.assertEquals(10, store.getEntryCount());
+			Assert.assertEquals("content95", read(store, "http://localhost/95"));
+			Assert.assertNull(read(store, "http://localhost/50"));
+		}
+		try (final SegmentFileStore store = new SegmentFileStore(directory, 1024)) {
+			Assert.assertEquals(10, store.getEntryCount());
+			Assert.assertNull(read(store, "http://localhost/50"));
+			Assert.assertEquals(10, store.flush(System.currentTimeMillis() + 1));
+			Assert.assertEquals(0, store.getEntryCount());
+			Assert.assertNull(read(store, "http://localhost/95"));
+		}
+	}
+}
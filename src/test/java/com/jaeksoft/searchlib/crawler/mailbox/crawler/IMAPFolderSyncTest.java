@@ -0,0 +1,232 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.crawler.mailbox.crawler;
+
+import com.icegreen.greenmail.user.GreenMailUser;
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import com.jaeksoft.searchlib.crawler.mailbox.MailboxSyncState;
+import com.jaeksoft.searchlib.crawler.mailbox.MailboxSyncState.FolderState;
+import com.sun.mail.imap.IMAPFolder;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.mail.Flags;
+import javax.mail.Folder;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.Store;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+public class IMAPFolderSyncTest {
+
+	private final static String EMAIL = "test@localhost";
+	private final static String LOGIN = "test";
+	private final static String PASSWORD = "secret";
+
+	private GreenMail greenMail;
+	private GreenMailUser user;
+	private Store store;
+	private File stateDir;
+
+	@Before
+	public void before() throws MessagingException, IOException {
+		greenMail = new GreenMail(ServerSetupTest.IMAP);
+		greenMail.start();
+		user = greenMail.setUser(EMAIL, LOGIN, PASSWORD);
+		Properties properties = new Properties();
+		properties.setProperty("mail.imap.host", "localhost");
+		properties.setProperty("mail.imap.port", Integer.toString(ServerSetupTest.IMAP.getPort()));
+		store = Session.getInstance(properties).getStore("imap");
+		store.connect(LOGIN, PASSWORD);
+		stateDir = Files.createTempDirectory("imapsync").toFile();
+	}
+
+	@After
+	public void after() throws MessagingException, IOException {
+		store.close();
+		greenMail.stop();
+		FileUtils.deleteDirectory(stateDir);
+	}
+
+	private void deliver(int i) throws MessagingException {
+		MimeMessage message = new MimeMessage((Session) null);
+		message.setFrom(new InternetAddress("sender@localhost"));
+		message.setSubject("Message " + i);
+		message.setText("Body " + i);
+		message.setHeader("Message-ID", "<" + i + "@localhost>");
+		user.deliver(message);
+	}
+
+	/**
+	 * Synchronize the INBOX and record the new messages, as the crawler does
+	 */
+	private IMAPFolderSync sync(MailboxSyncState syncState) throws MessagingException, IOException {
+		IMAPFolder folder = (IMAPFolder) store.getFolder("INBOX");
+		folder.open(Folder.READ_ONLY);
+		try {
+			FolderState state = syncState.load(folder.getFullName());
+			IMAPFolderSync sync = new IMAPFolderSync(folder, state, false);
+			for (Message message : sync.getNewMessages())
+				state.add(folder.getUID(message), message.getHeader("Message-ID")[0]);
+			sync.commit();
+			syncState.store(state);
+			return sync;
+		} finally {
+			folder.close(false);
+		}
+	}
+
+	@Test
+	public void testIncremental() throws MessagingException, IOException {
+		MailboxSyncState syncState = new MailboxSyncState(stateDir, "imap");
+		for (int i = 1; i <= 3; i++)
+			deliver(i);
+
+		IMAPFolderSync sync = sync(syncState);
+		Assert.assertTrue(sync.isFullSync());
+		Assert.assertEquals(3, sync.getNewMessages().length);
+		Assert.assertTrue(sync.getExpungedMessageIds().isEmpty());
+
+		// Nothing changed: nothing to fetch
+		sync = sync(syncState);
+		Assert.assertFalse(sync.isFullSync());
+		Assert.assertEquals(0, sync.getNewMessages().length);
+		Assert.assertTrue(sync.getExpungedMessageIds().isEmpty());
+
+		// Only the new message is fetched
+		deliver(4);
+		sync = sync(syncState);
+		Assert.assertEquals(1, sync.getNewMessages().length);
+		Assert.assertEquals("<4@localhost>", sync.getNewMessages()[0].getHeader("Message-ID")[0]);
+		Assert.assertEquals(4, syncState.load("INBOX").size());
+	}
+
+	@Test
+	public void testExpunged() throws MessagingException, IOException {
+		MailboxSyncState syncState = new MailboxSyncState(stateDir, "imap");
+		for (int i = 1; i <= 3; i++)
+			deliver(i);
+		sync(syncState);
+
+		Folder folder = store.getFolder("INBOX");
+		folder.open(Folder.READ_WRITE);
+		folder.getMessage(2).setFlag(Flags.Flag.DELETED, true);
+		folder.close(true);
+		deliver(4);
+
+		IMAPFolderSync sync = sync(syncState);
+		List<String> expunged = sync.getExpungedMessageIds();
+		Assert.assertEquals(Collections.singletonList("<2@localhost>"), expunged);
+		Assert.assertEquals(1, sync.getNewMessages().length);
+		Assert.assertEquals(3, syncState.load("INBOX").size());
+	}
+
+	@Test
+	public void testRetryFailed() throws MessagingException, IOException {
+		MailboxSyncState syncState = new MailboxSyncState(stateDir, "imap");
+		for (int i = 1; i <= 3; i++)
+			deliver(i);
+
+		// The indexation of the second message failed: its UID is not recorded
+		IMAPFolder folder = (IMAPFolder) store.getFolder("INBOX");
+		folder.open(Folder.READ_ONLY);
+		try {
+			FolderState state = syncState.load(folder.getFullName());
+			IMAPFolderSync sync = new IMAPFolderSync(folder, state, false);
+			for (Message message : sync.getNewMessages()) {
+				String messageId = message.getHeader("Message-ID")[0];
+				if (!"<2@localhost>".equals(messageId))
+					state.add(folder.getUID(message), messageId);
+			}
+			sync.commit();
+			syncState.store(state);
+		} finally {
+			folder.close(false);
+		}
+		Assert.assertEquals(2, syncState.load("INBOX").size());
+
+		// The failed message is fetched again
+		IMAPFolderSync sync = sync(syncState);
+		Assert.assertEquals(1, sync.getNewMessages().length);
+		Assert.assertEquals("<2@localhost>", sync.getNewMessages()[0].getHeader("Message-ID")[0]);
+		Assert.assertTrue(sync.getExpungedMessageIds().isEmpty());
+		Assert.assertEquals(3, syncState.load("INBOX").size());
+
+		// Deleting the state means a full synchronization
+		MailboxSyncState.clear(stateDir, "imap");
+		sync = sync(new MailboxSyncState(stateDir, "imap"));
+		Assert.assertTrue(sync.isFullSync());
+		Assert.assertEquals(3, sync.getNewMessages().length);
+	}
+
+	@Test
+	public void testFolderStateOutOfOrder() {
+		FolderState state = new FolderState("INBOX");
+		state.add(1, "<1>");
+		state.add(3, "<3>");
+		state.add(4, null);
+		// Only the UIDs below the last known UID are missing
+		Assert.assertArrayEquals(new long[] { 2 }, state.getMissingUids(new long[] { 1, 2, 3, 4, 5 }));
+		state.add(2, "<2>");
+		state.add(2, "<other>");
+		Assert.assertEquals(4, state.size());
+		Assert.assertEquals(4, state.getLastUid());
+		Assert.assertEquals("<3>", state.getLastMessageId());
+		Assert.assertEquals(0, state.getMissingUids(new long[] { 1, 2, 3, 4, 5 }).length);
+		Assert.assertEquals(Collections.singletonList("<2>"), state.retainUids(new long[] { 1, 3, 4 }));
+	}
+
+	@Test
+	public void testFolderState() {
+		FolderState state = new FolderState("INBOX");
+		Assert.assertEquals(0, state.getLastUid());
+		for (int uid = 1; uid <= 100; uid++)
+			state.add(uid, uid % 10 == 0 ? null : "<" + uid + ">");
+		// Already known
+		state.add(50, "<other>");
+		Assert.assertEquals(100, state.size());
+		Assert.assertEquals(100, state.getLastUid());
+		// 95 UIDs removed, 9 of them without message ID
+		List<String> removed = state.retainUids(new long[] { 1, 2, 3, 10, 99 });
+		Assert.assertEquals(86, removed.size());
+		Assert.assertEquals(5, state.size());
+		Assert.assertEquals(99, state.getLastUid());
+		Assert.assertEquals(4, state.reset(42).size());
+		Assert.assertTrue(state.isEmpty());
+		Assert.assertEquals(42, state.getUidValidity());
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.crawler.rest;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class JsonStreamExtractorTest {
+
+	private final static String JSON =
+			"{\"meta\":{\"count\":3},\"items\":[{\"id\":1,\"tags\":[\"a\",\"b\"]},{\"id\":2},{\"id\":3,\"nested\":{\"x\":[1,2]}}],"
+					+ "\"paging\":{\"next\":\"/api?cursor=abc\"}}";
+
+	private static List<Object> extract(String expression) throws Exception {
+		final List<Object> values = new ArrayList<>();
+		final JsonStreamExtractor extractor = new JsonStreamExtractor();
+		Assert.assertTrue(extractor.add(expression, values::add));
+		extractor.extract(new ByteArrayInputStream(JSON.getBytes(StandardCharsets.UTF_8)));
+		return values;
+	}
+
+	@Test
+	public void testDocuments() throws Exception {
+		final List<Object> documents = extract("$.items");
+		Assert.assertEquals(3, documents.size());
+		Assert.assertEquals(1, ((Map<?, ?>) documents.get(0)).get("id"));
+		Assert.assertEquals(2, ((List<?>) ((Map<?, ?>) documents.get(0)).get("tags")).size());
+		Assert.assertEquals(3, ((Map<?, ?>) documents.get(2)).get("id"));
+		Assert.assertEquals(3, extract("$.items[*]").size());
+		Assert.assertEquals(3, extract("$['items'].*").size());
+		Assert.assertEquals(2, ((Map<?, ?>) extract("items[1]").get(0)).get("id"));
+		Assert.assertTrue(extract("$.missing").isEmpty());
+	}
+
+	@Test
+	public void testCursor() throws Exception {
+		final List<Object> values = extract("$.paging.next");
+		Assert.assertEquals(1, values.size());
+		Assert.assertEquals("/api?cursor=abc", values.get(0));
+	}
+
+	@Test
+	public void testSupported() {
+		Assert.assertTrue(JsonStreamExtractor.isSupported("$.items[*]"));
+		Assert.assertFalse(JsonStreamExtractor.isSupported("$..id"));
+		Assert.assertFalse(JsonStreamExtractor.isSupported("$.items[?(@.id > 1)]"));
+		Assert.assertFalse(JsonStreamExtractor.isSupported("$.items[0:2]"));
+	}
+}
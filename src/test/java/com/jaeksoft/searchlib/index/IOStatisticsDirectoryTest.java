@@ -0,0 +1,92 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.index;
+
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+public class IOStatisticsDirectoryTest {
+
+	private static void write(RAMDirectory directory, String name, int size) throws IOException {
+		final IndexOutput output = directory.createOutput(name);
+		try {
+			for (int i = 0; i < size; i++)
+				output.writeByte((byte) i);
+		} finally {
+			output.close();
+		}
+	}
+
+	@Test
+	public void fileType() {
+		Assert.assertEquals("tis", IOStatisticsDirectory.getFileType("_0.tis"));
+		Assert.assertEquals("gen", IOStatisticsDirectory.getFileType("segments.gen"));
+		Assert.assertEquals("segments", IOStatisticsDirectory.getFileType("segments_2"));
+	}
+
+	@Test
+	public void countReads() throws IOException {
+		final RAMDirectory ramDirectory = new RAMDirectory();
+		write(ramDirectory, "_0.tis", 1000);
+		write(ramDirectory, "_0.fdt", 10);
+		final IOStatisticsDirectory directory = new IOStatisticsDirectory(ramDirectory);
+		final long[] counters = IOStatisticsDirectory.getThreadCounters();
+
+		final IndexInput input = directory.openInput("_0.tis");
+		try {
+			input.readBytes(new byte[500], 0, 500);
+			final IndexInput clone = (IndexInput) input.clone();
+			clone.readBytes(new byte[500], 0, 500);
+			input.readByte();
+		} finally {
+			input.close();
+		}
+		final IndexInput input2 = directory.openInput("_0.fdt");
+		try {
+			input2.readByte();
+		} finally {
+			input2.close();
+		}
+
+		final List<IOStatisticsDirectory.FileTypeStatistics> statistics = directory.getFileTypeStatistics();
+		Assert.assertEquals(2, statistics.size());
+		final IOStatisticsDirectory.FileTypeStatistics tis = statistics.get(0);
+		Assert.assertEquals("tis", tis.getType());
+		Assert.assertEquals(1, tis.getOpens());
+		Assert.assertEquals(3, tis.getReads());
+		Assert.assertEquals(1001, tis.getBytes());
+		Assert.assertEquals(1, statistics.get(1).getBytes());
+
+		final long[] after = IOStatisticsDirectory.getThreadCounters();
+		Assert.assertEquals(4, after[0] - counters[0]);
+		Assert.assertEquals(1002, after[1] - counters[1]);
+	}
+}
@@ -0,0 +1,111 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.index;
+
+import com.jaeksoft.searchlib.SearchLibException;
+import com.jaeksoft.searchlib.request.MoreLikeThisRequest;
+import com.jaeksoft.searchlib.request.ReturnField;
+import org.apache.lucene.analysis.WhitespaceAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.Version;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+
+public class MoreLikeThisCacheTest {
+
+	private final static String[] DOCUMENTS = { "apple banana cherry apple", "apple pie", "banana split" };
+
+	private RAMDirectory directory;
+	private IndexReader reader;
+
+	@Before
+	public void open() throws IOException {
+		directory = new RAMDirectory();
+		final IndexWriter writer = new IndexWriter(directory,
+				new IndexWriterConfig(Version.LUCENE_36, new WhitespaceAnalyzer(Version.LUCENE_36)));
+		try {
+			for (String text : DOCUMENTS) {
+				final Document document = new Document();
+				document.add(new Field("content", text, Field.Store.YES, Field.Index.ANALYZED, Field.TermVector.YES));
+				writer.addDocument(document);
+			}
+		} finally {
+			writer.close();
+		}
+		reader = IndexReader.open(directory);
+	}
+
+	@After
+	public void close() throws IOException {
+		reader.close();
+		directory.close();
+	}
+
+	private static MoreLikeThisRequest newRequest() {
+		final MoreLikeThisRequest request = new MoreLikeThisRequest();
+		request.getFieldList().put(new ReturnField("content"));
+		request.setMinDocFreq(1);
+		request.setMinTermFreq(1);
+		return request;
+	}
+
+	@Test
+	public void documentSeed() throws SearchLibException {
+		final MoreLikeThisCache cache = new MoreLikeThisCache(10);
+		final MoreLikeThisRequest request = newRequest();
+		final Query query = cache.get("_0", 0, null, reader, 0, request);
+		Assert.assertTrue(query.toString().contains("cherry"));
+		// Without a reader the query can only come from the cache
+		Assert.assertSame(query, cache.get("_0", 0, null, null, 0, request));
+		Assert.assertEquals(1, cache.getHits());
+		// Another segment or other parameters build another query
+		Assert.assertNotSame(query, cache.get("_1", 0, null, reader, 0, request));
+		request.setMaxQueryTerms(1);
+		final Query single = cache.get("_0", 0, null, reader, 0, request);
+		Assert.assertNotSame(query, single);
+		Assert.assertEquals(1, ((BooleanQuery) single).clauses().size());
+		Assert.assertEquals(3, cache.getSize());
+	}
+
+	@Test
+	public void textSeed() throws SearchLibException {
+		final MoreLikeThisCache cache = new MoreLikeThisCache(10);
+		final MoreLikeThisRequest request = newRequest();
+		final Query query = cache.get(null, -1, "apple pie", reader, -1, request);
+		Assert.assertSame(query, cache.get(null, -1, "apple pie", null, -1, request));
+		Assert.assertNotSame(query, cache.get(null, -1, "banana split", reader, -1, request));
+	}
+}
@@ -0,0 +1,154 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.jaeksoft.searchlib.index;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class ObjectStorageBlockCacheTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	/**
+	 * A local stand-in for the object store which counts the range requests
+	 */
+	private static class LocalObjectStore implements ObjectStorageBlockCache.RangeReader {
+
+		private final Map<String, byte[]> objects = new HashMap<>();
+		private int requests = 0;
+
+		private byte[] put(String name, int length) {
+			final byte[] bytes = new byte[length];
+			new Random(length).nextBytes(bytes);
+			objects.put(name, bytes);
+			return bytes;
+		}
+
+		@Override
+		public void read(String name, long offset, byte[] buffer, int length) throws IOException {
+			final byte[] bytes = objects.get(name);
+			if (bytes == null || offset + length > bytes.length)
+				throw new IOException("Wrong range: " + name + ' ' + offset + ' ' + length);
+			System.arraycopy(bytes, (int) offset, buffer, 0, length);
+			requests++;
+		}
+	}
+
+	private static byte[] read(ObjectStorageBlockCache cache, String name, long length, int position, int size,
+			boolean sequential) throws IOException {
+		final byte[] bytes = new byte[size];
+		cache.read(name, ObjectStorageBlockCache.getObjectKey(name, length, 1L), length, position, bytes, 0, size,
+				sequential);
+		return bytes;
+	}
+
+	private static byte[] range(byte[] bytes, int from, int size) {
+		final byte[] range = new byte[size];
+		System.arraycopy(bytes, from, range, 0, size);
+		return range;
+	}
+
+	@Test
+	public void testRandomReads() throws IOException {
+		final LocalObjectStore store = new LocalObjectStore();
+		final byte[] object = store.put("_0.frq", 10000);
+		final ObjectStorageBlockCache cache = new ObjectStorageBlockCache(store, null, 1000, 1000000, 0, 0);
+		// Across two blocks
+		Assert.assertArrayEquals(range(object, 1500, 1000), read(cache, "_0.frq", object.length, 1500, 1000, false));
+		Assert.assertEquals(2, store.requests);
+		// Already in memory
+		Assert.assertArrayEquals(range(object, 1800, 300), read(cache, "_0.frq", object.length, 1800, 300, false));
+		Assert.assertEquals(2, store.requests);
+		// The last (partial) block
+		Assert.assertArrayEquals(range(object, 9990, 10), read(cache, "_0.frq", object.length, 9990, 10, false));
+		Assert.assertEquals(3, store.requests);
+	}
+
+	@Test
+	public void testReadAhead() throws IOException {
+		final LocalObjectStore store = new LocalObjectStore();
+		final byte[] object = store.put("_0.prx", 10000);
+		final ObjectStorageBlockCache cache = new ObjectStorageBlockCache(store, null, 1000, 1000000, 0, 4);
+		read(cache, "_0.prx", object.length, 0, 1000, false);
+		Assert.assertEquals(1, store.requests);
+		// A sequential read fetches the following blocks with the same request
+		Assert.assertArrayEquals(range(object, 1000, 1000), read(cache, "_0.prx", object.length, 1000, 1000, true));
+		Assert.assertEquals(2, store.requests);
+		Assert.assertArrayEquals(range(object, 2000, 4000), read(cache, "_0.prx", object.length, 2000, 4000, true));
+		Assert.assertEquals(2, store.requests);
+		Assert.assertEquals(6000, cache.getFetchedBytes());
+	}
+
+	@Test
+	public void testMemoryBudget() throws IOException {
+		final LocalObjectStore store = new LocalObjectStore();
+		final byte[] object = store.put("_1.tis", 5000);
+		final ObjectStorageBlockCache cache = new ObjectStorageBlockCache(store, null, 1000, 2000, 0, 0);
+		read(cache, "_1.tis", object.length, 0, 5000, false);
+		Assert.assertEquals(5, store.requests);
+		// Only the two last blocks are kept
+		read(cache, "_1.tis", object.length, 3000, 2000, false);
+		Assert.assertEquals(5, store.requests);
+		read(cache, "_1.tis", object.length, 0, 1000, false);
+		Assert.assertEquals(6, store.requests);
+	}
+
+	@Test
+	public void testDiskPersistence() throws IOException {
+		final LocalObjectStore store = new LocalObjectStore();
+		final byte[] object = store.put("_2.fdt", 4500);
+		final File cacheDir = temporaryFolder.newFolder();
+		ObjectStorageBlockCache cache = new ObjectStorageBlockCache(store, cacheDir, 1000, 0, 1000000, 0);
+		read(cache, "_2.fdt", object.length, 0, 4500, false);
+		Assert.assertEquals(5, store.requests);
+		// A new instance finds the blocks on the local disk
+		cache = new ObjectStorageBlockCache(store, cacheDir, 1000, 0, 1000000, 0);
+		Assert.assertArrayEquals(object, read(cache, "_2.fdt", object.length, 0, 4500, false));
+		Assert.assertEquals(5, store.requests);
+		Assert.assertEquals(5, cache.getDiskHits());
+		// Deleted objects leave the cache
+		cache.invalidate("_2.fdt");
+		read(cache, "_2.fdt", object.length, 0, 10, false);
+		Assert.assertEquals(6, store.requests);
+	}
+
+	@Test
+	public void testDiskBudget() throws IOException {
+		final LocalObjectStore store = new LocalObjectStore();
+		final byte[] object = store.put("_3.cfs", 3000);
+		final File cacheDir = temporaryFolder.newFolder();
+		final ObjectStorageBlockCache cache = new ObjectStorageBlockCache(store, cacheDir, 1000, 0, 2000, 0);
+		read(cache, "_3.cfs", object.length, 0, 3000, false);
+		Assert.assertEquals(2, cacheDir.list().length);
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.index;
+
+import org.apache.lucene.analysis.WhitespaceAnalyzer;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryParser.ParseException;
+import org.apache.lucene.queryParser.QueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.util.Version;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ResultSearchCacheItemTest {
+
+	private static String canonical(final String query) throws ParseException {
+		final QueryParser parser =
+				new QueryParser(Version.LUCENE_36, "content", new WhitespaceAnalyzer(Version.LUCENE_36));
+		return ResultSearchCacheItem.canonicalQuery(parser.parse(query));
+	}
+
+	private static BooleanQuery booleanQuery(final String... terms) {
+		final BooleanQuery query = new BooleanQuery();
+		for (String term : terms)
+			query.add(new TermQuery(new Term("content", term)), BooleanClause.Occur.SHOULD);
+		return query;
+	}
+
+	@Test
+	public void sameKey() throws ParseException {
+		Assert.assertEquals(canonical("apple banana"), canonical("  banana   apple "));
+		Assert.assertEquals(canonical("+apple -pie title:red"), canonical("title:red -pie +apple"));
+		Assert.assertEquals(canonical("+(apple OR banana) +(pie OR tart)"),
+				canonical("+(tart OR pie) +(banana OR apple)"));
+		Assert.assertEquals(canonical("\"red apple\" pie"), canonical("pie \"red apple\""));
+	}
+
+	@Test
+	public void differentKey() throws ParseException {
+		Assert.assertNotEquals(canonical("+apple pie"), canonical("apple +pie"));
+		Assert.assertNotEquals(canonical("apple banana"), canonical("apple banana^2"));
+		Assert.assertNotEquals(canonical("(apple banana)^2 pie"), canonical("(apple banana) pie"));
+		Assert.assertNotEquals(canonical("\"red apple\""), canonical("\"apple red\""));
+		final BooleanQuery minimumShouldMatch = booleanQuery("apple", "banana");
+		minimumShouldMatch.setMinimumNumberShouldMatch(2);
+		Assert.assertNotEquals(ResultSearchCacheItem.canonicalQuery(booleanQuery("banana", "apple")),
+				ResultSearchCacheItem.canonicalQuery(minimumShouldMatch));
+	}
+
+	@Test
+	public void nullQuery() {
+		Assert.assertNull(ResultSearchCacheItem.canonicalQuery(null));
+	}
+}
@@ -0,0 +1,58 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.parser.htmlParser;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+public class HtmlCharsetSnifferTest {
+
+	private static String sniff(String html) {
+		byte[] bytes = html.getBytes(StandardCharsets.ISO_8859_1);
+		return HtmlCharsetSniffer.sniff(bytes, bytes.length);
+	}
+
+	@Test
+	public void testMeta() {
+		Assert.assertEquals("iso-8859-1", sniff("<html><head><meta charset=\"ISO-8859-1\"></head></html>"));
+		Assert.assertEquals("windows-1252", sniff(
+				"<head><meta http-equiv=\"Content-Type\" content=\"text/html; charset=windows-1252\"/></head>"));
+		Assert.assertEquals("utf-8", sniff("<!-- <meta charset=\"koi8-r\"> --><meta charset='utf-8'>"));
+	}
+
+	@Test
+	public void testNoDeclaration() {
+		Assert.assertNull(sniff("<html><head><title>charset=utf-8</title></head></html>"));
+		Assert.assertNull(sniff("<meta charset=\"unknown-charset\">"));
+	}
+
+	@Test
+	public void testByteOrderMark() {
+		Assert.assertEquals("UTF-8", HtmlCharsetSniffer.sniff(new byte[] { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF }, 3));
+		Assert.assertEquals("UTF-16LE", HtmlCharsetSniffer.sniff(new byte[] { (byte) 0xFF, (byte) 0xFE, 0 }, 3));
+	}
+}
@@ -0,0 +1,139 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.report;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class QueryReportTest {
+
+	/**
+	 * Query "q0" is the most frequent, then "q1", etc. (Zipf like)
+	 */
+	private static void addQueries(QueryReport report, Random random, int count) {
+		for (int i = 0; i < count; i++) {
+			final int rank = (int) (Math.pow(random.nextDouble(), 3) * 20000);
+			report.add("q" + rank, (long) random.nextInt(200), rank % 10 == 0 ? 0 : 5);
+		}
+	}
+
+	@Test
+	public void testTopK() {
+		final QueryReport report = new QueryReport();
+		addQueries(report, new Random(1), 100000);
+		final List<TopKSketch.Counter> top = report.getTopQueries().getTop(3, null);
+		Assert.assertEquals("q0", top.get(0).getKey());
+		Assert.assertTrue(top.get(0).getCount() >= top.get(1).getCount());
+		Assert.assertEquals(100000, report.getQueryCount());
+		for (TopKSketch.Counter counter : report.getTopNoResultQueries().getTop(10, null))
+			Assert.assertTrue(counter.getKey().endsWith("0"));
+		final List<TopKSketch.Counter> filtered = report.getTopQueries().getTop(10, Arrays.asList("q12"));
+		for (TopKSketch.Counter counter : filtered)
+			Assert.assertTrue(counter.getKey().contains("q12"));
+	}
+
+	@Test
+	public void testMerge() {
+		final QueryReport report1 = new QueryReport();
+		final QueryReport report2 = new QueryReport();
+		final QueryReport all = new QueryReport();
+		addQueries(report1, new Random(2), 50000);
+		addQueries(report2, new Random(3), 50000);
+		addQueries(all, new Random(2), 50000);
+		addQueries(all, new Random(3), 50000);
+		report1.merge(report2);
+		Assert.assertEquals(all.getQueryCount(), report1.getQueryCount());
+		Assert.assertEquals(all.getNoResultCount(), report1.getNoResultCount());
+		Assert.assertEquals(all.getDistinctQueryCount(), report1.getDistinctQueryCount());
+		Assert.assertEquals(all.getResponseTimes().getPercentile(50), report1.getResponseTimes().getPercentile(50));
+		Assert.assertEquals(all.getTopQueries().getTop(1, null).get(0).getKey(),
+				report1.getTopQueries().getTop(1, null).get(0).getKey());
+	}
+
+	@Test
+	public void testDistinct() {
+		final HyperLogLogSketch sketch = new HyperLogLogSketch();
+		for (int i = 0; i < 100000; i++)
+			sketch.add("query " + (i % 30000));
+		final long cardinality = sketch.getCardinality();
+		Assert.assertTrue(Long.toString(cardinality), Math.abs(cardinality - 30000) < 1500);
+		final HyperLogLogSketch small = new HyperLogLogSketch();
+		for (int i = 0; i < 100; i++)
+			small.add("query " + (i % 10));
+		Assert.assertEquals(10, small.getCardinality());
+	}
+
+	@Test
+	public void testPercentile() {
+		final LatencyHistogram histogram = new LatencyHistogram();
+		Assert.assertNull(histogram.getPercentile(50));
+		for (int i = 1; i <= 1000; i++)
+			histogram.add(i);
+		final long median = histogram.getPercentile(50);
+		Assert.assertTrue(Long.toString(median), median >= 440 && median <= 500);
+		final long p99 = histogram.getPercentile(99);
+		Assert.assertTrue(Long.toString(p99), p99 >= 870 && p99 <= 990);
+		Assert.assertEquals(Long.valueOf(1), histogram.getPercentile(0));
+	}
+
+	@Test
+	public void testReadWrite() throws IOException {
+		final QueryReport report = new QueryReport();
+		addQueries(report, new Random(4), 10000);
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		report.write(new DataOutputStream(bytes));
+		final QueryReport read = QueryReport.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+		Assert.assertEquals(report.getQueryCount(), read.getQueryCount());
+		Assert.assertEquals(report.getDistinctQueryCount(), read.getDistinctQueryCount());
+		Assert.assertEquals(report.getResponseTimes().getPercentile(90), read.getResponseTimes().getPercentile(90));
+		final TopKSketch.Counter expected = report.getTopQueries().getTop(1, null).get(0);
+		final TopKSketch.Counter actual = read.getTopQueries().getTop(1, null).get(0);
+		Assert.assertEquals(expected.getKey(), actual.getKey());
+		Assert.assertEquals(expected.getCount(), actual.getCount());
+		Assert.assertEquals(expected.getError(), actual.getError());
+	}
+
+	@Test
+	public void testLongQuery() throws IOException {
+		final StringBuilder sb = new StringBuilder();
+		while (sb.length() <= TopKSketch.MAX_KEY_LENGTH)
+			sb.append("\u00e9t\u00e9 ");
+		final TopKSketch sketch = new TopKSketch(10);
+		sketch.add(sb.toString());
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		sketch.write(new DataOutputStream(bytes));
+		final TopKSketch read = TopKSketch.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+		Assert.assertEquals(sb.substring(0, TopKSketch.MAX_KEY_LENGTH), read.getTop(1, null).get(0).getKey());
+	}
+}
@@ -0,0 +1,101 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.report;
+
+import com.jaeksoft.searchlib.logreport.DailyLogger;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPOutputStream;
+
+public class ReportsManagerTest {
+
+	private final static String LOG_FILE = "report.test.2017-03-14";
+
+	private File logDirectory;
+
+	private File reportDirectory;
+
+	@Before
+	public void before() throws IOException {
+		logDirectory = Files.createTempDirectory("oss-log").toFile();
+		reportDirectory = Files.createTempDirectory("oss-report").toFile();
+	}
+
+	@After
+	public void after() throws IOException {
+		FileUtils.deleteDirectory(logDirectory);
+		FileUtils.deleteDirectory(reportDirectory);
+	}
+
+	private void appendLines(int from, int to) throws IOException {
+		final StringBuilder sb = new StringBuilder();
+		for (int i = from; i < to; i++)
+			sb.append("2017-03-14T10:00:00\tquery").append(i).append("\t12\t3\n");
+		Files.write(new File(logDirectory, LOG_FILE).toPath(), sb.toString().getBytes(StandardCharsets.UTF_8),
+				StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+	}
+
+	/**
+	 * Compress the log file and delete the original, as DailyLogger does
+	 */
+	private String rotate() throws IOException {
+		final File file = new File(logDirectory, LOG_FILE);
+		final String gzipName = LOG_FILE + DailyLogger.GZIP_EXTENSION;
+		try (final InputStream input = new FileInputStream(file);
+				final OutputStream output = new GZIPOutputStream(
+						new FileOutputStream(new File(logDirectory, gzipName)))) {
+			IOUtils.copy(input, output);
+		}
+		Assert.assertTrue(file.delete());
+		return gzipName;
+	}
+
+	@Test
+	public void loadRotatedFile() throws IOException {
+		final ReportsManager reportsManager = new ReportsManager(null, reportDirectory);
+		appendLines(0, 3);
+		Assert.assertEquals(3, reportsManager.loadReportFile(logDirectory, LOG_FILE));
+		appendLines(3, 5);
+		final String gzipName = rotate();
+		// Only the lines written after the previous load are read
+		Assert.assertEquals(2, reportsManager.loadReportFile(logDirectory, gzipName));
+		Assert.assertEquals(0, reportsManager.loadReportFile(logDirectory, gzipName));
+		Assert.assertEquals(5, reportsManager.getQueryReport(null, null).getQueryCount());
+	}
+}
@@ -0,0 +1,156 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.result.collector.join;
+
+import com.jaeksoft.searchlib.index.FieldCacheIndex;
+import com.jaeksoft.searchlib.join.JoinItem.JoinType;
+import com.jaeksoft.searchlib.result.collector.DocIdInterface;
+import com.jaeksoft.searchlib.result.collector.JoinDocInterface;
+import com.jaeksoft.searchlib.result.collector.docsethit.DocIdBufferCollector;
+import com.jaeksoft.searchlib.result.collector.docsethit.DocSetHitBaseCollector;
+import com.jaeksoft.searchlib.sort.SorterAbstract.NoCollectorException;
+import com.jaeksoft.searchlib.util.Timer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Checks that the hash join and the sort-merge join give the same results,
+ * using skewed key distributions.
+ */
+public class JoinUtilsTest {
+
+	/**
+	 * Build a field cache where the term of each document follows a skewed
+	 * distribution (a few keys are very frequent). Some documents have no
+	 * term.
+	 */
+	private static FieldCacheIndex newSkewedIndex(Random random, int maxDoc, int keyCount) {
+		final TreeSet<String> terms = new TreeSet<>();
+		final String[] docTerms = new String[maxDoc];
+		for (int doc = 0; doc < maxDoc; doc++) {
+			if (random.nextInt(20) == 0)
+				continue;
+			final int key = (int) (Math.pow(random.nextDouble(), 4) * keyCount);
+			docTerms[doc] = "key" + key;
+			terms.add(docTerms[doc]);
+		}
+		final String[] lookup = new String[terms.size() + 1];
+		int ord = 1;
+		for (String term : terms)
+			lookup[ord++] = term;
+		final int[] order = new int[maxDoc];
+		for (int doc = 0; doc < maxDoc; doc++)
+			order[doc] = docTerms[doc] == null ? 0 : Arrays.binarySearch(lookup, 1, lookup.length, docTerms[doc]);
+		return new FieldCacheIndex(lookup, order);
+	}
+
+	private static DocIdInterface newDocs(Random random, int maxDoc, int percent) throws IOException {
+		final DocSetHitBaseCollector base = new DocSetHitBaseCollector(maxDoc, false);
+		final DocIdBufferCollector collector = new DocIdBufferCollector(base);
+		for (int doc = 0; doc < maxDoc; doc++)
+			if (random.nextInt(100) < percent)
+				collector.collectDoc(doc);
+		collector.endCollection();
+		return base.getCollector(DocIdInterface.class);
+	}
+
+	/**
+	 * @return the term of the foreign document joined to each local document
+	 */
+	private static Map<Integer, String> join(DocIdInterface docs1, FieldCacheIndex index1, DocIdInterface docs2,
+			FieldCacheIndex index2, JoinType joinType, Set<String> outerValues, boolean hashJoin)
+			throws NoCollectorException {
+		final DocIdInterface result = JoinUtils.join(docs1, index1, docs2, index2, 1, 0, new Timer("join"), joinType,
+				outerValues == null ? null : (id, value) -> outerValues.add(value), null, hashJoin);
+		final JoinDocInterface joinDocs = result.getCollector(JoinDocInterface.class);
+		final Map<Integer, String> map = new TreeMap<>();
+		final int[] ids = result.getIds();
+		for (int pos = 0; pos < result.getSize(); pos++) {
+			final int foreignId = joinDocs.getForeignDocId(pos, 0);
+			map.put(ids[pos], foreignId == -1 ? null : index2.lookup[index2.order[foreignId]]);
+		}
+		return map;
+	}
+
+	private void check(long seed, int maxDoc1, int keyCount1, int maxDoc2, int keyCount2, JoinType joinType,
+			boolean outer) throws IOException, NoCollectorException {
+		final Random random = new Random(seed);
+		final FieldCacheIndex index1 = newSkewedIndex(random, maxDoc1, keyCount1);
+		final FieldCacheIndex index2 = newSkewedIndex(random, maxDoc2, keyCount2);
+		final DocIdInterface docs1 = newDocs(random, maxDoc1, 60);
+		final DocIdInterface docs2 = newDocs(random, maxDoc2, 80);
+		final Set<String> sortMergeOuterValues = outer ? new HashSet<>() : null;
+		final Set<String> hashOuterValues = outer ? new HashSet<>() : null;
+		final Map<Integer, String> sortMerge =
+				join(docs1, index1, docs2, index2, joinType, sortMergeOuterValues, false);
+		final Map<Integer, String> hash = join(docs1, index1, docs2, index2, joinType, hashOuterValues, true);
+		Assert.assertFalse(sortMerge.isEmpty());
+		Assert.assertEquals(sortMerge, hash);
+		if (!outer)
+			return;
+		// The outer collector receives the foreign terms without local document
+		final Set<String> localValues = new HashSet<>();
+		for (int pos = 0; pos < docs1.getSize(); pos++)
+			localValues.add(index1.lookup[index1.order[docs1.getIds()[pos]]]);
+		final Set<String> expectedOuterValues = new HashSet<>();
+		for (int pos = 0; pos < docs2.getSize(); pos++) {
+			final String value = index2.lookup[index2.order[docs2.getIds()[pos]]];
+			if (!localValues.contains(value))
+				expectedOuterValues.add(value);
+		}
+		Assert.assertFalse(expectedOuterValues.isEmpty());
+		Assert.assertEquals(expectedOuterValues, hashOuterValues);
+		Assert.assertTrue(sortMergeOuterValues.containsAll(expectedOuterValues));
+	}
+
+	@Test
+	public void innerJoinLargeLocal() throws IOException, NoCollectorException {
+		check(1, 20000, 2000, 500, 300, JoinType.INNER, false);
+	}
+
+	@Test
+	public void innerJoinLargeForeign() throws IOException, NoCollectorException {
+		check(2, 500, 300, 20000, 2000, JoinType.INNER, false);
+	}
+
+	@Test
+	public void innerJoinOuterCollector() throws IOException, NoCollectorException {
+		check(3, 5000, 1000, 3000, 1500, JoinType.INNER, true);
+	}
+
+	@Test
+	public void outerJoin() throws IOException, NoCollectorException {
+		check(4, 5000, 1000, 3000, 1500, JoinType.OUTER, false);
+	}
+}
@@ -33,6 +33,7 @@ import com.jaeksoft.searchlib.parser.ParserResultItem;
 import com.jaeksoft.searchlib.parser.htmlParser.HtmlParserEnum;
 import com.jaeksoft.searchlib.streamlimiter.StreamLimiter;
 import com.jaeksoft.searchlib.streamlimiter.StreamLimiterFile;
+import com.jaeksoft.searchlib.streamlimiter.StreamLimiterString;
 import com.jaeksoft.searchlib.util.map.SourceField;
 import org.junit.Assert;
 import org.junit.Ignore;
@@ -84,4 +85,17 @@ public class HtmlParserTest {
 	public void testGeneratedSourceWithExclusionNekoHtml() {
 		testGeneratedSourceWithExclusion(HtmlParserEnum.NekoHtmlParser);
 	}
+
+	@Test
+	public void testMixedCaseMetaCharset() throws IOException, SearchLibException {
+		final StreamLimiter streamLimiter = new StreamLimiterString(
+				"<html><head><meta http-equiv=\"Content-Type\" content=\"text/html; charset=Windows-1252\"/>"
+						+ "<title>Charset</title></head><body><p>Content</p></body></html>", 0, null, null);
+		final HtmlParser parser = new HtmlParser();
+		parser.initProperties();
+		parser.doParserContent(null, null, streamLimiter, LanguageEnum.ENGLISH);
+		final List<ParserResultItem> results = parser.getParserResults();
+		// The sniffed charset is kept: the page was not parsed a second time
+		Assert.assertEquals("windows-1252", results.get(0).getFieldValue(ParserFieldEnum.charset, 0));
+	}
 }
@@ -34,16 +34,38 @@ import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
 import com.jaeksoft.searchlib.ClientCatalog;
+import com.jaeksoft.searchlib.classifier.ClassifierRuleIndexTest;
+import com.jaeksoft.searchlib.cluster.ClusterManagerTest;
+import com.jaeksoft.searchlib.crawler.cache.SegmentFileStoreTest;
+import com.jaeksoft.searchlib.crawler.mailbox.crawler.IMAPFolderSyncTest;
+import com.jaeksoft.searchlib.crawler.rest.JsonStreamExtractorTest;
+import com.jaeksoft.searchlib.index.IOStatisticsDirectoryTest;
+import com.jaeksoft.searchlib.index.MoreLikeThisCacheTest;
+import com.jaeksoft.searchlib.index.ObjectStorageBlockCacheTest;
+import com.jaeksoft.searchlib.index.ResultSearchCacheItemTest;
+import com.jaeksoft.searchlib.parser.htmlParser.HtmlCharsetSnifferTest;
+import com.jaeksoft.searchlib.report.QueryReportTest;
+import com.jaeksoft.searchlib.report.ReportsManagerTest;
+import com.jaeksoft.searchlib.result.collector.join.JoinUtilsTest;
 import com.jaeksoft.searchlib.test.library.LibraryIndexCreateExistsListTest;
 import com.jaeksoft.searchlib.test.library.LibraryIndexDataTest;
 import com.jaeksoft.searchlib.test.library.LibraryIndexFileTest;
 import com.jaeksoft.searchlib.test.library.LibrarySchemaTest;
+import com.jaeksoft.searchlib.test.library.LibraryXmlStreamLoaderTest;
 import com.jaeksoft.searchlib.util.FileUtils;
+import com.jaeksoft.searchlib.util.GeoHashTest;
+import com.jaeksoft.searchlib.util.SimHashTest;
 
 @RunWith(Suite.class)
 @SuiteClasses({ LibraryIndexCreateExistsListTest.class,
 		LibraryIndexFileTest.class, LibrarySchemaTest.class,
-		LibraryIndexDataTest.class })
+		LibraryIndexDataTest.class, LibraryXmlStreamLoaderTest.class,
+		ObjectStorageBlockCacheTest.class, JoinUtilsTest.class, GeoHashTest.class,
+		ClassifierRuleIndexTest.class, SimHashTest.class, MoreLikeThisCacheTest.class,
+		HtmlCharsetSnifferTest.class, ResultSearchCacheItemTest.class,
+		QueryReportTest.class, ReportsManagerTest.class, IMAPFolderSyncTest.class,
+		JsonStreamExtractorTest.class, SegmentFileStoreTest.class,
+		IOStatisticsDirectoryTest.class, ClusterManagerTest.class })
 public class LibraryTest {
 
 	public static final String EMPTY_INDEX_NAME = "oss_testing_empty";
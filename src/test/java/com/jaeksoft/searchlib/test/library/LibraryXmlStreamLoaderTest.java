@@ -0,0 +1,114 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.test.library;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import com.jaeksoft.searchlib.Client;
+import com.jaeksoft.searchlib.ClientCatalog;
+import com.jaeksoft.searchlib.SearchLibException;
+import com.jaeksoft.searchlib.index.XmlStreamLoader;
+import com.jaeksoft.searchlib.request.SearchFieldRequest;
+import com.jaeksoft.searchlib.result.AbstractResultSearch;
+import com.jaeksoft.searchlib.test.LibraryTest;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class LibraryXmlStreamLoaderTest {
+
+	private final static String HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<index>\n";
+
+	private final static String FIRST_BATCH = document("x1", "First feed document")
+			+ document("x2", "Second feed document");
+
+	private final static String SECOND_BATCH = document("x3", "Third feed document")
+			+ "<delete><uniquekey>x1</uniquekey></delete>\n";
+
+	private static String document(String id, String title) {
+		return "<document lang=\"en\"><field name=\"id\"><value>" + id
+				+ "</value></field><field name=\"title\"><value>" + title
+				+ "</value></field><field name=\"category\"><value>Feed</value></field></document>\n";
+	}
+
+	private static long count(Client client, String filter)
+			throws SearchLibException {
+		SearchFieldRequest request = new SearchFieldRequest(client);
+		request.setEmptyReturnsAll(true);
+		request.setQueryString("");
+		request.addFilter(filter, false);
+		request.setRows(10);
+		AbstractResultSearch<?> results = (AbstractResultSearch<?>) client
+				.request(request);
+		return results.getNumFound();
+	}
+
+	/**
+	 * An interrupted feed keeps the committed batches and gives the offset to
+	 * resume from
+	 */
+	@Test
+	public void testA_InterruptedLoad() throws IOException, SearchLibException {
+		Client client = ClientCatalog.getClient(LibraryTest.EMPTY_INDEX_NAME);
+		XmlStreamLoader loader = new XmlStreamLoader(client, 2, null, null,
+				null);
+		try {
+			loader.load(new StringReader(HEADER + FIRST_BATCH
+					+ "<document><field name=\"id\"><value>x3"), 0);
+			fail("The truncated feed should fail");
+		} catch (SearchLibException e) {
+			// Expected
+		}
+		assertEquals(2, loader.getUpdatedCount());
+		assertEquals(HEADER.length() + FIRST_BATCH.length() - 1,
+				loader.getCheckpoint());
+		assertEquals(2, count(client, "category:Feed"));
+	}
+
+	/**
+	 * The load resumes after the last committed document
+	 */
+	@Test
+	public void testB_ResumeLoad() throws IOException, SearchLibException {
+		Client client = ClientCatalog.getClient(LibraryTest.EMPTY_INDEX_NAME);
+		XmlStreamLoader loader = new XmlStreamLoader(client, 2, null, null,
+				null);
+		long checkpoint = HEADER.length() + FIRST_BATCH.length() - 1;
+		loader.load(new StringReader(HEADER + FIRST_BATCH + SECOND_BATCH
+				+ "</index>"), checkpoint);
+		assertEquals(1, loader.getUpdatedCount());
+		assertEquals(1, loader.getDeletedCount());
+		assertEquals(HEADER.length() + FIRST_BATCH.length()
+				+ SECOND_BATCH.length() - 1, loader.getCheckpoint());
+		assertEquals(2, count(client, "category:Feed"));
+		assertEquals(0, count(client, "id:x1"));
+	}
+}
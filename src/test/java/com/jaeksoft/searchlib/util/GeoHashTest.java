@@ -0,0 +1,72 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.util;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class GeoHashTest {
+
+	@Test
+	public void testEncode() {
+		Assert.assertEquals("u4pruydqqvj",
+				GeoHash.encode(Math.toRadians(57.64911), Math.toRadians(10.40744), 11));
+		String hash = GeoHash.encode(Math.toRadians(48.8566), Math.toRadians(2.3522), GeoHash.DEFAULT_PRECISION);
+		Assert.assertEquals("u09tvw0f6", hash);
+		// Each prefix is the hash of the enclosing cell
+		Assert.assertEquals(hash.substring(0, 5),
+				GeoHash.encode(Math.toRadians(48.8566), Math.toRadians(2.3522), 5));
+	}
+
+	@Test
+	public void testCover() {
+		double lat = Math.toRadians(48.8566);
+		double lon = Math.toRadians(2.3522);
+		double delta = Math.toRadians(0.01);
+		List<GeoHash.Cell> cells = GeoHash.cover(lat - delta, lon - delta, lat + delta, lon + delta,
+				GeoHash.DEFAULT_PRECISION, 64);
+		Assert.assertTrue(cells.size() <= 64);
+		boolean found = false;
+		for (GeoHash.Cell cell : cells) {
+			Assert.assertTrue(cell.maxLatitude >= lat - delta && cell.minLatitude <= lat + delta);
+			Assert.assertTrue(cell.maxLongitude >= lon - delta && cell.minLongitude <= lon + delta);
+			if (GeoHash.encode(lat, lon, cell.hash.length()).equals(cell.hash))
+				found = true;
+		}
+		Assert.assertTrue(found);
+	}
+
+	@Test
+	public void testCoverAntimeridian() {
+		List<GeoHash.Cell> cells = GeoHash.cover(Math.toRadians(-10), Math.toRadians(179), Math.toRadians(10),
+				Math.toRadians(-179), GeoHash.DEFAULT_PRECISION, 64);
+		Assert.assertFalse(cells.isEmpty());
+		Assert.assertTrue(cells.size() <= 64);
+		for (GeoHash.Cell cell : cells)
+			Assert.assertTrue(cell.minLongitude >= Math.toRadians(178) || cell.maxLongitude <= Math.toRadians(-178));
+	}
+}
@@ -0,0 +1,59 @@
+/*
+ * License Agreement for OpenSearchServer
+ * <p>
+ * Copyright (C) 2017 Emmanuel Keller / Jaeksoft
+ * <p>
+ * http://www.open-search-server.com
+ * <p>
+ * This file is part of OpenSearchServer.
+ * <p>
+ * OpenSearchServer is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * OpenSearchServer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with OpenSearchServer.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jaeksoft.searchlib.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SimHashTest {
+
+	private static long fingerprint(CharSequence text) {
+		SimHash simHash = new SimHash();
+		simHash.add(text);
+		return simHash.getFingerprint();
+	}
+
+	@Test
+	public void testNearDuplicate() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 20; i++)
+			sb.append("The quick brown fox").append(i).append(" jumps over the lazy dog near the small house. ");
+		String text = sb.toString();
+		long f1 = fingerprint(text);
+		Assert.assertEquals(f1, fingerprint(text.toUpperCase()));
+		Assert.assertTrue(SimHash.distance(f1, fingerprint(text.replace("fox7", "wolf"))) <= 3);
+		Assert.assertTrue(SimHash.distance(f1,
+				fingerprint("Networks, protocols and databases are described in this other document.")) > 3);
+	}
+
+	@Test
+	public void testFormat() {
+		long f = fingerprint("hello");
+		Assert.assertEquals(16, SimHash.toString(f).length());
+		Assert.assertEquals(Long.valueOf(f), SimHash.parse(SimHash.toString(f)));
+		Assert.assertNull(new SimHash().getFingerprint());
+		Assert.assertNull(SimHash.parse("not an hash"));
+	}
+}